@@ -0,0 +1,82 @@
+package com.hbs.entitysense.embedding;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+import static com.hbs.entitysense.constants.EntitySenseConstant.EMBEDDING_DIMENSION;
+
+/**
+ * Cost of turning one {@code /api/embeddings} response into a {@code float[]}:
+ *
+ * <ul>
+ *     <li>{@code boxed} - the body as a {@code String}, bound to a {@code List<Float>} DTO and copied out, as the
+ *     client did before {@link EmbeddingBodySubscriber}</li>
+ *     <li>{@code streaming} - the body's bytes fed to {@link EmbeddingBodySubscriber} in 16 KB buffers, the size the
+ *     JDK HTTP client delivers</li>
+ * </ul>
+ *
+ * <p>Run with {@code -prof gc}: {@code gc.alloc.rate.norm} is the garbage per parsed response.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EmbeddingParsingBenchmark {
+
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    private static final Flow.Subscription NO_BACKPRESSURE = new Flow.Subscription() {
+        @Override public void request(long n) { }
+        @Override public void cancel() { }
+    };
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private byte[] body;
+
+    /** Shape of the response DTO the client used to bind. */
+    public static class BoxedEmbeddingResponse {
+        public List<Float> embedding;
+    }
+
+    @Setup
+    public void setUp() {
+        // Ollama prints each component as a float widened to double, e.g. 0.017287494242191315
+        Random random = new Random(42);
+        StringBuilder json = new StringBuilder("{\"embedding\":[");
+        for (int i = 0; i < EMBEDDING_DIMENSION; i++) {
+            json.append(i == 0 ? "" : ",").append((double) (float) (random.nextGaussian() * 0.05));
+        }
+        body = json.append("]}").toString().getBytes(StandardCharsets.UTF_8);
+        System.out.printf("%nresponse body: %d bytes%n", body.length);
+    }
+
+    @Benchmark
+    public float[] boxed() throws Exception {
+        String text = new String(body, StandardCharsets.UTF_8);
+        List<Float> list = objectMapper.readValue(text, BoxedEmbeddingResponse.class).embedding;
+        float[] arr = new float[list.size()];
+        for (int i = 0; i < list.size(); i++) arr[i] = list.get(i);
+        return arr;
+    }
+
+    @Benchmark
+    public float[] streaming() {
+        HttpResponse.BodySubscriber<float[]> subscriber = EmbeddingBodySubscriber.single(objectMapper.getFactory());
+        subscriber.onSubscribe(NO_BACKPRESSURE);
+        for (int from = 0; from < body.length; from += BUFFER_SIZE) {
+            subscriber.onNext(List.of(ByteBuffer.wrap(body, from, Math.min(BUFFER_SIZE, body.length - from))));
+        }
+        subscriber.onComplete();
+        return subscriber.getBody().toCompletableFuture().join();
+    }
+}
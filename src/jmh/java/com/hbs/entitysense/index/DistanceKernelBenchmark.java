@@ -0,0 +1,118 @@
+package com.hbs.entitysense.index;
+
+import com.hbs.entitysense.model.VectorQuantisation;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static com.hbs.entitysense.constants.EntitySenseConstant.EMBEDDING_DIMENSION;
+
+/**
+ * Cost of scoring one query against the whole watchlist, i.e. the inner loop of {@code validatePayment}.
+ *
+ * <ul>
+ *     <li>{@code legacy} - the original {@code cosineDistance}: both norms via {@code Math.pow} on every call</li>
+ *     <li>{@code scalarPrecomputedNorms} / {@code simdPrecomputedNorms} - kernel with the query norm computed once
+ *     and stored norms computed up front</li>
+ *     <li>{@code scalarOffHeapIndex} / {@code simdOffHeapIndex} - pre-normalised off-heap {@link VectorSegment} scan</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules=jdk.incubator.vector", "-Xmx4g"})
+public class DistanceKernelBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    private int watchlistSize;
+
+    private float[] query;
+    private float[][] watchlist;
+    private double[] storedNorms;
+    private VectorSegment segment;
+    private float[] unitQuery;
+
+    private final DistanceKernel scalar = new ScalarDistanceKernel();
+    private DistanceKernel simd;
+
+    @Setup
+    public void setUp() {
+        simd = DistanceKernels.simdOrNull();
+        if (simd == null) {
+            throw new IllegalStateException("Run with --add-modules=jdk.incubator.vector");
+        }
+        Random random = new Random(42);
+        query = randomVector(random);
+        unitQuery = WatchlistVectorIndex.normalise(query);
+        watchlist = new float[watchlistSize][];
+        storedNorms = new double[watchlistSize];
+        segment = VectorSegment.create(EMBEDDING_DIMENSION, 4096, VectorQuantisation.NONE);
+        for (int i = 0; i < watchlistSize; i++) {
+            watchlist[i] = randomVector(random);
+            storedNorms[i] = scalar.norm(watchlist[i]);
+            segment.append(i, WatchlistVectorIndex.normalise(watchlist[i]));
+        }
+    }
+
+    private static float[] randomVector(Random random) {
+        float[] vector = new float[EMBEDDING_DIMENSION];
+        for (int i = 0; i < vector.length; i++) vector[i] = random.nextFloat() * 2 - 1;
+        return vector;
+    }
+
+    @Benchmark
+    public void legacy(Blackhole blackhole) {
+        for (float[] stored : watchlist) {
+            blackhole.consume(legacyCosineDistance(query, stored));
+        }
+    }
+
+    @Benchmark
+    public void scalarPrecomputedNorms(Blackhole blackhole) {
+        scorePrecomputed(scalar, blackhole);
+    }
+
+    @Benchmark
+    public void simdPrecomputedNorms(Blackhole blackhole) {
+        scorePrecomputed(simd, blackhole);
+    }
+
+    @Benchmark
+    public void scalarOffHeapIndex(Blackhole blackhole) {
+        scoreSegment(scalar, blackhole);
+    }
+
+    @Benchmark
+    public void simdOffHeapIndex(Blackhole blackhole) {
+        scoreSegment(simd, blackhole);
+    }
+
+    private void scorePrecomputed(DistanceKernel kernel, Blackhole blackhole) {
+        double queryNorm = kernel.norm(query);
+        for (int i = 0; i < watchlist.length; i++) {
+            blackhole.consume(kernel.cosineDistance(query, queryNorm, watchlist[i], storedNorms[i]));
+        }
+    }
+
+    private void scoreSegment(DistanceKernel kernel, Blackhole blackhole) {
+        float[] scratch = new float[EMBEDDING_DIMENSION];
+        for (int slot = 0, size = segment.size(); slot < size; slot++) {
+            blackhole.consume(1.0 - segment.dot(kernel, unitQuery, slot, scratch));
+        }
+    }
+
+    private static double legacyCosineDistance(float[] vectorA, float[] vectorB) {
+        double dotProduct = 0.0, normA = 0.0, normB = 0.0;
+        for (int i = 0; i < vectorA.length; i++) {
+            dotProduct += vectorA[i] * vectorB[i];
+            normA += Math.pow(vectorA[i], 2);
+            normB += Math.pow(vectorB[i], 2);
+        }
+        if (normA == 0.0 || normB == 0.0) return 1.0;
+        return 1 - (dotProduct / (Math.sqrt(normA) * Math.sqrt(normB)));
+    }
+}
@@ -0,0 +1,133 @@
+package com.hbs.entitysense.index;
+
+import com.hbs.entitysense.model.VectorQuantisation;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static com.hbs.entitysense.constants.EntitySenseConstant.EMBEDDING_DIMENSION;
+import static com.hbs.entitysense.constants.EntitySenseConstant.ENTITY_SENSE_COSINE_DISTANCE_THRESHOLD;
+
+/**
+ * Full-precision versus int8 in-memory index: scan time per query, plus off-heap size and recall printed once per
+ * trial. Recall compares the int8 coarse pass against the exact float scan over
+ * {@code ENTITY_SENSE_COSINE_DISTANCE_THRESHOLD}:
+ *
+ * <ul>
+ *     <li>{@code unwidened} - int8 distance under the plain threshold, i.e. quantisation without re-scoring</li>
+ *     <li>{@code widened} - int8 distance under the threshold plus the per-vector error bound, as
+ *     {@link WatchlistVectorIndex} searches; the index then re-scores these, so this is the end-to-end recall</li>
+ * </ul>
+ *
+ * <p>The watchlist is synthetic: clusters of noisy copies of a few centres, so exact distances fall on both sides of
+ * the threshold instead of all near 1.0 as they do for uniformly random vectors.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules=jdk.incubator.vector", "-Xmx4g"})
+public class QuantisationBenchmark {
+
+    private static final int CLUSTERS = 50;
+    private static final int RECALL_QUERIES = 200;
+
+    @Param({"10000", "100000"})
+    private int watchlistSize;
+
+    private VectorSegment floats;
+    private VectorSegment codes;
+    private float[] unitQuery;
+    private float queryL1Norm;
+
+    private DistanceKernel kernel;
+
+    @Setup
+    public void setUp() {
+        kernel = DistanceKernels.simdOrNull();
+        if (kernel == null) {
+            throw new IllegalStateException("Run with --add-modules=jdk.incubator.vector");
+        }
+        Random random = new Random(42);
+        float[][] centres = new float[CLUSTERS][];
+        for (int c = 0; c < CLUSTERS; c++) centres[c] = gaussian(random, 1.0f);
+        floats = VectorSegment.create(EMBEDDING_DIMENSION, 4096, VectorQuantisation.NONE);
+        codes = VectorSegment.create(EMBEDDING_DIMENSION, 4096, VectorQuantisation.INT8);
+        for (int i = 0; i < watchlistSize; i++) {
+            float[] unit = WatchlistVectorIndex.normalise(nearby(random, centres[i % CLUSTERS]));
+            floats.append(i, unit);
+            codes.append(i, unit);
+        }
+        unitQuery = WatchlistVectorIndex.normalise(nearby(random, centres[0]));
+        queryL1Norm = l1Norm(unitQuery);
+        reportFootprintAndRecall(random, centres);
+    }
+
+    @Benchmark
+    public void floatScan(Blackhole blackhole) {
+        float[] scratch = new float[EMBEDDING_DIMENSION];
+        for (int slot = 0, size = floats.size(); slot < size; slot++) {
+            blackhole.consume(1.0 - floats.dot(kernel, unitQuery, slot, scratch));
+        }
+    }
+
+    @Benchmark
+    public void int8Scan(Blackhole blackhole) {
+        float[] scratch = new float[EMBEDDING_DIMENSION];
+        for (int slot = 0, size = codes.size(); slot < size; slot++) {
+            blackhole.consume(1.0 - codes.dot(kernel, unitQuery, slot, scratch) - codes.maxDotError(slot, queryL1Norm));
+        }
+    }
+
+    private void reportFootprintAndRecall(Random random, float[][] centres) {
+        double threshold = ENTITY_SENSE_COSINE_DISTANCE_THRESHOLD;
+        long exactHits = 0, unwidenedHits = 0, widenedHits = 0, widenedCandidates = 0;
+        float[] scratch = new float[EMBEDDING_DIMENSION];
+        for (int q = 0; q < RECALL_QUERIES; q++) {
+            float[] query = WatchlistVectorIndex.normalise(nearby(random, centres[random.nextInt(CLUSTERS)]));
+            float l1 = l1Norm(query);
+            for (int slot = 0; slot < floats.size(); slot++) {
+                boolean exact = 1.0 - floats.dot(kernel, query, slot, scratch) < threshold;
+                double coarse = 1.0 - codes.dot(kernel, query, slot, scratch);
+                boolean widened = coarse - codes.maxDotError(slot, l1) - 1e-5 < threshold;
+                if (widened) widenedCandidates++;
+                if (exact) {
+                    exactHits++;
+                    if (coarse < threshold) unwidenedHits++;
+                    if (widened) widenedHits++;
+                }
+            }
+        }
+        System.out.printf("%nwatchlist=%d off-heap float=%d KB int8=%d KB (%.1fx smaller)%n", watchlistSize,
+                floats.offHeapBytes() / 1024, codes.offHeapBytes() / 1024, (double) floats.offHeapBytes() / codes.offHeapBytes());
+        System.out.printf("exact hits=%d recall unwidened=%.4f widened=%.4f, candidates re-scored per exact hit=%.2f%n",
+                exactHits, ratio(unwidenedHits, exactHits), ratio(widenedHits, exactHits), ratio(widenedCandidates, exactHits));
+    }
+
+    private static double ratio(long numerator, long denominator) {
+        return denominator == 0 ? 1.0 : (double) numerator / denominator;
+    }
+
+    private static float l1Norm(float[] vector) {
+        float sum = 0f;
+        for (float v : vector) sum += Math.abs(v);
+        return sum;
+    }
+
+    private static float[] nearby(Random random, float[] centre) {
+        // Noise from 0.3 to 1.0 of the centre's spread gives distances from ~0.05 to ~0.5
+        float noise = 0.3f + random.nextFloat() * 0.7f;
+        float[] vector = gaussian(random, noise);
+        for (int i = 0; i < vector.length; i++) vector[i] += centre[i];
+        return vector;
+    }
+
+    private static float[] gaussian(Random random, float sigma) {
+        float[] vector = new float[EMBEDDING_DIMENSION];
+        for (int i = 0; i < vector.length; i++) vector[i] = (float) (random.nextGaussian() * sigma);
+        return vector;
+    }
+}
@@ -0,0 +1,130 @@
+package com.hbs.entitysense.loadtest;
+
+import com.hbs.entitysense.EntitySenseApplication;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The application under test, started as a child JVM on the harness's own classpath so its heap, GC and allocation
+ * counters are not mixed with the load generator's. Readiness and allocation are read from the actuator, which
+ * needs the {@code health} and {@code prometheus} endpoints exposed (the default configuration does).
+ */
+final class AppProcess implements AutoCloseable {
+
+    private static final String ALLOCATED_BYTES_METRIC = "jvm_gc_memory_allocated_bytes_total";
+    private static final Duration POLL_INTERVAL = Duration.ofMillis(200);
+
+    private final Process process;
+    private final URI baseUri;
+    private final Path log;
+    private final HttpClient httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(2)).build();
+
+    private AppProcess(Process process, URI baseUri, Path log) {
+        this.process = process;
+        this.baseUri = baseUri;
+        this.log = log;
+    }
+
+    /**
+     * Starts the application against {@code ollamaUrl}, importing {@code watchlist} at startup. Readiness probes are
+     * switched on so {@code /actuator/health/readiness} only reports UP once the import runner and the index loads
+     * are done.
+     */
+    static AppProcess start(LoadTestOptions options, String ollamaUrl, Path watchlist, Path log) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(ProcessHandle.current().info().command().orElse("java"));
+        command.addAll(options.appJvmArgs());
+        if (options.dbPassword() != null) {
+            command.add("-Dentity_db_password=" + options.dbPassword());
+        }
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(EntitySenseApplication.class.getName());
+        command.add("--server.port=" + options.appPort());
+        command.add("--spring.datasource.url=" + options.dbUrl());
+        command.add("--spring.datasource.username=" + options.dbUser());
+        command.add("--entity-sense.ollama.endpoints=" + ollamaUrl);
+        command.add("--management.endpoint.health.probes.enabled=true");
+        command.add("--import-watchlist=" + watchlist.toAbsolutePath());
+        command.addAll(options.appArgs());
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile())
+                .start();
+        return new AppProcess(process, URI.create("http://localhost:" + options.appPort()), log);
+    }
+
+    URI uri(String path) {
+        return baseUri.resolve(path);
+    }
+
+    /** Waits until the actuator answers, i.e. the web server is up and the import runner is about to start. */
+    void awaitStarted(Duration timeout) throws IOException, InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (true) {
+            try {
+                get("/actuator/health");
+                return;
+            } catch (ConnectException notYet) {
+                sleepUntil(deadline, "start");
+            }
+        }
+    }
+
+    /** Waits until the readiness probe reports UP. */
+    void awaitReady(Duration timeout) throws IOException, InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (get("/actuator/health/readiness").statusCode() != 200) {
+            sleepUntil(deadline, "become ready");
+        }
+    }
+
+    /**
+     * Bytes allocated by the application so far. Micrometer samples the counter at each GC, so differences are exact
+     * only to within one young generation; measure over windows that span many collections.
+     */
+    long allocatedBytes() throws IOException, InterruptedException {
+        HttpResponse<String> response = get("/actuator/prometheus");
+        for (String line : response.body().split("\n")) {
+            if (line.startsWith(ALLOCATED_BYTES_METRIC)) {
+                return (long) Double.parseDouble(line.substring(line.lastIndexOf(' ') + 1));
+            }
+        }
+        throw new IllegalStateException(ALLOCATED_BYTES_METRIC + " missing from /actuator/prometheus");
+    }
+
+    private HttpResponse<String> get(String path) throws IOException, InterruptedException {
+        if (!process.isAlive()) {
+            throw new IllegalStateException("Application exited with code " + process.exitValue() + ", see " + log);
+        }
+        HttpRequest request = HttpRequest.newBuilder(uri(path)).timeout(Duration.ofSeconds(10)).GET().build();
+        return httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private void sleepUntil(long deadline, String what) throws InterruptedException {
+        if (System.nanoTime() > deadline) {
+            throw new IllegalStateException("Application did not " + what + " in time, see " + log);
+        }
+        Thread.sleep(POLL_INTERVAL);
+    }
+
+    /** Stops the application gracefully, killing it if shutdown hangs. */
+    @Override
+    public void close() throws InterruptedException {
+        process.destroy();
+        if (!process.waitFor(60, TimeUnit.SECONDS)) {
+            process.destroyForcibly().waitFor();
+        }
+        httpClient.close();
+    }
+}
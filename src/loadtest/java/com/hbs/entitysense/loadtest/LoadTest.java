@@ -0,0 +1,88 @@
+package com.hbs.entitysense.loadtest;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Load-test and regression harness. For every watchlist size it resets the database, starts the application against
+ * {@link StubOllamaServer} with the synthetic watchlist passed to {@code --import-watchlist}, times the import until
+ * the application reports ready ({@code ingest}), then drives {@code /api/validate-payment}
+ * ({@code validate-payment}). Results go to {@code --output}; with {@code --baseline} the run fails on a regression.
+ *
+ * <p>{@code --reset-database=true} (the default) truncates the watchlist tables, so point {@code --db-url} at a
+ * database kept for load testing. {@code --stub-only=true} only serves the stub Ollama, e.g. for a manually
+ * started application.
+ */
+public final class LoadTest {
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        try (StubOllamaServer ollama = StubOllamaServer.start(options.ollamaPort(), options.ollamaLatency(), options.ollamaJitter())) {
+            if (options.stubOnly()) {
+                System.out.println("Stub Ollama serving at " + ollama.url());
+                Thread.currentThread().join();
+            }
+            LoadTestReport report = new LoadTestReport(Instant.now(), options.describe(), run(options, ollama));
+            report.print(System.out);
+            System.out.println("Results written to " + report.write(options.output()));
+            if (options.baseline() != null) {
+                List<String> regressions = report.compare(LoadTestReport.read(options.baseline()), options.tolerance());
+                regressions.forEach(regression -> System.out.println("REGRESSION " + regression));
+                if (!regressions.isEmpty()) {
+                    System.exit(1);
+                }
+                System.out.println("No regression against " + options.baseline());
+            }
+        }
+    }
+
+    private static List<ScenarioResult> run(LoadTestOptions options, StubOllamaServer ollama) throws Exception {
+        List<ScenarioResult> results = new ArrayList<>();
+        for (int size : options.watchlistSizes()) {
+            SyntheticWatchlist watchlist = new SyntheticWatchlist(size);
+            Path csv = watchlist.writeCsv(options.output());
+            if (options.resetDatabase()) {
+                resetDatabase(options);
+            }
+            System.out.println("Watchlist of " + size + " entities: starting application");
+            try (AppProcess app = AppProcess.start(options, ollama.url(), csv, options.output().resolve("app-" + size + ".log"))) {
+                results.add(ingest(options, app, size));
+                System.out.println("Watchlist of " + size + " entities: driving /api/validate-payment");
+                results.add(new PaymentScenario(options, app, watchlist).run());
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Import throughput from the moment the web server answers to the moment the application is ready to screen,
+     * which includes building any in-memory index over the imported rows.
+     */
+    private static ScenarioResult ingest(LoadTestOptions options, AppProcess app, int size) throws Exception {
+        app.awaitStarted(Duration.ofMinutes(5));
+        long allocatedBefore = app.allocatedBytes();
+        long start = System.nanoTime();
+        app.awaitReady(options.readyTimeout());
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long allocated = app.allocatedBytes() - allocatedBefore;
+        return new ScenarioResult(ScenarioResult.INGEST, size, size, 0, seconds, size / seconds, null, null, null,
+                allocated / seconds / (1 << 20), (double) allocated / size);
+    }
+
+    private static void resetDatabase(LoadTestOptions options) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(options.dbUrl(), options.dbUser(), options.dbPassword());
+             Statement statement = connection.createStatement()) {
+            statement.execute("TRUNCATE entitysenseschema.watchlist_entities, entitysenseschema.watchlist_import_checkpoints RESTART IDENTITY");
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.hbs.entitysense.loadtest;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@code --name=value} options of {@link LoadTest}. Durations use the Spring style ({@code 30s}, {@code 250ms},
+ * {@code 5m}).
+ */
+record LoadTestOptions(List<Integer> watchlistSizes,
+                       int concurrency,
+                       Duration warmup,
+                       Duration duration,
+                       Duration ollamaLatency,
+                       Duration ollamaJitter,
+                       int ollamaPort,
+                       int appPort,
+                       List<String> appJvmArgs,
+                       List<String> appArgs,
+                       Duration readyTimeout,
+                       boolean resetDatabase,
+                       String dbUrl,
+                       String dbUser,
+                       String dbPassword,
+                       Path output,
+                       Path baseline,
+                       double tolerance,
+                       boolean stubOnly) {
+
+    private static final Map<String, String> DEFAULTS = new LinkedHashMap<>();
+
+    static {
+        DEFAULTS.put("watchlist-sizes", "10000,100000,1000000");
+        DEFAULTS.put("concurrency", "32");
+        DEFAULTS.put("warmup", "20s");
+        DEFAULTS.put("duration", "60s");
+        DEFAULTS.put("ollama-latency", "15ms");
+        DEFAULTS.put("ollama-jitter", "10ms");
+        DEFAULTS.put("ollama-port", "0");
+        DEFAULTS.put("app-port", "18688");
+        DEFAULTS.put("app-jvm-args", "-Xmx4g --add-modules=jdk.incubator.vector");
+        DEFAULTS.put("app-args", "");
+        DEFAULTS.put("ready-timeout", "2h");
+        DEFAULTS.put("reset-database", "true");
+        DEFAULTS.put("db-url", "jdbc:postgresql://localhost:5432/entitydb?currentSchema=entitysenseschema,public&reWriteBatchedInserts=true");
+        DEFAULTS.put("db-user", "entityadmin");
+        DEFAULTS.put("output", "target/loadtest");
+        DEFAULTS.put("baseline", "");
+        DEFAULTS.put("tolerance", "0.10");
+        DEFAULTS.put("stub-only", "false");
+    }
+
+    static LoadTestOptions parse(String[] args) {
+        Map<String, String> values = new HashMap<>(DEFAULTS);
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (!arg.startsWith("--") || eq < 0 || !DEFAULTS.containsKey(arg.substring(2, eq))) {
+                throw new IllegalArgumentException("Unknown option " + arg + "; expected --name=value with name one of " + DEFAULTS.keySet());
+            }
+            values.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        String password = System.getProperty("entity_db_password", System.getenv("entity_db_password"));
+        return new LoadTestOptions(
+                Arrays.stream(values.get("watchlist-sizes").split(",")).map(String::trim).map(Integer::parseInt).toList(),
+                Integer.parseInt(values.get("concurrency")),
+                duration(values.get("warmup")),
+                duration(values.get("duration")),
+                duration(values.get("ollama-latency")),
+                duration(values.get("ollama-jitter")),
+                Integer.parseInt(values.get("ollama-port")),
+                Integer.parseInt(values.get("app-port")),
+                words(values.get("app-jvm-args")),
+                words(values.get("app-args")),
+                duration(values.get("ready-timeout")),
+                Boolean.parseBoolean(values.get("reset-database")),
+                values.get("db-url"),
+                values.get("db-user"),
+                password,
+                Path.of(values.get("output")),
+                values.get("baseline").isBlank() ? null : Path.of(values.get("baseline")),
+                Double.parseDouble(values.get("tolerance")),
+                Boolean.parseBoolean(values.get("stub-only")));
+    }
+
+    /** Settings recorded with the results, so runs made with different loads are not compared unknowingly. */
+    Map<String, Object> describe() {
+        Map<String, Object> settings = new LinkedHashMap<>();
+        settings.put("concurrency", concurrency);
+        settings.put("warmup", warmup.toString());
+        settings.put("duration", duration.toString());
+        settings.put("ollamaLatency", ollamaLatency.toString());
+        settings.put("ollamaJitter", ollamaJitter.toString());
+        settings.put("appJvmArgs", String.join(" ", appJvmArgs));
+        settings.put("appArgs", String.join(" ", appArgs));
+        settings.put("availableProcessors", Runtime.getRuntime().availableProcessors());
+        settings.put("javaVersion", Runtime.version().toString());
+        return settings;
+    }
+
+    private static Duration duration(String value) {
+        String v = value.trim();
+        if (v.endsWith("ms")) return Duration.ofMillis(Long.parseLong(v.substring(0, v.length() - 2)));
+        long amount = Long.parseLong(v.substring(0, v.length() - 1));
+        return switch (v.charAt(v.length() - 1)) {
+            case 's' -> Duration.ofSeconds(amount);
+            case 'm' -> Duration.ofMinutes(amount);
+            case 'h' -> Duration.ofHours(amount);
+            default -> throw new IllegalArgumentException("Unrecognised duration " + value + "; use ms, s, m or h");
+        };
+    }
+
+    private static List<String> words(String value) {
+        return value.isBlank() ? List.of() : List.of(value.trim().split("\\s+"));
+    }
+}
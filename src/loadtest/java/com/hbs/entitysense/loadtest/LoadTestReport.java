@@ -0,0 +1,89 @@
+package com.hbs.entitysense.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Results of one load-test run, stored as JSON so a later run can be compared with it. A scenario regresses when,
+ * against the baseline run of the same scenario and watchlist size, throughput falls or p99 latency or bytes
+ * allocated per operation rise by more than the tolerance.
+ */
+record LoadTestReport(Instant startedAt, Map<String, Object> settings, List<ScenarioResult> results) {
+
+    private static final ObjectMapper JSON = new ObjectMapper()
+            .findAndRegisterModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .enable(SerializationFeature.INDENT_OUTPUT);
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss").withZone(ZoneOffset.UTC);
+
+    /** Writes {@code loadtest-<time>.json} and a copy as {@code latest.json}, returning the former. */
+    Path write(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        Path file = directory.resolve("loadtest-" + FILE_TIME.format(startedAt) + ".json");
+        JSON.writeValue(file.toFile(), this);
+        JSON.writeValue(directory.resolve("latest.json").toFile(), this);
+        return file;
+    }
+
+    static LoadTestReport read(Path file) throws IOException {
+        return JSON.readValue(file.toFile(), LoadTestReport.class);
+    }
+
+    void print(PrintStream out) {
+        out.printf("%-18s %10s %10s %8s %12s %9s %9s %9s %10s %14s%n",
+                "scenario", "entities", "ops", "errors", "ops/s", "p50 ms", "p99 ms", "p99.9 ms", "alloc MB/s", "alloc B/op");
+        for (ScenarioResult r : results) {
+            out.printf("%-18s %10d %10d %8d %12.1f %9s %9s %9s %10.1f %14.0f%n",
+                    r.scenario(), r.watchlistSize(), r.operations(), r.errors(), r.throughputPerSecond(),
+                    millis(r.p50Millis()), millis(r.p99Millis()), millis(r.p999Millis()),
+                    r.allocationMbPerSecond(), r.allocatedBytesPerOperation());
+        }
+    }
+
+    /** Regressions against {@code baseline}; scenarios missing from either run are skipped. */
+    List<String> compare(LoadTestReport baseline, double tolerance) {
+        Map<String, ScenarioResult> before = baseline.results().stream()
+                .collect(Collectors.toMap(ScenarioResult::key, Function.identity(), (a, b) -> b));
+        List<String> regressions = new ArrayList<>();
+        for (ScenarioResult now : results) {
+            ScenarioResult then = before.get(now.key());
+            if (then == null) continue;
+            check(regressions, now.key(), "throughput", then, now, ScenarioResult::throughputPerSecond, -tolerance);
+            if (now.p99Millis() != null && then.p99Millis() != null) {
+                check(regressions, now.key(), "p99", then, now, ScenarioResult::p99Millis, tolerance);
+            }
+            check(regressions, now.key(), "allocated bytes/op", then, now, ScenarioResult::allocatedBytesPerOperation, tolerance);
+        }
+        return regressions;
+    }
+
+    /** Flags a change beyond {@code limit}: a fall below it when negative, a rise above it when positive. */
+    private static void check(List<String> regressions, String key, String metric, ScenarioResult then, ScenarioResult now,
+                              ToDoubleFunction<ScenarioResult> value, double limit) {
+        double before = value.applyAsDouble(then);
+        double after = value.applyAsDouble(now);
+        if (before <= 0) return;
+        double change = (after - before) / before;
+        if (limit < 0 ? change < limit : change > limit) {
+            regressions.add(String.format("%s %s %.2f -> %.2f (%+.1f%%)", key, metric, before, after, change * 100));
+        }
+    }
+
+    private static String millis(Double value) {
+        return value == null ? "-" : String.format("%.2f", value);
+    }
+}
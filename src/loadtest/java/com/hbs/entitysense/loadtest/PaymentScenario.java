@@ -0,0 +1,134 @@
+package com.hbs.entitysense.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Closed-loop load on {@code /api/validate-payment}: {@code concurrency} virtual threads each send a payment, wait
+ * for the verdict and send the next, for a warmup period whose results are dropped and then for the measured
+ * period. Closed-loop throughput is what the service sustains at that concurrency; latency is per request, from
+ * send to fully read response.
+ */
+final class PaymentScenario {
+
+    private final LoadTestOptions options;
+    private final AppProcess app;
+    private final SyntheticWatchlist watchlist;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicLong sequence = new AtomicLong();
+
+    PaymentScenario(LoadTestOptions options, AppProcess app, SyntheticWatchlist watchlist) {
+        this.options = options;
+        this.app = app;
+        this.watchlist = watchlist;
+    }
+
+    ScenarioResult run() throws Exception {
+        URI uri = app.uri("/api/validate-payment");
+        try (HttpClient client = HttpClient.newBuilder().executor(Executors.newVirtualThreadPerTaskExecutor()).build()) {
+            drive(client, uri, options.warmup());
+            long allocatedBefore = app.allocatedBytes();
+            long start = System.nanoTime();
+            List<Worker> workers = drive(client, uri, options.duration());
+            double seconds = (System.nanoTime() - start) / 1e9;
+            long allocated = app.allocatedBytes() - allocatedBefore;
+
+            long[] latencies = new long[workers.stream().mapToInt(w -> w.count).sum()];
+            long errors = 0;
+            int offset = 0;
+            for (Worker worker : workers) {
+                System.arraycopy(worker.latencies, 0, latencies, offset, worker.count);
+                offset += worker.count;
+                errors += worker.errors;
+            }
+            Arrays.sort(latencies);
+            long operations = latencies.length;
+            return new ScenarioResult(ScenarioResult.VALIDATE_PAYMENT, watchlist.size(), operations, errors, seconds,
+                    operations / seconds, percentile(latencies, 0.50), percentile(latencies, 0.99), percentile(latencies, 0.999),
+                    allocated / seconds / (1 << 20), operations == 0 ? 0 : (double) allocated / operations);
+        }
+    }
+
+    private List<Worker> drive(HttpClient client, URI uri, Duration period) throws Exception {
+        long deadline = System.nanoTime() + period.toNanos();
+        List<Worker> workers = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> running = new ArrayList<>();
+            for (int i = 0; i < options.concurrency(); i++) {
+                Worker worker = new Worker(client, uri, deadline);
+                workers.add(worker);
+                running.add(executor.submit(worker));
+            }
+            for (Future<?> future : running) {
+                future.get();
+            }
+        }
+        return workers;
+    }
+
+    /** Milliseconds at quantile {@code q} of sorted nanosecond latencies, nearest-rank. */
+    private static Double percentile(long[] sorted, double q) {
+        if (sorted.length == 0) return null;
+        int rank = (int) Math.ceil(q * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(rank, sorted.length - 1))] / 1e6;
+    }
+
+    private final class Worker implements Runnable {
+        private final HttpClient client;
+        private final URI uri;
+        private final long deadline;
+        private long[] latencies = new long[1024];
+        private int count;
+        private long errors;
+
+        Worker(HttpClient client, URI uri, long deadline) {
+            this.client = client;
+            this.uri = uri;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public void run() {
+            while (System.nanoTime() < deadline) {
+                HttpRequest request;
+                try {
+                    request = HttpRequest.newBuilder(uri)
+                            .header("Content-Type", "application/json")
+                            .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(watchlist.payment(sequence.getAndIncrement()))))
+                            .build();
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+                long start = System.nanoTime();
+                try {
+                    HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                    if (response.statusCode() != 200) {
+                        errors++;
+                        continue;
+                    }
+                } catch (IOException e) {
+                    errors++;
+                    continue;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                if (count == latencies.length) latencies = Arrays.copyOf(latencies, count * 2);
+                latencies[count++] = System.nanoTime() - start;
+            }
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.hbs.entitysense.loadtest;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Outcome of one scenario against one watchlist size. Latency percentiles are in milliseconds and absent for
+ * scenarios without individual requests; allocation figures are the application's, not the harness's.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+record ScenarioResult(String scenario,
+                      int watchlistSize,
+                      long operations,
+                      long errors,
+                      double seconds,
+                      double throughputPerSecond,
+                      Double p50Millis,
+                      Double p99Millis,
+                      Double p999Millis,
+                      double allocationMbPerSecond,
+                      double allocatedBytesPerOperation) {
+
+    static final String INGEST = "ingest";
+    static final String VALIDATE_PAYMENT = "validate-payment";
+
+    String key() {
+        return scenario + "@" + watchlistSize;
+    }
+}
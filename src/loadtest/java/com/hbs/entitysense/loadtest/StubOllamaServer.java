@@ -0,0 +1,149 @@
+package com.hbs.entitysense.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static com.hbs.entitysense.constants.EntitySenseConstant.EMBEDDING_DIMENSION;
+
+/**
+ * Stand-in for Ollama serving {@code /api/embeddings} and {@code /api/embed}. Each text maps to a fixed unit vector
+ * derived from a hash of the text, so the same name always embeds the same way and unrelated names are nearly
+ * orthogonal, far beyond the screening threshold. Every call waits {@code latency} plus up to {@code jitter} before
+ * answering, once per call whatever the batch size.
+ */
+final class StubOllamaServer implements AutoCloseable {
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Duration latency;
+    private final Duration jitter;
+
+    private StubOllamaServer(HttpServer server, ExecutorService executor, Duration latency, Duration jitter) {
+        this.server = server;
+        this.executor = executor;
+        this.latency = latency;
+        this.jitter = jitter;
+    }
+
+    /** Starts on {@code port}, or on a free port when it is 0. */
+    static StubOllamaServer start(int port, Duration latency, Duration jitter) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 1024);
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        StubOllamaServer stub = new StubOllamaServer(server, executor, latency, jitter);
+        server.createContext("/api/embeddings", exchange -> stub.handle(exchange, false));
+        server.createContext("/api/embed", exchange -> stub.handle(exchange, true));
+        server.start();
+        return stub;
+    }
+
+    String url() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    /** Deterministic unit vector for {@code text}: Gaussian components seeded from a 64-bit hash, then normalised. */
+    static float[] vector(String text) {
+        SplittableRandom random = new SplittableRandom(hash(text));
+        float[] vector = new float[EMBEDDING_DIMENSION];
+        double norm = 0;
+        for (int i = 0; i < vector.length; i++) {
+            double component = random.nextGaussian();
+            vector[i] = (float) component;
+            norm += component * component;
+        }
+        float scale = (float) (1 / Math.sqrt(norm));
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] *= scale;
+        }
+        return vector;
+    }
+
+    private void handle(HttpExchange exchange, boolean batch) throws IOException {
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            JsonNode request;
+            try (InputStream body = exchange.getRequestBody()) {
+                request = objectMapper.readTree(body);
+            }
+            StringBuilder json = new StringBuilder(batch ? 16_384 : 8_192);
+            if (batch) {
+                json.append("{\"model\":\"stub\",\"embeddings\":[");
+                JsonNode input = request.path("input");
+                for (int i = 0; i < input.size(); i++) {
+                    if (i > 0) json.append(',');
+                    appendVector(json, vector(input.get(i).asText()));
+                }
+                json.append("]}");
+            } else {
+                json.append("{\"embedding\":");
+                appendVector(json, vector(request.path("prompt").asText()));
+                json.append('}');
+            }
+            pause();
+            byte[] bytes = json.toString().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+    }
+
+    private void pause() {
+        long nanos = latency.toNanos();
+        if (jitter.isPositive()) {
+            nanos += ThreadLocalRandom.current().nextLong(jitter.toNanos() + 1);
+        }
+        if (nanos <= 0) return;
+        try {
+            Thread.sleep(Duration.ofNanos(nanos));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void appendVector(StringBuilder json, float[] vector) {
+        json.append('[');
+        for (int i = 0; i < vector.length; i++) {
+            if (i > 0) json.append(',');
+            json.append(vector[i]);
+        }
+        json.append(']');
+    }
+
+    /** FNV-1a over the UTF-16 code units, finished with a 64-bit mix so similar strings seed unrelated streams. */
+    private static long hash(String text) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < text.length(); i++) {
+            h ^= text.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.close();
+    }
+}
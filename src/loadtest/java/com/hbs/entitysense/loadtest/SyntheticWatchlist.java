@@ -0,0 +1,114 @@
+package com.hbs.entitysense.loadtest;
+
+import com.hbs.entitysense.dto.ValidatePaymentRequest;
+import com.hbs.entitysense.model.RiskCategory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.SplittableRandom;
+
+/**
+ * Reproducible watchlist of {@code size} entities and a matching payment stream. Entity {@code i} is a pure function
+ * of {@code i}, so the CSV never has to be read back: a payment that should hit entity {@code i} is built from the
+ * same fields.
+ *
+ * <p>Every third entity has a known account. Payments hit an entity by name, address and country at
+ * {@link #ENTITY_HIT_RATE}, pay one of its accounts under another name at {@link #ACCOUNT_HIT_RATE}, and are
+ * otherwise unrelated payees that never appear on the list.
+ */
+final class SyntheticWatchlist {
+
+    static final double ENTITY_HIT_RATE = 0.10;
+    static final double ACCOUNT_HIT_RATE = 0.05;
+
+    private static final String[] FIRST = {
+            "Northern", "Golden", "Atlas", "Harbor", "Silver", "Eastern", "Crescent", "Pacific", "Summit", "Orion",
+            "Meridian", "Falcon", "Cedar", "Granite", "Baltic", "Coral", "Delta", "Aurora", "Sterling", "Vega"};
+    private static final String[] SECOND = {
+            "Trading", "Logistics", "Holdings", "Shipping", "Capital", "Imports", "Ventures", "Minerals", "Textiles",
+            "Energy", "Exchange", "Partners", "Freight", "Metals", "Agro", "Marine", "Finance", "Resources"};
+    private static final String[] SUFFIX = {"Ltd", "LLC", "GmbH", "SA", "FZE", "Pte Ltd", "Corp", "BV"};
+    private static final String[] STREET = {"Harbour Road", "Market Street", "Industrial Avenue", "Port Lane", "King Street", "Station Road"};
+    private static final String[] COUNTRY = {"SG", "AE", "GB", "DE", "NL", "HK", "PA", "CY", "RU", "IR", "KP", "US", "CH", "TR"};
+    private static final RiskCategory[] CATEGORIES = RiskCategory.values();
+
+    private final int size;
+
+    SyntheticWatchlist(int size) {
+        this.size = size;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Writes the watchlist as an {@code --import-watchlist} CSV under {@code directory}, reusing an earlier file of
+     * the same size since the content never changes.
+     */
+    Path writeCsv(Path directory) throws IOException {
+        Path file = directory.resolve("watchlist-" + size + ".csv");
+        if (Files.exists(file)) {
+            return file;
+        }
+        Files.createDirectories(directory);
+        Path partial = directory.resolve(file.getFileName() + ".part");
+        try (BufferedWriter out = Files.newBufferedWriter(partial, StandardCharsets.UTF_8)) {
+            out.write("name,address,country,known_accounts,risk_category\n");
+            for (int i = 0; i < size; i++) {
+                String account = account(i);
+                out.write(name(i) + ',' + address(i) + ',' + country(i) + ',' + (account != null ? account : "")
+                        + ',' + CATEGORIES[i % CATEGORIES.length] + '\n');
+            }
+        }
+        return Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /** The {@code sequence}-th payment of the stream; the same sequence always gives the same payment. */
+    ValidatePaymentRequest payment(long sequence) {
+        SplittableRandom random = new SplittableRandom(sequence * 0x9e3779b97f4a7c15L);
+        double roll = random.nextDouble();
+        if (roll < ENTITY_HIT_RATE) {
+            int i = random.nextInt(size);
+            return new ValidatePaymentRequest(name(i), address(i), country(i), account(i));
+        }
+        if (roll < ENTITY_HIT_RATE + ACCOUNT_HIT_RATE) {
+            // Only every third entity has an account; round down to one that does
+            int i = random.nextInt(size) / 3 * 3;
+            return new ValidatePaymentRequest(payeeName(random), address(i + 1), country(i), account(i));
+        }
+        return new ValidatePaymentRequest(payeeName(random), random.nextInt(1, 999) + " " + pick(STREET, random.nextInt()),
+                pick(COUNTRY, random.nextInt()), String.format("PAY%012d", random.nextLong(1_000_000_000_000L)));
+    }
+
+    private static String name(int i) {
+        return pick(FIRST, i) + ' ' + pick(SECOND, i / FIRST.length) + ' ' + Integer.toString(i, 36).toUpperCase()
+                + ' ' + pick(SUFFIX, i / 7);
+    }
+
+    private static String address(int i) {
+        return (i % 997 + 1) + " " + pick(STREET, i / 3);
+    }
+
+    private static String country(int i) {
+        return pick(COUNTRY, i / 5);
+    }
+
+    private static String account(int i) {
+        return i % 3 == 0 ? String.format("WL%012d", i) : null;
+    }
+
+    /** A payee that is not on the list: the watchlist's tokens are upper-case base 36, these are lower-case. */
+    private static String payeeName(SplittableRandom random) {
+        return pick(FIRST, random.nextInt()) + ' ' + pick(SECOND, random.nextInt()) + ' '
+                + Long.toString(random.nextLong(1L << 40), 36) + ' ' + pick(SUFFIX, random.nextInt());
+    }
+
+    private static String pick(String[] values, int index) {
+        return values[Math.floorMod(index, values.length)];
+    }
+}
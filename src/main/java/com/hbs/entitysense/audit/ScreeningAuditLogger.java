@@ -0,0 +1,118 @@
+package com.hbs.entitysense.audit;
+
+import com.hbs.entitysense.config.EntitySenseProperties;
+import com.hbs.entitysense.dto.RiskMatchResult;
+import com.hbs.entitysense.dto.ValidatePaymentRequest;
+import com.hbs.entitysense.dto.ValidatePaymentResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+/**
+ * One structured record per screening decision on the {@code entitysense.audit} logger. Records carry the decision,
+ * the matched watchlist ids and categories, a keyed digest of the payee and a SHA-256 digest of the decision. They
+ * never carry embeddings or payee details, so they stay small and hold no PII.
+ *
+ * <p>The payee digest is an HMAC-SHA256 under {@code entity-sense.audit.payee-digest-key}. A plain hash of a name and
+ * account could be reversed by hashing candidate payees; without the key it cannot. When no key is configured a random
+ * one is drawn at startup, so the same payee only gets the same digest within one process.
+ *
+ * <p>The decision digest covers the status and every match's id, category, distance and account flag. Replaying a
+ * payment against the same watchlist must reproduce it.
+ */
+@Component
+public class ScreeningAuditLogger {
+
+    public static final String AUDIT_LOGGER = "entitysense.audit";
+
+    private static final Logger audit = LoggerFactory.getLogger(AUDIT_LOGGER);
+
+    private static final Logger logger = LoggerFactory.getLogger(ScreeningAuditLogger.class);
+
+    private static final int DIGEST_BYTES = 16;
+
+    private static final String PAYEE_DIGEST_ALGORITHM = "HmacSHA256";
+
+    private final SecretKeySpec payeeDigestKey;
+
+    public ScreeningAuditLogger(EntitySenseProperties properties) {
+        String key = properties.getAudit().getPayeeDigestKey();
+        byte[] keyBytes;
+        if (key == null || key.isBlank()) {
+            logger.warn("entity-sense.audit.payee-digest-key is not set; audit payee digests use a random key and only match within this process");
+            keyBytes = new byte[32];
+            new SecureRandom().nextBytes(keyBytes);
+        } else {
+            keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        }
+        this.payeeDigestKey = new SecretKeySpec(keyBytes, PAYEE_DIGEST_ALGORITHM);
+    }
+
+    public void record(ValidatePaymentRequest request, ValidatePaymentResponse response) {
+        if (!audit.isInfoEnabled()) {
+            return;
+        }
+        List<RiskMatchResult> matches = response.getPossibleWatchListEntityMatches();
+        audit.atInfo()
+                .addKeyValue("event", "payment_screened")
+                .addKeyValue("status", response.getStatus())
+                .addKeyValue("degraded", response.isDegraded())
+                .addKeyValue("watchlistVersion", response.getWatchlistVersion())
+                .addKeyValue("profile", response.getProfile())
+                .addKeyValue("payeeDigest", payeeDigest(request))
+                .addKeyValue("decisionDigest", decisionDigest(response))
+                .addKeyValue("matchCount", matches.size())
+                .addKeyValue("matchIds", matches.stream().map(m -> String.valueOf(m.getId())).collect(Collectors.joining(",")))
+                .addKeyValue("riskCategories", matches.stream().map(m -> String.valueOf(m.getRiskCategory())).distinct().collect(Collectors.joining(",")))
+                .addKeyValue("accountMatched", matches.stream().anyMatch(RiskMatchResult::isMatchedAccount))
+                .log("Payment screened");
+    }
+
+    String payeeDigest(ValidatePaymentRequest request) {
+        String payee = String.join("\u0000", nullToEmpty(request.getPayeeName()), nullToEmpty(request.getPayeeAddress()),
+                nullToEmpty(request.getPayeeCountry()), nullToEmpty(request.getAccountNumber()));
+        try {
+            Mac mac = Mac.getInstance(PAYEE_DIGEST_ALGORITHM);
+            mac.init(payeeDigestKey);
+            return HexFormat.of().formatHex(mac.doFinal(payee.getBytes(StandardCharsets.UTF_8)), 0, DIGEST_BYTES);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(PAYEE_DIGEST_ALGORITHM + " not available", e);
+        }
+    }
+
+    static String decisionDigest(ValidatePaymentResponse response) {
+        StringBuilder canonical = new StringBuilder(response.getStatus());
+        for (RiskMatchResult match : response.getPossibleWatchListEntityMatches()) {
+            canonical.append('|').append(match.getId())
+                    .append(':').append(match.getRiskCategory())
+                    .append(':').append(String.format(Locale.ROOT, "%.6f", match.getDistance()))
+                    .append(':').append(match.isMatchedAccount());
+        }
+        return digest(canonical.toString());
+    }
+
+    private static String digest(String value) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash, 0, DIGEST_BYTES);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+}
@@ -0,0 +1,39 @@
+package com.hbs.entitysense.config;
+
+import com.hbs.entitysense.index.DistanceKernel;
+import com.hbs.entitysense.index.DistanceKernels;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Configuration
+public class DistanceKernelConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(DistanceKernelConfig.class);
+
+    @Bean
+    public DistanceKernel distanceKernel(EntitySenseProperties properties) {
+        DistanceKernel kernel = DistanceKernels.select(properties.getScreening().getDistanceKernel());
+        logger.info("Using {} distance kernel", kernel.name());
+        return kernel;
+    }
+
+    /**
+     * Dedicated pool for parallel scans of the in-memory index, so they never compete with the common pool or the
+     * blocking scheduler for threads.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ForkJoinPool scoringPool(EntitySenseProperties properties) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return new ForkJoinPool(Math.max(1, properties.getIndex().getParallelism()), pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("entity-sense-scoring-" + threadNumber.incrementAndGet());
+            return thread;
+        }, null, false);
+    }
+}
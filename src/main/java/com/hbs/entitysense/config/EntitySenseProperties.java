@@ -0,0 +1,299 @@
+package com.hbs.entitysense.config;
+
+import com.hbs.entitysense.model.DistanceKernelType;
+import com.hbs.entitysense.model.EmbeddingFailurePolicy;
+import com.hbs.entitysense.model.ExecutionMode;
+import com.hbs.entitysense.model.RiskCategory;
+import com.hbs.entitysense.model.SearchMode;
+import com.hbs.entitysense.model.VectorQuantisation;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.hbs.entitysense.constants.EntitySenseConstant.*;
+
+/**
+ * Tunables under the {@code entity-sense} prefix. Defaults keep the original behaviour, so an empty
+ * configuration screens against Postgres exactly as before.
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "entity-sense")
+public class EntitySenseProperties {
+
+    private Screening screening = new Screening();
+
+    private Index index = new Index();
+
+    private Snapshot snapshot = new Snapshot();
+
+    private EmbeddingCacheProperties embeddingCache = new EmbeddingCacheProperties();
+
+    private VerdictCacheProperties verdictCache = new VerdictCacheProperties();
+
+    private Batch batch = new Batch();
+
+    private Reactive reactive = new Reactive();
+
+    private Ingest ingest = new Ingest();
+
+    private Reembed reembed = new Reembed();
+
+    private Ollama ollama = new Ollama();
+
+    private Audit audit = new Audit();
+
+    @Data
+    public static class Screening {
+        /** Where nearest-neighbour candidates come from. */
+        private SearchMode searchMode = SearchMode.DATABASE;
+
+        /** Implementation of the dot product / cosine distance inner loop. */
+        private DistanceKernelType distanceKernel = DistanceKernelType.AUTO;
+
+        /** Resolve payee account numbers from an in-memory hash index instead of querying {@code known_accounts}. */
+        private boolean accountIndex = true;
+
+        /** Most matches reported per payment, nearest first; account matches are always reported. */
+        private int maxMatches = ENTITY_SENSE_MAX_VECTOR_CANDIDATES;
+
+        private Prefilter prefilter = new Prefilter();
+
+        /** Named screening profiles a request may select with {@code profile}; without one every category is screened. */
+        private Map<String, Profile> profiles = new LinkedHashMap<>();
+    }
+
+    @Data
+    public static class Profile {
+        /** Risk categories screened; empty screens all of them. */
+        private Set<RiskCategory> categories = new LinkedHashSet<>();
+
+        /** Cosine distance threshold per category; unlisted categories use the default of 0.3. */
+        private Map<RiskCategory, Double> thresholds = new LinkedHashMap<>();
+
+        /** Only screen entities of these countries; entities without a country always qualify. Empty screens every country. */
+        private Set<String> countries = new LinkedHashSet<>();
+    }
+
+    @Data
+    public static class Prefilter {
+        /** Shortlist entities by name before embedding; payees with no plausible name or account match are allowed without calling Ollama. */
+        private boolean enabled = false;
+
+        /** Minimum Dice similarity over name trigrams and Double Metaphone codes for an entity to be shortlisted. */
+        private double minSimilarity = 0.3;
+
+        /** Largest shortlist scored with embeddings, best name matches first. */
+        private int maxCandidates = 200;
+
+        /** Only shortlist entities in the payee's country; entities without a country are always eligible. */
+        private boolean countryPartition = true;
+
+        /** Add Double Metaphone codes to the name keys so spelling variants still overlap. */
+        private boolean phonetic = true;
+    }
+
+    @Data
+    public static class Index {
+        /** Number of embeddings held by each off-heap chunk of the in-memory index. */
+        private int chunkSize = 4096;
+
+        /** Page size used when loading the watchlist into the in-memory index. */
+        private int loadPageSize = 1000;
+
+        /** Storage of in-memory embeddings; {@code int8} is about a quarter of the size and only used for coarse scoring. */
+        private VectorQuantisation quantisation = VectorQuantisation.NONE;
+
+        /** Threads of the pool that scores chunks of the in-memory index in parallel. */
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+
+        /** Smallest index, in entities, scanned in parallel; smaller ones are scanned on the calling thread. */
+        private int parallelMinSize = 50_000;
+
+        /** Searches running at once above which new ones scan on their own thread, so busy nodes are not oversubscribed. */
+        private int parallelMaxActiveSearches = 4;
+
+        /** File the vectors are saved to after each full load and mapped from on startup; unset disables it. */
+        private String persistenceFile;
+    }
+
+    @Data
+    public static class Snapshot {
+        /** How often to look for watchlist rows saved by other nodes; zero disables polling. */
+        private Duration pollInterval = Duration.ofSeconds(5);
+
+        /** Entities held outside the base tables before a rebuild is started; every lookup scans them linearly. */
+        private int maxDelta = 1_000;
+
+        /**
+         * Trailing ids below the newest one whose presence is checked row by row on every poll, so rows committed out
+         * of id order are still picked up; older ids count as settled.
+         */
+        private int rescanWindow = 200;
+
+        /** How often the snapshot is fully reloaded, catching rows committed later than the rescan window; zero disables. */
+        private Duration rebuildInterval = Duration.ofHours(6);
+    }
+
+    @Data
+    public static class Batch {
+        /** Largest number of payments accepted by one {@code /api/validate-payments} call. */
+        private int maxItems = 10_000;
+
+        /** Payments embedded and scored together; also the NDJSON buffering unit. */
+        private int chunkSize = 256;
+    }
+
+    @Data
+    public static class Reactive {
+        /** Where blocking screening work runs: a bounded platform-thread pool, or one virtual thread per request. */
+        private ExecutionMode executionMode = ExecutionMode.BOUNDED_ELASTIC;
+
+        /** Ollama embedding calls allowed in flight at once; further requests are rejected with 503. */
+        private int maxInFlightEmbeddings = 64;
+
+        /** Threads for JDBC and scoring work offloaded from the event loop; match the Hikari pool size. */
+        private int blockingThreads = 20;
+
+        /** Tasks allowed to queue for a blocking thread before new work is rejected. */
+        private int blockingQueueCapacity = 1000;
+
+        /** NDJSON chunks screened concurrently; output order is preserved. */
+        private int streamConcurrency = 2;
+
+        /**
+         * With {@code virtual-threads}, how long a request waits for a database connection permit (one per Hikari
+         * connection) or an Ollama permit (one per call the endpoints accept) before it is rejected with 503.
+         */
+        private Duration permitTimeout = Duration.ofSeconds(10);
+    }
+
+    @Data
+    public static class Ingest {
+        /** Rows embedded by one Ollama call and written by one JDBC batch. */
+        private int batchSize = 128;
+
+        /** Embedding batches requested from Ollama in parallel. */
+        private int concurrency = 4;
+
+        /** Category given to imported rows that do not carry one. */
+        private RiskCategory defaultRiskCategory = RiskCategory.SANCTION;
+
+        /** Minimum time between progress log lines. */
+        private Duration progressInterval = Duration.ofSeconds(10);
+    }
+
+    @Data
+    public static class Reembed {
+        /**
+         * Model to re-embed the watchlist with in the background, switching screening to it once every row is done;
+         * unset disables the job. Set it on one node only.
+         */
+        private String model;
+
+        /** Rows embedded by one Ollama call and updated by one JDBC batch. */
+        private int batchSize = 128;
+
+        /** Embedding batches requested from Ollama in parallel; leave room for live screening. */
+        private int concurrency = 2;
+
+        /** Most rows re-embedded per second; zero leaves the job unthrottled. */
+        private int maxRowsPerSecond = 0;
+
+        /** Minimum time between progress log lines. */
+        private Duration progressInterval = Duration.ofSeconds(10);
+    }
+
+    @Data
+    public static class Ollama {
+        /** Base URLs of the Ollama servers; calls go to the one with fewest in flight, round-robin on ties. */
+        private List<String> endpoints = new ArrayList<>(List.of(OLLAMA_URL));
+
+        /** HTTP version offered; Ollama serves cleartext HTTP/1.1, so {@code HTTP_2} only helps behind an h2c proxy. */
+        private HttpClient.Version httpVersion = HttpClient.Version.HTTP_1_1;
+
+        private Duration connectTimeout = Duration.ofSeconds(2);
+
+        /** How long pooled keep-alive connections stay idle before they are closed; keep below the server's idle timeout. */
+        private Duration keepAlive = Duration.ofSeconds(30);
+
+        /** Timeout of one single-text embedding call. */
+        private Duration requestTimeout = Duration.ofSeconds(OLLAMA_TIMEOUT_VALUE);
+
+        /** Timeout of one {@code /api/embed} batch call. */
+        private Duration batchTimeout = Duration.ofSeconds(OLLAMA_BATCH_TIMEOUT_VALUE);
+
+        /** Calls allowed in flight per endpoint; a saturated endpoint is skipped, and with all saturated the call fails fast. */
+        private int maxInFlightPerEndpoint = 32;
+
+        /** Delay after which a slow single-text call is repeated on another endpoint, first answer wins; zero disables. */
+        private Duration hedgeDelay = Duration.ofMillis(300);
+
+        /**
+         * How long a single-text embedding waits for other distinct texts to share one {@code /api/embed} call;
+         * zero disables micro-batching. Identical texts in flight always share one call.
+         */
+        private Duration microBatchWindow = Duration.ZERO;
+
+        /** Texts after which a micro-batch is sent without waiting for the rest of the window. */
+        private int microBatchSize = 32;
+
+        private CircuitBreakerProperties circuitBreaker = new CircuitBreakerProperties();
+
+        /** Screening outcome when no embedding can be obtained. */
+        private EmbeddingFailurePolicy failurePolicy = EmbeddingFailurePolicy.ERROR;
+    }
+
+    @Data
+    public static class CircuitBreakerProperties {
+        /** Consecutive failures after which an endpoint is taken out of rotation. */
+        private int failureThreshold = 5;
+
+        /** How long an endpoint stays out of rotation before a single trial call is let through. */
+        private Duration openDuration = Duration.ofSeconds(30);
+    }
+
+    @Data
+    public static class EmbeddingCacheProperties {
+        private boolean enabled = true;
+
+        /** Maximum number of cached embeddings (roughly 3 KB each at 768 dimensions). */
+        private long maximumSize = 10_000;
+
+        /** How long an embedding is served from the cache after it was fetched from Ollama. */
+        private Duration ttl = Duration.ofHours(24);
+
+        /** File the cache is saved to on shutdown and reloaded from on startup; unset disables persistence. */
+        private String persistenceFile;
+    }
+
+    @Data
+    public static class VerdictCacheProperties {
+        /** Serve repeat screenings of the same payee from the last decision while the watchlist is unchanged. */
+        private boolean enabled = false;
+
+        /** Maximum number of cached decisions. */
+        private long maximumSize = 10_000;
+
+        /** How long a decision is served; bounds staleness against rows this node has not seen yet. */
+        private Duration ttl = Duration.ofMinutes(5);
+    }
+
+    @Data
+    public static class Audit {
+        /**
+         * Secret key of the HMAC-SHA256 payee digest in audit records. Without it a random key is used per process, so
+         * digests cannot be correlated across restarts or nodes.
+         */
+        private String payeeDigestKey;
+    }
+}
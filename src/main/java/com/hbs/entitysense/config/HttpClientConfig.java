@@ -8,13 +8,27 @@ import java.net.http.HttpClient;
 @Configuration
 public class HttpClientConfig {
 
+    private static final String KEEP_ALIVE_PROPERTY = "jdk.httpclient.keepalive.timeout";
+
+    /**
+     * Client for the Ollama endpoints. Connections are pooled and kept alive between calls; the JDK reads the idle
+     * timeout from a system property when the pool is first created, so it is only set here if not given on the
+     * command line.
+     */
     @Bean
-    public HttpClient httpClient() {
-        return HttpClient.newHttpClient();
+    public HttpClient httpClient(EntitySenseProperties properties) {
+        EntitySenseProperties.Ollama ollama = properties.getOllama();
+        if (System.getProperty(KEEP_ALIVE_PROPERTY) == null) {
+            System.setProperty(KEEP_ALIVE_PROPERTY, String.valueOf(ollama.getKeepAlive().toSeconds()));
+        }
+        return HttpClient.newBuilder()
+                .version(ollama.getHttpVersion())
+                .connectTimeout(ollama.getConnectTimeout())
+                .build();
     }
 
     @Bean
     public ObjectMapper objectMapper() {
         return new ObjectMapper();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,61 @@
+package com.hbs.entitysense.config;
+
+import com.hbs.entitysense.model.ExecutionMode;
+import com.hbs.entitysense.service.BlockingPermits;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.concurrent.Executors;
+
+@Configuration
+public class ReactiveConfig {
+
+    /**
+     * Bounded pool for JPA and scoring work, kept off Netty's event loop. Sized to the connection pool so threads
+     * never queue on Hikari; once the task queue is full, new work fails fast instead of piling up.
+     *
+     * <p>With {@code execution-mode: virtual-threads} every task gets its own virtual thread instead, and
+     * {@link #blockingPermits} bounds what they do.
+     */
+    @Bean(destroyMethod = "dispose")
+    public Scheduler blockingScheduler(EntitySenseProperties properties) {
+        EntitySenseProperties.Reactive reactive = properties.getReactive();
+        if (reactive.getExecutionMode() == ExecutionMode.VIRTUAL_THREADS) {
+            return Schedulers.fromExecutorService(
+                    Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("entity-sense-virtual-", 0).factory()), "entity-sense-virtual");
+        }
+        return Schedulers.newBoundedElastic(reactive.getBlockingThreads(), reactive.getBlockingQueueCapacity(), "entity-sense-blocking");
+    }
+
+    /**
+     * Permits for virtual-thread screenings: one per Hikari connection ({@code blocking-threads} without Hikari) and
+     * one per Ollama call the endpoints accept. Unlimited in the bounded-elastic mode, where threads are the limit.
+     */
+    @Bean
+    public BlockingPermits blockingPermits(EntitySenseProperties properties, ObjectProvider<DataSource> dataSource) {
+        EntitySenseProperties.Reactive reactive = properties.getReactive();
+        if (reactive.getExecutionMode() != ExecutionMode.VIRTUAL_THREADS) {
+            return BlockingPermits.UNLIMITED;
+        }
+        EntitySenseProperties.Ollama ollama = properties.getOllama();
+        return new BlockingPermits(connections(dataSource.getIfAvailable(), reactive.getBlockingThreads()),
+                ollama.getEndpoints().size() * ollama.getMaxInFlightPerEndpoint(), reactive.getPermitTimeout());
+    }
+
+    private static int connections(DataSource dataSource, int fallback) {
+        try {
+            if (dataSource != null && dataSource.isWrapperFor(HikariDataSource.class)) {
+                return dataSource.unwrap(HikariDataSource.class).getMaximumPoolSize();
+            }
+        } catch (SQLException e) {
+            // Not a Hikari pool after all
+        }
+        return fallback;
+    }
+}
@@ -8,6 +8,10 @@ public class EntitySenseConstant {
 
     public static final String OLLAMA_EMBEDDINGS_REQ_MODEL_VALUE      = "nomic-embed-text";
 
+    public static final String OLLAMA_EMBED_BATCH_URL       = "/api/embed";
+
+    public static final String OLLAMA_EMBED_BATCH_REQ_INPUT_KEY      = "input";
+
     public static final String OPEN_API_SPEC_TITLE       = "EntitySense API";
 
     public static final String OPEN_API_SPEC_DESCRIPTION      = "Spring Boot API for Detecting sanctioned or mule entities during fund transfers";
@@ -24,10 +28,22 @@ public class EntitySenseConstant {
 
     public static final int OLLAMA_TIMEOUT_VALUE      = 10;
 
+    public static final int OLLAMA_BATCH_TIMEOUT_VALUE      = 120;
+
     public static final String PAYMENT_STATUS_ALLOW       = "ALLOW";
 
     public static final String PAYMENT_STATUS_BLOCK       = "BLOCK";
 
+    public static final String PAYMENT_STATUS_INVALID     = "INVALID";
+
     public static final Double ENTITY_SENSE_COSINE_DISTANCE_THRESHOLD = 0.3;
 
+    public static final int ENTITY_SENSE_MAX_VECTOR_CANDIDATES = 100;
+
+    public static final int EMBEDDING_DIMENSION = 768;
+
+    public static final String WATCHLIST_IMPORT_OPTION = "import-watchlist";
+
+    public static final String WATCHLIST_IMPORT_CSV_ACCOUNT_SEPARATOR = ";";
+
 }
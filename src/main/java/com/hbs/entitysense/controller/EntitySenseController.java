@@ -1,38 +1,59 @@
 package com.hbs.entitysense.controller;
 
 import com.hbs.entitysense.dto.*;
-import com.hbs.entitysense.service.EntitySenseService;
+import com.hbs.entitysense.service.ReactiveEntitySenseService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.util.List;
+
+@Validated
 @RestController
 @RequestMapping("/api")
 @RequiredArgsConstructor
 @Tag(name = "Entity Validation", description = "Endpoints to check for risky entities during payment processing")
 public class EntitySenseController {
 
-    private final EntitySenseService entitySenseService;
+    private final ReactiveEntitySenseService reactiveEntitySenseService;
 
     private static final Logger logger = LoggerFactory.getLogger(EntitySenseController.class);
 
     @PostMapping("/create-watch-list-entity")
     @Operation(summary = "Create Watch List Entity", description = "Add a new sanctioned or high-risk entity to the watchlist")
-    public ResponseEntity<String> createWatchListEntity(@Valid @RequestBody WatchListEntityRequest request) {
+    public Mono<ResponseEntity<String>> createWatchListEntity(@Valid @RequestBody WatchListEntityRequest request) {
         logger.info("Received request to create watch list entity: {}", request);
-        entitySenseService.createWatchListEntity(request);
-        return ResponseEntity.ok("Entity created successfully");
+        return reactiveEntitySenseService.createWatchListEntity(request)
+                .thenReturn(ResponseEntity.ok("Entity created successfully"));
     }
 
     @PostMapping("/validate-payment")
     @Operation(summary = "Validate Payment", description = "Checks if a payee is a potential match to known sanctioned or mule entities")
-    public ResponseEntity<ValidatePaymentResponse> validatePayment(@Valid @RequestBody ValidatePaymentRequest request) {
-        logger.info("Received request to validate payment: {}", request);
-        return ResponseEntity.ok(entitySenseService.validatePayment(request));
+    public Mono<ResponseEntity<ValidatePaymentResponse>> validatePayment(@Valid @RequestBody ValidatePaymentRequest request) {
+        logger.debug("Received request to validate payment: {}", request);
+        return reactiveEntitySenseService.validatePayment(request).map(ResponseEntity::ok);
+    }
+
+    @PostMapping(value = "/validate-payments", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Validate Payments", description = "Checks a batch of payees in one call; results are returned in request order")
+    public Mono<ResponseEntity<List<ValidatePaymentResponse>>> validatePayments(@RequestBody List<@Valid ValidatePaymentRequest> requests) {
+        logger.info("Received request to validate {} payments", requests.size());
+        return reactiveEntitySenseService.validatePayments(requests).map(ResponseEntity::ok);
+    }
+
+    @PostMapping(value = "/validate-payments", consumes = MediaType.APPLICATION_NDJSON_VALUE, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Validate Payments Stream", description = "Streams NDJSON payees in and NDJSON results out, in request order; "
+            + "payees failing validation are answered with status INVALID and an error instead of ending the stream")
+    public Flux<ValidatePaymentResponse> validatePaymentsStream(@RequestBody Flux<ValidatePaymentRequest> requests) {
+        return reactiveEntitySenseService.validatePaymentsStream(requests);
     }
 }
@@ -0,0 +1,10 @@
+package com.hbs.entitysense.dto;
+
+import com.hbs.entitysense.model.EmbeddingModelStatus;
+import com.hbs.entitysense.model.EmbeddingSlot;
+
+/**
+ * One row of {@code watchlist_embedding_models}: the model whose vectors are in {@code slot}, and what it is used for.
+ */
+public record EmbeddingModelRow(EmbeddingSlot slot, String model, EmbeddingModelStatus status) {
+}
@@ -0,0 +1,18 @@
+package com.hbs.entitysense.dto;
+
+import java.util.List;
+
+/**
+ * Result of comparing the in-memory watchlist index with {@code watchlist_entities}.
+ *
+ * @param missingFromIndex ids with an embedding in the database but absent from the index
+ * @param unknownToIndex   ids held by the index that no longer exist in the database
+ */
+public record IndexConsistencyReport(boolean consistent,
+                                     int indexedCount,
+                                     int databaseCount,
+                                     int missingFromIndex,
+                                     int unknownToIndex,
+                                     List<Long> sampleMissingIds,
+                                     List<Long> sampleUnknownIds) {
+}
@@ -1,10 +0,0 @@
-package com.hbs.entitysense.dto;
-
-import lombok.Data;
-
-import java.util.List;
-
-@Data
-public class OllamaEmbeddingResponse {
-    private List<Float> embedding;
-}
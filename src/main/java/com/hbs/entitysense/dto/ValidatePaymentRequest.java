@@ -1,5 +1,6 @@
 package com.hbs.entitysense.dto;
 
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -13,4 +14,16 @@ public class ValidatePaymentRequest {
     private String payeeAddress;
     private String payeeCountry;
     private String accountNumber;
-}
\ No newline at end of file
+    /** Optional cap on reported matches, below {@code entity-sense.screening.max-matches}. */
+    @Min(1) private Integer maxMatches;
+    /** Optional {@code entity-sense.screening.profiles} entry limiting the categories, thresholds and countries screened. */
+    private String profile;
+
+    public ValidatePaymentRequest(String payeeName, String payeeAddress, String payeeCountry, String accountNumber) {
+        this(payeeName, payeeAddress, payeeCountry, accountNumber, null);
+    }
+
+    public ValidatePaymentRequest(String payeeName, String payeeAddress, String payeeCountry, String accountNumber, Integer maxMatches) {
+        this(payeeName, payeeAddress, payeeCountry, accountNumber, maxMatches, null);
+    }
+}
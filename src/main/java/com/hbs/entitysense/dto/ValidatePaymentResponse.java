@@ -5,6 +5,10 @@ import lombok.Data;
 
 @Data
 public class ValidatePaymentResponse {
-    private String status; // ALLOW or BLOCK
+    private String status; // ALLOW or BLOCK, or INVALID for a streamed request that failed validation
     private List<RiskMatchResult> possibleWatchListEntityMatches;
+    private boolean degraded; // screened without an embedding, per entity-sense.ollama.failure-policy
+    private long watchlistVersion; // version of the watchlist snapshot the decision was made against
+    private String profile; // screening profile applied, null when every category was screened
+    private String error; // why an INVALID streamed request was not screened
 }
\ No newline at end of file
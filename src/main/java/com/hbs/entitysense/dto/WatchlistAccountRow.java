@@ -0,0 +1,7 @@
+package com.hbs.entitysense.dto;
+
+/**
+ * The columns the account index needs, loaded without the 768-float embedding.
+ */
+public record WatchlistAccountRow(Long id, String[] knownAccounts) {
+}
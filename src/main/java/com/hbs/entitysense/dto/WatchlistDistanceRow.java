@@ -0,0 +1,16 @@
+package com.hbs.entitysense.dto;
+
+import com.hbs.entitysense.model.RiskCategory;
+
+/**
+ * A nearest-neighbour hit as pgvector returns it: the entity id, its category and its cosine distance from the query,
+ * computed by the database. Backed by the query's result tuple, so no entity is hydrated.
+ */
+public interface WatchlistDistanceRow {
+
+    Long getId();
+
+    RiskCategory getRiskCategory();
+
+    double getDistance();
+}
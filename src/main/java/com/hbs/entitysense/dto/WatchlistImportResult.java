@@ -0,0 +1,8 @@
+package com.hbs.entitysense.dto;
+
+/**
+ * Outcome of one {@code --import-watchlist} run. {@code rowsRead} counts source records, including the
+ * {@code resumedFrom} rows already loaded by an earlier, interrupted run.
+ */
+public record WatchlistImportResult(String source, long resumedFrom, long rowsRead, long rowsImported, long rowsSkipped) {
+}
@@ -0,0 +1,12 @@
+package com.hbs.entitysense.dto;
+
+import com.hbs.entitysense.model.RiskCategory;
+
+/**
+ * The columns an entity is held in the in-memory indexes with: the active model's embedding only, plus what the name
+ * and account indexes and the scope filters need. Loaded as a read-only projection for the rows the snapshot poll
+ * finds missing.
+ */
+public record WatchlistIndexRow(Long id, String name, String country, RiskCategory riskCategory, String[] knownAccounts,
+                                float[] embedding) {
+}
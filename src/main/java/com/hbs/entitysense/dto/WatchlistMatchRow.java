@@ -0,0 +1,11 @@
+package com.hbs.entitysense.dto;
+
+import com.hbs.entitysense.model.RiskCategory;
+
+/**
+ * The columns a reported match shows, loaded in one query for the matches of a payment once they are chosen. Leaves
+ * out the embedding.
+ */
+public record WatchlistMatchRow(Long id, String name, String address, String country, String[] knownAccounts,
+                                RiskCategory riskCategory) {
+}
@@ -0,0 +1,7 @@
+package com.hbs.entitysense.dto;
+
+/**
+ * The columns the name prefilter needs, loaded without the 768-float embedding.
+ */
+public record WatchlistNameRow(Long id, String name, String country) {
+}
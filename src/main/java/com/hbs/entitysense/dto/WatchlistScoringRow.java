@@ -0,0 +1,11 @@
+package com.hbs.entitysense.dto;
+
+import com.hbs.entitysense.model.RiskCategory;
+
+/**
+ * The columns an entity is scored with: its embedding, plus the category and country its scope is checked against.
+ * Loaded as a read-only projection, without names, accounts or timestamps, and never managed by the persistence
+ * context.
+ */
+public record WatchlistScoringRow(Long id, RiskCategory riskCategory, String country, float[] embedding) {
+}
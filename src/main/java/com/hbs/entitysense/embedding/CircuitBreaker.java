@@ -0,0 +1,77 @@
+package com.hbs.entitysense.embedding;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Consecutive-failure circuit breaker for one endpoint. After {@code failureThreshold} failures in a row the circuit
+ * opens and no calls are let through for {@code openDuration}; then a single trial call is allowed, which closes the
+ * circuit on success and re-opens it on failure.
+ *
+ * <p>A closed circuit is checked with one volatile read, so the common case adds no contention.
+ */
+final class CircuitBreaker {
+
+    enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private final LongSupplier nanoClock;
+
+    private volatile State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean trialInFlight;
+
+    CircuitBreaker(int failureThreshold, Duration openDuration, LongSupplier nanoClock) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openNanos = openDuration.toNanos();
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Whether a call may be made now. A {@code true} must be followed by exactly one of {@link #onSuccess},
+     * {@link #onFailure} or {@link #release}.
+     */
+    boolean tryAcquire() {
+        if (state == State.CLOSED) return true;
+        synchronized (this) {
+            if (state == State.CLOSED) return true;
+            if (state == State.OPEN && nanoClock.getAsLong() - openedAt >= openNanos) {
+                state = State.HALF_OPEN;
+                trialInFlight = false;
+            }
+            if (state == State.HALF_OPEN && !trialInFlight) {
+                trialInFlight = true;
+                return true;
+            }
+            return false;
+        }
+    }
+
+    void onSuccess() {
+        if (state == State.CLOSED && consecutiveFailures == 0) return;
+        synchronized (this) {
+            consecutiveFailures = 0;
+            trialInFlight = false;
+            state = State.CLOSED;
+        }
+    }
+
+    synchronized void onFailure() {
+        trialInFlight = false;
+        if (state == State.HALF_OPEN || ++consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = nanoClock.getAsLong();
+        }
+    }
+
+    /** The acquired call was abandoned without an outcome, e.g. a cancelled hedge. */
+    synchronized void release() {
+        trialInFlight = false;
+    }
+
+    State state() {
+        return state;
+    }
+}
@@ -0,0 +1,183 @@
+package com.hbs.entitysense.embedding;
+
+import com.hbs.entitysense.config.EntitySenseProperties;
+import com.hbs.entitysense.metrics.ScreeningMetrics;
+import jakarta.annotation.PreDestroy;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@link EmbeddingClient} screening uses: {@link OllamaEmbeddingClient} behind single-flight coalescing and,
+ * optionally, micro-batching.
+ *
+ * <ul>
+ *     <li>A text already being embedded by the same model is not sent again: every caller asking for it while the
+ *     call is in flight gets the same answer, or the same failure. Texts are compared as given, so they must already
+ *     be normalised, as the {@code EmbeddingCache} key is.</li>
+ *     <li>With {@code micro-batch-window} set, distinct texts are held for up to that long and sent together as one
+ *     {@code /api/embed} call, bounded by {@code request-timeout}; {@code micro-batch-size} texts send the batch at
+ *     once. Texts for different models go in separate calls. A window that ends with a single text sends it as a
+ *     normal, hedged, single-text call. A failed batch fails every text in it with an
+ *     {@link EmbeddingUnavailableException}, so screening applies its failure policy as for a single text.</li>
+ * </ul>
+ *
+ * <p>{@link #embedBatch} calls, already batched by the caller, go straight through.
+ */
+@Primary
+@Component
+public class CoalescingEmbeddingClient implements EmbeddingClient {
+
+    private final OllamaEmbeddingClient delegate;
+    private final EntitySenseProperties.Ollama config;
+    private final ScreeningMetrics screeningMetrics;
+    private final ConcurrentHashMap<String, CompletableFuture<float[]>> inFlight = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService flusher =
+            Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("embedding-micro-batch").daemon().factory());
+
+    // Guarded by this
+    private List<Pending> pending = new ArrayList<>();
+    private ScheduledFuture<?> scheduledFlush;
+
+    private static final char KEY_SEPARATOR = '\u0000';
+
+    private record Pending(String model, String text, CompletableFuture<float[]> result) {
+    }
+
+    public CoalescingEmbeddingClient(OllamaEmbeddingClient delegate, EntitySenseProperties properties,
+                                     ScreeningMetrics screeningMetrics) {
+        this.delegate = delegate;
+        this.config = properties.getOllama();
+        this.screeningMetrics = screeningMetrics;
+    }
+
+    @Override
+    public CompletableFuture<float[]> embedAsync(String model, String text) {
+        String key = model + KEY_SEPARATOR + text;
+        CompletableFuture<float[]> created = new CompletableFuture<>();
+        CompletableFuture<float[]> existing = inFlight.putIfAbsent(key, created);
+        if (existing != null) {
+            screeningMetrics.recordCoalesced();
+            return existing.copy();
+        }
+        created.whenComplete((embedding, error) -> inFlight.remove(key, created));
+        Duration window = config.getMicroBatchWindow();
+        if (window != null && window.isPositive()) {
+            enqueue(new Pending(model, text, created), window);
+        } else {
+            complete(created, delegate.embedAsync(model, text));
+        }
+        // Callers get copies, so one cancelling its future does not fail the others
+        return created.copy();
+    }
+
+    @Override
+    public List<float[]> embedBatch(String model, List<String> texts) {
+        return delegate.embedBatch(model, texts);
+    }
+
+    private void enqueue(Pending text, Duration window) {
+        List<Pending> full = null;
+        synchronized (this) {
+            pending.add(text);
+            if (pending.size() >= Math.max(1, config.getMicroBatchSize())) {
+                full = drain();
+            } else if (pending.size() == 1) {
+                scheduledFlush = flusher.schedule(this::flush, window.toNanos(), TimeUnit.NANOSECONDS);
+            }
+        }
+        if (full != null) sendByModel(full);
+    }
+
+    private void flush() {
+        List<Pending> batch;
+        synchronized (this) {
+            batch = drain();
+        }
+        if (!batch.isEmpty()) sendByModel(batch);
+    }
+
+    private List<Pending> drain() {
+        List<Pending> batch = pending;
+        pending = new ArrayList<>();
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        return batch;
+    }
+
+    private void sendByModel(List<Pending> batch) {
+        Map<String, List<Pending>> byModel = new LinkedHashMap<>();
+        for (Pending text : batch) {
+            byModel.computeIfAbsent(text.model(), model -> new ArrayList<>()).add(text);
+        }
+        byModel.forEach(this::send);
+    }
+
+    private void send(String model, List<Pending> batch) {
+        screeningMetrics.recordMicroBatch(batch.size());
+        if (batch.size() == 1) {
+            complete(batch.getFirst().result(), delegate.embedAsync(model, batch.getFirst().text()));
+            return;
+        }
+        List<String> texts = batch.stream().map(Pending::text).toList();
+        CompletableFuture<List<float[]>> call;
+        try {
+            call = delegate.embedBatchAsync(model, texts, config.getRequestTimeout());
+        } catch (RuntimeException e) {
+            call = CompletableFuture.failedFuture(e);
+        }
+        call.whenComplete((embeddings, error) -> {
+            Throwable failure = error != null ? unavailable(unwrap(error), batch.size())
+                    : embeddings == null || embeddings.size() != batch.size()
+                    ? new EmbeddingUnavailableException("Ollama returned " + (embeddings == null ? 0 : embeddings.size())
+                            + " embeddings for a micro-batch of " + batch.size())
+                    : null;
+            for (int i = 0; i < batch.size(); i++) {
+                if (failure != null) {
+                    batch.get(i).result().completeExceptionally(failure);
+                } else {
+                    batch.get(i).result().complete(embeddings.get(i));
+                }
+            }
+        });
+    }
+
+    private static EmbeddingUnavailableException unavailable(Throwable error, int size) {
+        return error instanceof EmbeddingUnavailableException unavailable ? unavailable
+                : new EmbeddingUnavailableException("Micro-batch of " + size + " texts failed - " + error.getMessage(), error);
+    }
+
+    private static void complete(CompletableFuture<float[]> result, CompletableFuture<float[]> call) {
+        call.whenComplete((embedding, error) -> {
+            if (error != null) {
+                result.completeExceptionally(unwrap(error));
+            } else {
+                result.complete(embedding);
+            }
+        });
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+        flusher.shutdownNow();
+    }
+}
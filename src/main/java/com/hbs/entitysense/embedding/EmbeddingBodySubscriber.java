@@ -0,0 +1,217 @@
+package com.hbs.entitysense.embedding;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteBufferFeeder;
+import com.fasterxml.jackson.core.io.NumberInput;
+
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+
+import static com.hbs.entitysense.constants.EntitySenseConstant.EMBEDDING_DIMENSION;
+
+/**
+ * Reads an Ollama embedding response straight from the body's byte buffers into {@code float[]}, with Jackson's
+ * non-blocking parser. The body is never buffered into a {@code String}, numbers are parsed from the parser's own
+ * character buffer and no {@code Float} is boxed: each vector is one array sized for {@code EMBEDDING_DIMENSION},
+ * trimmed only if the model returns a different length. Arrays are not pooled, since callers cache and keep them.
+ *
+ * <p>Only the top-level {@code embedding} (single) or {@code embeddings} (batch) field is read; everything else is
+ * skipped token by token. Parsing happens as buffers arrive, so no thread waits on the body.
+ */
+final class EmbeddingBodySubscriber<T> implements HttpResponse.BodySubscriber<T> {
+
+    private enum State { SEEKING, AFTER_FIELD, OUTER_ARRAY, VECTOR, DONE }
+
+    private final JsonParser parser;
+    private final ByteBufferFeeder feeder;
+    private final String field;
+    private final boolean batch;
+    private final CompletableFuture<T> result = new CompletableFuture<>();
+
+    private Flow.Subscription subscription;
+    private State state = State.SEEKING;
+    private int depth;
+    private float[] vector;
+    private int size;
+    private float[] single;
+    private List<float[]> vectors;
+
+    private EmbeddingBodySubscriber(JsonFactory jsonFactory, String field, boolean batch) {
+        try {
+            this.parser = jsonFactory.createNonBlockingByteBufferParser();
+        } catch (IOException e) {
+            throw new IllegalStateException("JSON factory cannot parse non-blocking", e);
+        }
+        this.feeder = (ByteBufferFeeder) parser.getNonBlockingInputFeeder();
+        this.field = field;
+        this.batch = batch;
+    }
+
+    /** Body of {@code /api/embeddings}: the {@code embedding} array, or {@code null} when there is none. */
+    static EmbeddingBodySubscriber<float[]> single(JsonFactory jsonFactory) {
+        return new EmbeddingBodySubscriber<>(jsonFactory, "embedding", false);
+    }
+
+    /** Body of {@code /api/embed}: every array of {@code embeddings}, empty when there are none. */
+    static EmbeddingBodySubscriber<List<float[]>> batch(JsonFactory jsonFactory) {
+        return new EmbeddingBodySubscriber<>(jsonFactory, "embeddings", true);
+    }
+
+    @Override
+    public CompletionStage<T> getBody() {
+        return result;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        subscription.request(1);
+    }
+
+    @Override
+    public void onNext(List<ByteBuffer> buffers) {
+        try {
+            for (ByteBuffer buffer : buffers) {
+                if (result.isDone()) return;
+                feeder.feedInput(buffer);
+                drain();
+            }
+        } catch (IOException | RuntimeException e) {
+            fail(e);
+            subscription.cancel();
+            return;
+        }
+        subscription.request(1);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        fail(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        try {
+            feeder.endOfInput();
+            drain();
+            if (state != State.SEEKING && state != State.DONE) {
+                throw new IOException("Embedding response ended inside the " + field + " array");
+            }
+            complete();
+        } catch (IOException | RuntimeException e) {
+            fail(e);
+        }
+    }
+
+    /** Consumes every token the fed input allows. */
+    private void drain() throws IOException {
+        JsonToken token;
+        while (!result.isDone() && (token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+            switch (state) {
+                case SEEKING -> seek(token);
+                case AFTER_FIELD -> afterField(token);
+                case OUTER_ARRAY -> outerArray(token);
+                case VECTOR -> vector(token);
+                case DONE -> { }
+            }
+        }
+    }
+
+    private void seek(JsonToken token) {
+        switch (token) {
+            case START_OBJECT, START_ARRAY -> depth++;
+            case END_OBJECT, END_ARRAY -> depth--;
+            case FIELD_NAME -> {
+                if (depth == 1 && field.equals(currentName())) state = State.AFTER_FIELD;
+            }
+            default -> { }
+        }
+    }
+
+    private void afterField(JsonToken token) {
+        if (token == JsonToken.START_ARRAY) {
+            if (batch) {
+                vectors = new ArrayList<>();
+                state = State.OUTER_ARRAY;
+            } else {
+                startVector();
+            }
+            return;
+        }
+        // null or an unexpected type: keep looking, skipping over it
+        state = token == JsonToken.VALUE_NULL ? State.DONE : State.SEEKING;
+        seek(token);
+    }
+
+    private void outerArray(JsonToken token) throws IOException {
+        switch (token) {
+            case START_ARRAY -> startVector();
+            case END_ARRAY -> state = State.DONE;
+            default -> throw new IOException("Expected an array in " + field + " but found " + token);
+        }
+    }
+
+    private void vector(JsonToken token) throws IOException {
+        switch (token) {
+            case VALUE_NUMBER_FLOAT, VALUE_NUMBER_INT -> {
+                if (size == vector.length) vector = Arrays.copyOf(vector, size * 2);
+                // Straight from the token's characters; getFloatValue() would build a String per component
+                vector[size++] = NumberInput.parseFloat(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength(), true);
+            }
+            case END_ARRAY -> {
+                float[] finished = size == vector.length ? vector : Arrays.copyOf(vector, size);
+                vector = null;
+                if (batch) {
+                    vectors.add(finished);
+                    state = State.OUTER_ARRAY;
+                } else {
+                    single = finished;
+                    state = State.DONE;
+                }
+            }
+            default -> throw new IOException("Expected a number in " + field + " but found " + token);
+        }
+    }
+
+    private void startVector() {
+        vector = new float[EMBEDDING_DIMENSION];
+        size = 0;
+        state = State.VECTOR;
+    }
+
+    private String currentName() {
+        try {
+            return parser.currentName();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void complete() {
+        close();
+        result.complete((T) (batch ? (vectors == null ? List.of() : vectors) : single));
+    }
+
+    private void fail(Throwable error) {
+        close();
+        result.completeExceptionally(error);
+    }
+
+    private void close() {
+        try {
+            parser.close();
+        } catch (IOException ignored) {
+            // Nothing is held open; the parser only reads fed buffers
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.hbs.entitysense.embedding;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Source of text embeddings. Texts are expected to be normalised already; caching is left to the caller. Every call
+ * names the model, since vectors of different models must never be compared.
+ */
+public interface EmbeddingClient {
+
+    /**
+     * Embedding of {@code text} by {@code model}. Completes with {@code null} when the service answers without an
+     * embedding, and exceptionally with {@link EmbeddingUnavailableException} when it cannot be reached.
+     */
+    CompletableFuture<float[]> embedAsync(String model, String text);
+
+    /** Blocking {@link #embedAsync}. */
+    default float[] embed(String model, String text) {
+        try {
+            return embedAsync(model, text).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw e;
+        }
+    }
+
+    /**
+     * Embeddings for {@code texts} by {@code model} in the same order, from one batch call.
+     *
+     * @throws EmbeddingUnavailableException when the service cannot be reached
+     */
+    List<float[]> embedBatch(String model, List<String> texts);
+}
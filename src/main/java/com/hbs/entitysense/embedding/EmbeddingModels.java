@@ -0,0 +1,83 @@
+package com.hbs.entitysense.embedding;
+
+import com.hbs.entitysense.dto.EmbeddingModelRow;
+import com.hbs.entitysense.model.EmbeddingModelStatus;
+import com.hbs.entitysense.repository.EmbeddingModelRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * This node's view of {@code watchlist_embedding_models}: the {@link EmbeddingVersion} new rows are embedded with and
+ * stored in, and the one being built, if any. Screening does not read it directly; it uses the version of the
+ * watchlist snapshot it searches, which only moves to a new model once that model's index has been loaded.
+ *
+ * <p>Re-read by {@link #refresh()} on startup, on every snapshot poll and by the re-embedding job. While the table
+ * cannot be read, e.g. before it has been created, the last known versions are kept.
+ */
+@Component
+public class EmbeddingModels {
+
+    private final EmbeddingModelRepository embeddingModelRepository;
+
+    private volatile State state = new State(EmbeddingVersion.DEFAULT, null, false);
+
+    private record State(EmbeddingVersion active, EmbeddingVersion building, boolean switching) {
+    }
+
+    private static final Logger logger = LoggerFactory.getLogger(EmbeddingModels.class);
+
+    public EmbeddingModels(EmbeddingModelRepository embeddingModelRepository) {
+        this.embeddingModelRepository = embeddingModelRepository;
+    }
+
+    /** The version new watchlist rows are embedded with and stored in. */
+    public EmbeddingVersion active() {
+        return state.active();
+    }
+
+    /** The version the re-embedding job is filling, or {@code null}. */
+    public EmbeddingVersion building() {
+        return state.building();
+    }
+
+    /** Whether rows saved around the switch to {@link #active()} are still to be re-embedded with it. */
+    public boolean switching() {
+        return state.switching();
+    }
+
+    /**
+     * Reloads both versions from the database.
+     *
+     * @return the active version
+     */
+    public EmbeddingVersion refresh() {
+        List<EmbeddingModelRow> rows;
+        try {
+            rows = embeddingModelRepository.findAll();
+        } catch (DataAccessException e) {
+            logger.warn("Unable to read watchlist_embedding_models, keeping embedding model {} - {}", state.active(), e.getMessage());
+            return state.active();
+        }
+        EmbeddingVersion active = EmbeddingVersion.DEFAULT;
+        EmbeddingVersion building = null;
+        boolean switching = false;
+        for (EmbeddingModelRow row : rows) {
+            if (row.status() == EmbeddingModelStatus.ACTIVE || row.status() == EmbeddingModelStatus.SWITCHING) {
+                active = new EmbeddingVersion(row.slot(), row.model());
+                switching = row.status() == EmbeddingModelStatus.SWITCHING;
+            } else if (row.status() == EmbeddingModelStatus.BUILDING) {
+                building = new EmbeddingVersion(row.slot(), row.model());
+            }
+        }
+        State previous = state;
+        state = new State(active, building, switching);
+        if (!active.equals(previous.active())) {
+            logger.info("Watchlist rows are now embedded with {}", active);
+        }
+        return active;
+    }
+}
@@ -0,0 +1,16 @@
+package com.hbs.entitysense.embedding;
+
+/**
+ * No embedding could be obtained: every endpoint failed, timed out, had its circuit open or was at its in-flight
+ * limit. Screening handles it per {@code entity-sense.ollama.failure-policy}.
+ */
+public class EmbeddingUnavailableException extends RuntimeException {
+
+    public EmbeddingUnavailableException(String message) {
+        super(message);
+    }
+
+    public EmbeddingUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
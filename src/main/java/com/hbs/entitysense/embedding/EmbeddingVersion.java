@@ -0,0 +1,20 @@
+package com.hbs.entitysense.embedding;
+
+import com.hbs.entitysense.model.EmbeddingSlot;
+
+import static com.hbs.entitysense.constants.EntitySenseConstant.OLLAMA_EMBEDDINGS_REQ_MODEL_VALUE;
+
+/**
+ * An embedding model and the column its vectors are stored in. A payee embedded with {@link #model()} is only ever
+ * compared with vectors read from {@link #slot()}.
+ */
+public record EmbeddingVersion(EmbeddingSlot slot, String model) {
+
+    /** Until {@code watchlist_embedding_models} says otherwise: the original model, in {@code embedding}. */
+    public static final EmbeddingVersion DEFAULT = new EmbeddingVersion(EmbeddingSlot.PRIMARY, OLLAMA_EMBEDDINGS_REQ_MODEL_VALUE);
+
+    @Override
+    public String toString() {
+        return model + " (" + slot.column() + ")";
+    }
+}
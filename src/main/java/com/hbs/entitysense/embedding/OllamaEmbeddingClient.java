@@ -0,0 +1,271 @@
+package com.hbs.entitysense.embedding;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hbs.entitysense.config.EntitySenseProperties;
+import com.hbs.entitysense.metrics.ScreeningMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import static com.hbs.entitysense.constants.EntitySenseConstant.*;
+
+/**
+ * {@link EmbeddingClient} over one or more Ollama servers listed in {@code entity-sense.ollama.endpoints}.
+ *
+ * <ul>
+ *     <li>Each call goes to the endpoint with the fewest calls in flight, rotating on ties, and skips endpoints at
+ *     {@code max-in-flight-per-endpoint} or with an open circuit. When none is left the call fails at once instead of
+ *     queueing.</li>
+ *     <li>A call that fails is retried once on another endpoint. A single-text call still unanswered after
+ *     {@code hedge-delay} is also sent to another endpoint; the first answer wins and the other exchange is
+ *     cancelled. Batch calls are not hedged, as they are expensive and rarely latency sensitive.</li>
+ *     <li>Transport errors, timeouts, 5xx responses and unreadable bodies count towards the endpoint's circuit
+ *     breaker; an embedding-less answer does not.</li>
+ *     <li>Requests are serialised to bytes and responses parsed as they stream in by {@link EmbeddingBodySubscriber},
+ *     so neither side goes through a {@code String}.</li>
+ * </ul>
+ *
+ * <p>Every failure surfaces as {@link EmbeddingUnavailableException}.
+ */
+@Component
+public class OllamaEmbeddingClient implements EmbeddingClient {
+
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper;
+    private final EntitySenseProperties.Ollama config;
+    private final ScreeningMetrics screeningMetrics;
+    private final List<OllamaEndpoint> endpoints;
+    private final AtomicInteger rotation = new AtomicInteger();
+
+    private static final String EMPTY_RESPONSE_ERROR = "empty_response";
+    private static final String UNAVAILABLE_ERROR = "unavailable";
+
+    private static final Logger logger = LoggerFactory.getLogger(OllamaEmbeddingClient.class);
+
+    public OllamaEmbeddingClient(HttpClient httpClient, ObjectMapper objectMapper, EntitySenseProperties properties,
+                                 ScreeningMetrics screeningMetrics) {
+        this.httpClient = httpClient;
+        this.objectMapper = objectMapper;
+        this.config = properties.getOllama();
+        this.screeningMetrics = screeningMetrics;
+        EntitySenseProperties.CircuitBreakerProperties breaker = config.getCircuitBreaker();
+        this.endpoints = config.getEndpoints().stream()
+                .map(url -> new OllamaEndpoint(url, config.getMaxInFlightPerEndpoint(),
+                        new CircuitBreaker(breaker.getFailureThreshold(), breaker.getOpenDuration(), System::nanoTime)))
+                .toList();
+        if (endpoints.isEmpty()) {
+            throw new IllegalStateException("entity-sense.ollama.endpoints must list at least one URL");
+        }
+        for (OllamaEndpoint endpoint : endpoints) {
+            screeningMetrics.gaugeCircuitOpen(endpoint.toString(), () -> endpoint.breaker().state() == CircuitBreaker.State.CLOSED ? 0 : 1);
+        }
+    }
+
+    @Override
+    public CompletableFuture<float[]> embedAsync(String model, String text) {
+        Map<String, Object> body = Map.of(OLLAMA_EMBEDDINGS_REQ_MODEL_KEY, model, OLLAMA_EMBEDDINGS_REQ_PROMPT_KEY, text);
+        return call(OLLAMA_EMBEDDINGS_URL, body, config.getRequestTimeout(), config.getHedgeDelay(),
+                () -> EmbeddingBodySubscriber.single(objectMapper.getFactory()))
+                .thenApply(embedding -> {
+                    if (embedding == null) screeningMetrics.recordOllamaError(EMPTY_RESPONSE_ERROR);
+                    return embedding;
+                });
+    }
+
+    @Override
+    public List<float[]> embedBatch(String model, List<String> texts) {
+        try {
+            return embedBatchAsync(model, texts, config.getBatchTimeout()).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    /** {@link #embedBatch} without blocking, bounded by {@code timeout} instead of {@code batch-timeout}. */
+    CompletableFuture<List<float[]>> embedBatchAsync(String model, List<String> texts, Duration timeout) {
+        Map<String, Object> body = Map.of(OLLAMA_EMBEDDINGS_REQ_MODEL_KEY, model, OLLAMA_EMBED_BATCH_REQ_INPUT_KEY, texts);
+        return call(OLLAMA_EMBED_BATCH_URL, body, timeout, null, () -> EmbeddingBodySubscriber.batch(objectMapper.getFactory()))
+                .thenApply(embeddings -> {
+                    if (embeddings.size() != texts.size()) {
+                        screeningMetrics.recordOllamaError(EMPTY_RESPONSE_ERROR);
+                        throw new RuntimeException("Ollama returned " + embeddings.size() + " embeddings for " + texts.size() + " inputs");
+                    }
+                    return embeddings;
+                });
+    }
+
+    /**
+     * Posts {@code body} to {@code path} on the best available endpoint, failing over to (and, after
+     * {@code hedgeDelay}, hedging on) a second one.
+     */
+    private <T> CompletableFuture<T> call(String path, Object body, Duration timeout, Duration hedgeDelay,
+                                          Supplier<HttpResponse.BodySubscriber<T>> bodySubscriber) {
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(body);
+        } catch (IOException ex) {
+            return CompletableFuture.failedFuture(new RuntimeException("Failed to generate embedding", ex));
+        }
+        OllamaEndpoint primary = acquire(null);
+        if (primary == null) {
+            screeningMetrics.recordOllamaError(UNAVAILABLE_ERROR);
+            return CompletableFuture.failedFuture(new EmbeddingUnavailableException(
+                    "No Ollama endpoint available: every circuit is open or at max-in-flight-per-endpoint"));
+        }
+        Exchange<T> exchange = new Exchange<>(primary, path, json, timeout, bodySubscriber);
+        exchange.start();
+        if (hedgeDelay != null && hedgeDelay.isPositive() && endpoints.size() > 1) {
+            CompletableFuture.delayedExecutor(hedgeDelay.toNanos(), TimeUnit.NANOSECONDS).execute(() -> exchange.startBackup(true));
+        }
+        return exchange.result;
+    }
+
+    /**
+     * Claims the endpoint with the fewest calls in flight, other than {@code excluded}. Ties go to whichever comes
+     * first from a rotating start, so equal endpoints share the load round-robin.
+     */
+    private OllamaEndpoint acquire(OllamaEndpoint excluded) {
+        int count = endpoints.size();
+        int start = Math.floorMod(rotation.getAndIncrement(), count);
+        boolean[] tried = new boolean[count];
+        for (int attempt = 0; attempt < count; attempt++) {
+            int best = -1;
+            for (int k = 0; k < count; k++) {
+                int i = (start + k) % count;
+                OllamaEndpoint endpoint = endpoints.get(i);
+                if (tried[i] || endpoint == excluded) continue;
+                if (best < 0 || endpoint.inFlight() < endpoints.get(best).inFlight()) best = i;
+            }
+            if (best < 0) return null;
+            if (endpoints.get(best).tryAcquire()) return endpoints.get(best);
+            tried[best] = true;
+        }
+        return null;
+    }
+
+    /**
+     * One logical call: the primary attempt plus at most one backup, started either when the primary fails or when
+     * the hedge delay elapses. {@link #result} completes with the first success, or fails once every started attempt
+     * has failed.
+     */
+    private final class Exchange<T> {
+        private final OllamaEndpoint primary;
+        private final String path;
+        private final byte[] json;
+        private final Duration timeout;
+        private final HttpResponse.BodyHandler<T> bodyHandler;
+
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private final AtomicInteger outstanding = new AtomicInteger(1);
+        private final AtomicBoolean backupStarted = new AtomicBoolean();
+        private final AtomicReference<Throwable> lastError = new AtomicReference<>();
+        private final List<CompletableFuture<?>> requests = new CopyOnWriteArrayList<>();
+
+        Exchange(OllamaEndpoint primary, String path, byte[] json, Duration timeout, Supplier<HttpResponse.BodySubscriber<T>> bodySubscriber) {
+            this.primary = primary;
+            this.path = path;
+            this.json = json;
+            this.timeout = timeout;
+            // A 5xx body is discarded; checkStatus turns the response into a failure
+            this.bodyHandler = info -> info.statusCode() >= 500 ? HttpResponse.BodySubscribers.replacing(null) : bodySubscriber.get();
+            // The loser of a hedge is cancelled so it stops holding a connection and an in-flight slot
+            result.whenComplete((value, error) -> requests.forEach(request -> request.cancel(true)));
+        }
+
+        /** Sends to the already acquired primary; if that fails, the backup starts at once. */
+        void start() {
+            send(primary).whenComplete((value, error) -> {
+                if (error != null) {
+                    startBackup(false);
+                }
+                settle(value, error);
+            });
+        }
+
+        /** Starts the backup attempt unless the call is over, a backup already ran or no other endpoint is free. */
+        void startBackup(boolean hedge) {
+            // Counted before the checks, so a concurrent failure of the primary cannot see zero outstanding and fail early
+            outstanding.incrementAndGet();
+            OllamaEndpoint backup = result.isDone() || !backupStarted.compareAndSet(false, true) ? null : acquire(primary);
+            if (backup == null) {
+                if (outstanding.decrementAndGet() == 0) fail();
+                return;
+            }
+            if (hedge) {
+                screeningMetrics.recordHedge();
+                logger.debug("Hedging embedding call to {} after no answer from {}", backup, primary);
+            }
+            send(backup).whenComplete(this::settle);
+        }
+
+        private void settle(T value, Throwable error) {
+            if (error == null) {
+                result.complete(value);
+                return;
+            }
+            lastError.set(error);
+            if (outstanding.decrementAndGet() == 0) fail();
+        }
+
+        private void fail() {
+            Throwable cause = unwrap(lastError.get());
+            result.completeExceptionally(cause instanceof EmbeddingUnavailableException ? cause
+                    : new EmbeddingUnavailableException("Failed to generate embedding", cause));
+        }
+
+        private CompletableFuture<T> send(OllamaEndpoint endpoint) {
+            HttpRequest request = HttpRequest.newBuilder()
+                    .uri(endpoint.uri(path))
+                    .timeout(timeout)
+                    .header(OLLAMA_CONTENT_TYPE_KEY, OLLAMA_CONTENT_TYPE_VALUE)
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(json))
+                    .build();
+            CompletableFuture<HttpResponse<T>> response;
+            try {
+                response = httpClient.sendAsync(request, bodyHandler);
+            } catch (RuntimeException ex) {
+                response = CompletableFuture.failedFuture(ex);
+            }
+            requests.add(response);
+            return response.thenApply(this::checkStatus).whenComplete((value, error) -> {
+                if (error == null) {
+                    endpoint.onSuccess();
+                } else if (unwrap(error) instanceof CancellationException) {
+                    endpoint.onCancelled();
+                } else {
+                    endpoint.onFailure();
+                    screeningMetrics.recordOllamaError(error);
+                    logger.warn("Embedding call to {} failed - {}", endpoint, unwrap(error).toString());
+                }
+            });
+        }
+
+        private T checkStatus(HttpResponse<T> response) {
+            if (response.statusCode() >= 500) {
+                throw new CompletionException(new IOException("Ollama answered HTTP " + response.statusCode()));
+            }
+            return response.body();
+        }
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+}
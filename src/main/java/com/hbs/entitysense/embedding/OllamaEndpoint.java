@@ -0,0 +1,70 @@
+package com.hbs.entitysense.embedding;
+
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One Ollama server: its base URL, the calls currently outstanding against it and its circuit breaker.
+ */
+final class OllamaEndpoint {
+
+    private final String baseUrl;
+    private final int maxInFlight;
+    private final CircuitBreaker breaker;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    OllamaEndpoint(String baseUrl, int maxInFlight, CircuitBreaker breaker) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.maxInFlight = maxInFlight;
+        this.breaker = breaker;
+    }
+
+    /**
+     * Claims an in-flight slot if the endpoint is below its limit and its circuit lets the call through. A
+     * {@code true} must be followed by exactly one of {@link #onSuccess}, {@link #onFailure} or {@link #onCancelled}.
+     */
+    boolean tryAcquire() {
+        int current;
+        do {
+            current = inFlight.get();
+            if (current >= maxInFlight) return false;
+        } while (!inFlight.compareAndSet(current, current + 1));
+        if (!breaker.tryAcquire()) {
+            inFlight.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    void onSuccess() {
+        inFlight.decrementAndGet();
+        breaker.onSuccess();
+    }
+
+    void onFailure() {
+        inFlight.decrementAndGet();
+        breaker.onFailure();
+    }
+
+    void onCancelled() {
+        inFlight.decrementAndGet();
+        breaker.release();
+    }
+
+    int inFlight() {
+        return inFlight.get();
+    }
+
+    CircuitBreaker breaker() {
+        return breaker;
+    }
+
+    URI uri(String path) {
+        return URI.create(baseUrl + path);
+    }
+
+    @Override
+    public String toString() {
+        return baseUrl;
+    }
+}
@@ -1,5 +1,6 @@
 package com.hbs.entitysense.entity;
 
+import com.hbs.entitysense.model.EmbeddingSlot;
 import com.hbs.entitysense.model.RiskCategory;
 import jakarta.persistence.*;
 import lombok.Data;
@@ -25,6 +26,12 @@ public class WatchlistEntity {
     @Column(name = "known_accounts", columnDefinition = "text[]")
     private String[] knownAccounts;
 
+    /**
+     * {@link #knownAccounts} normalised the way screening compares them, for the indexed account lookup.
+     */
+    @Column(name = "known_accounts_normalised", columnDefinition = "text[]")
+    private String[] knownAccountsNormalised;
+
     @Enumerated(EnumType.STRING)
     private RiskCategory riskCategory;
 
@@ -36,5 +43,25 @@ public class WatchlistEntity {
     @Column(columnDefinition = "vector(768)")
     private float[] embedding;
 
+    /**
+     * Second embedding column, filled by the re-embedding job with the next model's vectors; see {@link EmbeddingSlot}.
+     */
+    @JdbcTypeCode(SqlTypes.VECTOR)
+    @Array(length = 768)
+    @Column(name = "embedding_secondary", columnDefinition = "vector(768)")
+    private float[] embeddingSecondary;
+
     private LocalDateTime createdAt = LocalDateTime.now();
+
+    public float[] getEmbedding(EmbeddingSlot slot) {
+        return slot == EmbeddingSlot.SECONDARY ? embeddingSecondary : embedding;
+    }
+
+    public void setEmbedding(EmbeddingSlot slot, float[] embedding) {
+        if (slot == EmbeddingSlot.SECONDARY) {
+            this.embeddingSecondary = embedding;
+        } else {
+            this.embedding = embedding;
+        }
+    }
 }
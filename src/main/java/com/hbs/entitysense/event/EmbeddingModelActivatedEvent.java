@@ -0,0 +1,10 @@
+package com.hbs.entitysense.event;
+
+import com.hbs.entitysense.embedding.EmbeddingVersion;
+
+/**
+ * Published once the re-embedding job has switched {@code watchlist_embedding_models} to {@code active}, so this
+ * node loads the new model's index without waiting for its next poll.
+ */
+public record EmbeddingModelActivatedEvent(EmbeddingVersion active, EmbeddingVersion previous) {
+}
@@ -0,0 +1,10 @@
+package com.hbs.entitysense.event;
+
+import com.hbs.entitysense.entity.WatchlistEntity;
+
+/**
+ * Published once a new watchlist entity has been saved, so in-memory views of the watchlist can catch up
+ * without re-reading the table.
+ */
+public record WatchlistEntityCreatedEvent(WatchlistEntity entity) {
+}
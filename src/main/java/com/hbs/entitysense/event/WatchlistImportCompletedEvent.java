@@ -0,0 +1,7 @@
+package com.hbs.entitysense.event;
+
+/**
+ * Published after a bulk import has written rows straight to {@code watchlist_entities}, bypassing JPA.
+ */
+public record WatchlistImportCompletedEvent(String source, long rowsImported) {
+}
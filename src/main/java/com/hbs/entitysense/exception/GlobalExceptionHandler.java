@@ -1,9 +1,13 @@
 package com.hbs.entitysense.exception;
 
+import com.hbs.entitysense.embedding.EmbeddingUnavailableException;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
+import java.util.concurrent.RejectedExecutionException;
+
 @RestControllerAdvice
 public class GlobalExceptionHandler {
 
@@ -11,4 +15,14 @@ public class GlobalExceptionHandler {
     public ResponseEntity<String> handleRuntime(RuntimeException e) {
         return ResponseEntity.badRequest().body(e.getMessage());
     }
-}
\ No newline at end of file
+
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<String> handleRejected(RejectedExecutionException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(e.getMessage());
+    }
+
+    @ExceptionHandler(EmbeddingUnavailableException.class)
+    public ResponseEntity<String> handleEmbeddingUnavailable(EmbeddingUnavailableException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(e.getMessage());
+    }
+}
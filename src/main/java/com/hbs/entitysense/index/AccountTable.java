@@ -0,0 +1,89 @@
+package com.hbs.entitysense.index;
+
+import java.util.List;
+
+/**
+ * Open-addressed (linear probing) table of {@link WatchlistAccountIndex}: 64-bit account hashes and {@code long}
+ * entity ids in primitive arrays, about 32 bytes per account. Filled by {@link WatchlistSnapshots} before the
+ * snapshot holding it is published and only read afterwards.
+ */
+final class AccountTable {
+
+    private static final int MIN_CAPACITY = 1024;
+
+    private final long[] keys;
+    private final long[] ids;
+    private final int mask;
+    private int size;
+
+    private AccountTable(int capacity) {
+        keys = new long[capacity];
+        ids = new long[capacity];
+        mask = capacity - 1;
+    }
+
+    static AccountTable empty() {
+        return new AccountTable(MIN_CAPACITY);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Adds {@code id} under each of {@code knownAccounts}, skipping exact duplicates. Returns the table to keep
+     * filling, which is a doubled copy once this one is half full so probe chains stay short.
+     */
+    AccountTable insertAll(long id, String[] knownAccounts) {
+        if (knownAccounts == null) return this;
+        AccountTable target = this;
+        for (String account : knownAccounts) {
+            long key = WatchlistAccountIndex.hash(account);
+            if (key != 0L) {
+                target = target.insert(key, id);
+            }
+        }
+        return target;
+    }
+
+    /** Adds the id of every entry stored under {@code key} to {@code found}. */
+    void collect(long key, List<Long> found) {
+        for (int slot = slotOf(key); ; slot = (slot + 1) & mask) {
+            long stored = keys[slot];
+            if (stored == 0L) return;
+            if (stored == key) found.add(ids[slot]);
+        }
+    }
+
+    private AccountTable insert(long key, long id) {
+        AccountTable target = this;
+        if ((size + 1) * 2 > mask + 1) {
+            target = new AccountTable((mask + 1) * 2);
+            for (int slot = 0; slot <= mask; slot++) {
+                if (keys[slot] != 0L) target.put(keys[slot], ids[slot]);
+            }
+        }
+        target.put(key, id);
+        return target;
+    }
+
+    private int slotOf(long key) {
+        // Murmur3 finaliser: FNV leaves the low bits poorly mixed for short keys
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return (int) key & mask;
+    }
+
+    private void put(long key, long id) {
+        int slot = slotOf(key);
+        long stored;
+        while ((stored = keys[slot]) != 0L) {
+            if (stored == key && ids[slot] == id) return;
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        ids[slot] = id;
+        size++;
+    }
+}
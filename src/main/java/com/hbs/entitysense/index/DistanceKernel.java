@@ -0,0 +1,50 @@
+package com.hbs.entitysense.index;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+
+/**
+ * Inner loop of screening: dot products and cosine distances over embeddings. Implementations must be stateless
+ * and thread-safe, since one instance is shared by every request.
+ */
+public interface DistanceKernel {
+
+    float dot(float[] a, float[] b);
+
+    /**
+     * Dot product of {@code query} with the {@code query.length} floats of {@code block} starting at {@code offset}.
+     * {@code scratch} holds at least {@code query.length} floats the kernel may overwrite; the caller owns it, e.g.
+     * one per scan, so no kernel keeps per-thread buffers.
+     */
+    float dot(float[] query, FloatBuffer block, int offset, float[] scratch);
+
+    /**
+     * Dot product of {@code query} with the {@code query.length} signed int8 codes of {@code block} starting at
+     * {@code offset}, i.e. an int8-quantised vector before its scale is applied. {@code scratch} is as above.
+     */
+    float dot(float[] query, ByteBuffer block, int offset, float[] scratch);
+
+    default double norm(float[] vector) {
+        return Math.sqrt(dot(vector, vector));
+    }
+
+    /**
+     * Cosine distance {@code 1 - (A⋅B)/(||A|| × ||B||)}. Zero vectors are treated as maximally distant.
+     */
+    default double cosineDistance(float[] vectorA, float[] vectorB) {
+        if (vectorA == null || vectorB == null || vectorA.length != vectorB.length) {
+            throw new IllegalArgumentException("Invalid vectors");
+        }
+        return cosineDistance(vectorA, norm(vectorA), vectorB, norm(vectorB));
+    }
+
+    /**
+     * Cosine distance when both norms are already known, e.g. the query norm computed once per request.
+     */
+    default double cosineDistance(float[] vectorA, double normA, float[] vectorB, double normB) {
+        if (normA == 0.0 || normB == 0.0) return 1.0;
+        return 1 - (dot(vectorA, vectorB) / (normA * normB));
+    }
+
+    String name();
+}
@@ -0,0 +1,45 @@
+package com.hbs.entitysense.index;
+
+import com.hbs.entitysense.model.DistanceKernelType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Picks a {@link DistanceKernel}. The SIMD kernel is instantiated reflectively so the app still starts when the JVM
+ * was launched without {@code --add-modules jdk.incubator.vector}.
+ */
+public final class DistanceKernels {
+
+    private static final String SIMD_KERNEL_CLASS = "com.hbs.entitysense.index.SimdDistanceKernel";
+
+    private static final Logger logger = LoggerFactory.getLogger(DistanceKernels.class);
+
+    private DistanceKernels() {
+    }
+
+    public static DistanceKernel select(DistanceKernelType type) {
+        if (type == DistanceKernelType.SCALAR) {
+            return new ScalarDistanceKernel();
+        }
+        DistanceKernel simd = simdOrNull();
+        if (simd != null) {
+            return simd;
+        }
+        if (type == DistanceKernelType.SIMD) {
+            logger.warn("SIMD distance kernel requested but jdk.incubator.vector is unavailable, using scalar kernel");
+        }
+        return new ScalarDistanceKernel();
+    }
+
+    public static DistanceKernel simdOrNull() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return null;
+        }
+        try {
+            return (DistanceKernel) Class.forName(SIMD_KERNEL_CLASS).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            logger.warn("Unable to load SIMD distance kernel - {}", e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.hbs.entitysense.index;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link VectorSegment} holding every component as a 32-bit float, so scores are exact.
+ */
+class FloatVectorSegment extends VectorSegment {
+
+    private final List<ByteBuffer> chunks = new ArrayList<>();
+    private final List<FloatBuffer> floatChunks = new ArrayList<>();
+
+    FloatVectorSegment(int dimension, int chunkSize) {
+        super(dimension, chunkSize);
+    }
+
+    @Override
+    protected void store(int slot, float[] unitVector) {
+        if (slot == chunks.size() * chunkSize) {
+            addChunk(newChunk());
+        }
+        floatChunks.get(slot / chunkSize).put((slot % chunkSize) * dimension, unitVector);
+    }
+
+    @Override
+    protected ByteBuffer newChunk() {
+        return ByteBuffer.allocateDirect(chunkSize * dimension * Float.BYTES);
+    }
+
+    @Override
+    protected void addChunk(ByteBuffer chunk) {
+        chunks.add(chunk);
+        floatChunks.add(chunk.order(ByteOrder.nativeOrder()).asFloatBuffer());
+    }
+
+    @Override
+    int componentBytes() {
+        return Float.BYTES;
+    }
+
+    @Override
+    ByteBuffer chunkBytes(int index) {
+        return chunks.get(index);
+    }
+
+    @Override
+    float dot(DistanceKernel kernel, float[] query, int slot, float[] scratch) {
+        return kernel.dot(query, floatChunks.get(slot / chunkSize), (slot % chunkSize) * dimension, scratch);
+    }
+
+    @Override
+    float maxDotError(int slot, float queryL1Norm) {
+        return 0f;
+    }
+
+    @Override
+    boolean isExact() {
+        return true;
+    }
+
+    @Override
+    void copyVector(int slot, float[] destination) {
+        floatChunks.get(slot / chunkSize).get((slot % chunkSize) * dimension, destination);
+    }
+
+    @Override
+    long offHeapBytes() {
+        return (long) chunks.size() * chunkSize * dimension * Float.BYTES;
+    }
+}
@@ -0,0 +1,107 @@
+package com.hbs.entitysense.index;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * {@link VectorSegment} with symmetric per-vector int8 scalar quantisation: component {@code x} is stored as
+ * {@code round(x / scale)} with {@code scale = max|x| / 127}. That is one byte per dimension instead of four, plus a
+ * float scale per vector on the heap.
+ *
+ * <p>Rounding moves each component by at most {@code scale / 2}, so a dot product with query {@code q} is off by at
+ * most {@code scale / 2 * ||q||₁}. {@link WatchlistVectorIndex} widens its threshold by that bound per vector, so no
+ * exact hit is lost, and the caller re-scores hits at full precision.
+ */
+class Int8VectorSegment extends VectorSegment {
+
+    private static final float MAX_CODE = 127f;
+
+    private final List<ByteBuffer> chunks = new ArrayList<>();
+    private float[] scales = new float[64];
+
+    Int8VectorSegment(int dimension, int chunkSize) {
+        super(dimension, chunkSize);
+    }
+
+    @Override
+    protected void store(int slot, float[] unitVector) {
+        if (slot == chunks.size() * chunkSize) {
+            addChunk(newChunk());
+        }
+        float max = 0f;
+        for (float v : unitVector) {
+            max = Math.max(max, Math.abs(v));
+        }
+        float scale = max / MAX_CODE;
+        ByteBuffer chunk = chunks.get(slot / chunkSize);
+        int offset = (slot % chunkSize) * dimension;
+        for (int i = 0; i < dimension; i++) {
+            chunk.put(offset + i, scale == 0f ? 0 : (byte) Math.round(unitVector[i] / scale));
+        }
+        restoreScale(slot, scale);
+    }
+
+    @Override
+    protected ByteBuffer newChunk() {
+        return ByteBuffer.allocateDirect(chunkSize * dimension);
+    }
+
+    @Override
+    protected void addChunk(ByteBuffer chunk) {
+        chunks.add(chunk);
+    }
+
+    @Override
+    int componentBytes() {
+        return 1;
+    }
+
+    @Override
+    ByteBuffer chunkBytes(int index) {
+        return chunks.get(index);
+    }
+
+    @Override
+    float scale(int slot) {
+        return scales[slot];
+    }
+
+    @Override
+    protected void restoreScale(int slot, float scale) {
+        if (slot >= scales.length) {
+            scales = Arrays.copyOf(scales, Math.max(scales.length * 2, slot + 1));
+        }
+        scales[slot] = scale;
+    }
+
+    @Override
+    float dot(DistanceKernel kernel, float[] query, int slot, float[] scratch) {
+        return scales[slot] * kernel.dot(query, chunks.get(slot / chunkSize), (slot % chunkSize) * dimension, scratch);
+    }
+
+    @Override
+    float maxDotError(int slot, float queryL1Norm) {
+        return scales[slot] * 0.5f * queryL1Norm;
+    }
+
+    @Override
+    boolean isExact() {
+        return false;
+    }
+
+    @Override
+    void copyVector(int slot, float[] destination) {
+        ByteBuffer chunk = chunks.get(slot / chunkSize);
+        int offset = (slot % chunkSize) * dimension;
+        for (int i = 0; i < dimension; i++) {
+            destination[i] = chunk.get(offset + i) * scales[slot];
+        }
+    }
+
+    @Override
+    long offHeapBytes() {
+        return (long) chunks.size() * chunkSize * dimension;
+    }
+}
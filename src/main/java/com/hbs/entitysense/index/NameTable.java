@@ -0,0 +1,144 @@
+package com.hbs.entitysense.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Postings table of {@link WatchlistNameIndex}: for each name key, the ordinals of the entities whose name produces
+ * it. Filled by {@link WatchlistSnapshots} before the snapshot holding it is published and only read afterwards.
+ */
+final class NameTable {
+
+    private final Map<String, Postings> postings = new HashMap<>();
+    private final Map<String, Integer> countryCodes = new HashMap<>();
+    private long[] ids = new long[64];
+    private int[] keyCounts = new int[64];
+    private int[] countries = new int[64];
+    private int size;
+
+    /** An entity and its Dice similarity to the payee name. */
+    record Scored(long id, double similarity) {
+    }
+
+    void add(long id, String name, String country, boolean phonetic) {
+        Set<String> keys = WatchlistNameIndex.keys(name, phonetic);
+        if (size == ids.length) {
+            int capacity = ids.length * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            keyCounts = Arrays.copyOf(keyCounts, capacity);
+            countries = Arrays.copyOf(countries, capacity);
+        }
+        int ordinal = size++;
+        ids[ordinal] = id;
+        keyCounts[ordinal] = keys.size();
+        countries[ordinal] = countryCode(country);
+        for (String key : keys) {
+            postings.computeIfAbsent(key, k -> new Postings()).add(ordinal);
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    int keyCount() {
+        return postings.size();
+    }
+
+    /**
+     * Adds to {@code scored} every entity sharing keys with the query whose similarity reaches {@code minSimilarity}
+     * and whose country is {@code country}, unknown, or not asked for. Only the postings of the query's keys are read,
+     * and the shared-key counts are sized to those postings, so a lookup allocates in proportion to its own work.
+     */
+    void score(Set<String> queryKeys, String country, double minSimilarity, List<Scored> scored) {
+        Postings[] lists = new Postings[queryKeys.size()];
+        int listCount = 0;
+        int postingCount = 0;
+        for (String key : queryKeys) {
+            Postings list = postings.get(key);
+            if (list == null) continue;
+            lists[listCount++] = list;
+            postingCount += list.size;
+        }
+        if (postingCount == 0) return;
+        OrdinalCounts shared = new OrdinalCounts(postingCount);
+        for (int l = 0; l < listCount; l++) {
+            for (int i = 0; i < lists[l].size; i++) {
+                shared.increment(lists[l].ordinals[i]);
+            }
+        }
+        Integer wantedCountry = country == null ? null : countryCodes.get(WatchlistNameIndex.normaliseCountry(country));
+        for (int t = 0; t < shared.size; t++) {
+            int ordinal = shared.ordinal(t);
+            double dice = 2.0 * shared.count(t) / (queryKeys.size() + keyCounts[ordinal]);
+            boolean countryOk = country == null || countries[ordinal] < 0
+                    || (wantedCountry != null && countries[ordinal] == wantedCountry);
+            if (dice >= minSimilarity && countryOk) {
+                scored.add(new Scored(ids[ordinal], dice));
+            }
+        }
+    }
+
+    private int countryCode(String country) {
+        if (country == null || country.isBlank()) return -1;
+        return countryCodes.computeIfAbsent(WatchlistNameIndex.normaliseCountry(country), c -> countryCodes.size());
+    }
+
+    /**
+     * Open-addressed ordinal to shared-key count map for one lookup, kept at most half full. Entries are read back in
+     * the order their ordinals were first seen.
+     */
+    private static final class OrdinalCounts {
+        private final int[] keys;     // ordinal + 1, 0 while the slot is free
+        private final int[] counts;
+        private final int[] order;    // slots in first-seen order
+        private final int shift;
+        private int size;
+
+        OrdinalCounts(int maxOrdinals) {
+            int capacity = Integer.highestOneBit(maxOrdinals * 2) << 1;
+            keys = new int[capacity];
+            counts = new int[capacity];
+            order = new int[maxOrdinals];
+            shift = Integer.SIZE - Integer.numberOfTrailingZeros(capacity);
+        }
+
+        void increment(int ordinal) {
+            int mask = keys.length - 1;
+            int slot = (ordinal * 0x9E3779B9) >>> shift;
+            while (keys[slot] != 0 && keys[slot] != ordinal + 1) {
+                slot = (slot + 1) & mask;
+            }
+            if (keys[slot] == 0) {
+                keys[slot] = ordinal + 1;
+                order[size++] = slot;
+            }
+            counts[slot]++;
+        }
+
+        int ordinal(int index) {
+            return keys[order[index]] - 1;
+        }
+
+        int count(int index) {
+            return counts[order[index]];
+        }
+    }
+
+    private static final class Postings {
+        private int[] ordinals = new int[4];
+        private int size;
+
+        void add(int ordinal) {
+            if (size == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, size * 2);
+            }
+            ordinals[size++] = ordinal;
+        }
+    }
+}
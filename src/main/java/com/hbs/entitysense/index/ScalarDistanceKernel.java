@@ -0,0 +1,64 @@
+package com.hbs.entitysense.index;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+
+/**
+ * Portable kernel. Four independent accumulators break the add dependency chain, which the JIT will not do on its
+ * own for floating point reductions.
+ */
+public class ScalarDistanceKernel implements DistanceKernel {
+
+    @Override
+    public float dot(float[] a, float[] b) {
+        float s0 = 0f, s1 = 0f, s2 = 0f, s3 = 0f;
+        int i = 0, bound = a.length & ~3;
+        for (; i < bound; i += 4) {
+            s0 += a[i] * b[i];
+            s1 += a[i + 1] * b[i + 1];
+            s2 += a[i + 2] * b[i + 2];
+            s3 += a[i + 3] * b[i + 3];
+        }
+        for (; i < a.length; i++) {
+            s0 += a[i] * b[i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    @Override
+    public float dot(float[] query, FloatBuffer block, int offset, float[] scratch) {
+        float s0 = 0f, s1 = 0f, s2 = 0f, s3 = 0f;
+        int i = 0, bound = query.length & ~3;
+        for (; i < bound; i += 4) {
+            s0 += query[i] * block.get(offset + i);
+            s1 += query[i + 1] * block.get(offset + i + 1);
+            s2 += query[i + 2] * block.get(offset + i + 2);
+            s3 += query[i + 3] * block.get(offset + i + 3);
+        }
+        for (; i < query.length; i++) {
+            s0 += query[i] * block.get(offset + i);
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    @Override
+    public float dot(float[] query, ByteBuffer block, int offset, float[] scratch) {
+        float s0 = 0f, s1 = 0f, s2 = 0f, s3 = 0f;
+        int i = 0, bound = query.length & ~3;
+        for (; i < bound; i += 4) {
+            s0 += query[i] * block.get(offset + i);
+            s1 += query[i + 1] * block.get(offset + i + 1);
+            s2 += query[i + 2] * block.get(offset + i + 2);
+            s3 += query[i + 3] * block.get(offset + i + 3);
+        }
+        for (; i < query.length; i++) {
+            s0 += query[i] * block.get(offset + i);
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    @Override
+    public String name() {
+        return "scalar";
+    }
+}
@@ -0,0 +1,115 @@
+package com.hbs.entitysense.index;
+
+import com.hbs.entitysense.dto.WatchlistMatchRow;
+import com.hbs.entitysense.model.RiskCategory;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * The part of the watchlist one screening looks at: which risk categories, the cosine distance threshold of each, and
+ * optionally which entity countries. Built from an {@code entity-sense.screening.profiles} entry; {@link #all} is the
+ * behaviour without a profile. Entities without a category or country are never filtered out.
+ *
+ * <p>{@link WatchlistVectorIndex} holds one segment per category, so a scope only scans the segments of its own
+ * categories, and within them skips entities of other countries before computing a distance.
+ */
+public final class SearchScope {
+
+    private final String profile;
+    private final Set<RiskCategory> categories;
+    private final double[] thresholds;
+    private final double defaultThreshold;
+    private final double maxThreshold;
+    private final Set<String> countries;
+    private final int[] countryKeys;
+
+    /**
+     * @param categories       categories screened; empty screens all of them
+     * @param thresholds       per-category overrides of {@code defaultThreshold}
+     * @param countries        entity countries screened; empty screens every country
+     */
+    public SearchScope(String profile, Set<RiskCategory> categories, Map<RiskCategory, Double> thresholds,
+                       Set<String> countries, double defaultThreshold) {
+        this.profile = profile;
+        this.categories = categories.isEmpty() ? EnumSet.allOf(RiskCategory.class) : EnumSet.copyOf(categories);
+        this.thresholds = new double[RiskCategory.values().length];
+        this.defaultThreshold = defaultThreshold;
+        double max = defaultThreshold;
+        for (RiskCategory category : RiskCategory.values()) {
+            Double threshold = thresholds.get(category);
+            this.thresholds[category.ordinal()] = threshold != null ? threshold : defaultThreshold;
+            if (this.categories.contains(category)) max = Math.max(max, this.thresholds[category.ordinal()]);
+        }
+        this.maxThreshold = max;
+        this.countries = countries.stream().filter(country -> country != null && !country.isBlank())
+                .map(WatchlistNameIndex::normaliseCountry).collect(Collectors.toUnmodifiableSet());
+        this.countryKeys = this.countries.stream().mapToInt(SearchScope::countryKey).sorted().distinct().toArray();
+    }
+
+    /** Every category at {@code threshold}, every country. */
+    public static SearchScope all(double threshold) {
+        return new SearchScope(null, Set.of(), Map.of(), Set.of(), threshold);
+    }
+
+    /** Name of the profile this scope was built from, or {@code null}. */
+    public String profile() {
+        return profile;
+    }
+
+    public Set<RiskCategory> categories() {
+        return categories;
+    }
+
+    /** Upper-cased countries screened; empty when every country is. */
+    public Set<String> countries() {
+        return countries;
+    }
+
+    public boolean includes(RiskCategory category) {
+        return category == null || categories.contains(category);
+    }
+
+    public boolean includesCountry(String country) {
+        return countries.isEmpty() || country == null || country.isBlank() || countries.contains(WatchlistNameIndex.normaliseCountry(country));
+    }
+
+    public boolean includes(WatchlistMatchRow row) {
+        return includes(row.riskCategory()) && includesCountry(row.country());
+    }
+
+    /** Whether every category is screened, so no category filter is needed. */
+    public boolean isAllCategories() {
+        return categories.size() == RiskCategory.values().length;
+    }
+
+    /** Distance below which an entity of {@code category} is a match. */
+    public double threshold(RiskCategory category) {
+        return category == null ? defaultThreshold : thresholds[category.ordinal()];
+    }
+
+    /** Loosest threshold of the screened categories, e.g. for a search that filters by category afterwards. */
+    public double maxThreshold() {
+        return maxThreshold;
+    }
+
+    /** Country filter over {@link #countryKey}s; a hash collision only ever screens an extra entity. */
+    boolean includesCountryKey(int countryKey) {
+        return countryKeys.length == 0 || countryKey == 0 || Arrays.binarySearch(countryKeys, countryKey) >= 0;
+    }
+
+    /** Hash of the normalised country, 0 when there is none. */
+    static int countryKey(String country) {
+        if (country == null || country.isBlank()) return 0;
+        int key = WatchlistNameIndex.normaliseCountry(country).hashCode();
+        return key == 0 ? 1 : key;
+    }
+
+    @Override
+    public String toString() {
+        return profile == null ? "all" : profile;
+    }
+}
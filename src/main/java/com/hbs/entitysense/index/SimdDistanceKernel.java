@@ -0,0 +1,62 @@
+package com.hbs.entitysense.index;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+
+/**
+ * Vector API kernel using the widest float lanes the CPU offers. Only loaded through {@link DistanceKernels} once the
+ * {@code jdk.incubator.vector} module is known to be present.
+ *
+ * <p>Reading straight from a direct buffer needs {@code MemorySegment}, which is still a preview API on Java 21,
+ * so off-heap vectors are bulk-copied into the caller's scratch array first. Int8 codes are widened to floats in that
+ * copy, a plain loop C2 vectorises on its own. Nothing is kept per thread: with one virtual thread per request,
+ * thread-local buffers would be allocated afresh for every request.
+ */
+class SimdDistanceKernel implements DistanceKernel {
+
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+    @Override
+    public float dot(float[] a, float[] b) {
+        return dot(a, b, 0, a.length);
+    }
+
+    @Override
+    public float dot(float[] query, FloatBuffer block, int offset, float[] scratch) {
+        if (block.hasArray()) {
+            return dot(query, block.array(), block.arrayOffset() + offset, query.length);
+        }
+        block.get(offset, scratch, 0, query.length);
+        return dot(query, scratch, 0, query.length);
+    }
+
+    @Override
+    public float dot(float[] query, ByteBuffer block, int offset, float[] scratch) {
+        for (int i = 0; i < query.length; i++) {
+            scratch[i] = block.get(offset + i);
+        }
+        return dot(query, scratch, 0, query.length);
+    }
+
+    private static float dot(float[] a, float[] b, int bOffset, int length) {
+        FloatVector acc = FloatVector.zero(SPECIES);
+        int i = 0, bound = SPECIES.loopBound(length);
+        for (; i < bound; i += SPECIES.length()) {
+            acc = FloatVector.fromArray(SPECIES, a, i).fma(FloatVector.fromArray(SPECIES, b, bOffset + i), acc);
+        }
+        float sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) {
+            sum += a[i] * b[bOffset + i];
+        }
+        return sum;
+    }
+
+    @Override
+    public String name() {
+        return "simd-" + SPECIES.vectorBitSize();
+    }
+}
@@ -0,0 +1,141 @@
+package com.hbs.entitysense.index;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The {@code k} nearest (id, distance, norm) entries offered so far, kept in a bounded max-heap over primitive arrays. Once
+ * the heap is full, an offer costs one comparison against the current worst unless it is nearer, so a scan allocates
+ * nothing per scored entity and never sorts more than {@code k} entries. Equal distances are ordered by id, so the
+ * result does not depend on scan order.
+ *
+ * <p>Not thread-safe; use one instance per query.
+ */
+public final class TopKMatches {
+
+    private final long[] ids;
+    private final double[] distances;
+    private final double[] norms;
+    private int size;
+    private boolean sorted;
+
+    public TopKMatches(int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k must not be negative");
+        }
+        ids = new long[k];
+        distances = new double[k];
+        norms = new double[k];
+    }
+
+    /**
+     * Keeps {@code (id, distance)} if fewer than {@code k} entries are held or it is nearer than the current worst.
+     *
+     * @return whether the entry was kept
+     */
+    public boolean offer(long id, double distance) {
+        return offer(id, distance, Double.NaN);
+    }
+
+    /** {@link #offer(long, double)} keeping the stored vector's {@link VectorMatch#norm} with the entry. */
+    public boolean offer(long id, double distance, double norm) {
+        if (sorted) {
+            throw new IllegalStateException("Already sorted");
+        }
+        if (size < ids.length) {
+            ids[size] = id;
+            distances[size] = distance;
+            norms[size] = norm;
+            siftUp(size++);
+            return true;
+        }
+        if (size == 0 || !before(distance, id, distances[0], ids[0])) {
+            return false;
+        }
+        ids[0] = id;
+        distances[0] = distance;
+        norms[0] = norm;
+        siftDown(0, size);
+        return true;
+    }
+
+    /** Offers every entry held by {@code other}, e.g. to combine the results of scanning separate partitions. */
+    public void merge(TopKMatches other) {
+        for (int i = 0; i < other.size; i++) {
+            offer(other.ids[i], other.distances[i], other.norms[i]);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Sorts the held entries nearest first, in place. No further offers are accepted afterwards.
+     */
+    public TopKMatches sort() {
+        if (!sorted) {
+            for (int end = size - 1; end > 0; end--) {
+                swap(0, end);
+                siftDown(0, end);
+            }
+            sorted = true;
+        }
+        return this;
+    }
+
+    /** Id at {@code rank} after {@link #sort()}. */
+    public long id(int rank) {
+        return ids[rank];
+    }
+
+    /** Distance at {@code rank} after {@link #sort()}. */
+    public double distance(int rank) {
+        return distances[rank];
+    }
+
+    public List<VectorMatch> toMatches() {
+        sort();
+        List<VectorMatch> matches = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            matches.add(new VectorMatch(ids[i], distances[i], norms[i]));
+        }
+        return matches;
+    }
+
+    private void siftUp(int child) {
+        while (child > 0) {
+            int parent = (child - 1) >>> 1;
+            if (!before(distances[parent], ids[parent], distances[child], ids[child])) return;
+            swap(parent, child);
+            child = parent;
+        }
+    }
+
+    private void siftDown(int parent, int end) {
+        while (true) {
+            int largest = parent, left = 2 * parent + 1, right = left + 1;
+            if (left < end && before(distances[largest], ids[largest], distances[left], ids[left])) largest = left;
+            if (right < end && before(distances[largest], ids[largest], distances[right], ids[right])) largest = right;
+            if (largest == parent) return;
+            swap(parent, largest);
+            parent = largest;
+        }
+    }
+
+    private static boolean before(double distanceA, long idA, double distanceB, long idB) {
+        return distanceA < distanceB || (distanceA == distanceB && idA < idB);
+    }
+
+    private void swap(int a, int b) {
+        long id = ids[a];
+        ids[a] = ids[b];
+        ids[b] = id;
+        double distance = distances[a];
+        distances[a] = distances[b];
+        distances[b] = distance;
+        double norm = norms[a];
+        norms[a] = norms[b];
+        norms[b] = norm;
+    }
+}
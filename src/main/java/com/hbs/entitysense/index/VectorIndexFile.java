@@ -0,0 +1,250 @@
+package com.hbs.entitysense.index;
+
+import com.hbs.entitysense.model.VectorQuantisation;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * On-disk copy of a snapshot's {@link VectorPartitions}, so a restart maps the vectors instead of reading every row
+ * through JPA.
+ *
+ * <pre>
+ * header      64 bytes, big-endian: magic, format, byte order, quantisation, partition count, dimension, total count,
+ *             high-water id, CRC32C of the model name, CRC32C of everything after the header
+ * partitions  vector count of each partition, big-endian ints, padded to 64 bytes
+ * vectors     each partition's vectors in turn, as stored in its segment, in the segment's (native) byte order
+ * ids         longs, partition by partition
+ * countries   {@link SearchScope#countryKey} ints, partition by partition
+ * norms       floats, partition by partition: each embedding's length before it was normalised
+ * scales      floats, partition by partition (int8 only)
+ * </pre>
+ *
+ * <p>Full chunks of the vector blocks are mapped read-only and used in place; only ids, country keys, norms, scales and the
+ * last partial chunk of each partition are copied. Any mismatch (format, model, dimension, quantisation, partitions,
+ * byte order, length or checksum) fails the read with {@link StaleIndexFileException}, and the caller falls back to the
+ * database.
+ */
+final class VectorIndexFile {
+
+    private static final int MAGIC = 0x45535658; // "ESVX"
+    private static final int FORMAT = 3;
+    static final int HEADER_BYTES = 64;
+
+    private VectorIndexFile() {
+    }
+
+    /** Vectors read back from a file, covering every embedded entity up to {@code highWaterId}. */
+    record Restored(VectorPartitions partitions, long highWaterId) {
+    }
+
+    static class StaleIndexFileException extends IOException {
+        StaleIndexFileException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Writes {@code partitions} to a temporary file next to {@code file} and moves it into place, so readers never see
+     * a half-written index.
+     */
+    static void write(Path file, VectorPartitions partitions, long highWaterId, String model) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path tmp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+            CRC32C payloadCrc = new CRC32C();
+            out.position(HEADER_BYTES);
+            ByteBuffer table = ByteBuffer.allocate(tableBytes());
+            for (int p = 0; p < VectorPartitions.COUNT; p++) table.putInt(partitions.segment(p).size());
+            writeFully(out, table.position(0), payloadCrc);
+            for (int p = 0; p < VectorPartitions.COUNT; p++) {
+                VectorSegment segment = partitions.segment(p);
+                int vectorBytes = segment.dimension() * segment.componentBytes();
+                for (int chunk = 0; chunk < segment.chunkCount(); chunk++) {
+                    int vectors = Math.min(segment.chunkSize, segment.size() - chunk * segment.chunkSize);
+                    ByteBuffer block = segment.chunkBytes(chunk).duplicate().position(0).limit(vectors * vectorBytes);
+                    writeFully(out, block, payloadCrc);
+                }
+            }
+            for (int p = 0; p < VectorPartitions.COUNT; p++) {
+                VectorSegment segment = partitions.segment(p);
+                ByteBuffer ids = ByteBuffer.allocate(segment.size() * Long.BYTES);
+                for (int slot = 0; slot < segment.size(); slot++) ids.putLong(segment.id(slot));
+                writeFully(out, ids.flip(), payloadCrc);
+            }
+            for (int p = 0; p < VectorPartitions.COUNT; p++) {
+                VectorSegment segment = partitions.segment(p);
+                ByteBuffer countries = ByteBuffer.allocate(segment.size() * Integer.BYTES);
+                for (int slot = 0; slot < segment.size(); slot++) countries.putInt(segment.countryKey(slot));
+                writeFully(out, countries.flip(), payloadCrc);
+            }
+            for (int p = 0; p < VectorPartitions.COUNT; p++) {
+                VectorSegment segment = partitions.segment(p);
+                ByteBuffer norms = ByteBuffer.allocate(segment.size() * Float.BYTES);
+                for (int slot = 0; slot < segment.size(); slot++) norms.putFloat(segment.norm(slot));
+                writeFully(out, norms.flip(), payloadCrc);
+            }
+            if (!partitions.isExact()) {
+                for (int p = 0; p < VectorPartitions.COUNT; p++) {
+                    VectorSegment segment = partitions.segment(p);
+                    ByteBuffer scales = ByteBuffer.allocate(segment.size() * Float.BYTES);
+                    for (int slot = 0; slot < segment.size(); slot++) scales.putFloat(segment.scale(slot));
+                    writeFully(out, scales.flip(), payloadCrc);
+                }
+            }
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES)
+                    .putInt(MAGIC)
+                    .putInt(FORMAT)
+                    .put((byte) (ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN ? 0 : 1))
+                    .put((byte) (partitions.isExact() ? VectorQuantisation.NONE : VectorQuantisation.INT8).ordinal())
+                    .putShort((short) VectorPartitions.COUNT)
+                    .putInt(partitions.dimension())
+                    .putInt(partitions.size())
+                    .putLong(highWaterId)
+                    .putInt(crc(model.getBytes(StandardCharsets.UTF_8)))
+                    .putInt((int) payloadCrc.getValue());
+            out.position(0);
+            writeFully(out, header.position(0), null);
+            out.force(true);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Maps {@code file} into partitions laid out with {@code chunkSize}, after checking it was written for this
+     * dimension, quantisation, model, set of risk categories and platform byte order, and that its checksum holds.
+     */
+    static Restored read(Path file, int dimension, int chunkSize, VectorQuantisation quantisation, String model) throws IOException {
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            while (header.hasRemaining()) {
+                if (in.read(header) < 0) throw new StaleIndexFileException("truncated header");
+            }
+            header.flip();
+            if (header.getInt() != MAGIC || header.getInt() != FORMAT) {
+                throw new StaleIndexFileException("unknown format");
+            }
+            boolean littleEndian = header.get() == 0;
+            if (littleEndian != (ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN)) {
+                throw new StaleIndexFileException("written on a platform with another byte order");
+            }
+            if (header.get() != quantisation.ordinal()) {
+                throw new StaleIndexFileException("written with another quantisation");
+            }
+            int partitionCount = header.getShort();
+            int fileDimension = header.getInt();
+            int count = header.getInt();
+            long highWaterId = header.getLong();
+            int modelCrc = header.getInt();
+            int payloadCrc = header.getInt();
+            if (partitionCount != VectorPartitions.COUNT) {
+                throw new StaleIndexFileException("written for " + partitionCount + " partitions");
+            }
+            if (fileDimension != dimension) {
+                throw new StaleIndexFileException("written for " + fileDimension + " dimensions");
+            }
+            if (modelCrc != crc(model.getBytes(StandardCharsets.UTF_8))) {
+                throw new StaleIndexFileException("written for another embedding model");
+            }
+            if (count < 0 || in.size() < HEADER_BYTES + tableBytes()) {
+                throw new StaleIndexFileException("truncated partition table");
+            }
+            ByteBuffer table = map(in, HEADER_BYTES, tableBytes());
+            int[] counts = new int[VectorPartitions.COUNT];
+            long total = 0;
+            for (int p = 0; p < counts.length; p++) {
+                counts[p] = table.getInt(p * Integer.BYTES);
+                if (counts[p] < 0) throw new StaleIndexFileException("negative partition size");
+                total += counts[p];
+            }
+            VectorPartitions partitions = VectorPartitions.create(dimension, chunkSize, quantisation);
+            long vectorBytes = (long) dimension * partitions.segment(0).componentBytes();
+            long vectorsOffset = HEADER_BYTES + tableBytes();
+            long idsOffset = vectorsOffset + count * vectorBytes;
+            long countriesOffset = idsOffset + (long) count * Long.BYTES;
+            long normsOffset = countriesOffset + (long) count * Integer.BYTES;
+            long scalesOffset = normsOffset + (long) count * Float.BYTES;
+            long expectedLength = scalesOffset + (quantisation == VectorQuantisation.INT8 ? (long) count * Float.BYTES : 0L);
+            if (total != count || in.size() != expectedLength) {
+                throw new StaleIndexFileException("length " + in.size() + " does not match " + count + " vectors");
+            }
+
+            CRC32C crc = new CRC32C();
+            crc.update(table.duplicate());
+            ByteBuffer ids = map(in, idsOffset, (long) count * Long.BYTES);
+            ByteBuffer countries = map(in, countriesOffset, (long) count * Integer.BYTES);
+            ByteBuffer norms = map(in, normsOffset, (long) count * Float.BYTES);
+            ByteBuffer scales = quantisation == VectorQuantisation.INT8 ? map(in, scalesOffset, (long) count * Float.BYTES) : null;
+            ByteBuffer[][] chunks = new ByteBuffer[counts.length][];
+            long offset = vectorsOffset;
+            for (int p = 0; p < counts.length; p++) {
+                chunks[p] = new ByteBuffer[(int) ((counts[p] + (long) chunkSize - 1) / chunkSize)];
+                for (int chunk = 0; chunk < chunks[p].length; chunk++) {
+                    int vectors = (int) Math.min(chunkSize, counts[p] - (long) chunk * chunkSize);
+                    chunks[p][chunk] = map(in, offset, vectors * vectorBytes);
+                    crc.update(chunks[p][chunk].duplicate());
+                    offset += vectors * vectorBytes;
+                }
+            }
+            crc.update(ids.duplicate());
+            crc.update(countries.duplicate());
+            crc.update(norms.duplicate());
+            if (scales != null) crc.update(scales.duplicate());
+            if ((int) crc.getValue() != payloadCrc) {
+                throw new StaleIndexFileException("checksum mismatch");
+            }
+
+            long[] chunkIds = new long[chunkSize];
+            int[] chunkCountries = new int[chunkSize];
+            float[] chunkScales = new float[chunkSize];
+            float[] chunkNorms = new float[chunkSize];
+            for (int p = 0; p < counts.length; p++) {
+                for (int chunk = 0; chunk < chunks[p].length; chunk++) {
+                    int vectors = (int) Math.min(chunkSize, counts[p] - (long) chunk * chunkSize);
+                    for (int i = 0; i < vectors; i++) {
+                        chunkIds[i] = ids.getLong();
+                        chunkCountries[i] = countries.getInt();
+                        chunkNorms[i] = norms.getFloat();
+                        chunkScales[i] = scales == null ? 1f : scales.getFloat();
+                    }
+                    partitions.segment(p).appendChunk(chunks[p][chunk], chunkIds, chunkCountries, chunkScales, chunkNorms, vectors);
+                }
+            }
+            return new Restored(partitions, highWaterId);
+        }
+    }
+
+    private static int tableBytes() {
+        return (VectorPartitions.COUNT * Integer.BYTES + HEADER_BYTES - 1) / HEADER_BYTES * HEADER_BYTES;
+    }
+
+    private static ByteBuffer map(FileChannel channel, long position, long length) throws IOException {
+        // Mapped regions stay valid once the channel is closed
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+    }
+
+    private static void writeFully(FileChannel out, ByteBuffer block, CRC32C crc) throws IOException {
+        if (crc != null) crc.update(block.duplicate());
+        while (block.hasRemaining()) {
+            out.write(block);
+        }
+    }
+
+    private static int crc(byte[] bytes) {
+        CRC32C crc = new CRC32C();
+        crc.update(bytes);
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,14 @@
+package com.hbs.entitysense.index;
+
+/**
+ * A watchlist entity id together with its cosine distance from the query embedding.
+ *
+ * @param norm length of the entity's embedding before the index normalised it, so a caller re-scoring the hit at full
+ *             precision does not recompute it; {@code NaN} when not known
+ */
+public record VectorMatch(long id, double distance, double norm) {
+
+    public VectorMatch(long id, double distance) {
+        this(id, distance, Double.NaN);
+    }
+}
@@ -0,0 +1,79 @@
+package com.hbs.entitysense.index;
+
+import com.hbs.entitysense.model.RiskCategory;
+import com.hbs.entitysense.model.VectorQuantisation;
+
+import java.util.Arrays;
+import java.util.stream.LongStream;
+
+/**
+ * The in-memory vectors of a snapshot, split into one {@link VectorSegment} per {@link RiskCategory} plus one for
+ * entities without a category. A {@link SearchScope} covering some categories only scans their segments, so a profile
+ * screening two categories out of seven reads roughly that share of the vectors. Filled before publishing, like the
+ * segments themselves.
+ */
+final class VectorPartitions {
+
+    /** Number of partitions: one per category, the last for uncategorised entities. */
+    static final int COUNT = RiskCategory.values().length + 1;
+
+    private static final RiskCategory[] CATEGORIES = RiskCategory.values();
+
+    private final VectorSegment[] segments;
+
+    VectorPartitions(VectorSegment[] segments) {
+        if (segments.length != COUNT) {
+            throw new IllegalArgumentException("Expected " + COUNT + " partitions but got " + segments.length);
+        }
+        this.segments = segments;
+    }
+
+    static VectorPartitions create(int dimension, int chunkSize, VectorQuantisation quantisation) {
+        VectorSegment[] segments = new VectorSegment[COUNT];
+        for (int partition = 0; partition < COUNT; partition++) {
+            segments[partition] = VectorSegment.create(dimension, chunkSize, quantisation);
+        }
+        return new VectorPartitions(segments);
+    }
+
+    static int partition(RiskCategory category) {
+        return category == null ? COUNT - 1 : category.ordinal();
+    }
+
+    /** Category held by {@code partition}, {@code null} for the uncategorised one. */
+    static RiskCategory category(int partition) {
+        return partition < CATEGORIES.length ? CATEGORIES[partition] : null;
+    }
+
+    void append(long id, RiskCategory category, String country, float[] unitVector, float norm) {
+        segments[partition(category)].append(id, SearchScope.countryKey(country), unitVector, norm);
+    }
+
+    VectorSegment segment(int partition) {
+        return segments[partition];
+    }
+
+    VectorSegment segment(RiskCategory category) {
+        return segments[partition(category)];
+    }
+
+    int dimension() {
+        return segments[0].dimension();
+    }
+
+    boolean isExact() {
+        return segments[0].isExact();
+    }
+
+    int size() {
+        return Arrays.stream(segments).mapToInt(VectorSegment::size).sum();
+    }
+
+    long offHeapBytes() {
+        return Arrays.stream(segments).mapToLong(VectorSegment::offHeapBytes).sum();
+    }
+
+    long[] ids() {
+        return Arrays.stream(segments).flatMapToLong(segment -> LongStream.of(segment.ids())).toArray();
+    }
+}
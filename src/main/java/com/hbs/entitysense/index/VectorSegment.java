@@ -0,0 +1,185 @@
+package com.hbs.entitysense.index;
+
+import com.hbs.entitysense.model.VectorQuantisation;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Append-only store of unit-length embeddings laid out back to back in off-heap chunks. Slot {@code i} lives in
+ * chunk {@code i / chunkSize} at element offset {@code (i % chunkSize) * dimension}, so a scan walks memory linearly
+ * and never touches a Java object per entity. Not thread-safe: {@link WatchlistSnapshots} fills a segment before
+ * publishing the snapshot holding it, and it is only read afterwards.
+ */
+abstract class VectorSegment {
+
+    protected final int dimension;
+    protected final int chunkSize;
+    private long[] ids = new long[64];
+    private int[] countryKeys = new int[64];
+    private float[] norms = new float[64];
+    private int size;
+    private boolean idsAscending = true;
+
+    protected VectorSegment(int dimension, int chunkSize) {
+        if (dimension <= 0 || chunkSize <= 0) {
+            throw new IllegalArgumentException("Dimension and chunk size must be positive");
+        }
+        this.dimension = dimension;
+        this.chunkSize = chunkSize;
+    }
+
+    static VectorSegment create(int dimension, int chunkSize, VectorQuantisation quantisation) {
+        return quantisation == VectorQuantisation.INT8
+                ? new Int8VectorSegment(dimension, chunkSize)
+                : new FloatVectorSegment(dimension, chunkSize);
+    }
+
+    final void append(long id, float[] unitVector) {
+        append(id, 0, unitVector, 1f);
+    }
+
+    /**
+     * Appends a vector tagged with {@link SearchScope#countryKey}, so scoped scans can skip it unscored.
+     *
+     * @param norm length of the embedding {@code unitVector} was normalised from, kept for re-scoring hits
+     */
+    final void append(long id, int countryKey, float[] unitVector, float norm) {
+        if (unitVector.length != dimension) {
+            throw new IllegalArgumentException("Expected " + dimension + " dimensions but got " + unitVector.length);
+        }
+        store(size, unitVector);
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, ids.length * 2);
+            countryKeys = Arrays.copyOf(countryKeys, ids.length);
+            norms = Arrays.copyOf(norms, ids.length);
+        }
+        if (size > 0 && id <= ids[size - 1]) {
+            idsAscending = false;
+        }
+        countryKeys[size] = countryKey;
+        norms[size] = norm;
+        ids[size++] = id;
+    }
+
+    /**
+     * Appends {@code count} vectors already in stored form, e.g. mapped from a {@link VectorIndexFile}, as the next
+     * chunk. {@code bytes} is used as is when it holds a full chunk; a partial one is copied into a fresh chunk so
+     * later appends can fill it.
+     *
+     * @param countries per-vector {@link #countryKey}s
+     * @param scales    per-vector scales as returned by {@link #scale}, one per vector
+     * @param norms     per-vector {@link #norm}s
+     */
+    final void appendChunk(ByteBuffer bytes, long[] chunkIds, int[] countries, float[] scales, float[] norms, int count) {
+        if (size % chunkSize != 0 || count <= 0 || count > chunkSize) {
+            throw new IllegalStateException("Chunks can only be appended whole, at a chunk boundary");
+        }
+        ByteBuffer chunk = bytes;
+        if (count < chunkSize) {
+            chunk = newChunk();
+            chunk.put(0, bytes, 0, count * dimension * componentBytes());
+        }
+        addChunk(chunk);
+        for (int i = 0; i < count; i++) {
+            restoreScale(size + i, scales[i]);
+        }
+        if (size + count > ids.length) {
+            ids = Arrays.copyOf(ids, Math.max(ids.length * 2, size + count));
+            countryKeys = Arrays.copyOf(countryKeys, ids.length);
+            this.norms = Arrays.copyOf(this.norms, ids.length);
+        }
+        for (int i = 0; i < count; i++) {
+            long id = chunkIds[i];
+            if (size > 0 && id <= ids[size - 1]) {
+                idsAscending = false;
+            }
+            countryKeys[size] = countries[i];
+            this.norms[size] = norms[i];
+            ids[size++] = id;
+        }
+    }
+
+    /** Writes {@code unitVector} to {@code slot}, allocating a new chunk when the slot is the first of one. */
+    protected abstract void store(int slot, float[] unitVector);
+
+    /** A zeroed, writable chunk with room for {@code chunkSize} vectors. */
+    protected abstract ByteBuffer newChunk();
+
+    protected abstract void addChunk(ByteBuffer chunk);
+
+    /** Bytes per stored component: 4 for floats, 1 for int8 codes. */
+    abstract int componentBytes();
+
+    /** Chunk {@code index} as stored; slot {@code index * chunkSize + i} starts at byte {@code i * dimension * componentBytes()}. */
+    abstract ByteBuffer chunkBytes(int index);
+
+    int chunkCount() {
+        return (size + chunkSize - 1) / chunkSize;
+    }
+
+    /** Per-vector factor applied to the stored components; always 1 for exact segments. */
+    float scale(int slot) {
+        return 1f;
+    }
+
+    protected void restoreScale(int slot, float scale) {
+    }
+
+    int size() {
+        return size;
+    }
+
+    int dimension() {
+        return dimension;
+    }
+
+    long id(int slot) {
+        return ids[slot];
+    }
+
+    /** {@link SearchScope#countryKey} of the entity in {@code slot}, 0 when it has no country. */
+    int countryKey(int slot) {
+        return countryKeys[slot];
+    }
+
+    /** Length of the embedding stored in {@code slot} before it was normalised. */
+    float norm(int slot) {
+        return norms[slot];
+    }
+
+    long[] ids() {
+        return Arrays.copyOf(ids, size);
+    }
+
+    /** Slot holding {@code id}, or a negative value when it is not indexed. */
+    int slotOf(long id) {
+        if (idsAscending) {
+            return Arrays.binarySearch(ids, 0, size, id);
+        }
+        for (int slot = 0; slot < size; slot++) {
+            if (ids[slot] == id) return slot;
+        }
+        return -1;
+    }
+
+    /**
+     * Dot product of {@code query} with the stored vector; both are unit length, so this is cosine similarity.
+     * {@code scratch} holds {@link #dimension()} floats for the kernel to copy into, see {@link DistanceKernel}.
+     */
+    abstract float dot(DistanceKernel kernel, float[] query, int slot, float[] scratch);
+
+    /**
+     * Upper bound on how far {@link #dot} can be from the dot product with the original vector, for a query whose
+     * components sum to {@code queryL1Norm} in absolute value. Zero when vectors are stored exactly.
+     */
+    abstract float maxDotError(int slot, float queryL1Norm);
+
+    /** Whether {@link #dot} is exact, i.e. {@link #maxDotError} is always zero. */
+    abstract boolean isExact();
+
+    /** The stored vector, or its dequantised approximation. */
+    abstract void copyVector(int slot, float[] destination);
+
+    abstract long offHeapBytes();
+}
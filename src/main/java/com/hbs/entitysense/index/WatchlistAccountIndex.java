@@ -0,0 +1,119 @@
+package com.hbs.entitysense.index;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Hash index from normalised account numbers to watchlist entity ids, so the exact account check in screening is a
+ * few array probes instead of a {@code known_accounts} query. A hit is only a candidate: the caller still loads the
+ * entity and compares its accounts, which also covers the (2<sup>-64</sup>) chance of two accounts sharing a hash.
+ *
+ * <p>The entries are those of a {@link WatchlistSnapshot}: an {@link AccountTable} of 64-bit account hashes and
+ * {@code long} entity ids, plus the account hashes of the entities in the snapshot's delta. Snapshots are immutable,
+ * so lookups take no lock.
+ */
+@Component
+@RequiredArgsConstructor
+public class WatchlistAccountIndex {
+
+    private final WatchlistSnapshots watchlistSnapshots;
+
+    public boolean isReady() {
+        return isReady(watchlistSnapshots.current());
+    }
+
+    /** Whether {@code snapshot} was built with the account index on. */
+    public boolean isReady(WatchlistSnapshot snapshot) {
+        return snapshot.accounts() != null;
+    }
+
+    /**
+     * Ids of the entities holding {@code accountNumber}, compared after {@link #normalise}. Never blocks.
+     */
+    public List<Long> entityIds(String accountNumber) {
+        return entityIds(watchlistSnapshots.current(), accountNumber);
+    }
+
+    /** {@link #entityIds(String)} against {@code snapshot} rather than the current one. */
+    public List<Long> entityIds(WatchlistSnapshot snapshot, String accountNumber) {
+        long key = hash(accountNumber);
+        if (key == 0L || snapshot.accounts() == null) {
+            return List.of();
+        }
+        List<Long> ids = new ArrayList<>(2);
+        snapshot.accounts().collect(key, ids);
+        for (WatchlistSnapshot.Entry entry : snapshot.delta()) {
+            for (long accountKey : entry.accountKeys()) {
+                if (accountKey == key) {
+                    ids.add(entry.id());
+                    break;
+                }
+            }
+        }
+        return ids.isEmpty() ? List.of() : ids;
+    }
+
+    public int size() {
+        WatchlistSnapshot snapshot = watchlistSnapshots.current();
+        return snapshot.accounts() == null ? 0
+                : snapshot.accounts().size() + snapshot.delta().stream().mapToInt(entry -> entry.accountKeys().length).sum();
+    }
+
+    /**
+     * Account numbers as compared by screening: letters and digits only, upper case, so {@code gb29 nwbk-6016} and
+     * {@code GB29NWBK6016} are the same account.
+     */
+    public static String normalise(String accountNumber) {
+        if (accountNumber == null) return "";
+        StringBuilder normalised = new StringBuilder(accountNumber.length());
+        for (int i = 0; i < accountNumber.length(); i++) {
+            char c = accountNumber.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                normalised.append(c);
+            }
+        }
+        return normalised.toString().toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * {@code knownAccounts} as stored in {@code known_accounts_normalised}: each {@link #normalise normalised}, without
+     * blanks or duplicates. {@code null} stays {@code null}.
+     */
+    public static String[] normaliseAll(String[] knownAccounts) {
+        if (knownAccounts == null) return null;
+        return Arrays.stream(knownAccounts).map(WatchlistAccountIndex::normalise).filter(account -> !account.isEmpty())
+                .distinct().toArray(String[]::new);
+    }
+
+    /**
+     * Whether any of {@code knownAccounts} is {@code accountNumber} after normalisation.
+     */
+    public static boolean holds(String[] knownAccounts, String accountNumber) {
+        if (knownAccounts == null || accountNumber == null) return false;
+        String wanted = normalise(accountNumber);
+        if (wanted.isEmpty()) return false;
+        for (String account : knownAccounts) {
+            if (wanted.equals(normalise(account))) return true;
+        }
+        return false;
+    }
+
+    /**
+     * 64-bit FNV-1a over the normalised account, with {@code 0} reserved for "no account" and empty slots.
+     */
+    static long hash(String accountNumber) {
+        String normalised = normalise(accountNumber);
+        if (normalised.isEmpty()) return 0L;
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < normalised.length(); i++) {
+            hash ^= normalised.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash == 0L ? 1L : hash;
+    }
+}
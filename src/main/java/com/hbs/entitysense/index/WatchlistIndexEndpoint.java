@@ -0,0 +1,36 @@
+package com.hbs.entitysense.index;
+
+import com.hbs.entitysense.dto.IndexConsistencyReport;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * {@code GET /actuator/watchlistindex} checks the in-memory index against the database,
+ * {@code POST /actuator/watchlistindex} rebuilds the watchlist snapshot and reports the version it published. A rebuild
+ * reads the whole watchlist, so the endpoint is left out of the default web exposure; operators opt in on a management
+ * port only they can reach.
+ */
+@Component
+@Endpoint(id = "watchlistindex")
+@RequiredArgsConstructor
+public class WatchlistIndexEndpoint {
+
+    private final WatchlistVectorIndex watchlistVectorIndex;
+    private final WatchlistSnapshots watchlistSnapshots;
+
+    @ReadOperation
+    public IndexConsistencyReport verify() {
+        return watchlistVectorIndex.verify();
+    }
+
+    @WriteOperation
+    public Map<String, Object> rebuild() {
+        WatchlistSnapshot snapshot = watchlistSnapshots.rebuild();
+        return Map.of("version", snapshot.version(), "indexedEntities", watchlistVectorIndex.size());
+    }
+}
@@ -0,0 +1,113 @@
+package com.hbs.entitysense.index;
+
+import com.hbs.entitysense.config.EntitySenseProperties;
+import lombok.RequiredArgsConstructor;
+import org.apache.commons.codec.language.DoubleMetaphone;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Inverted index from name keys to watchlist entities, used as the cheap first stage of screening when
+ * {@code entity-sense.screening.prefilter.enabled} is set. Keys are the padded character trigrams of every name
+ * token plus, optionally, its Double Metaphone codes. Entities are ranked by Dice similarity over those keys, so
+ * only a shortlist is ever scored with embeddings.
+ *
+ * <p>Only the postings of the payee's own keys are read, plus the few entities in the snapshot's delta. A lookup
+ * therefore costs O(matching postings) rather than O(watchlist), it never calls Ollama, and it never waits for
+ * {@link WatchlistSnapshots} to publish.
+ */
+@Component
+@RequiredArgsConstructor
+public class WatchlistNameIndex {
+
+    private final WatchlistSnapshots watchlistSnapshots;
+    private final EntitySenseProperties properties;
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_ALPHANUMERIC = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final DoubleMetaphone DOUBLE_METAPHONE = new DoubleMetaphone();
+    private static final String PHONETIC_PREFIX = "~";
+
+    public boolean isReady() {
+        return isReady(watchlistSnapshots.current());
+    }
+
+    /** Whether {@code snapshot} was built with the prefilter on. */
+    public boolean isReady(WatchlistSnapshot snapshot) {
+        return snapshot.names() != null;
+    }
+
+    /**
+     * Ids of entities whose name is similar enough to {@code name}, best first and capped at
+     * {@code prefilter.max-candidates}.
+     */
+    public List<Long> candidates(String name, String country) {
+        return candidates(watchlistSnapshots.current(), name, country);
+    }
+
+    /** {@link #candidates(String, String)} against {@code snapshot} rather than the current one. */
+    public List<Long> candidates(WatchlistSnapshot snapshot, String name, String country) {
+        EntitySenseProperties.Prefilter config = properties.getScreening().getPrefilter();
+        Set<String> queryKeys = keys(name, config.isPhonetic());
+        if (queryKeys.isEmpty() || snapshot.names() == null) {
+            return List.of();
+        }
+        String wantedCountry = config.isCountryPartition() && country != null ? normaliseCountry(country) : null;
+        List<NameTable.Scored> scored = new ArrayList<>();
+        snapshot.names().score(queryKeys, wantedCountry, config.getMinSimilarity(), scored);
+        for (WatchlistSnapshot.Entry entry : snapshot.delta()) {
+            if (entry.nameKeys().isEmpty()) continue;
+            int shared = 0;
+            for (String key : queryKeys) {
+                if (entry.nameKeys().contains(key)) shared++;
+            }
+            double dice = 2.0 * shared / (queryKeys.size() + entry.nameKeys().size());
+            boolean countryOk = wantedCountry == null || entry.country() == null || wantedCountry.equals(entry.country());
+            if (shared > 0 && dice >= config.getMinSimilarity() && countryOk) {
+                scored.add(new NameTable.Scored(entry.id(), dice));
+            }
+        }
+        scored.sort((a, b) -> Double.compare(b.similarity(), a.similarity()));
+        List<Long> result = new ArrayList<>(Math.min(config.getMaxCandidates(), scored.size()));
+        for (int i = 0; i < scored.size() && i < config.getMaxCandidates(); i++) {
+            result.add(scored.get(i).id());
+        }
+        return result;
+    }
+
+    public int size() {
+        WatchlistSnapshot snapshot = watchlistSnapshots.current();
+        return snapshot.names() == null ? 0 : snapshot.names().size() + snapshot.deltaSize();
+    }
+
+    /**
+     * Name keys: padded trigrams of each token (pg_trgm style, so short tokens still produce keys) and, when
+     * {@code phonetic} is set, the primary and alternate Double Metaphone codes of each token.
+     */
+    static Set<String> keys(String name, boolean phonetic) {
+        Set<String> keys = new HashSet<>();
+        if (name == null) return keys;
+        String folded = DIACRITICS.matcher(Normalizer.normalize(name, Normalizer.Form.NFKD)).replaceAll("");
+        for (String token : NON_ALPHANUMERIC.split(folded.toLowerCase(Locale.ROOT))) {
+            if (token.isEmpty()) continue;
+            String padded = "  " + token + " ";
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                keys.add(padded.substring(i, i + 3));
+            }
+            if (phonetic && token.length() > 1) {
+                String primary = DOUBLE_METAPHONE.doubleMetaphone(token);
+                String alternate = DOUBLE_METAPHONE.doubleMetaphone(token, true);
+                if (primary != null && !primary.isEmpty()) keys.add(PHONETIC_PREFIX + primary);
+                if (alternate != null && !alternate.isEmpty()) keys.add(PHONETIC_PREFIX + alternate);
+            }
+        }
+        return keys;
+    }
+
+    static String normaliseCountry(String country) {
+        return country.trim().toUpperCase(Locale.ROOT);
+    }
+}
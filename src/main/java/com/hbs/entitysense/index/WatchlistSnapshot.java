@@ -0,0 +1,160 @@
+package com.hbs.entitysense.index;
+
+import com.hbs.entitysense.embedding.EmbeddingVersion;
+import com.hbs.entitysense.model.RiskCategory;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Immutable, versioned view of the watchlist as seen by the in-memory indexes. It holds base tables loaded in one
+ * pass over {@code watchlist_entities} up to {@link #highWaterId()}, and a short delta of entities that arrived
+ * afterwards. Each index reads only its own table ({@code null} when that index is switched off) and scans the delta
+ * linearly.
+ *
+ * <p>Ids are not committed in id order, so the base may lack a few ids just below its high-water id. Ids up to
+ * {@link #settledUpTo()} are taken as present; above that the snapshot records the ids it actually loaded, and the
+ * poll fills the gaps once those rows become visible.
+ *
+ * <p>Nothing in a published snapshot is ever written again. {@link WatchlistSnapshots} makes a new one for every
+ * change and publishes it with a single reference swap, so readers need no lock. A decision made against one
+ * snapshot is reproducible from its {@link #version()}.
+ *
+ * <p>Every snapshot names the {@link #embedding()} model its vectors come from. Screening embeds the payee with that
+ * model and reads stored vectors from that model's column, so a model switch takes effect with the snapshot that
+ * carries the new model's index, never half-way through a decision.
+ */
+public final class WatchlistSnapshot {
+
+    /** Before the first build: no tables, nothing in the delta. */
+    public static final WatchlistSnapshot EMPTY = new WatchlistSnapshot(0L, 0L, 0L, new long[0], Instant.EPOCH, null, null, null,
+            List.of(), EmbeddingVersion.DEFAULT);
+
+    private final long version;
+    private final long highWaterId;
+    private final long settledUpTo;
+    private final long[] recentIds;
+    private final Instant publishedAt;
+    private final VectorPartitions vectors;
+    private final NameTable names;
+    private final AccountTable accounts;
+    private final List<Entry> delta;
+    private final EmbeddingVersion embedding;
+
+    /**
+     * @param settledUpTo ids up to here are in the base tables, or were never committed
+     * @param recentIds   sorted ids in the base tables above {@code settledUpTo}
+     */
+    WatchlistSnapshot(long version, long highWaterId, long settledUpTo, long[] recentIds, Instant publishedAt, VectorPartitions vectors,
+                      NameTable names, AccountTable accounts, List<Entry> delta, EmbeddingVersion embedding) {
+        this.version = version;
+        this.highWaterId = highWaterId;
+        this.settledUpTo = settledUpTo;
+        this.recentIds = recentIds;
+        this.publishedAt = publishedAt;
+        this.vectors = vectors;
+        this.names = names;
+        this.accounts = accounts;
+        this.delta = delta;
+        this.embedding = embedding;
+    }
+
+    /** Increases by one with every published snapshot; restarts from 1 when the application starts. */
+    public long version() {
+        return version;
+    }
+
+    /** Largest entity id covered by the base tables; newer entities are only in the delta. */
+    public long highWaterId() {
+        return highWaterId;
+    }
+
+    /** Largest id below which the base tables are taken to hold every committed row. */
+    public long settledUpTo() {
+        return settledUpTo;
+    }
+
+    public Instant publishedAt() {
+        return publishedAt;
+    }
+
+    /** Model payees are embedded with, and the column stored vectors are read from, when screening this snapshot. */
+    public EmbeddingVersion embedding() {
+        return embedding;
+    }
+
+    /** Entities held outside the base tables. */
+    public int deltaSize() {
+        return delta.size();
+    }
+
+    /** Largest entity id held anywhere in the snapshot. */
+    public long lastId() {
+        long last = highWaterId;
+        for (Entry entry : delta) {
+            last = Math.max(last, entry.id());
+        }
+        return last;
+    }
+
+    VectorPartitions vectors() {
+        return vectors;
+    }
+
+    NameTable names() {
+        return names;
+    }
+
+    AccountTable accounts() {
+        return accounts;
+    }
+
+    List<Entry> delta() {
+        return delta;
+    }
+
+    boolean contains(long id) {
+        return inBase(id) || inDelta(id);
+    }
+
+    boolean inBase(long id) {
+        return id <= settledUpTo || id <= highWaterId && Arrays.binarySearch(recentIds, id) >= 0;
+    }
+
+    private boolean inDelta(long id) {
+        for (Entry entry : delta) {
+            if (entry.id() == id) return true;
+        }
+        return false;
+    }
+
+    /** The next version: same base tables, {@code added} appended to the delta. */
+    WatchlistSnapshot withDelta(List<Entry> added, Instant now) {
+        List<Entry> next = new ArrayList<>(delta.size() + added.size());
+        next.addAll(delta);
+        next.addAll(added);
+        return new WatchlistSnapshot(version + 1, highWaterId, settledUpTo, recentIds, now, vectors, names, accounts, List.copyOf(next),
+                embedding);
+    }
+
+    /** The next version: same tables, screened with {@code next}; only valid without a vector table. */
+    WatchlistSnapshot withEmbedding(EmbeddingVersion next, Instant now) {
+        return new WatchlistSnapshot(version + 1, highWaterId, settledUpTo, recentIds, now, vectors, names, accounts, delta, next);
+    }
+
+    /**
+     * One entity in the delta, prepared the way the base tables would hold it.
+     *
+     * @param unitVector  normalised embedding, or {@code null} when in-memory search is off or the embedding is invalid
+     * @param norm        length of the embedding before it was normalised
+     * @param category    risk category, or {@code null}
+     * @param nameKeys    name keys for the prefilter, empty when it is off
+     * @param country     upper-cased country, or {@code null}
+     * @param accountKeys account hashes, empty when the account index is off
+     */
+    record Entry(long id, float[] unitVector, float norm, RiskCategory category, Set<String> nameKeys, String country, long[] accountKeys) {
+    }
+}
@@ -0,0 +1,568 @@
+package com.hbs.entitysense.index;
+
+import com.hbs.entitysense.config.EntitySenseProperties;
+import com.hbs.entitysense.dto.WatchlistAccountRow;
+import com.hbs.entitysense.dto.WatchlistIndexRow;
+import com.hbs.entitysense.dto.WatchlistNameRow;
+import com.hbs.entitysense.embedding.EmbeddingModels;
+import com.hbs.entitysense.embedding.EmbeddingVersion;
+import com.hbs.entitysense.entity.WatchlistEntity;
+import com.hbs.entitysense.event.EmbeddingModelActivatedEvent;
+import com.hbs.entitysense.event.WatchlistEntityCreatedEvent;
+import com.hbs.entitysense.event.WatchlistImportCompletedEvent;
+import com.hbs.entitysense.metrics.ScreeningMetrics;
+import com.hbs.entitysense.model.EmbeddingSlot;
+import com.hbs.entitysense.model.SearchMode;
+import com.hbs.entitysense.repository.WatchlistRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.hbs.entitysense.constants.EntitySenseConstant.EMBEDDING_DIMENSION;
+
+/**
+ * Builds and publishes {@link WatchlistSnapshot}s; the screening path only ever calls {@link #current()}.
+ *
+ * <ul>
+ *     <li>{@link #rebuild()} loads the tables of every enabled index from the database, off to the side, and swaps
+ *     the result in. It runs once the application is ready, after each bulk import and when the delta outgrows
+ *     {@code entity-sense.snapshot.max-delta}, and every {@code entity-sense.snapshot.rebuild-interval}.</li>
+ *     <li>{@link #add} publishes a snapshot with one more entity in its delta. Entities saved by this node arrive
+ *     through {@link WatchlistEntityCreatedEvent}; the table is also polled every
+ *     {@code entity-sense.snapshot.poll-interval} for rows the snapshot lacks, e.g. saved by other nodes.</li>
+ * </ul>
+ *
+ * <p>Identity ids are handed out before commit, so a row may become visible after rows with higher ids. The poll
+ * therefore re-reads the ids of the last {@code entity-sense.snapshot.rescan-window} rows every time and adds those the
+ * snapshot does not hold, rather than only asking for ids above the newest one. Rows that turn up later than that are
+ * picked up by the periodic rebuild.
+ *
+ * <p>Publishers are serialised, and only one rebuild loads at a time. Entities added while a rebuild is loading are
+ * carried over into the snapshot it publishes.
+ *
+ * <p>Vectors are read from the column of the {@link EmbeddingModels#active()} model, which the poll also re-reads.
+ * When another model becomes active, the current snapshot keeps being served until a rebuild has loaded the new
+ * model's vectors; that snapshot then switches screening to the new model in one swap.
+ *
+ * <p>With {@code entity-sense.index.persistence-file} set, the vectors of each full load are saved as a
+ * {@link VectorIndexFile}. The startup build maps that file and only reads rows above its high-water id from the
+ * database; a stale or corrupt file, or one of another model, is ignored and replaced.
+ */
+@Component
+public class WatchlistSnapshots {
+
+    private final WatchlistRepository watchlistRepository;
+    private final EmbeddingModels embeddingModels;
+    private final EntitySenseProperties properties;
+
+    private final AtomicReference<WatchlistSnapshot> current = new AtomicReference<>(WatchlistSnapshot.EMPTY);
+    private final Object publishLock = new Object();
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    private final AtomicBoolean rebuildPending = new AtomicBoolean();
+    private ScheduledExecutorService background;
+    // High-water id of the vectors in the index file, or -1 when it needs rewriting; guarded by rebuildLock
+    private long indexFileHighWaterId = -1L;
+
+    private static final Logger logger = LoggerFactory.getLogger(WatchlistSnapshots.class);
+
+    public WatchlistSnapshots(WatchlistRepository watchlistRepository, EmbeddingModels embeddingModels, EntitySenseProperties properties,
+                              ScreeningMetrics screeningMetrics) {
+        this.watchlistRepository = watchlistRepository;
+        this.embeddingModels = embeddingModels;
+        this.properties = properties;
+        screeningMetrics.gaugeWatchlistSnapshot(() -> current.get().version(), () -> current.get().deltaSize());
+    }
+
+    /** The latest published snapshot. Never blocks. */
+    public WatchlistSnapshot current() {
+        return current.get();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        EmbeddingVersion active = embeddingModels.refresh();
+        if (isEnabled()) {
+            rebuild(true);
+        } else {
+            follow(active);
+        }
+        Duration pollInterval = properties.getSnapshot().getPollInterval();
+        if (pollInterval.isPositive()) {
+            background().scheduleWithFixedDelay(this::pollSafely, pollInterval.toMillis(), pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+        Duration rebuildInterval = properties.getSnapshot().getRebuildInterval();
+        if (rebuildInterval.isPositive() && isEnabled()) {
+            background().scheduleWithFixedDelay(this::scheduleRebuild, rebuildInterval.toMillis(), rebuildInterval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @EventListener
+    public void onEntityCreated(WatchlistEntityCreatedEvent event) {
+        WatchlistEntity entity = event.entity();
+        if (!isEnabled()) {
+            bumpVersion();
+        } else if (entity != null && entity.getId() != null) {
+            add(entity);
+        }
+    }
+
+    /**
+     * Bulk imports write through JDBC, so their ids are only known to the database; reload to pick them up.
+     */
+    @EventListener
+    public void onImportCompleted(WatchlistImportCompletedEvent event) {
+        if (event.rowsImported() <= 0) {
+            return;
+        }
+        if (isEnabled()) {
+            rebuild();
+        } else {
+            bumpVersion();
+        }
+    }
+
+    /**
+     * Published by the re-embedding job on the node that switched models; other nodes notice on their next poll.
+     */
+    @EventListener
+    public void onEmbeddingModelActivated(EmbeddingModelActivatedEvent event) {
+        follow(embeddingModels.refresh());
+    }
+
+    /**
+     * Moves screening to {@code active} unless the current snapshot already uses it: through a rebuild when the
+     * vector index has to be reloaded from the new column, otherwise with a new version right away.
+     */
+    private void follow(EmbeddingVersion active) {
+        if (active.equals(current.get().embedding())) {
+            return;
+        }
+        if (isVectorIndexEnabled()) {
+            rebuild();
+        } else {
+            synchronized (publishLock) {
+                current.set(current.get().withEmbedding(active, Instant.now()));
+            }
+        }
+    }
+
+    /**
+     * With every in-memory index off there are no tables to update, but the version still moves on each change this
+     * node makes, so decisions cached against the old version are no longer served.
+     */
+    private void bumpVersion() {
+        synchronized (publishLock) {
+            current.set(current.get().withDelta(List.of(), Instant.now()));
+        }
+    }
+
+    /**
+     * Loads every enabled table in id order and publishes them as a new base. The first table loaded fixes the
+     * high-water id and the ids it saw in the rescan window below it; later ones stop there and skip rows committed in
+     * between, so all tables cover the same rows, and anything else stays in or goes to the delta.
+     * Vectors are those of the model active when the rebuild starts.
+     */
+    public WatchlistSnapshot rebuild() {
+        return rebuild(false);
+    }
+
+    private WatchlistSnapshot rebuild(boolean fromIndexFile) {
+        rebuildLock.lock();
+        try {
+            rebuildPending.set(false);
+            long started = System.nanoTime();
+            EmbeddingVersion embedding = embeddingModels.active();
+            LoadedIds loaded = new LoadedIds(properties.getSnapshot().getRescanWindow());
+            VectorPartitions vectors = isVectorIndexEnabled() ? loadVectors(loaded, fromIndexFile, embedding) : null;
+            NameTable names = isNameIndexEnabled() ? loadNames(loaded) : null;
+            AccountTable accounts = isAccountIndexEnabled() ? loadAccounts(loaded) : null;
+            long loadedUpTo = loaded.highWaterId();
+
+            WatchlistSnapshot next;
+            boolean switched;
+            synchronized (publishLock) {
+                WatchlistSnapshot previous = current.get();
+                // Entries prepared for another model hold vectors of the wrong column; those rows are read again below
+                switched = vectors != null && !embedding.equals(previous.embedding());
+                List<WatchlistSnapshot.Entry> carried = switched ? List.of()
+                        : previous.delta().stream().filter(entry -> !loaded.holds(entry.id())).toList();
+                next = new WatchlistSnapshot(previous.version() + 1, loadedUpTo, loaded.settledUpTo(), loaded.recentIds(), Instant.now(),
+                        vectors, names, accounts, carried, embedding);
+                current.set(next);
+            }
+            logger.info("Watchlist snapshot {} published up to id {} in {} ms: {} vectors of {} ({} KB off-heap), {} names, {} accounts, {} carried over",
+                    next.version(), loadedUpTo, (System.nanoTime() - started) / 1_000_000, embedding,
+                    vectors == null ? 0 : vectors.size(), vectors == null ? 0 : vectors.offHeapBytes() / 1024,
+                    names == null ? 0 : names.size(), accounts == null ? 0 : accounts.size(), next.deltaSize());
+            if (vectors != null && loadedUpTo != indexFileHighWaterId) {
+                saveIndexFile(vectors, loadedUpTo, embedding);
+            }
+            if (switched) {
+                refresh();
+            }
+            return next;
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    /**
+     * Publishes a snapshot holding {@code entity}, unless the current one already does. Once the delta outgrows
+     * {@code max-delta} a rebuild is started in the background; screening keeps using the current snapshot meanwhile.
+     *
+     * @return whether a new snapshot was published
+     */
+    public boolean add(WatchlistEntity entity) {
+        EmbeddingSlot slot = current.get().embedding().slot();
+        return addAll(List.of(new WatchlistIndexRow(entity.getId(), entity.getName(), entity.getCountry(), entity.getRiskCategory(),
+                entity.getKnownAccounts(), entity.getEmbedding(slot))), slot) > 0;
+    }
+
+    /**
+     * Picks up rows the current snapshot lacks, e.g. saved by other nodes: ids are read from the start of the rescan
+     * window below the newest id held, and only the rows missing from the snapshot are loaded. Stops early, leaving
+     * the rest to a rebuild, when the delta would outgrow {@code max-delta}.
+     *
+     * @return number of entities added
+     */
+    public int refresh() {
+        int maxDelta = properties.getSnapshot().getMaxDelta();
+        WatchlistSnapshot start = current.get();
+        long after = Math.max(start.settledUpTo(), start.lastId() - properties.getSnapshot().getRescanWindow());
+        int added = 0;
+        List<Long> page;
+        do {
+            WatchlistSnapshot snapshot = current.get();
+            if (snapshot.deltaSize() >= maxDelta) {
+                scheduleRebuild();
+                break;
+            }
+            page = watchlistRepository.findIdsAfter(after, Limit.of(properties.getIndex().getLoadPageSize()));
+            List<Long> missing = page.stream().filter(id -> !snapshot.contains(id)).limit(maxDelta - snapshot.deltaSize()).toList();
+            if (!missing.isEmpty()) {
+                EmbeddingSlot slot = snapshot.embedding().slot();
+                List<WatchlistIndexRow> rows = new ArrayList<>(slot == EmbeddingSlot.SECONDARY
+                        ? watchlistRepository.findSecondaryIndexRows(missing) : watchlistRepository.findIndexRows(missing));
+                rows.sort(Comparator.comparing(WatchlistIndexRow::id));
+                added += addAll(rows, slot);
+            }
+            if (!page.isEmpty()) {
+                after = page.getLast();
+            }
+        } while (!page.isEmpty());
+        if (added > 0) {
+            logger.info("Watchlist snapshot {} picked up {} new entities", current.get().version(), added);
+        }
+        return added;
+    }
+
+    /**
+     * Adds the {@code rows} the current snapshot lacks to its delta. Their vectors were read from {@code slot}'s column;
+     * if another model became active meanwhile, nothing is added, and the next poll reads them again.
+     */
+    private int addAll(List<WatchlistIndexRow> rows, EmbeddingSlot slot) {
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        WatchlistSnapshot next;
+        int count;
+        synchronized (publishLock) {
+            WatchlistSnapshot previous = current.get();
+            if (previous.embedding().slot() != slot) {
+                return 0;
+            }
+            List<WatchlistSnapshot.Entry> added = new ArrayList<>(rows.size());
+            Set<Long> seen = new HashSet<>();
+            for (WatchlistIndexRow row : rows) {
+                if (row.id() != null && !previous.contains(row.id()) && seen.add(row.id())) {
+                    added.add(entry(row, slot));
+                }
+            }
+            if (added.isEmpty()) {
+                return 0;
+            }
+            next = previous.withDelta(added, Instant.now());
+            current.set(next);
+            count = added.size();
+        }
+        if (next.deltaSize() > properties.getSnapshot().getMaxDelta()) {
+            scheduleRebuild();
+        }
+        return count;
+    }
+
+    private WatchlistSnapshot.Entry entry(WatchlistIndexRow row, EmbeddingSlot slot) {
+        float[] unitVector = null;
+        float norm = 0f;
+        if (isVectorIndexEnabled()) {
+            float[] embedding = row.embedding();
+            if (embedding != null && embedding.length == EMBEDDING_DIMENSION) {
+                norm = WatchlistVectorIndex.norm(embedding);
+                unitVector = WatchlistVectorIndex.normalise(embedding, norm);
+            } else {
+                logger.warn("Skipping watchlist entity {} without a valid {}-dimension {}", row.id(), EMBEDDING_DIMENSION, slot.column());
+            }
+        }
+        Set<String> nameKeys = isNameIndexEnabled()
+                ? WatchlistNameIndex.keys(row.name(), properties.getScreening().getPrefilter().isPhonetic())
+                : Set.of();
+        String country = row.country() == null || row.country().isBlank() ? null : WatchlistNameIndex.normaliseCountry(row.country());
+        long[] accountKeys = new long[0];
+        if (isAccountIndexEnabled() && row.knownAccounts() != null) {
+            accountKeys = Arrays.stream(row.knownAccounts()).mapToLong(WatchlistAccountIndex::hash).filter(key -> key != 0L).distinct().toArray();
+        }
+        return new WatchlistSnapshot.Entry(row.id(), unitVector, norm, row.riskCategory(), nameKeys, country, accountKeys);
+    }
+
+    private VectorPartitions loadVectors(LoadedIds loaded, boolean fromIndexFile, EmbeddingVersion version) {
+        EntitySenseProperties.Index config = properties.getIndex();
+        VectorIndexFile.Restored restored = fromIndexFile ? restoreIndexFile(version) : null;
+        indexFileHighWaterId = restored == null ? -1L : restored.highWaterId();
+        VectorPartitions partitions = restored != null ? restored.partitions()
+                : VectorPartitions.create(EMBEDDING_DIMENSION, config.getChunkSize(), config.getQuantisation());
+        long lastId = restored != null ? restored.highWaterId() : 0L;
+        if (restored != null) {
+            loaded.seed(partitions.ids(), lastId);
+        }
+        List<WatchlistEntity> page;
+        do {
+            page = watchlistRepository.findByIdGreaterThanOrderByIdAsc(lastId, Limit.of(config.getLoadPageSize()));
+            for (WatchlistEntity entity : page) {
+                if (loaded.isBeyond(entity.getId())) return partitions;
+                lastId = entity.getId();
+                if (!loaded.admits(entity.getId())) continue;
+                float[] embedding = entity.getEmbedding(version.slot());
+                if (embedding == null || embedding.length != EMBEDDING_DIMENSION) {
+                    logger.warn("Skipping watchlist entity {} without a valid {}-dimension {}", entity.getId(), EMBEDDING_DIMENSION,
+                            version.slot().column());
+                } else {
+                    float norm = WatchlistVectorIndex.norm(embedding);
+                    partitions.append(entity.getId(), entity.getRiskCategory(), entity.getCountry(), WatchlistVectorIndex.normalise(embedding, norm), norm);
+                }
+            }
+        } while (!page.isEmpty());
+        loaded.fix(lastId);
+        return partitions;
+    }
+
+    /**
+     * The saved vectors, or {@code null} when there is no usable file. Besides the checks of
+     * {@link VectorIndexFile#read}, the file must hold exactly the embedded rows up to its high-water id, which catches
+     * deleted rows and a truncated or reloaded table.
+     */
+    private VectorIndexFile.Restored restoreIndexFile(EmbeddingVersion version) {
+        Path file = indexFile();
+        if (file == null || !Files.exists(file)) {
+            return null;
+        }
+        long started = System.nanoTime();
+        EntitySenseProperties.Index config = properties.getIndex();
+        try {
+            VectorIndexFile.Restored restored = VectorIndexFile.read(file, EMBEDDING_DIMENSION, config.getChunkSize(),
+                    config.getQuantisation(), version.model());
+            long rows = version.slot() == EmbeddingSlot.SECONDARY
+                    ? watchlistRepository.countWithSecondaryEmbeddingUpTo(restored.highWaterId())
+                    : watchlistRepository.countWithEmbeddingUpTo(restored.highWaterId());
+            if (rows != restored.partitions().size()) {
+                logger.warn("Rebuilding watchlist index file {}: it holds {} vectors up to id {} but the table has {}",
+                        file, restored.partitions().size(), restored.highWaterId(), rows);
+                return null;
+            }
+            logger.info("Mapped {} vectors up to id {} from watchlist index file {} in {} ms", restored.partitions().size(),
+                    restored.highWaterId(), file, (System.nanoTime() - started) / 1_000_000);
+            return restored;
+        } catch (IOException e) {
+            logger.warn("Rebuilding watchlist index file {} - {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    private void saveIndexFile(VectorPartitions vectors, long highWaterId, EmbeddingVersion version) {
+        Path file = indexFile();
+        if (file == null) {
+            return;
+        }
+        try {
+            VectorIndexFile.write(file, vectors, highWaterId, version.model());
+            indexFileHighWaterId = highWaterId;
+            logger.info("Saved {} vectors up to id {} to watchlist index file {}", vectors.size(), highWaterId, file);
+        } catch (IOException e) {
+            logger.warn("Unable to save watchlist index file {} - {}", file, e.getMessage());
+        }
+    }
+
+    private Path indexFile() {
+        String file = properties.getIndex().getPersistenceFile();
+        return file != null && !file.isBlank() ? Path.of(file) : null;
+    }
+
+    private NameTable loadNames(LoadedIds loaded) {
+        boolean phonetic = properties.getScreening().getPrefilter().isPhonetic();
+        NameTable table = new NameTable();
+        long lastId = 0L;
+        List<WatchlistNameRow> page;
+        do {
+            page = watchlistRepository.findNamesAfter(lastId, Limit.of(properties.getIndex().getLoadPageSize()));
+            for (WatchlistNameRow row : page) {
+                if (loaded.isBeyond(row.id())) return table;
+                lastId = row.id();
+                if (loaded.admits(row.id())) table.add(row.id(), row.name(), row.country(), phonetic);
+            }
+        } while (!page.isEmpty());
+        loaded.fix(lastId);
+        return table;
+    }
+
+    private AccountTable loadAccounts(LoadedIds loaded) {
+        AccountTable table = AccountTable.empty();
+        long lastId = 0L;
+        List<WatchlistAccountRow> page;
+        do {
+            page = watchlistRepository.findAccountsAfter(lastId, Limit.of(properties.getIndex().getLoadPageSize()));
+            for (WatchlistAccountRow row : page) {
+                if (loaded.isBeyond(row.id())) return table;
+                lastId = row.id();
+                if (loaded.admits(row.id())) table = table.insertAll(row.id(), row.knownAccounts());
+            }
+        } while (!page.isEmpty());
+        loaded.fix(lastId);
+        return table;
+    }
+
+    private void scheduleRebuild() {
+        if (rebuildPending.compareAndSet(false, true)) {
+            background().execute(() -> {
+                try {
+                    rebuild();
+                } catch (RuntimeException e) {
+                    rebuildPending.set(false);
+                    logger.error("Background watchlist snapshot rebuild failed", e);
+                }
+            });
+        }
+    }
+
+    private void pollSafely() {
+        try {
+            follow(embeddingModels.refresh());
+            if (isEnabled()) {
+                refresh();
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Polling watchlist_entities for new rows failed - {}", e.toString());
+        }
+    }
+
+    private synchronized ScheduledExecutorService background() {
+        if (background == null) {
+            background = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("watchlist-snapshot").daemon().factory());
+        }
+        return background;
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (background != null) {
+            background.shutdownNow();
+        }
+    }
+
+    private boolean isEnabled() {
+        return isVectorIndexEnabled() || isNameIndexEnabled() || isAccountIndexEnabled();
+    }
+
+    private boolean isVectorIndexEnabled() {
+        return properties.getScreening().getSearchMode() == SearchMode.IN_MEMORY;
+    }
+
+    private boolean isNameIndexEnabled() {
+        return properties.getScreening().getPrefilter().isEnabled();
+    }
+
+    private boolean isAccountIndexEnabled() {
+        return properties.getScreening().isAccountIndex();
+    }
+
+    /**
+     * Ids seen by the first table of a rebuild. Until {@link #fix} it records the trailing ids it is given; afterwards
+     * it tells later tables where to stop and which rows of the rescan window to skip.
+     */
+    private static final class LoadedIds {
+
+        private final int window;
+        private final ArrayDeque<Long> trailing = new ArrayDeque<>();
+        private long highWaterId;
+        private long[] recent;
+
+        LoadedIds(int window) {
+            this.window = Math.max(0, window);
+        }
+
+        /** Starts from ids already loaded up to {@code highWaterId}, e.g. from the index file. */
+        void seed(long[] ids, long highWaterId) {
+            Arrays.stream(ids).filter(id -> id > highWaterId - window).sorted().forEach(trailing::addLast);
+        }
+
+        boolean isBeyond(long id) {
+            return recent != null && id > highWaterId;
+        }
+
+        /** Whether the current table should load {@code id}; the first table loads every row it reads. */
+        boolean admits(long id) {
+            if (recent != null) {
+                return holds(id);
+            }
+            trailing.addLast(id);
+            while (!trailing.isEmpty() && trailing.peekFirst() <= id - window) {
+                trailing.pollFirst();
+            }
+            return true;
+        }
+
+        void fix(long lastId) {
+            if (recent == null) {
+                highWaterId = lastId;
+                recent = trailing.stream().mapToLong(Long::longValue).filter(id -> id > settledUpTo()).toArray();
+            }
+        }
+
+        boolean holds(long id) {
+            return recent != null && (id <= settledUpTo() || id <= highWaterId && Arrays.binarySearch(recent, id) >= 0);
+        }
+
+        long highWaterId() {
+            return recent == null ? 0L : highWaterId;
+        }
+
+        long settledUpTo() {
+            return Math.max(0L, highWaterId() - window);
+        }
+
+        long[] recentIds() {
+            return recent == null ? new long[0] : recent;
+        }
+    }
+}
@@ -0,0 +1,295 @@
+package com.hbs.entitysense.index;
+
+import com.hbs.entitysense.config.EntitySenseProperties;
+import com.hbs.entitysense.dto.IndexConsistencyReport;
+import com.hbs.entitysense.model.EmbeddingSlot;
+import com.hbs.entitysense.model.RiskCategory;
+import com.hbs.entitysense.model.SearchMode;
+import com.hbs.entitysense.repository.WatchlistRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+/**
+ * In-process copy of every watchlist embedding, used when {@code entity-sense.screening.search-mode} is
+ * {@link SearchMode#IN_MEMORY}. Vectors are normalised on the way in, so cosine distance at query time is
+ * {@code 1 - dot(query, stored)} over one contiguous off-heap block per chunk. With
+ * {@code entity-sense.index.quantisation: int8} the blocks hold int8 codes instead of floats (see
+ * {@link Int8VectorSegment}); distances are then approximate and {@link #isQuantised()} is true.
+ *
+ * <p>The vectors are those of a {@link WatchlistSnapshot}: base segments, one per risk category, scanned as below,
+ * plus the snapshot's delta of recently added entities, scored one by one. A {@link SearchScope} limits a search to
+ * some categories and countries. Searches read whichever snapshot they are given, or the
+ * current one, and never wait for {@link WatchlistSnapshots} to publish. {@link #verify()} diffs the current snapshot
+ * against the table; it is exposed through the {@code watchlistindex} actuator endpoint.
+ */
+@Component
+@RequiredArgsConstructor
+public class WatchlistVectorIndex {
+
+    private final WatchlistSnapshots watchlistSnapshots;
+    private final WatchlistRepository watchlistRepository;
+    private final EntitySenseProperties properties;
+    private final DistanceKernel distanceKernel;
+    private final ForkJoinPool scoringPool;
+
+    private final AtomicInteger activeSearches = new AtomicInteger();
+
+    private static final int CONSISTENCY_SAMPLE_SIZE = 20;
+
+    // Float accumulation error of a 768-term dot product, on top of the quantisation bound
+    private static final double ROUNDING_SLACK = 1e-5;
+
+    private static final Logger logger = LoggerFactory.getLogger(WatchlistVectorIndex.class);
+
+    public boolean isReady() {
+        return isReady(watchlistSnapshots.current());
+    }
+
+    /** Whether {@code snapshot} was built with in-memory search on. */
+    public boolean isReady(WatchlistSnapshot snapshot) {
+        return snapshot.vectors() != null;
+    }
+
+    /**
+     * Whether {@link VectorMatch#distance()} is only approximate. Every entity truly closer than the threshold is
+     * still returned, along with some just outside it, so callers must re-score hits at full precision.
+     */
+    public boolean isQuantised() {
+        return isQuantised(watchlistSnapshots.current());
+    }
+
+    public boolean isQuantised(WatchlistSnapshot snapshot) {
+        return snapshot.vectors() != null && !snapshot.vectors().isExact();
+    }
+
+    /**
+     * Entities closer than {@code threshold} to {@code query}, nearest first and capped at {@code limit}.
+     */
+    public List<VectorMatch> search(float[] query, double threshold, int limit) {
+        return searchBatch(new float[][]{query}, threshold, limit).get(0);
+    }
+
+    /** {@link #searchBatch(WatchlistSnapshot, float[][], SearchScope[], int)} over every category, against the current snapshot. */
+    public List<List<VectorMatch>> searchBatch(float[][] queries, double threshold, int limit) {
+        return searchBatch(watchlistSnapshots.current(), queries, threshold, limit);
+    }
+
+    public List<List<VectorMatch>> searchBatch(WatchlistSnapshot snapshot, float[][] queries, double threshold, int limit) {
+        SearchScope[] scopes = new SearchScope[queries.length];
+        Arrays.fill(scopes, SearchScope.all(threshold));
+        return searchBatch(snapshot, queries, scopes, limit);
+    }
+
+    /**
+     * Entities within each query's {@link SearchScope}, closer than the threshold of their category, nearest first and
+     * capped at {@code limit}, in a single pass: each stored vector is read once and scored against every query
+     * scoping it while it is still in cache. Only the partitions of categories some query screens are read, and
+     * entities outside a query's countries are skipped before their dot product. Hits go straight into a bounded
+     * {@link TopKMatches} per query, so nothing is allocated per hit and only the {@code limit} survivors are sorted.
+     *
+     * <p>Large scans are split into {@code index.chunk-size} ranges scored on the scoring pool, and the per-range
+     * top-K lists merged. That only happens while few searches are running; under high concurrency every request
+     * already has a core, so each scans on its own thread.
+     */
+    public List<List<VectorMatch>> searchBatch(WatchlistSnapshot snapshot, float[][] queries, SearchScope[] scopes, int limit) {
+        float[][] unitQueries = new float[queries.length][];
+        float[] l1Norms = new float[queries.length];
+        TopKMatches[] nearest = new TopKMatches[queries.length];
+        for (int q = 0; q < queries.length; q++) {
+            unitQueries[q] = normalise(queries[q]);
+            for (float v : unitQueries[q]) {
+                l1Norms[q] += Math.abs(v);
+            }
+            nearest[q] = new TopKMatches(limit);
+        }
+        VectorPartitions partitions = snapshot.vectors();
+        if (partitions == null) {
+            return toMatches(nearest);
+        }
+        for (float[] unitQuery : unitQueries) {
+            if (unitQuery.length != partitions.dimension()) {
+                throw new IllegalArgumentException("Expected " + partitions.dimension() + " dimensions but got " + unitQuery.length);
+            }
+        }
+        List<Scan> scans = new ArrayList<>();
+        int scanned = 0;
+        for (int partition = 0; partition < VectorPartitions.COUNT; partition++) {
+            VectorSegment segment = partitions.segment(partition);
+            RiskCategory category = VectorPartitions.category(partition);
+            int[] scoped = IntStream.range(0, scopes.length).filter(q -> scopes[q].includes(category)).toArray();
+            if (segment.size() == 0 || scoped.length == 0) continue;
+            double[] thresholds = new double[scoped.length];
+            for (int i = 0; i < scoped.length; i++) thresholds[i] = scopes[scoped[i]].threshold(category);
+            scans.add(new Scan(segment, scoped, thresholds));
+            scanned += segment.size();
+        }
+        activeSearches.incrementAndGet();
+        try {
+            int rangeSize = properties.getIndex().getChunkSize();
+            if (!scanInParallel(scanned, rangeSize)) {
+                for (Scan scan : scans) {
+                    scoreRange(scan, 0, scan.segment().size(), unitQueries, l1Norms, scopes, nearest);
+                }
+            } else {
+                List<Callable<TopKMatches[]>> ranges = new ArrayList<>();
+                for (Scan scan : scans) {
+                    for (int from = 0; from < scan.segment().size(); from += rangeSize) {
+                        int start = from, end = Math.min(scan.segment().size(), from + rangeSize);
+                        ranges.add(() -> {
+                            TopKMatches[] partial = new TopKMatches[unitQueries.length];
+                            for (int q = 0; q < partial.length; q++) partial[q] = new TopKMatches(limit);
+                            return scoreRange(scan, start, end, unitQueries, l1Norms, scopes, partial);
+                        });
+                    }
+                }
+                for (Future<TopKMatches[]> range : scoringPool.invokeAll(ranges)) {
+                    TopKMatches[] partial = range.get();
+                    for (int q = 0; q < nearest.length; q++) nearest[q].merge(partial[q]);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while scanning the watchlist index", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Watchlist index scan failed", e.getCause());
+        } finally {
+            activeSearches.decrementAndGet();
+        }
+        scoreDelta(snapshot.delta(), unitQueries, scopes, nearest);
+        return toMatches(nearest);
+    }
+
+    /** One partition to scan, with the queries scoping its category and their thresholds for it. */
+    private record Scan(VectorSegment segment, int[] queries, double[] thresholds) {
+    }
+
+    private boolean scanInParallel(int size, int rangeSize) {
+        EntitySenseProperties.Index config = properties.getIndex();
+        return config.getParallelism() > 1
+                && size >= config.getParallelMinSize()
+                && size > rangeSize
+                && activeSearches.get() <= config.getParallelMaxActiveSearches();
+    }
+
+    /** Scores slots {@code [from, to)} of one partition against the queries scoping it into {@code nearest}. Only reads the segment. */
+    private TopKMatches[] scoreRange(Scan scan, int from, int to, float[][] unitQueries, float[] l1Norms,
+                                     SearchScope[] scopes, TopKMatches[] nearest) {
+        VectorSegment segment = scan.segment();
+        boolean exact = segment.isExact();
+        float[] scratch = new float[segment.dimension()];
+        for (int slot = from; slot < to; slot++) {
+            int countryKey = segment.countryKey(slot);
+            for (int i = 0; i < scan.queries().length; i++) {
+                int q = scan.queries()[i];
+                if (!scopes[q].includesCountryKey(countryKey)) continue;
+                double distance = 1.0 - segment.dot(distanceKernel, unitQueries[q], slot, scratch);
+                double lowerBound = exact ? distance : distance - segment.maxDotError(slot, l1Norms[q]) - ROUNDING_SLACK;
+                if (lowerBound < scan.thresholds()[i]) {
+                    nearest[q].offer(segment.id(slot), distance, segment.norm(slot));
+                }
+            }
+        }
+        return nearest;
+    }
+
+    /** Scores the delta entries at full precision; they are few, so one dot product each is enough. */
+    private void scoreDelta(List<WatchlistSnapshot.Entry> delta, float[][] unitQueries, SearchScope[] scopes, TopKMatches[] nearest) {
+        for (WatchlistSnapshot.Entry entry : delta) {
+            if (entry.unitVector() == null) continue;
+            for (int q = 0; q < unitQueries.length; q++) {
+                if (!scopes[q].includes(entry.category()) || !scopes[q].includesCountry(entry.country())) continue;
+                double distance = 1.0 - distanceKernel.dot(unitQueries[q], entry.unitVector());
+                if (distance < scopes[q].threshold(entry.category())) {
+                    nearest[q].offer(entry.id(), distance, entry.norm());
+                }
+            }
+        }
+    }
+
+    private static List<List<VectorMatch>> toMatches(TopKMatches[] nearest) {
+        List<List<VectorMatch>> hits = new ArrayList<>(nearest.length);
+        for (TopKMatches queryHits : nearest) {
+            hits.add(queryHits.toMatches());
+        }
+        return hits;
+    }
+
+    public int size() {
+        WatchlistSnapshot snapshot = watchlistSnapshots.current();
+        return snapshot.vectors() == null ? 0 : snapshot.vectors().size() + (int) snapshot.delta().stream().filter(entry -> entry.unitVector() != null).count();
+    }
+
+    /**
+     * Diffs the indexed ids against the ids of every row in {@code watchlist_entities} with a vector in the column the
+     * current snapshot was loaded from.
+     */
+    public IndexConsistencyReport verify() {
+        WatchlistSnapshot snapshot = watchlistSnapshots.current();
+        List<Long> embedded = snapshot.embedding().slot() == EmbeddingSlot.SECONDARY
+                ? watchlistRepository.findIdsWithSecondaryEmbedding() : watchlistRepository.findIdsWithEmbedding();
+        long[] databaseIds = embedded.stream().mapToLong(Long::longValue).sorted().toArray();
+        long[] indexedIds = snapshot.vectors() == null ? new long[0] : LongStream.concat(LongStream.of(snapshot.vectors().ids()),
+                snapshot.delta().stream().filter(entry -> entry.unitVector() != null).mapToLong(WatchlistSnapshot.Entry::id)).toArray();
+        Arrays.sort(indexedIds);
+
+        List<Long> sampleMissing = new ArrayList<>();
+        List<Long> sampleUnknown = new ArrayList<>();
+        int missing = 0, unknown = 0, d = 0, i = 0;
+        while (d < databaseIds.length || i < indexedIds.length) {
+            if (i == indexedIds.length || (d < databaseIds.length && databaseIds[d] < indexedIds[i])) {
+                if (missing++ < CONSISTENCY_SAMPLE_SIZE) sampleMissing.add(databaseIds[d]);
+                d++;
+            } else if (d == databaseIds.length || indexedIds[i] < databaseIds[d]) {
+                if (unknown++ < CONSISTENCY_SAMPLE_SIZE) sampleUnknown.add(indexedIds[i]);
+                i++;
+            } else {
+                d++;
+                i++;
+            }
+        }
+        IndexConsistencyReport report = new IndexConsistencyReport(missing == 0 && unknown == 0,
+                indexedIds.length, databaseIds.length, missing, unknown, sampleMissing, sampleUnknown);
+        if (!report.consistent()) {
+            logger.warn("Watchlist vector index is out of sync with the database: {}", report);
+        }
+        return report;
+    }
+
+    /** Euclidean length of {@code vector}. */
+    static float norm(float[] vector) {
+        double squares = 0.0;
+        for (float v : vector) {
+            squares += v * v;
+        }
+        return (float) Math.sqrt(squares);
+    }
+
+    static float[] normalise(float[] vector) {
+        return normalise(vector, norm(vector));
+    }
+
+    /** {@code vector} scaled by {@code 1 / norm}, for a caller that keeps the norm as well. */
+    static float[] normalise(float[] vector, float norm) {
+        float[] unit = new float[vector.length];
+        // A zero vector stays zero, which scores a distance of 1.0 against everything
+        if (norm == 0f) return unit;
+        float scale = (float) (1.0 / norm);
+        for (int i = 0; i < vector.length; i++) {
+            unit[i] = vector[i] * scale;
+        }
+        return unit;
+    }
+}
@@ -0,0 +1,132 @@
+package com.hbs.entitysense.ingest;
+
+import com.hbs.entitysense.dto.WatchListEntityRequest;
+import com.hbs.entitysense.model.RiskCategory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.*;
+
+import static com.hbs.entitysense.constants.EntitySenseConstant.WATCHLIST_IMPORT_CSV_ACCOUNT_SEPARATOR;
+
+/**
+ * RFC 4180 CSV with a header row naming {@code name}, {@code address}, {@code country}, {@code known_accounts} and
+ * {@code risk_category} in any order; other columns are ignored. Quoted fields may contain commas, doubled quotes and
+ * line breaks. Several account numbers in one field are separated by {@code ;}.
+ */
+class CsvWatchlistRecordReader implements WatchlistRecordReader {
+
+    private final Reader in;
+    private final Map<String, Integer> columns = new HashMap<>();
+    private List<String> nextRow;
+
+    CsvWatchlistRecordReader(Reader in) throws IOException {
+        // mark/reset is used to look one character past a quote or carriage return
+        this.in = in.markSupported() ? in : new BufferedReader(in);
+        List<String> header = readRow();
+        if (header == null) {
+            throw new IOException("CSV file is empty");
+        }
+        for (int i = 0; i < header.size(); i++) {
+            columns.put(header.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        if (!columns.containsKey("name")) {
+            throw new IOException("CSV header has no name column: " + header);
+        }
+        nextRow = readRow();
+    }
+
+    @Override
+    public boolean hasNext() {
+        return nextRow != null;
+    }
+
+    @Override
+    public WatchListEntityRequest next() {
+        if (nextRow == null) {
+            throw new NoSuchElementException();
+        }
+        List<String> row = nextRow;
+        try {
+            nextRow = readRow();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        WatchListEntityRequest request = new WatchListEntityRequest();
+        request.setName(column(row, "name"));
+        request.setAddress(column(row, "address"));
+        request.setCountry(column(row, "country"));
+        String accounts = column(row, "known_accounts");
+        if (accounts != null) {
+            request.setKnownAccounts(Arrays.stream(accounts.split(WATCHLIST_IMPORT_CSV_ACCOUNT_SEPARATOR))
+                    .map(String::trim)
+                    .filter(account -> !account.isEmpty())
+                    .toArray(String[]::new));
+        }
+        String category = column(row, "risk_category");
+        if (category != null) {
+            request.setRiskCategory(RiskCategory.valueOf(category.toUpperCase(Locale.ROOT)));
+        }
+        return request;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private String column(List<String> row, String name) {
+        Integer index = columns.get(name);
+        if (index == null || index >= row.size()) return null;
+        String value = row.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    /** Next record, or {@code null} at end of input. Blank lines are skipped. */
+    private List<String> readRow() throws IOException {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean any = false;
+        int c;
+        while ((c = in.read()) != -1) {
+            any = true;
+            if (quoted) {
+                if (c == '"') {
+                    in.mark(1);
+                    if (in.read() == '"') {
+                        field.append('"');
+                    } else {
+                        in.reset();
+                        quoted = false;
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n' || c == '\r') {
+                if (c == '\r') {
+                    in.mark(1);
+                    if (in.read() != '\n') in.reset();
+                }
+                if (fields.isEmpty() && field.isEmpty()) {
+                    any = false;
+                    continue;
+                }
+                fields.add(field.toString());
+                return fields;
+            } else {
+                field.append((char) c);
+            }
+        }
+        if (!any) return null;
+        fields.add(field.toString());
+        return fields;
+    }
+}
@@ -0,0 +1,36 @@
+package com.hbs.entitysense.ingest;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hbs.entitysense.dto.WatchListEntityRequest;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+class JsonWatchlistRecordReader implements WatchlistRecordReader {
+
+    private final MappingIterator<WatchListEntityRequest> records;
+
+    JsonWatchlistRecordReader(InputStream in, ObjectMapper objectMapper) throws IOException {
+        // Source lists carry fields of their own (programme, listing date, ...) that are not needed for screening
+        this.records = objectMapper.readerFor(WatchListEntityRequest.class)
+                .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .readValues(in);
+    }
+
+    @Override
+    public boolean hasNext() {
+        return records.hasNext();
+    }
+
+    @Override
+    public WatchListEntityRequest next() {
+        return records.next();
+    }
+
+    @Override
+    public void close() throws IOException {
+        records.close();
+    }
+}
@@ -0,0 +1,31 @@
+package com.hbs.entitysense.ingest;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+
+import static com.hbs.entitysense.constants.EntitySenseConstant.WATCHLIST_IMPORT_OPTION;
+
+/**
+ * Runs {@link WatchlistImporter} for every {@code --import-watchlist=<file>} argument at startup. Combine it with
+ * {@code --spring.main.web-application-type=none} to load a list and exit without serving traffic.
+ */
+@Component
+@RequiredArgsConstructor
+public class WatchlistImportRunner implements ApplicationRunner {
+
+    private final WatchlistImporter watchlistImporter;
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        if (!args.containsOption(WATCHLIST_IMPORT_OPTION)) {
+            return;
+        }
+        for (String file : args.getOptionValues(WATCHLIST_IMPORT_OPTION)) {
+            watchlistImporter.importFile(Path.of(file));
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.hbs.entitysense.ingest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hbs.entitysense.config.EntitySenseProperties;
+import com.hbs.entitysense.dto.WatchListEntityRequest;
+import com.hbs.entitysense.dto.WatchlistImportResult;
+import com.hbs.entitysense.embedding.EmbeddingVersion;
+import com.hbs.entitysense.event.WatchlistImportCompletedEvent;
+import com.hbs.entitysense.repository.WatchlistBatchRepository;
+import com.hbs.entitysense.service.EntitySenseService;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Loads a sanctions file into {@code watchlist_entities}. Records are streamed from disk in batches of
+ * {@code entity-sense.ingest.batch-size}; up to {@code concurrency} batches are embedded by Ollama at once while
+ * finished batches are written, in file order, with JDBC batch inserts. Each batch is embedded with the model active
+ * when it is submitted and stored in that model's column.
+ *
+ * <p>Each write also records how many source rows are done for the file, in the same transaction. Running the same
+ * file again skips those rows, so an interrupted load resumes where it stopped and a finished one adds nothing.
+ */
+@Service
+@RequiredArgsConstructor
+public class WatchlistImporter {
+
+    private final EntitySenseService entitySenseService;
+    private final WatchlistBatchRepository watchlistBatchRepository;
+    private final EntitySenseProperties properties;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private static final Logger logger = LoggerFactory.getLogger(WatchlistImporter.class);
+
+    public WatchlistImportResult importFile(Path file) throws IOException {
+        EntitySenseProperties.Ingest ingest = properties.getIngest();
+        String source = sourceKey(file);
+        long resumedFrom = watchlistBatchRepository.findImportedRows(source);
+        if (resumedFrom > 0) {
+            logger.info("Resuming import of {} after {} rows", file, resumedFrom);
+        }
+
+        Progress progress = new Progress(file, resumedFrom, ingest.getProgressInterval().toNanos());
+        ExecutorService executor = Executors.newFixedThreadPool(ingest.getConcurrency());
+        Deque<PendingBatch> pending = new ArrayDeque<>();
+        try (WatchlistRecordReader reader = WatchlistRecordReader.open(file, objectMapper)) {
+            for (long row = 0; row < resumedFrom && reader.hasNext(); row++) {
+                reader.next();
+            }
+            List<WatchListEntityRequest> batch = new ArrayList<>(ingest.getBatchSize());
+            int sourceRows = 0;
+            while (reader.hasNext()) {
+                WatchListEntityRequest record = reader.next();
+                sourceRows++;
+                if (record.getName() == null || record.getName().isBlank()) {
+                    progress.skipped++;
+                } else {
+                    if (record.getRiskCategory() == null) {
+                        record.setRiskCategory(ingest.getDefaultRiskCategory());
+                    }
+                    batch.add(record);
+                }
+                if (sourceRows == ingest.getBatchSize()) {
+                    pending.add(submit(executor, batch, sourceRows));
+                    batch = new ArrayList<>(ingest.getBatchSize());
+                    sourceRows = 0;
+                    // One batch is written while the others are still being embedded
+                    if (pending.size() > ingest.getConcurrency()) {
+                        write(source, pending.poll(), progress);
+                    }
+                }
+            }
+            if (sourceRows > 0) {
+                pending.add(submit(executor, batch, sourceRows));
+            }
+            while (!pending.isEmpty()) {
+                write(source, pending.poll(), progress);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        WatchlistImportResult result = new WatchlistImportResult(source, resumedFrom, progress.rowsDone, progress.imported, progress.skipped);
+        logger.info("Imported {} watchlist entities from {} in {} s ({} rows skipped)",
+                result.rowsImported(), file, progress.elapsedNanos() / 1_000_000_000, result.rowsSkipped());
+        eventPublisher.publishEvent(new WatchlistImportCompletedEvent(source, result.rowsImported()));
+        return result;
+    }
+
+    /**
+     * Identifies one version of a file: a list re-published under the same name is imported afresh.
+     */
+    static String sourceKey(Path file) throws IOException {
+        return file.getFileName() + "@" + Files.size(file) + "@" + Files.getLastModifiedTime(file).toMillis();
+    }
+
+    private PendingBatch submit(ExecutorService executor, List<WatchListEntityRequest> batch, int sourceRows) {
+        EmbeddingVersion version = entitySenseService.activeEmbedding();
+        Future<float[][]> embeddings = batch.isEmpty()
+                ? CompletableFuture.completedFuture(new float[0][])
+                : executor.submit(() -> entitySenseService.generateEntityEmbeddings(version.model(), batch));
+        return new PendingBatch(batch, sourceRows, version, embeddings);
+    }
+
+    private void write(String source, PendingBatch batch, Progress progress) {
+        float[][] embeddings;
+        try {
+            embeddings = batch.embeddings().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Import of " + source + " interrupted after " + progress.rowsDone + " rows", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Import of " + source + " failed after " + progress.rowsDone + " rows; run it again to resume", e.getCause());
+        }
+        watchlistBatchRepository.insertBatch(source, progress.rowsDone + batch.sourceRows(), batch.entities(), batch.version().slot(), embeddings);
+        progress.written(batch.sourceRows(), batch.entities().size());
+    }
+
+    private record PendingBatch(List<WatchListEntityRequest> entities, int sourceRows, EmbeddingVersion version, Future<float[][]> embeddings) {
+    }
+
+    private static final class Progress {
+        private final Path file;
+        private final long resumedFrom;
+        private final long intervalNanos;
+        private final long startedNanos = System.nanoTime();
+        private long lastLoggedNanos = startedNanos;
+        private long rowsDone;
+        private long imported;
+        private long skipped;
+
+        private Progress(Path file, long resumedFrom, long intervalNanos) {
+            this.file = file;
+            this.resumedFrom = resumedFrom;
+            this.intervalNanos = intervalNanos;
+            this.rowsDone = resumedFrom;
+        }
+
+        private void written(int sourceRows, int entities) {
+            rowsDone += sourceRows;
+            imported += entities;
+            long now = System.nanoTime();
+            if (now - lastLoggedNanos >= intervalNanos) {
+                lastLoggedNanos = now;
+                double seconds = Math.max(1e-9, (now - startedNanos) / 1e9);
+                logger.info("Importing {}: {} rows done, {} rows/s", file, rowsDone, Math.round((rowsDone - resumedFrom) / seconds));
+            }
+        }
+
+        private long elapsedNanos() {
+            return System.nanoTime() - startedNanos;
+        }
+    }
+}
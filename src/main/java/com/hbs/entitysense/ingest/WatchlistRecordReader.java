@@ -0,0 +1,28 @@
+package com.hbs.entitysense.ingest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hbs.entitysense.dto.WatchListEntityRequest;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.Locale;
+
+/**
+ * Streams watchlist records out of a sanctions file one at a time, so a list of any size is read in constant memory.
+ * {@code .csv} files go through {@link CsvWatchlistRecordReader}; anything else is read as JSON, either one top-level
+ * array or a sequence of objects (NDJSON).
+ */
+interface WatchlistRecordReader extends Iterator<WatchListEntityRequest>, Closeable {
+
+    static WatchlistRecordReader open(Path file, ObjectMapper objectMapper) throws IOException {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".csv")) {
+            return new CsvWatchlistRecordReader(Files.newBufferedReader(file, StandardCharsets.UTF_8));
+        }
+        return new JsonWatchlistRecordReader(Files.newInputStream(file), objectMapper);
+    }
+}
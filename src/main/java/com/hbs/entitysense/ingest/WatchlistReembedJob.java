@@ -0,0 +1,250 @@
+package com.hbs.entitysense.ingest;
+
+import com.hbs.entitysense.config.EntitySenseProperties;
+import com.hbs.entitysense.dto.WatchlistMatchRow;
+import com.hbs.entitysense.embedding.EmbeddingModels;
+import com.hbs.entitysense.embedding.EmbeddingVersion;
+import com.hbs.entitysense.event.EmbeddingModelActivatedEvent;
+import com.hbs.entitysense.event.WatchlistImportCompletedEvent;
+import com.hbs.entitysense.model.EmbeddingSlot;
+import com.hbs.entitysense.repository.EmbeddingModelRepository;
+import com.hbs.entitysense.repository.WatchlistBatchRepository;
+import com.hbs.entitysense.repository.WatchlistRepository;
+import com.hbs.entitysense.service.EntitySenseService;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.hbs.entitysense.constants.EntitySenseConstant.EMBEDDING_DIMENSION;
+
+/**
+ * Re-embeds {@code watchlist_entities} with {@code entity-sense.reembed.model} for a model upgrade without downtime.
+ *
+ * <ul>
+ *     <li>Vectors are written to the embedding column screening is not using, in id order, in batches of
+ *     {@code batch-size}; up to {@code concurrency} batches are embedded at once and the job runs at most
+ *     {@code max-rows-per-second}. Each batch is one JDBC batch of row updates, committed with a checkpoint of the
+ *     last id done, so a restarted job resumes there.</li>
+ *     <li>Once no row is left, {@code watchlist_embedding_models} is switched to the new model in one transaction.
+ *     Until then every node keeps screening with the old model and column; afterwards each moves over with the
+ *     snapshot that loads the new vectors.</li>
+ *     <li>Rows saved while other nodes had not yet seen the switch only carry the old model's vector, so the new
+ *     model is recorded as {@code SWITCHING} and, after two {@code snapshot.poll-interval}s, every row with no vector
+ *     in its column is re-embedded, whatever its id. Only then is it marked {@code ACTIVE}; a job restarted in
+ *     between runs this catch-up again.</li>
+ * </ul>
+ *
+ * <p>The new model must produce {@value com.hbs.entitysense.constants.EntitySenseConstant#EMBEDDING_DIMENSION}-dimension
+ * vectors, the size of both columns.
+ */
+@Component
+@RequiredArgsConstructor
+public class WatchlistReembedJob {
+
+    private final EntitySenseService entitySenseService;
+    private final WatchlistRepository watchlistRepository;
+    private final WatchlistBatchRepository watchlistBatchRepository;
+    private final EmbeddingModelRepository embeddingModelRepository;
+    private final EmbeddingModels embeddingModels;
+    private final EntitySenseProperties properties;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private static final Logger logger = LoggerFactory.getLogger(WatchlistReembedJob.class);
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startOnReady() {
+        String model = properties.getReembed().getModel();
+        if (model == null || model.isBlank()) {
+            return;
+        }
+        Thread.ofPlatform().name("watchlist-reembed").daemon().start(() -> {
+            try {
+                run(model);
+            } catch (RuntimeException e) {
+                logger.error("Re-embedding the watchlist with {} failed; restart to resume", model, e);
+            }
+        });
+    }
+
+    /**
+     * Re-embeds every row with {@code model} and switches screening to it, resuming an interrupted run of the same
+     * model. When {@code model} is already active, only finishes the catch-up of a switch that was interrupted.
+     *
+     * @return the version now active
+     */
+    public EmbeddingVersion run(String model) {
+        EmbeddingVersion previous = embeddingModels.refresh();
+        if (previous.model().equals(model)) {
+            if (embeddingModels.switching()) {
+                logger.info("Resuming the re-embedding of rows saved around the switch to {}", previous);
+                catchUp(previous, new Progress(previous, properties.getReembed()));
+            } else {
+                logger.info("Watchlist is already embedded with {}", previous);
+            }
+            return previous;
+        }
+        EmbeddingVersion target = new EmbeddingVersion(previous.slot().other(), model);
+        String source = sourceKey(target);
+        long lastId = embeddingModelRepository.startBuilding(target, source) ? watchlistBatchRepository.findImportedRows(source) : 0L;
+        embeddingModels.refresh();
+        logger.info("Re-embedding watchlist with {}, replacing {}, after id {}", target, previous, lastId);
+
+        Progress progress = new Progress(target, properties.getReembed());
+        do {
+            lastId = embedAfter(target, source, lastId, progress, watchlistRepository::findMatchRowsAfter);
+        } while (!embeddingModelRepository.activate(target, previous, lastId));
+        logger.info("Switched watchlist embeddings to {} after re-embedding {} rows in {} s", target, progress.rows,
+                progress.elapsedNanos() / 1_000_000_000);
+        eventPublisher.publishEvent(new EmbeddingModelActivatedEvent(target, previous));
+
+        catchUp(target, progress);
+        return target;
+    }
+
+    /**
+     * Once every node has seen the switch to {@code target}, re-embeds the rows that still have no vector in its
+     * column, i.e. those saved with the old model only, and marks {@code target} fully active.
+     */
+    private void catchUp(EmbeddingVersion target, Progress progress) {
+        sleep(properties.getSnapshot().getPollInterval().multipliedBy(2));
+        String source = sourceKey(target);
+        long switchedRows = progress.rows;
+        embedAfter(target, source, 0L, progress, (afterId, limit) -> target.slot() == EmbeddingSlot.SECONDARY
+                ? watchlistRepository.findMatchRowsWithoutSecondaryEmbeddingAfter(afterId, limit)
+                : watchlistRepository.findMatchRowsWithoutEmbeddingAfter(afterId, limit));
+        embeddingModelRepository.finishSwitching(target);
+        if (progress.rows > switchedRows) {
+            logger.info("Re-embedded {} rows saved around the switch to {}", progress.rows - switchedRows, target);
+            eventPublisher.publishEvent(new WatchlistImportCompletedEvent(source, progress.rows - switchedRows));
+        }
+    }
+
+    /**
+     * Checkpoint key of a build: building the same model into the same column again resumes it.
+     */
+    static String sourceKey(EmbeddingVersion target) {
+        return "reembed:" + target.model() + "@" + target.slot().column();
+    }
+
+    /**
+     * Re-embeds every row {@code pages} yields above {@code afterId} into the slot of {@code target}.
+     *
+     * @return the highest id written
+     */
+    private long embedAfter(EmbeddingVersion target, String source, long afterId, Progress progress, RowPages pages) {
+        EntitySenseProperties.Reembed config = properties.getReembed();
+        ExecutorService executor = Executors.newFixedThreadPool(config.getConcurrency());
+        Deque<PendingBatch> pending = new ArrayDeque<>();
+        long lastId = afterId;
+        try {
+            List<WatchlistMatchRow> page;
+            do {
+                page = pages.after(lastId, Limit.of(config.getBatchSize()));
+                if (!page.isEmpty()) {
+                    List<WatchlistMatchRow> rows = page;
+                    pending.add(new PendingBatch(rows, executor.submit(() -> entitySenseService.generateRowEmbeddings(target.model(), rows))));
+                    lastId = rows.getLast().id();
+                    // One batch is written while the others are still being embedded
+                    if (pending.size() > config.getConcurrency()) {
+                        write(source, target, pending.poll(), progress);
+                    }
+                }
+            } while (!page.isEmpty());
+            while (!pending.isEmpty()) {
+                write(source, target, pending.poll(), progress);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return lastId;
+    }
+
+    private void write(String source, EmbeddingVersion target, PendingBatch batch, Progress progress) {
+        float[][] embeddings;
+        try {
+            embeddings = batch.embeddings().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Re-embedding with " + target + " interrupted after " + progress.rows + " rows", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Re-embedding with " + target + " failed after " + progress.rows + " rows; run it again to resume", e.getCause());
+        }
+        List<Long> ids = batch.rows().stream().map(WatchlistMatchRow::id).toList();
+        for (int i = 0; i < embeddings.length; i++) {
+            if (embeddings[i] == null || embeddings[i].length != EMBEDDING_DIMENSION) {
+                throw new RuntimeException("Model " + target.model() + " returned " + (embeddings[i] == null ? "no" : embeddings[i].length + "-dimension")
+                        + " embedding for watchlist entity " + ids.get(i) + "; the embedding columns hold " + EMBEDDING_DIMENSION + " dimensions");
+            }
+        }
+        watchlistBatchRepository.updateEmbeddings(source, ids.getLast(), ids, target.slot(), embeddings);
+        progress.written(ids.size(), ids.getLast());
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Re-embedding interrupted", e);
+        }
+    }
+
+    /** Keyset pages of the rows to re-embed. */
+    @FunctionalInterface
+    private interface RowPages {
+        List<WatchlistMatchRow> after(Long id, Limit limit);
+    }
+
+    private record PendingBatch(List<WatchlistMatchRow> rows, Future<float[][]> embeddings) {
+    }
+
+    private static final class Progress {
+        private final EmbeddingVersion target;
+        private final int maxRowsPerSecond;
+        private final long intervalNanos;
+        private final long startedNanos = System.nanoTime();
+        private long lastLoggedNanos = startedNanos;
+        private long rows;
+
+        private Progress(EmbeddingVersion target, EntitySenseProperties.Reembed config) {
+            this.target = target;
+            this.maxRowsPerSecond = config.getMaxRowsPerSecond();
+            this.intervalNanos = config.getProgressInterval().toNanos();
+        }
+
+        /** Counts {@code written} rows, then waits as long as the job is ahead of {@code max-rows-per-second}. */
+        private void written(int written, long lastId) {
+            rows += written;
+            long now = System.nanoTime();
+            if (now - lastLoggedNanos >= intervalNanos) {
+                lastLoggedNanos = now;
+                double seconds = Math.max(1e-9, (now - startedNanos) / 1e9);
+                logger.info("Re-embedding with {}: {} rows done, up to id {}, {} rows/s", target, rows, lastId, Math.round(rows / seconds));
+            }
+            if (maxRowsPerSecond > 0) {
+                long aheadNanos = rows * 1_000_000_000L / maxRowsPerSecond - (now - startedNanos);
+                if (aheadNanos > 0) {
+                    sleep(Duration.ofNanos(aheadNanos));
+                }
+            }
+        }
+
+        private long elapsedNanos() {
+            return System.nanoTime() - startedNanos;
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.hbs.entitysense.metrics;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.hbs.entitysense.dto.RiskMatchResult;
+import com.hbs.entitysense.dto.ValidatePaymentResponse;
+import io.micrometer.common.KeyValues;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.http.HttpTimeoutException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * Meters for the screening hot path. Each stage runs as a Micrometer {@link Observation}, which Spring Boot turns
+ * into a timer ({@code <name>} with {@code _seconds} histogram buckets on Prometheus) and, when a tracing bridge is
+ * on the classpath, into a span. Decisions, matches and Ollama failures are plain counters.
+ */
+@Component
+@RequiredArgsConstructor
+public class ScreeningMetrics {
+
+    /** End-to-end time of one payment screening, embedding included. */
+    public static final String SCREENING = "entitysense.screening";
+
+    /** End-to-end time of one {@code /api/validate-payments} call or NDJSON chunk. */
+    public static final String BATCH_SCREENING = "entitysense.screening.batch";
+
+    /** Time spent shortlisting entities by name before any embedding is requested. */
+    public static final String PREFILTER = "entitysense.prefilter";
+
+    /** Time to obtain embeddings, from the cache or Ollama. */
+    public static final String EMBEDDING = "entitysense.embedding";
+
+    /** Time spent in Postgres, tagged with the {@code query} that ran. */
+    public static final String WATCHLIST_FETCH = "entitysense.watchlist.fetch";
+
+    /** Time spent computing cosine distances in the JVM, including the in-memory index scan. */
+    public static final String SCORING = "entitysense.scoring";
+
+    public static final String DECISIONS = "entitysense.screening.decisions";
+
+    public static final String MATCHES = "entitysense.screening.matches";
+
+    public static final String OLLAMA_ERRORS = "entitysense.ollama.errors";
+
+    /** Single-text embedding calls repeated on a second endpoint because the first was slow. */
+    public static final String OLLAMA_HEDGES = "entitysense.ollama.hedges";
+
+    /** Single-text embeddings served by a call already in flight for the same text. */
+    public static final String OLLAMA_COALESCED = "entitysense.ollama.coalesced";
+
+    /** Texts per micro-batched {@code /api/embed} call. */
+    public static final String OLLAMA_MICRO_BATCH_SIZE = "entitysense.ollama.micro.batch.size";
+
+    /** {@code 1} while an endpoint's circuit breaker is keeping it out of rotation, tagged with the {@code endpoint}. */
+    public static final String OLLAMA_CIRCUIT_OPEN = "entitysense.ollama.circuit.open";
+
+    /** Version of the watchlist snapshot screening currently reads. */
+    public static final String WATCHLIST_SNAPSHOT_VERSION = "entitysense.watchlist.snapshot.version";
+
+    /** Entities added since the snapshot's base tables were built, scanned linearly by every lookup. */
+    public static final String WATCHLIST_SNAPSHOT_DELTA = "entitysense.watchlist.snapshot.delta";
+
+    /** Payments screened without an embedding, tagged with the failure {@code policy} applied. */
+    public static final String DEGRADED_DECISIONS = "entitysense.screening.degraded";
+
+    public static final String EMBEDDINGS_SKIPPED = "entitysense.prefilter.embeddings.skipped";
+
+    private final MeterRegistry meterRegistry;
+    private final ObservationRegistry observationRegistry;
+
+    public <T> T observe(String name, Supplier<T> work) {
+        return Observation.createNotStarted(name, observationRegistry).observe(work);
+    }
+
+    public <T> T observe(String name, KeyValues keyValues, Supplier<T> work) {
+        return Observation.createNotStarted(name, observationRegistry).lowCardinalityKeyValues(keyValues).observe(work);
+    }
+
+    /** Observes {@code work} until the future it returns completes. */
+    public <T> CompletableFuture<T> observeAsync(String name, Supplier<CompletableFuture<T>> work) {
+        Observation observation = start(name);
+        CompletableFuture<T> future;
+        try (Observation.Scope ignored = observation.openScope()) {
+            future = work.get();
+        } catch (RuntimeException e) {
+            observation.error(e);
+            observation.stop();
+            throw e;
+        }
+        return future.whenComplete((result, error) -> {
+            if (error != null) {
+                observation.error(error);
+            }
+            observation.stop();
+        });
+    }
+
+    /** Starts an observation the caller stops, for work spanning reactive operators. */
+    public Observation start(String name) {
+        return Observation.start(name, observationRegistry);
+    }
+
+    public void recordDecision(ValidatePaymentResponse response) {
+        meterRegistry.counter(DECISIONS, "status", response.getStatus()).increment();
+        for (RiskMatchResult match : response.getPossibleWatchListEntityMatches()) {
+            meterRegistry.counter(MATCHES, "risk.category", String.valueOf(match.getRiskCategory())).increment();
+        }
+    }
+
+    /** A payment the prefilter allowed without calling Ollama. */
+    public void recordEmbeddingSkipped() {
+        meterRegistry.counter(EMBEDDINGS_SKIPPED).increment();
+    }
+
+    public void recordOllamaError(Throwable error) {
+        recordOllamaError(errorType(error));
+    }
+
+    public void recordOllamaError(String type) {
+        meterRegistry.counter(OLLAMA_ERRORS, "type", type).increment();
+    }
+
+    public void recordHedge() {
+        meterRegistry.counter(OLLAMA_HEDGES).increment();
+    }
+
+    public void recordCoalesced() {
+        meterRegistry.counter(OLLAMA_COALESCED).increment();
+    }
+
+    public void recordMicroBatch(int size) {
+        meterRegistry.summary(OLLAMA_MICRO_BATCH_SIZE).record(size);
+    }
+
+    public void gaugeCircuitOpen(String endpoint, Supplier<Number> open) {
+        Gauge.builder(OLLAMA_CIRCUIT_OPEN, open).tag("endpoint", endpoint).register(meterRegistry);
+    }
+
+    public void gaugeWatchlistSnapshot(Supplier<Number> version, Supplier<Number> delta) {
+        Gauge.builder(WATCHLIST_SNAPSHOT_VERSION, version).register(meterRegistry);
+        Gauge.builder(WATCHLIST_SNAPSHOT_DELTA, delta).register(meterRegistry);
+    }
+
+    public void recordDegraded(String policy) {
+        meterRegistry.counter(DEGRADED_DECISIONS, "policy", policy).increment();
+    }
+
+    static String errorType(Throwable error) {
+        Throwable cause = error;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException
+                || cause.getClass() == RuntimeException.class) && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof HttpTimeoutException) return "timeout";
+        if (cause instanceof JsonProcessingException) return "invalid_response";
+        if (cause instanceof InterruptedException) return "interrupted";
+        if (cause instanceof IOException) return "io";
+        return "invalid_response";
+    }
+}
@@ -0,0 +1,8 @@
+package com.hbs.entitysense.model;
+
+public enum DistanceKernelType {
+    /** SIMD when {@code jdk.incubator.vector} is available, scalar otherwise. */
+    AUTO,
+    SCALAR,
+    SIMD
+}
@@ -0,0 +1,14 @@
+package com.hbs.entitysense.model;
+
+/**
+ * What payment screening does when no embedding can be obtained because every Ollama endpoint is failing, timing
+ * out or saturated.
+ */
+public enum EmbeddingFailurePolicy {
+    /** Fail the request with 503; a batch fails as a whole. */
+    ERROR,
+    /** Screen by account number only; payments without an account hit are allowed and flagged {@code degraded}. */
+    FAIL_OPEN,
+    /** Block every payment, reporting any account hits, and flag it {@code degraded} for manual review. */
+    FAIL_CLOSED
+}
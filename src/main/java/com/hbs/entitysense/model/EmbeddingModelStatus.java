@@ -0,0 +1,18 @@
+package com.hbs.entitysense.model;
+
+/**
+ * State of one {@link EmbeddingSlot} in {@code watchlist_embedding_models}.
+ */
+public enum EmbeddingModelStatus {
+    /** Screening and new rows use this slot's model. */
+    ACTIVE,
+    /**
+     * Served like {@link #ACTIVE}, but rows saved around the switch by nodes still on the old model have not all been
+     * re-embedded yet; the re-embedding job finishes them, after a restart too.
+     */
+    SWITCHING,
+    /** The re-embedding job is filling this slot; nothing reads it yet. */
+    BUILDING,
+    /** Switched away from; its vectors are left in place but no longer written. */
+    RETIRED
+}
@@ -0,0 +1,26 @@
+package com.hbs.entitysense.model;
+
+/**
+ * The two embedding columns of {@code watchlist_entities}. One holds the vectors screening is served from; the other
+ * is where the next model's vectors are built by the re-embedding job, or the previous model's are kept once it has
+ * been switched away from. Which model each holds is recorded in {@code watchlist_embedding_models}.
+ */
+public enum EmbeddingSlot {
+    PRIMARY("embedding"),
+    SECONDARY("embedding_secondary");
+
+    private final String column;
+
+    EmbeddingSlot(String column) {
+        this.column = column;
+    }
+
+    public String column() {
+        return column;
+    }
+
+    /** The slot a new model is built in while this one is serving. */
+    public EmbeddingSlot other() {
+        return this == PRIMARY ? SECONDARY : PRIMARY;
+    }
+}
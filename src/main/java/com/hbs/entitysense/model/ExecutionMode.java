@@ -0,0 +1,15 @@
+package com.hbs.entitysense.model;
+
+/**
+ * Where the blocking parts of a screening (JPA, the Hikari connection wait, waiting on Ollama) run when called from
+ * the WebFlux controller.
+ */
+public enum ExecutionMode {
+    /** A bounded pool of {@code blocking-threads} platform threads; Ollama is awaited without a thread. */
+    BOUNDED_ELASTIC,
+    /**
+     * One virtual thread per request, blocking freely; concurrency is bounded by permits for database connections and
+     * Ollama calls instead of by threads.
+     */
+    VIRTUAL_THREADS
+}
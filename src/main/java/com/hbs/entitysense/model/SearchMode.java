@@ -0,0 +1,8 @@
+package com.hbs.entitysense.model;
+
+public enum SearchMode {
+    /** pgvector {@code <=>} query against {@code watchlist_entities}. */
+    DATABASE,
+    /** In-process scan of the off-heap {@link com.hbs.entitysense.index.WatchlistVectorIndex}. */
+    IN_MEMORY
+}
@@ -0,0 +1,8 @@
+package com.hbs.entitysense.model;
+
+public enum VectorQuantisation {
+    /** Full 32-bit floats, about 3 KB per 768-dimension embedding. */
+    NONE,
+    /** One signed byte per dimension plus a per-vector scale; hits are re-scored at full precision. */
+    INT8
+}
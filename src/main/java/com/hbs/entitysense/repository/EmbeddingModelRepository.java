@@ -0,0 +1,110 @@
+package com.hbs.entitysense.repository;
+
+import com.hbs.entitysense.dto.EmbeddingModelRow;
+import com.hbs.entitysense.embedding.EmbeddingVersion;
+import com.hbs.entitysense.model.EmbeddingModelStatus;
+import com.hbs.entitysense.model.EmbeddingSlot;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * {@code watchlist_embedding_models}: which model each {@link EmbeddingSlot} holds and which one is served. An empty
+ * table means the original model, in {@code embedding}.
+ */
+@Repository
+@RequiredArgsConstructor
+public class EmbeddingModelRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final WatchlistBatchRepository watchlistBatchRepository;
+
+    private static final String SELECT_SQL = "SELECT slot, model, status FROM entitysenseschema.watchlist_embedding_models";
+
+    private static final String SELECT_SLOT_FOR_UPDATE_SQL = SELECT_SQL + " WHERE slot = ? FOR UPDATE";
+
+    private static final String UPSERT_SQL = """
+            INSERT INTO entitysenseschema.watchlist_embedding_models (slot, model, status, updated_at)
+            VALUES (?, ?, ?, now())
+            ON CONFLICT (slot) DO UPDATE SET model = EXCLUDED.model, status = EXCLUDED.status, updated_at = EXCLUDED.updated_at""";
+
+    private static final String FINISH_SWITCHING_SQL = """
+            UPDATE entitysenseschema.watchlist_embedding_models SET status = 'ACTIVE', updated_at = now()
+            WHERE slot = ? AND model = ? AND status = 'SWITCHING'""";
+
+    // %s is the EmbeddingSlot column
+    private static final String COUNT_MISSING_SQL =
+            "SELECT count(*) FROM entitysenseschema.watchlist_entities WHERE id > ? AND %s IS NULL";
+
+    public List<EmbeddingModelRow> findAll() {
+        return jdbcTemplate.query(SELECT_SQL, (rs, i) -> new EmbeddingModelRow(EmbeddingSlot.valueOf(rs.getString("slot")),
+                rs.getString("model"), EmbeddingModelStatus.valueOf(rs.getString("status"))));
+    }
+
+    /**
+     * Marks {@code target} as being built. Unless its slot was already building that model, the checkpoint of
+     * {@code source} is reset in the same transaction, so vectors left in the slot by an earlier model are all
+     * replaced.
+     *
+     * @return whether an earlier build of the same model is being resumed
+     */
+    @Transactional
+    public boolean startBuilding(EmbeddingVersion target, String source) {
+        boolean resumed = findForUpdate(target.slot())
+                .filter(row -> row.status() == EmbeddingModelStatus.BUILDING && row.model().equals(target.model()))
+                .isPresent();
+        if (!resumed) {
+            upsert(target, EmbeddingModelStatus.BUILDING);
+            watchlistBatchRepository.saveCheckpoint(source, 0L);
+        }
+        return resumed;
+    }
+
+    /**
+     * Switches serving from {@code previous} to {@code target} in one transaction, provided {@code target} is still
+     * being built and every row above {@code builtUpTo} has a vector in its slot. Nothing is locked beyond the two
+     * state rows; rows saved by nodes that had not seen the switch yet are left to the caller to re-embed, so
+     * {@code target} is {@link EmbeddingModelStatus#SWITCHING} until {@link #finishSwitching} is called.
+     *
+     * @return {@code false}, changing nothing, when rows were added above {@code builtUpTo} meanwhile
+     */
+    @Transactional
+    public boolean activate(EmbeddingVersion target, EmbeddingVersion previous, long builtUpTo) {
+        boolean building = findForUpdate(target.slot())
+                .filter(row -> row.status() == EmbeddingModelStatus.BUILDING && row.model().equals(target.model()))
+                .isPresent();
+        if (!building) {
+            throw new RuntimeException("Embedding model " + target + " is no longer being built");
+        }
+        Long missing = jdbcTemplate.queryForObject(COUNT_MISSING_SQL.formatted(target.slot().column()), Long.class, builtUpTo);
+        if (missing != null && missing > 0) {
+            return false;
+        }
+        upsert(previous, EmbeddingModelStatus.RETIRED);
+        upsert(target, EmbeddingModelStatus.SWITCHING);
+        return true;
+    }
+
+    /**
+     * Marks {@code target} plain {@link EmbeddingModelStatus#ACTIVE} once every row saved around its switch has been
+     * re-embedded. Does nothing unless it is still {@link EmbeddingModelStatus#SWITCHING}.
+     */
+    public void finishSwitching(EmbeddingVersion target) {
+        jdbcTemplate.update(FINISH_SWITCHING_SQL, target.slot().name(), target.model());
+    }
+
+    private Optional<EmbeddingModelRow> findForUpdate(EmbeddingSlot slot) {
+        return jdbcTemplate.query(SELECT_SLOT_FOR_UPDATE_SQL,
+                        (rs, i) -> new EmbeddingModelRow(slot, rs.getString("model"), EmbeddingModelStatus.valueOf(rs.getString("status"))),
+                        slot.name())
+                .stream().findFirst();
+    }
+
+    private void upsert(EmbeddingVersion version, EmbeddingModelStatus status) {
+        jdbcTemplate.update(UPSERT_SQL, version.slot().name(), version.model(), status.name());
+    }
+}
@@ -0,0 +1,117 @@
+package com.hbs.entitysense.repository;
+
+import com.hbs.entitysense.dto.WatchListEntityRequest;
+import com.hbs.entitysense.index.WatchlistAccountIndex;
+import com.hbs.entitysense.model.EmbeddingSlot;
+import com.pgvector.PGvector;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+
+/**
+ * Plain JDBC writes for bulk watchlist loads. The entity's {@code IDENTITY} id stops Hibernate from batching inserts,
+ * so rows go through {@link JdbcTemplate#batchUpdate} instead, together with the import checkpoint in one transaction.
+ * Re-embedding writes its vectors the same way, checkpointed in the same table.
+ */
+@Repository
+@RequiredArgsConstructor
+public class WatchlistBatchRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // %s is the EmbeddingSlot column
+    private static final String INSERT_ENTITY_SQL = """
+            INSERT INTO entitysenseschema.watchlist_entities
+                (name, address, country, known_accounts, known_accounts_normalised, risk_category, %s, created_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?, now())""";
+
+    private static final String UPDATE_EMBEDDING_SQL = "UPDATE entitysenseschema.watchlist_entities SET %s = ? WHERE id = ?";
+
+    private static final String SELECT_CHECKPOINT_SQL =
+            "SELECT rows_done FROM entitysenseschema.watchlist_import_checkpoints WHERE source = ?";
+
+    private static final String UPSERT_CHECKPOINT_SQL = """
+            INSERT INTO entitysenseschema.watchlist_import_checkpoints (source, rows_done, updated_at)
+            VALUES (?, ?, now())
+            ON CONFLICT (source) DO UPDATE SET rows_done = EXCLUDED.rows_done, updated_at = EXCLUDED.updated_at""";
+
+    /**
+     * Source rows already loaded for {@code source}, or 0 when it has never been imported.
+     */
+    public long findImportedRows(String source) {
+        List<Long> rows = jdbcTemplate.queryForList(SELECT_CHECKPOINT_SQL, Long.class, source);
+        return rows.isEmpty() ? 0L : rows.get(0);
+    }
+
+    /**
+     * Moves the checkpoint of {@code source} to {@code rowsDone}, e.g. back to 0 to start a source over.
+     */
+    @Transactional
+    public void saveCheckpoint(String source, long rowsDone) {
+        jdbcTemplate.update(UPSERT_CHECKPOINT_SQL, source, rowsDone);
+    }
+
+    /**
+     * Inserts {@code entities} with their embeddings, stored in {@code slot}, and moves the checkpoint of
+     * {@code source} to {@code rowsDone} atomically, so a resumed import never loads a row twice.
+     */
+    @Transactional
+    public void insertBatch(String source, long rowsDone, List<WatchListEntityRequest> entities, EmbeddingSlot slot, float[][] embeddings) {
+        if (!entities.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_ENTITY_SQL.formatted(slot.column()), new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    WatchListEntityRequest entity = entities.get(i);
+                    ps.setString(1, entity.getName());
+                    ps.setString(2, entity.getAddress());
+                    ps.setString(3, entity.getCountry());
+                    if (entity.getKnownAccounts() == null) {
+                        ps.setNull(4, Types.ARRAY);
+                        ps.setNull(5, Types.ARRAY);
+                    } else {
+                        ps.setArray(4, ps.getConnection().createArrayOf("text", entity.getKnownAccounts()));
+                        ps.setArray(5, ps.getConnection().createArrayOf("text", WatchlistAccountIndex.normaliseAll(entity.getKnownAccounts())));
+                    }
+                    ps.setString(6, entity.getRiskCategory().name());
+                    ps.setObject(7, new PGvector(embeddings[i]));
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return entities.size();
+                }
+            });
+        }
+        jdbcTemplate.update(UPSERT_CHECKPOINT_SQL, source, rowsDone);
+    }
+
+    /**
+     * Stores re-computed embeddings of the rows {@code ids} in {@code slot} and moves the checkpoint of {@code source}
+     * to {@code lastId}, the highest id done, atomically. Each row is updated on its own, so only row locks are taken.
+     */
+    @Transactional
+    public void updateEmbeddings(String source, long lastId, List<Long> ids, EmbeddingSlot slot, float[][] embeddings) {
+        if (!ids.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPDATE_EMBEDDING_SQL.formatted(slot.column()), new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    ps.setObject(1, new PGvector(embeddings[i]));
+                    ps.setLong(2, ids.get(i));
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return ids.size();
+                }
+            });
+        }
+        jdbcTemplate.update(UPSERT_CHECKPOINT_SQL, source, lastId);
+    }
+}
@@ -1,8 +1,193 @@
 package com.hbs.entitysense.repository;
 
+import com.hbs.entitysense.dto.WatchlistAccountRow;
+import com.hbs.entitysense.dto.WatchlistDistanceRow;
+import com.hbs.entitysense.dto.WatchlistIndexRow;
+import com.hbs.entitysense.dto.WatchlistMatchRow;
+import com.hbs.entitysense.dto.WatchlistNameRow;
+import com.hbs.entitysense.dto.WatchlistScoringRow;
 import com.hbs.entitysense.entity.WatchlistEntity;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
 
 public interface WatchlistRepository extends JpaRepository<WatchlistEntity, Long> {
-    // Additional query methods can be added later if needed
+
+    // Aliases are quoted so Postgres keeps their case for the WatchlistDistanceRow getters
+    String NEAREST_SELECT = "SELECT w.id AS \"id\", w.risk_category AS \"riskCategory\", " +
+            "w.embedding <=> cast(:embedding AS vector) AS \"distance\" FROM entitysenseschema.watchlist_entities w ";
+
+    String NEAREST_SECONDARY_SELECT = "SELECT w.id AS \"id\", w.risk_category AS \"riskCategory\", " +
+            "w.embedding_secondary <=> cast(:embedding AS vector) AS \"distance\" FROM entitysenseschema.watchlist_entities w ";
+
+    /**
+     * Nearest-neighbour search pushed down to pgvector. {@code <=>} is the cosine distance operator, served by the
+     * HNSW index on {@code embedding}, so only the closest rows under the threshold ever leave the database, and of
+     * those only the id, category and distance: names and embeddings are not read, and no entity is hydrated.
+     *
+     * @param embedding query vector in pgvector text form, e.g. {@code [0.1,0.2,...]}
+     */
+    @Query(value = NEAREST_SELECT +
+            "WHERE (w.embedding <=> cast(:embedding AS vector)) < :threshold " +
+            "ORDER BY w.embedding <=> cast(:embedding AS vector) " +
+            "LIMIT :limit", nativeQuery = true)
+    List<WatchlistDistanceRow> findNearestWithinDistance(@Param("embedding") String embedding,
+                                                         @Param("threshold") double threshold,
+                                                         @Param("limit") int limit);
+
+    /**
+     * {@link #findNearestWithinDistance} limited to entities of some risk categories or of none and, unless
+     * {@code countries} is empty, to entities of those countries or of none, as {@code SearchScope} does. Postgres
+     * filters the rows the HNSW scan yields, so a narrow scope needs a partial index per category or
+     * {@code hnsw.iterative_scan} to still find {@code limit} rows.
+     *
+     * @param categories {@code RiskCategory} names
+     * @param countries  upper-cased countries
+     */
+    @Query(value = NEAREST_SELECT +
+            "WHERE (w.embedding <=> cast(:embedding AS vector)) < :threshold " +
+            "AND (w.risk_category IS NULL OR w.risk_category = ANY(cast(:categories AS text[]))) " +
+            "AND (cardinality(cast(:countries AS text[])) = 0 OR coalesce(trim(w.country), '') = '' " +
+            "OR upper(trim(w.country)) = ANY(cast(:countries AS text[]))) " +
+            "ORDER BY w.embedding <=> cast(:embedding AS vector) " +
+            "LIMIT :limit", nativeQuery = true)
+    List<WatchlistDistanceRow> findNearestWithinDistanceScoped(@Param("embedding") String embedding,
+                                                               @Param("threshold") double threshold,
+                                                               @Param("categories") String[] categories,
+                                                               @Param("countries") String[] countries,
+                                                               @Param("limit") int limit);
+
+    /**
+     * {@link #findNearestWithinDistance} over {@code embedding_secondary}, served by its own HNSW index, for when the
+     * active model's vectors are in the {@code SECONDARY} slot.
+     */
+    @Query(value = NEAREST_SECONDARY_SELECT +
+            "WHERE (w.embedding_secondary <=> cast(:embedding AS vector)) < :threshold " +
+            "ORDER BY w.embedding_secondary <=> cast(:embedding AS vector) " +
+            "LIMIT :limit", nativeQuery = true)
+    List<WatchlistDistanceRow> findNearestSecondaryWithinDistance(@Param("embedding") String embedding,
+                                                                  @Param("threshold") double threshold,
+                                                                  @Param("limit") int limit);
+
+    /**
+     * {@link #findNearestWithinDistanceScoped} over {@code embedding_secondary}.
+     */
+    @Query(value = NEAREST_SECONDARY_SELECT +
+            "WHERE (w.embedding_secondary <=> cast(:embedding AS vector)) < :threshold " +
+            "AND (w.risk_category IS NULL OR w.risk_category = ANY(cast(:categories AS text[]))) " +
+            "AND (cardinality(cast(:countries AS text[])) = 0 OR coalesce(trim(w.country), '') = '' " +
+            "OR upper(trim(w.country)) = ANY(cast(:countries AS text[]))) " +
+            "ORDER BY w.embedding_secondary <=> cast(:embedding AS vector) " +
+            "LIMIT :limit", nativeQuery = true)
+    List<WatchlistDistanceRow> findNearestSecondaryWithinDistanceScoped(@Param("embedding") String embedding,
+                                                                        @Param("threshold") double threshold,
+                                                                        @Param("categories") String[] categories,
+                                                                        @Param("countries") String[] countries,
+                                                                        @Param("limit") int limit);
+
+    /**
+     * Account lookup by normalised account, see {@code WatchlistAccountIndex.normalise}. Array containment
+     * ({@code @>}) is what lets Postgres use the GIN index on {@code known_accounts_normalised}; {@code = ANY(...)}
+     * would fall back to a sequential scan. Only ids are returned; {@link #findMatchRows} loads the rows.
+     */
+    @Query(value = "SELECT w.id FROM entitysenseschema.watchlist_entities w " +
+            "WHERE w.known_accounts_normalised @> ARRAY[cast(:accountNumber AS text)]", nativeQuery = true)
+    List<Long> findIdsByKnownAccount(@Param("accountNumber") String accountNumber);
+
+    /**
+     * Ids of the entities holding any of the given normalised accounts, for batch screening. Array overlap
+     * ({@code &&}) also uses the GIN index on {@code known_accounts_normalised}.
+     */
+    @Query(value = "SELECT w.id FROM entitysenseschema.watchlist_entities w " +
+            "WHERE w.known_accounts_normalised && cast(:accountNumbers AS text[])", nativeQuery = true)
+    List<Long> findIdsByAnyKnownAccount(@Param("accountNumbers") String[] accountNumbers);
+
+    /**
+     * Embeddings of the given entities, for scoring a shortlist or re-scoring quantised hits in the JVM.
+     */
+    @Query("SELECT new com.hbs.entitysense.dto.WatchlistScoringRow(w.id, w.riskCategory, w.country, w.embedding) " +
+            "FROM WatchlistEntity w WHERE w.id IN :ids")
+    List<WatchlistScoringRow> findScoringRows(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT new com.hbs.entitysense.dto.WatchlistScoringRow(w.id, w.riskCategory, w.country, w.embeddingSecondary) " +
+            "FROM WatchlistEntity w WHERE w.id IN :ids")
+    List<WatchlistScoringRow> findSecondaryScoringRows(@Param("ids") Collection<Long> ids);
+
+    /**
+     * What a screening response shows of the given entities, loaded once the matches are chosen.
+     */
+    @Query("SELECT new com.hbs.entitysense.dto.WatchlistMatchRow(w.id, w.name, w.address, w.country, w.knownAccounts, w.riskCategory) " +
+            "FROM WatchlistEntity w WHERE w.id IN :ids")
+    List<WatchlistMatchRow> findMatchRows(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Keyset page of the columns an embedding is computed from, for re-embedding the watchlist.
+     */
+    @Query("SELECT new com.hbs.entitysense.dto.WatchlistMatchRow(w.id, w.name, w.address, w.country, w.knownAccounts, w.riskCategory) " +
+            "FROM WatchlistEntity w WHERE w.id > :id ORDER BY w.id")
+    List<WatchlistMatchRow> findMatchRowsAfter(@Param("id") Long id, Limit limit);
+
+    /**
+     * Keyset page of the rows with no vector in {@code embedding}, for re-embedding rows saved around a model switch
+     * whatever order they were committed in.
+     */
+    @Query("SELECT new com.hbs.entitysense.dto.WatchlistMatchRow(w.id, w.name, w.address, w.country, w.knownAccounts, w.riskCategory) " +
+            "FROM WatchlistEntity w WHERE w.id > :id AND w.embedding IS NULL ORDER BY w.id")
+    List<WatchlistMatchRow> findMatchRowsWithoutEmbeddingAfter(@Param("id") Long id, Limit limit);
+
+    @Query("SELECT new com.hbs.entitysense.dto.WatchlistMatchRow(w.id, w.name, w.address, w.country, w.knownAccounts, w.riskCategory) " +
+            "FROM WatchlistEntity w WHERE w.id > :id AND w.embeddingSecondary IS NULL ORDER BY w.id")
+    List<WatchlistMatchRow> findMatchRowsWithoutSecondaryEmbeddingAfter(@Param("id") Long id, Limit limit);
+
+    /**
+     * Keyset page of the watchlist in id order, used to load the in-memory index without deep OFFSET scans.
+     */
+    List<WatchlistEntity> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+    /**
+     * Keyset page of ids only, for the snapshot poll to find rows it does not hold yet.
+     */
+    @Query("SELECT w.id FROM WatchlistEntity w WHERE w.id > :id ORDER BY w.id")
+    List<Long> findIdsAfter(@Param("id") Long id, Limit limit);
+
+    /**
+     * The given rows as the snapshot poll indexes them, with the vectors of {@code embedding} only.
+     */
+    @Query("SELECT new com.hbs.entitysense.dto.WatchlistIndexRow(w.id, w.name, w.country, w.riskCategory, w.knownAccounts, w.embedding) " +
+            "FROM WatchlistEntity w WHERE w.id IN :ids")
+    List<WatchlistIndexRow> findIndexRows(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT new com.hbs.entitysense.dto.WatchlistIndexRow(w.id, w.name, w.country, w.riskCategory, w.knownAccounts, w.embeddingSecondary) " +
+            "FROM WatchlistEntity w WHERE w.id IN :ids")
+    List<WatchlistIndexRow> findSecondaryIndexRows(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Keyset page of names and countries only, for loading the name prefilter.
+     */
+    @Query("SELECT new com.hbs.entitysense.dto.WatchlistNameRow(w.id, w.name, w.country) FROM WatchlistEntity w " +
+            "WHERE w.id > :id ORDER BY w.id")
+    List<WatchlistNameRow> findNamesAfter(@Param("id") Long id, Limit limit);
+
+    @Query("SELECT new com.hbs.entitysense.dto.WatchlistAccountRow(w.id, w.knownAccounts) FROM WatchlistEntity w " +
+            "WHERE w.id > :id AND w.knownAccounts IS NOT NULL ORDER BY w.id")
+    List<WatchlistAccountRow> findAccountsAfter(@Param("id") Long id, Limit limit);
+
+    @Query("SELECT w.id FROM WatchlistEntity w WHERE w.embedding IS NOT NULL ORDER BY w.id")
+    List<Long> findIdsWithEmbedding();
+
+    @Query("SELECT w.id FROM WatchlistEntity w WHERE w.embeddingSecondary IS NOT NULL ORDER BY w.id")
+    List<Long> findIdsWithSecondaryEmbedding();
+
+    /**
+     * Embedded rows up to {@code id}, to tell whether a saved index file still matches the table.
+     */
+    @Query("SELECT count(w) FROM WatchlistEntity w WHERE w.id <= :id AND w.embedding IS NOT NULL")
+    long countWithEmbeddingUpTo(@Param("id") Long id);
+
+    @Query("SELECT count(w) FROM WatchlistEntity w WHERE w.id <= :id AND w.embeddingSecondary IS NOT NULL")
+    long countWithSecondaryEmbeddingUpTo(@Param("id") Long id);
 }
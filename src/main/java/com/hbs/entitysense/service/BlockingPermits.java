@@ -0,0 +1,60 @@
+package com.hbs.entitysense.service;
+
+import java.time.Duration;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Limits on the blocking calls a screening makes when it runs on a virtual thread: one permit per database
+ * connection and one per Ollama call the endpoints accept. Virtual threads park on a permit for up to
+ * {@code permit-timeout}, so a burst waits here, cheaply, rather than on Hikari's pool or in Ollama's queue; past the
+ * timeout the call is rejected with a {@link RejectedExecutionException} (503).
+ */
+public final class BlockingPermits {
+
+    /** No limits: the calls run as they are, for the bounded-elastic mode and non-reactive callers. */
+    public static final BlockingPermits UNLIMITED = new BlockingPermits(0, 0, Duration.ZERO);
+
+    private final Semaphore database;
+    private final Semaphore ollama;
+    private final long timeoutNanos;
+
+    /**
+     * @param databasePermits calls holding a connection at once, usually Hikari's {@code maximum-pool-size}; 0 is unlimited
+     * @param ollamaPermits   embedding calls in flight at once; 0 is unlimited
+     */
+    public BlockingPermits(int databasePermits, int ollamaPermits, Duration timeout) {
+        this.database = databasePermits > 0 ? new Semaphore(databasePermits, true) : null;
+        this.ollama = ollamaPermits > 0 ? new Semaphore(ollamaPermits, true) : null;
+        this.timeoutNanos = timeout.toNanos();
+    }
+
+    public <T> T database(Supplier<T> call) {
+        return run(database, "database connection", call);
+    }
+
+    public <T> T ollama(Supplier<T> call) {
+        return run(ollama, "Ollama call", call);
+    }
+
+    private <T> T run(Semaphore permits, String resource, Supplier<T> call) {
+        if (permits == null) {
+            return call.get();
+        }
+        try {
+            if (!permits.tryAcquire(timeoutNanos, TimeUnit.NANOSECONDS)) {
+                throw new RejectedExecutionException("Timed out waiting for a " + resource);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted waiting for a " + resource, e);
+        }
+        try {
+            return call.get();
+        } finally {
+            permits.release();
+        }
+    }
+}
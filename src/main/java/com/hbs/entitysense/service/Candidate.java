@@ -0,0 +1,25 @@
+package com.hbs.entitysense.service;
+
+import com.hbs.entitysense.dto.WatchlistMatchRow;
+import com.hbs.entitysense.model.RiskCategory;
+
+/**
+ * A watchlist entity scored against one payee, before it is turned into a {@code RiskMatchResult}. Vector hits carry
+ * only what scoring needs; their {@code details} stay {@code null} until the entity is chosen as a match and its row is
+ * loaded for the response.
+ */
+record Candidate(long id, RiskCategory riskCategory, double distance, boolean matchedAccount, WatchlistMatchRow details) {
+
+    Candidate(long id, RiskCategory riskCategory, double distance) {
+        this(id, riskCategory, distance, false, null);
+    }
+
+    /** Candidate for an entity whose row is already loaded, e.g. because it holds the payee's account. */
+    static Candidate of(WatchlistMatchRow row, double distance, boolean matchedAccount) {
+        return new Candidate(row.id(), row.riskCategory(), distance, matchedAccount, row);
+    }
+
+    Candidate withDetails(WatchlistMatchRow details) {
+        return new Candidate(id, riskCategory, distance, matchedAccount, details);
+    }
+}
@@ -0,0 +1,161 @@
+package com.hbs.entitysense.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.hbs.entitysense.config.EntitySenseProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.text.Normalizer;
+import java.time.Duration;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Bounded cache of Ollama embeddings keyed by model and normalised prompt text, so recurring payees skip the HTTP
+ * round trip. Size and TTL eviction come from {@code entity-sense.embedding-cache}; hit, miss and eviction counts are
+ * published as {@code cache.*} meters tagged {@code cache=embeddings}.
+ *
+ * <p>Cached arrays are shared between callers and must not be modified.
+ */
+@Component
+public class EmbeddingCache {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private static final int PERSISTENCE_MAGIC = 0x45534543; // "ESEC"
+
+    private static final char KEY_SEPARATOR = '\u0000';
+
+    private static final Logger logger = LoggerFactory.getLogger(EmbeddingCache.class);
+
+    private final EntitySenseProperties.EmbeddingCacheProperties config;
+    private final Cache<String, CachedEmbedding> cache;
+    private final Ticker ticker;
+
+    @Autowired
+    public EmbeddingCache(EntitySenseProperties properties, MeterRegistry meterRegistry) {
+        this(properties, meterRegistry, Ticker.systemTicker());
+    }
+
+    EmbeddingCache(EntitySenseProperties properties, MeterRegistry meterRegistry, Ticker ticker) {
+        this.config = properties.getEmbeddingCache();
+        this.ticker = ticker;
+        long ttlNanos = config.getTtl().toNanos();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(config.getMaximumSize())
+                .expireAfter(Expiry.<String, CachedEmbedding>creating((key, value) ->
+                        Duration.ofNanos(Math.max(0, ttlNanos - (ticker.read() - value.createdAtNanos())))))
+                .ticker(ticker)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "embeddings");
+    }
+
+    /**
+     * Canonical form of an embedding prompt: Unicode NFKC, trimmed, runs of whitespace collapsed to one space. Case
+     * is kept, so the cached vector is exactly what Ollama returns for the prompt actually sent.
+     */
+    public static String normalise(String text) {
+        return WHITESPACE.matcher(Normalizer.normalize(text, Normalizer.Form.NFKC)).replaceAll(" ").trim();
+    }
+
+    public float[] get(String model, String normalisedText) {
+        if (!config.isEnabled()) return null;
+        CachedEmbedding cached = cache.getIfPresent(key(model, normalisedText));
+        return cached == null ? null : cached.embedding();
+    }
+
+    public void put(String model, String normalisedText, float[] embedding) {
+        if (config.isEnabled() && embedding != null) {
+            cache.put(key(model, normalisedText), new CachedEmbedding(embedding, ticker.read()));
+        }
+    }
+
+    public long size() {
+        cache.cleanUp();
+        return cache.estimatedSize();
+    }
+
+    @PostConstruct
+    public void load() {
+        Path file = persistenceFile();
+        if (file == null || !Files.exists(file)) return;
+        int loaded = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != PERSISTENCE_MAGIC) {
+                logger.warn("Ignoring embedding cache file {} with an unknown format", file);
+                return;
+            }
+            long savedAtMillis = in.readLong();
+            int count = in.readInt();
+            long elapsedNanos = Math.max(0, System.currentTimeMillis() - savedAtMillis) * 1_000_000L;
+            for (int i = 0; i < count; i++) {
+                String key = in.readUTF();
+                long ageNanos = in.readLong() + elapsedNanos;
+                float[] embedding = new float[in.readInt()];
+                for (int j = 0; j < embedding.length; j++) embedding[j] = in.readFloat();
+                if (ageNanos < config.getTtl().toNanos()) {
+                    cache.put(key, new CachedEmbedding(embedding, ticker.read() - ageNanos));
+                    loaded++;
+                }
+            }
+            logger.info("Loaded {} embeddings from cache file {}", loaded, file);
+        } catch (IOException e) {
+            logger.warn("Unable to load embedding cache file {} - {}", file, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void save() {
+        Path file = persistenceFile();
+        if (file == null) return;
+        Map<String, CachedEmbedding> snapshot = Map.copyOf(cache.asMap());
+        long now = ticker.read();
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            Path tmp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(PERSISTENCE_MAGIC);
+                out.writeLong(System.currentTimeMillis());
+                out.writeInt(snapshot.size());
+                for (Map.Entry<String, CachedEmbedding> entry : snapshot.entrySet()) {
+                    out.writeUTF(entry.getKey());
+                    out.writeLong(now - entry.getValue().createdAtNanos());
+                    float[] embedding = entry.getValue().embedding();
+                    out.writeInt(embedding.length);
+                    for (float v : embedding) out.writeFloat(v);
+                }
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            logger.info("Saved {} embeddings to cache file {}", snapshot.size(), file);
+        } catch (IOException e) {
+            logger.warn("Unable to save embedding cache file {} - {}", file, e.getMessage());
+        }
+    }
+
+    private Path persistenceFile() {
+        String file = config.getPersistenceFile();
+        return config.isEnabled() && file != null && !file.isBlank() ? Path.of(file) : null;
+    }
+
+    private static String key(String model, String normalisedText) {
+        return model + KEY_SEPARATOR + normalisedText;
+    }
+
+    private record CachedEmbedding(float[] embedding, long createdAtNanos) {
+    }
+}
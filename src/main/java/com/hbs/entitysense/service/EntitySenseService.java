@@ -1,42 +1,115 @@
 package com.hbs.entitysense.service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hbs.entitysense.audit.ScreeningAuditLogger;
+import com.hbs.entitysense.config.EntitySenseProperties;
 import com.hbs.entitysense.dto.*;
+import com.hbs.entitysense.embedding.EmbeddingClient;
+import com.hbs.entitysense.embedding.EmbeddingModels;
+import com.hbs.entitysense.embedding.EmbeddingUnavailableException;
+import com.hbs.entitysense.embedding.EmbeddingVersion;
 import com.hbs.entitysense.entity.WatchlistEntity;
+import com.hbs.entitysense.event.WatchlistEntityCreatedEvent;
+import com.hbs.entitysense.index.DistanceKernel;
+import com.hbs.entitysense.index.SearchScope;
+import com.hbs.entitysense.index.TopKMatches;
+import com.hbs.entitysense.index.VectorMatch;
+import com.hbs.entitysense.index.WatchlistAccountIndex;
+import com.hbs.entitysense.index.WatchlistNameIndex;
+import com.hbs.entitysense.index.WatchlistSnapshot;
+import com.hbs.entitysense.index.WatchlistSnapshots;
+import com.hbs.entitysense.index.WatchlistVectorIndex;
+import com.hbs.entitysense.metrics.ScreeningMetrics;
+import com.hbs.entitysense.model.EmbeddingFailurePolicy;
+import com.hbs.entitysense.model.EmbeddingSlot;
+import com.hbs.entitysense.model.RiskCategory;
+import com.hbs.entitysense.model.SearchMode;
 import com.hbs.entitysense.repository.WatchlistRepository;
+import com.pgvector.PGvector;
+import io.micrometer.common.KeyValues;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
-import java.io.IOException;
-import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
-import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static com.hbs.entitysense.constants.EntitySenseConstant.*;
+import static com.hbs.entitysense.metrics.ScreeningMetrics.*;
 
 @Service
 @RequiredArgsConstructor
 public class EntitySenseService {
 
-    private final HttpClient httpClient;
+    private final EmbeddingClient embeddingClient;
+    private final EmbeddingModels embeddingModels;
     private final WatchlistRepository watchlistRepository;
-    private final ObjectMapper objectMapper;
+    private final WatchlistVectorIndex watchlistVectorIndex;
+    private final WatchlistNameIndex watchlistNameIndex;
+    private final WatchlistAccountIndex watchlistAccountIndex;
+    private final WatchlistSnapshots watchlistSnapshots;
+    private final DistanceKernel distanceKernel;
+    private final EmbeddingCache embeddingCache;
+    private final VerdictCache verdictCache;
+    private final EntitySenseProperties properties;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ScreeningMetrics screeningMetrics;
+    private final ScreeningAuditLogger screeningAuditLogger;
 
     private static final Logger logger = LoggerFactory.getLogger(EntitySenseService.class);
 
+    private static final KeyValues NEAREST_QUERY = KeyValues.of("query", "nearest");
+    private static final KeyValues BY_ID_QUERY = KeyValues.of("query", "by_id");
+    private static final KeyValues ACCOUNT_QUERY = KeyValues.of("query", "known_account");
+    private static final KeyValues MATCH_QUERY = KeyValues.of("query", "match_details");
+
+    // Reported for account matches when the payee or the entity has no embedding to compute a distance from
+    private static final double UNSCORED_DISTANCE = 1.0;
+
+    // Requests without a profile screen every category at the default threshold
+    private static final SearchScope UNSCOPED = SearchScope.all(ENTITY_SENSE_COSINE_DISTANCE_THRESHOLD);
+
     public void createWatchListEntity(WatchListEntityRequest request) {
+        createWatchListEntity(request, BlockingPermits.UNLIMITED);
+    }
+
+    /** {@link #createWatchListEntity} with its Ollama call and insert each holding one of {@code permits}. */
+    void createWatchListEntity(WatchListEntityRequest request, BlockingPermits permits) {
         logger.info("Creating watch list entity: {}", request);
-        float[] embedding = generateEmbedding(request.getName(), request.getAddress(), request.getCountry());
-        logger.info("Generated embedding for entity {}: {}", request.getName(), embedding);
+        EmbeddingVersion version = activeEmbedding();
+        float[] embedding = permits.ollama(() -> screeningMetrics.observe(EMBEDDING,
+                () -> generateEmbedding(version.model(), request.getName(), request.getAddress(), request.getCountry())));
+        logger.atDebug().addArgument(request::getName).addArgument(() -> Arrays.toString(embedding))
+                .log("Generated embedding for entity {}: {}");
+        permits.database(() -> {
+            saveWatchListEntity(request, version, embedding);
+            return null;
+        });
+    }
+
+    /**
+     * Model new watchlist entities are embedded with, and the column their embedding is stored in.
+     */
+    public EmbeddingVersion activeEmbedding() {
+        return embeddingModels.active();
+    }
+
+    /**
+     * Persistence half of {@link #createWatchListEntity}, for callers that obtained the embedding themselves, from
+     * the model of {@code version}.
+     */
+    public void saveWatchListEntity(WatchListEntityRequest request, EmbeddingVersion version, float[] embedding) {
         if (embedding == null) {
             logger.error("Failed to generate embedding for entity: {}", request.getName());
             throw new RuntimeException("Failed to generate embedding for entity: " + request.getName());
@@ -47,100 +120,670 @@ public class EntitySenseService {
         entity.setAddress(request.getAddress());
         entity.setCountry(request.getCountry());
         entity.setKnownAccounts( (request.getKnownAccounts()));
+        entity.setKnownAccountsNormalised(WatchlistAccountIndex.normaliseAll(request.getKnownAccounts()));
         entity.setRiskCategory(request.getRiskCategory());
-        entity.setEmbedding(embedding);
-        watchlistRepository.save(entity);
+        entity.setEmbedding(version.slot(), embedding);
+        WatchlistEntity saved = watchlistRepository.save(entity);
+        eventPublisher.publishEvent(new WatchlistEntityCreatedEvent(saved));
     }
 
     public ValidatePaymentResponse validatePayment(ValidatePaymentRequest request) {
-        logger.info("Validating payment for request: {}", request);
-        float[] inputEmbedding = generateEmbedding(request.getPayeeName(), request.getPayeeAddress(), request.getPayeeCountry());
+        return validatePayment(request, BlockingPermits.UNLIMITED);
+    }
+
+    /**
+     * {@link #validatePayment} for a caller that may block, such as a virtual thread: each stage that reads the
+     * database, and the Ollama call, runs holding one of {@code permits}.
+     */
+    ValidatePaymentResponse validatePayment(ValidatePaymentRequest request, BlockingPermits permits) {
+        logger.debug("Validating payment for request: {}", request);
+        scope(request);
+        return screeningMetrics.observe(SCREENING, () -> {
+            WatchlistSnapshot snapshot = watchlistSnapshots.current();
+            ValidatePaymentResponse cached = cachedVerdict(request, snapshot);
+            if (cached != null) {
+                return cached;
+            }
+            Shortlist shortlist = permits.database(() -> shortlist(request, snapshot));
+            if (shortlist != null && shortlist.isEmpty()) {
+                return allowWithoutEmbedding(request, snapshot);
+            }
+            float[] inputEmbedding;
+            try {
+                inputEmbedding = permits.ollama(() -> screeningMetrics.observe(EMBEDDING, () -> generateEmbedding(
+                        snapshot.embedding().model(), request.getPayeeName(), request.getPayeeAddress(), request.getPayeeCountry())));
+            } catch (EmbeddingUnavailableException e) {
+                return permits.database(() -> screenWithoutEmbedding(request, shortlist, snapshot, e));
+            }
+            return permits.database(() -> screenPayment(request, inputEmbedding, shortlist, snapshot));
+        });
+    }
+
+    /**
+     * Matching half of {@link #validatePayment}, for callers that obtained the payee embedding themselves.
+     */
+    public ValidatePaymentResponse screenPayment(ValidatePaymentRequest request, float[] inputEmbedding) {
+        WatchlistSnapshot snapshot = watchlistSnapshots.current();
+        return screenPayment(request, inputEmbedding, shortlist(request, snapshot), snapshot);
+    }
+
+    /**
+     * The watchlist snapshot a new decision should use. Every stage of one decision reads the same snapshot, and its
+     * version is reported in the response. The payee must be embedded with the snapshot's model.
+     */
+    WatchlistSnapshot currentSnapshot() {
+        return watchlistSnapshots.current();
+    }
+
+    /**
+     * What {@code request} screens: its {@code entity-sense.screening.profiles} entry, or every category at the default
+     * threshold when it names none. An unknown profile is rejected rather than screened more narrowly or broadly than
+     * the caller asked.
+     */
+    SearchScope scope(ValidatePaymentRequest request) {
+        String name = request.getProfile();
+        if (name == null || name.isBlank()) {
+            return UNSCOPED;
+        }
+        EntitySenseProperties.Profile profile = properties.getScreening().getProfiles().get(name);
+        if (profile == null) {
+            throw new RuntimeException("Unknown screening profile: " + name);
+        }
+        return new SearchScope(name, profile.getCategories(), profile.getThresholds(), profile.getCountries(),
+                ENTITY_SENSE_COSINE_DISTANCE_THRESHOLD);
+    }
+
+    /**
+     * The decision last made for the same payee against {@code snapshot}, recorded and audited like a new one, or
+     * {@code null} when there is none and the payment has to be screened.
+     */
+    ValidatePaymentResponse cachedVerdict(ValidatePaymentRequest request, WatchlistSnapshot snapshot) {
+        ValidatePaymentResponse cached = verdictCache.get(request, snapshot);
+        if (cached != null) {
+            logger.debug("Serving cached decision for payee {} at watchlist version {}", request.getPayeeName(), snapshot.version());
+            screeningMetrics.recordDecision(cached);
+            screeningAuditLogger.record(request, cached);
+        }
+        return cached;
+    }
+
+    boolean isPrefilterActive(WatchlistSnapshot snapshot) {
+        return properties.getScreening().getPrefilter().isEnabled() && watchlistNameIndex.isReady(snapshot);
+    }
+
+    /**
+     * First screening stage: entities with a plausible name, plus every entity in the request's scope holding the
+     * payee's account. Returns {@code null} when the prefilter is off, in which case the whole watchlist is searched by
+     * vector.
+     */
+    Shortlist shortlist(ValidatePaymentRequest request, WatchlistSnapshot snapshot) {
+        if (!isPrefilterActive(snapshot)) {
+            return null;
+        }
+        SearchScope scope = scope(request);
+        List<Long> ids = screeningMetrics.observe(PREFILTER,
+                () -> watchlistNameIndex.candidates(snapshot, request.getPayeeName(), request.getPayeeCountry()));
+        List<WatchlistMatchRow> accountRows = hasAccountNumber(request)
+                ? findAccountRows(request.getAccountNumber(), snapshot).stream().filter(scope::includes).toList()
+                : List.of();
+        return new Shortlist(ids, accountRows);
+    }
+
+    /**
+     * Decision for a payee the prefilter already cleared: no similar name and no known account, so Ollama is skipped.
+     */
+    ValidatePaymentResponse allowWithoutEmbedding(ValidatePaymentRequest request, WatchlistSnapshot snapshot) {
+        screeningMetrics.recordEmbeddingSkipped();
+        ValidatePaymentResponse response = toResponse(request, Map.of(), snapshot, scope(request));
+        screeningAuditLogger.record(request, response);
+        verdictCache.put(request, snapshot, response);
+        return response;
+    }
+
+    /**
+     * Decision for a payee whose embedding could not be obtained, per {@code entity-sense.ollama.failure-policy}:
+     * {@code error} rethrows {@code cause}; otherwise only account matches are reported, the payment is blocked if
+     * there are any (always, under {@code fail-closed}) and the response is flagged {@code degraded}.
+     */
+    ValidatePaymentResponse screenWithoutEmbedding(ValidatePaymentRequest request, Shortlist shortlist, WatchlistSnapshot snapshot,
+                                                   EmbeddingUnavailableException cause) {
+        return screenWithoutEmbedding(request, shortlist != null ? shortlist.accountRows()
+                : hasAccountNumber(request) ? findAccountRows(request.getAccountNumber(), snapshot) : List.of(), snapshot, scope(request), cause);
+    }
+
+    private ValidatePaymentResponse screenWithoutEmbedding(ValidatePaymentRequest request, List<WatchlistMatchRow> accountRows,
+                                                           WatchlistSnapshot snapshot, SearchScope scope, EmbeddingUnavailableException cause) {
+        EmbeddingFailurePolicy policy = properties.getOllama().getFailurePolicy();
+        if (policy == EmbeddingFailurePolicy.ERROR) {
+            throw cause;
+        }
+        logger.warn("Screening payee {} without an embedding ({}) - {}", request.getPayeeName(), policy, cause.getMessage());
+        Map<Long, Candidate> candidates = new LinkedHashMap<>();
+        for (WatchlistMatchRow row : accountRows) {
+            if (scope.includes(row) && WatchlistAccountIndex.holds(row.knownAccounts(), request.getAccountNumber())) {
+                candidates.put(row.id(), Candidate.of(row, UNSCORED_DISTANCE, true));
+            }
+        }
+        screeningMetrics.recordDegraded(policy.name().toLowerCase(Locale.ROOT));
+        ValidatePaymentResponse response = toResponse(request, candidates, snapshot, scope, policy);
+        screeningAuditLogger.record(request, response);
+        return response;
+    }
+
+    ValidatePaymentResponse screenPayment(ValidatePaymentRequest request, float[] inputEmbedding, Shortlist shortlist, WatchlistSnapshot snapshot) {
         if(inputEmbedding == null) {
             logger.error("Failed to generate embedding for payee: {}", request.getPayeeName());
             throw new RuntimeException("Failed to generate embedding for payee: " + request.getPayeeName());
         }
-        logger.info("Generated embedding for payee {}: {}", request.getPayeeName(), Arrays.toString(inputEmbedding));
-
-        List<RiskMatchResult> matches = watchlistRepository.findAll().stream()
-                .map(entity -> {
-                    double distance = cosineDistance(inputEmbedding, entity.getEmbedding());
-                    boolean accountMatch = entity.getKnownAccounts() != null && Arrays.asList(entity.getKnownAccounts()).contains(request.getAccountNumber());
-                    RiskMatchResult result = new RiskMatchResult();
-                    result.setId(entity.getId());
-                    result.setName(entity.getName());
-                    result.setRiskCategory(entity.getRiskCategory());
-                    result.setDistance(distance);
-                    result.setMatchedAccount(accountMatch);
-                    result.setAddress(entity.getAddress());
-                    result.setCountry(entity.getCountry());
-                    result.setKnownAccounts(entity.getKnownAccounts());
-                    return result;
-                })
-                .filter(result -> result.getDistance() < ENTITY_SENSE_COSINE_DISTANCE_THRESHOLD || result.isMatchedAccount())
-                .sorted(Comparator.comparingDouble(RiskMatchResult::getDistance))
-                .collect(Collectors.toList());
-
-        logger.info("Found {} potential matches for payee {}", matches.size(), request.getPayeeName());
-        ValidatePaymentResponse response = new ValidatePaymentResponse();
-        response.setPossibleWatchListEntityMatches(matches);
-        response.setStatus(matches.isEmpty() ? PAYMENT_STATUS_ALLOW : PAYMENT_STATUS_BLOCK);
-        if (!matches.isEmpty()) {
-            logger.error("Payment blocked due to potential match with watch list entities {}", response);
-        } else {
-            logger.info("Payment allowed, no matches found {}", response);
+        logger.atDebug().addArgument(request::getPayeeName).addArgument(() -> Arrays.toString(inputEmbedding))
+                .log("Generated embedding for payee {}: {}");
+
+        double inputNorm = distanceKernel.norm(inputEmbedding);
+        SearchScope scope = scope(request);
+        EmbeddingSlot slot = snapshot.embedding().slot();
+        if (shortlist != null) {
+            Map<Long, Candidate> candidates = scoreShortlist(inputEmbedding, inputNorm, shortlist.ids(), scope, slot);
+            addAccountMatches(candidates, shortlist.accountRows(), inputEmbedding, inputNorm, request.getAccountNumber(), scope, slot);
+            return decide(request, candidates, snapshot, scope);
         }
+        Map<Long, Candidate> candidates = findVectorCandidates(new float[][]{inputEmbedding}, new double[]{inputNorm},
+                new SearchScope[]{scope}, snapshot).get(0);
+        if (hasAccountNumber(request)) {
+            addAccountMatches(candidates, findAccountRows(request.getAccountNumber(), snapshot), inputEmbedding, inputNorm,
+                    request.getAccountNumber(), scope, slot);
+        }
+        return decide(request, candidates, snapshot, scope);
+    }
+
+    private ValidatePaymentResponse decide(ValidatePaymentRequest request, Map<Long, Candidate> candidates, WatchlistSnapshot snapshot,
+                                           SearchScope scope) {
+        ValidatePaymentResponse response = toResponse(request, candidates, snapshot, scope);
+        logger.debug("Found {} potential matches for payee {}", response.getPossibleWatchListEntityMatches().size(), request.getPayeeName());
+        screeningAuditLogger.record(request, response);
+        verdictCache.put(request, snapshot, response);
         return response;
     }
 
-    private float[] generateEmbedding(String name, String address, String country) {
+    /**
+     * Screens a bulk payment file, returning one response per request in request order. Requests are handled in
+     * chunks of {@code entity-sense.batch.chunk-size}, each costing one Ollama batch embed call, one pass over the
+     * watchlist and one account lookup instead of one of each per payment, whatever mix of profiles the chunk uses.
+     * The whole batch is screened against one watchlist snapshot.
+     */
+    public List<ValidatePaymentResponse> validatePayments(List<ValidatePaymentRequest> requests) {
+        return validatePayments(requests, BlockingPermits.UNLIMITED);
+    }
+
+    /**
+     * {@link #validatePayments} for a caller that may block, such as a virtual thread: each chunk's Ollama batch call,
+     * and the database reads that screen it, run holding one of {@code permits}.
+     */
+    List<ValidatePaymentResponse> validatePayments(List<ValidatePaymentRequest> requests, BlockingPermits permits) {
+        int maxItems = properties.getBatch().getMaxItems();
+        if (requests.size() > maxItems) {
+            throw new RuntimeException("Batch of " + requests.size() + " payments exceeds the limit of " + maxItems);
+        }
+        int chunkSize = properties.getBatch().getChunkSize();
+        List<ValidatePaymentResponse> responses = screeningMetrics.observe(BATCH_SCREENING, () -> {
+            WatchlistSnapshot snapshot = watchlistSnapshots.current();
+            List<ValidatePaymentResponse> results = new ArrayList<>(requests.size());
+            for (int from = 0; from < requests.size(); from += chunkSize) {
+                results.addAll(validateChunk(requests.subList(from, Math.min(requests.size(), from + chunkSize)), snapshot, permits));
+            }
+            return results;
+        });
+        logger.info("Validated batch of {} payments, {} blocked", responses.size(),
+                responses.stream().filter(r -> PAYMENT_STATUS_BLOCK.equals(r.getStatus())).count());
+        return responses;
+    }
+
+    private List<ValidatePaymentResponse> validateChunk(List<ValidatePaymentRequest> chunk, WatchlistSnapshot snapshot, BlockingPermits permits) {
+        SearchScope[] scopes = chunk.stream().map(this::scope).toArray(SearchScope[]::new);
+        float[][] embeddings;
         try {
-            String text = String.join(" ‖ ", name, address != null ? address : "", country != null ? country : "");
-            logger.info("Generating embedding for text: {}", text);
-            Map<String, Object> body = Map.of(OLLAMA_EMBEDDINGS_REQ_MODEL_KEY, OLLAMA_EMBEDDINGS_REQ_MODEL_VALUE, OLLAMA_EMBEDDINGS_REQ_PROMPT_KEY, text);
-            logger.info("Request body for Ollama embedding: {}", body);
-            String json = objectMapper.writeValueAsString(body);
-            logger.info("JSON request for Ollama embedding: {}", json);
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(OLLAMA_URL+OLLAMA_EMBEDDINGS_URL))
-                    .timeout(Duration.ofSeconds(OLLAMA_TIMEOUT_VALUE))
-                    .header(OLLAMA_CONTENT_TYPE_KEY, OLLAMA_CONTENT_TYPE_VALUE)
-                    .POST(HttpRequest.BodyPublishers.ofString(json))
-                    .build();
-            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-            logger.info("Received response from Ollama: {}", response.body());
-            OllamaEmbeddingResponse ollamaEmbeddingResponse = objectMapper.readValue(response.body(), OllamaEmbeddingResponse.class);
-            logger.info("Parsed Ollama embedding response: {}", ollamaEmbeddingResponse);
-            List<Float> list = ollamaEmbeddingResponse.getEmbedding();
-            if (list == null) return null;
-            float[] arr = new float[list.size()];
-            for (int i = 0; i < list.size(); i++) arr[i] = list.get(i);
-            return arr;
-        } catch (IOException | InterruptedException ex) {
-            Thread.currentThread().interrupt();
-            logger.error("Error generating embedding - {}", ex.getMessage());
-            throw new RuntimeException("Failed to generate embedding", ex);
-        }
-    }
-
-    private double cosineDistance(float[] vectorA, float[] vectorB) {
-        if (vectorA == null || vectorB == null || vectorA.length != vectorB.length) {
-            throw new IllegalArgumentException("Invalid vectors");
+            embeddings = permits.ollama(() -> screeningMetrics.observe(EMBEDDING, () -> generateEmbeddings(snapshot.embedding().model(),
+                    chunk.stream().map(r -> embeddingText(r.getPayeeName(), r.getPayeeAddress(), r.getPayeeCountry())).toList())));
+        } catch (EmbeddingUnavailableException e) {
+            return permits.database(() -> screenChunkWithoutEmbeddings(chunk, snapshot, scopes, e));
         }
+        return permits.database(() -> screenChunk(chunk, embeddings, scopes, snapshot));
+    }
 
-        double dotProduct = 0.0, normA = 0.0, normB = 0.0;
+    private List<ValidatePaymentResponse> screenChunk(List<ValidatePaymentRequest> chunk, float[][] embeddings, SearchScope[] scopes,
+                                                      WatchlistSnapshot snapshot) {
+        double[] norms = new double[embeddings.length];
+        for (int i = 0; i < embeddings.length; i++) {
+            norms[i] = distanceKernel.norm(embeddings[i]);
+        }
+        List<Map<Long, Candidate>> candidates = findVectorCandidates(embeddings, norms, scopes, snapshot);
 
-        for (int i = 0; i < vectorA.length; i++) {
-            dotProduct += vectorA[i] * vectorB[i]; // → A ⋅ B
-            normA += Math.pow(vectorA[i], 2); // → ||A||²
-            normB += Math.pow(vectorB[i], 2); // → ||B||²
+        String[] accountNumbers = chunk.stream().filter(this::hasAccountNumber)
+                .map(ValidatePaymentRequest::getAccountNumber).distinct().toArray(String[]::new);
+        if (accountNumbers.length > 0) {
+            List<WatchlistMatchRow> accountRows = findAccountRows(accountNumbers, snapshot);
+            Map<Long, float[]> accountVectors = accountVectors(snapshot.embedding().slot(), accountRows.stream().map(WatchlistMatchRow::id).toList());
+            for (int i = 0; i < chunk.size(); i++) {
+                if (hasAccountNumber(chunk.get(i))) {
+                    addAccountMatches(candidates.get(i), accountRows, accountVectors, embeddings[i], norms[i], chunk.get(i).getAccountNumber(),
+                            scopes[i]);
+                }
+            }
         }
+        List<ValidatePaymentResponse> responses = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            ValidatePaymentResponse response = toResponse(chunk.get(i), candidates.get(i), snapshot, scopes[i]);
+            screeningAuditLogger.record(chunk.get(i), response);
+            responses.add(response);
+        }
+        return responses;
+    }
 
-        // Avoid division by zero if embedding is invalid, set maximum distance
-        if (normA == 0.0 || normB == 0.0) return 1.0;
+    private List<ValidatePaymentResponse> screenChunkWithoutEmbeddings(List<ValidatePaymentRequest> chunk, WatchlistSnapshot snapshot,
+                                                                       SearchScope[] scopes, EmbeddingUnavailableException cause) {
+        if (properties.getOllama().getFailurePolicy() == EmbeddingFailurePolicy.ERROR) {
+            throw cause;
+        }
+        String[] accountNumbers = chunk.stream().filter(this::hasAccountNumber)
+                .map(ValidatePaymentRequest::getAccountNumber).distinct().toArray(String[]::new);
+        List<WatchlistMatchRow> accountRows = accountNumbers.length > 0 ? findAccountRows(accountNumbers, snapshot) : List.of();
+        List<ValidatePaymentResponse> responses = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            responses.add(screenWithoutEmbedding(chunk.get(i), accountRows, snapshot, scopes[i], cause));
+        }
+        return responses;
+    }
+
+    /**
+     * Vector candidates for each embedding within its scope. The in-memory index scores the whole batch in one pass
+     * over the category partitions some scope needs, then reads the hits' rows with a single id lookup, or only their
+     * embeddings from a quantised index, whose hits are re-scored at full precision. The database path runs one
+     * pgvector query per embedding, filtered by category and country when the scope has a profile, that returns ids
+     * and distances only. No path hydrates entities; {@link #withDetails} loads the rows of the chosen matches. Stored
+     * vectors are read from the column of the snapshot's model.
+     */
+    private List<Map<Long, Candidate>> findVectorCandidates(float[][] embeddings, double[] norms, SearchScope[] scopes, WatchlistSnapshot snapshot) {
+        List<Map<Long, Candidate>> candidates = new ArrayList<>(embeddings.length);
+        EmbeddingSlot slot = snapshot.embedding().slot();
+        if (properties.getScreening().getSearchMode() == SearchMode.IN_MEMORY && watchlistVectorIndex.isReady(snapshot)) {
+            boolean quantised = watchlistVectorIndex.isQuantised(snapshot);
+            List<List<VectorMatch>> hits = screeningMetrics.observe(SCORING,
+                    () -> watchlistVectorIndex.searchBatch(snapshot, embeddings, scopes, ENTITY_SENSE_MAX_VECTOR_CANDIDATES));
+            List<Long> ids = hits.stream().flatMap(List::stream).map(VectorMatch::id).distinct().toList();
+            if (ids.isEmpty()) {
+                hits.forEach(none -> candidates.add(new LinkedHashMap<>()));
+                return candidates;
+            }
+            // Exact hits only need their category, which comes with the row shown for a match; quantised ones are re-scored
+            Map<Long, WatchlistScoringRow> vectors = quantised ? screeningMetrics.observe(WATCHLIST_FETCH, BY_ID_QUERY,
+                            () -> findScoringRows(slot, ids)).stream()
+                    .collect(Collectors.toMap(WatchlistScoringRow::id, Function.identity())) : Map.of();
+            Map<Long, WatchlistMatchRow> rows = quantised ? Map.of() : screeningMetrics.observe(WATCHLIST_FETCH, BY_ID_QUERY,
+                            () -> watchlistRepository.findMatchRows(ids)).stream()
+                    .collect(Collectors.toMap(WatchlistMatchRow::id, Function.identity()));
+            for (int i = 0; i < embeddings.length; i++) {
+                Map<Long, Candidate> perQuery = new LinkedHashMap<>();
+                for (VectorMatch hit : hits.get(i)) {
+                    WatchlistScoringRow vector = vectors.get(hit.id());
+                    WatchlistMatchRow row = rows.get(hit.id());
+                    if (vector != null) {
+                        // The snapshot kept the norm of the vector it quantised, the one re-read here
+                        double storedNorm = Double.isNaN(hit.norm()) ? rowNorm(vector.embedding()) : hit.norm();
+                        perQuery.put(hit.id(), new Candidate(hit.id(), vector.riskCategory(),
+                                cosineDistance(embeddings[i], norms[i], vector.embedding(), storedNorm)));
+                    } else if (row != null) {
+                        perQuery.put(hit.id(), new Candidate(hit.id(), row.riskCategory(), hit.distance(), false, row));
+                    }
+                }
+                candidates.add(perQuery);
+            }
+            return candidates;
+        }
+        for (int i = 0; i < embeddings.length; i++) {
+            float[] embedding = embeddings[i];
+            SearchScope scope = scopes[i];
+            List<WatchlistDistanceRow> nearest = screeningMetrics.observe(WATCHLIST_FETCH, NEAREST_QUERY,
+                    () -> findNearest(slot, new PGvector(embedding).getValue(), scope));
+            // pgvector already computed the distances
+            Map<Long, Candidate> perQuery = new LinkedHashMap<>();
+            nearest.forEach(row -> perQuery.put(row.getId(), new Candidate(row.getId(), row.getRiskCategory(), row.getDistance())));
+            candidates.add(perQuery);
+        }
+        return candidates;
+    }
+
+    private List<WatchlistDistanceRow> findNearest(EmbeddingSlot slot, String embedding, SearchScope scope) {
+        boolean secondary = slot == EmbeddingSlot.SECONDARY;
+        if (scope.profile() == null) {
+            return secondary
+                    ? watchlistRepository.findNearestSecondaryWithinDistance(embedding, ENTITY_SENSE_COSINE_DISTANCE_THRESHOLD, ENTITY_SENSE_MAX_VECTOR_CANDIDATES)
+                    : watchlistRepository.findNearestWithinDistance(embedding, ENTITY_SENSE_COSINE_DISTANCE_THRESHOLD, ENTITY_SENSE_MAX_VECTOR_CANDIDATES);
+        }
+        String[] categories = scope.categories().stream().map(RiskCategory::name).toArray(String[]::new);
+        String[] countries = scope.countries().toArray(String[]::new);
+        return secondary
+                ? watchlistRepository.findNearestSecondaryWithinDistanceScoped(embedding, scope.maxThreshold(), categories, countries,
+                        ENTITY_SENSE_MAX_VECTOR_CANDIDATES)
+                : watchlistRepository.findNearestWithinDistanceScoped(embedding, scope.maxThreshold(), categories, countries,
+                        ENTITY_SENSE_MAX_VECTOR_CANDIDATES);
+    }
+
+    private List<WatchlistScoringRow> findScoringRows(EmbeddingSlot slot, Collection<Long> ids) {
+        return slot == EmbeddingSlot.SECONDARY ? watchlistRepository.findSecondaryScoringRows(ids) : watchlistRepository.findScoringRows(ids);
+    }
+
+    /**
+     * Second screening stage over the prefilter shortlist only: one fetch of the shortlisted embeddings, then cosine
+     * distance in the JVM for the entities in scope.
+     */
+    private Map<Long, Candidate> scoreShortlist(float[] embedding, double norm, List<Long> ids, SearchScope scope, EmbeddingSlot slot) {
+        Map<Long, Candidate> candidates = new LinkedHashMap<>();
+        if (ids.isEmpty()) {
+            return candidates;
+        }
+        List<WatchlistScoringRow> rows = screeningMetrics.observe(WATCHLIST_FETCH, BY_ID_QUERY, () -> findScoringRows(slot, ids));
+        return screeningMetrics.observe(SCORING, () -> {
+            for (WatchlistScoringRow row : rows) {
+                if (row.embedding() != null && scope.includes(row.riskCategory()) && scope.includesCountry(row.country())) {
+                    double distance = cosineDistance(embedding, norm, row.embedding(), rowNorm(row.embedding()));
+                    if (distance < scope.threshold(row.riskCategory())) {
+                        candidates.put(row.id(), new Candidate(row.id(), row.riskCategory(), distance));
+                    }
+                }
+            }
+            return candidates;
+        });
+    }
+
+    /**
+     * Rows of the entities holding {@code accountNumber}. With the account index loaded, an account unknown to the
+     * watchlist costs a hash probe and no query. Otherwise {@code known_accounts_normalised} is queried with the
+     * normalised account, so both paths match the same formatting variants. Either way only ids are found first, and
+     * the rows of the holders are then read in one {@link WatchlistMatchRow} query, without embeddings.
+     */
+    private List<WatchlistMatchRow> findAccountRows(String accountNumber, WatchlistSnapshot snapshot) {
+        if (isAccountIndexActive(snapshot)) {
+            return findIndexedAccountRows(new String[]{accountNumber}, snapshot);
+        }
+        String normalised = WatchlistAccountIndex.normalise(accountNumber);
+        return normalised.isEmpty() ? List.of()
+                : loadAccountRows(screeningMetrics.observe(WATCHLIST_FETCH, ACCOUNT_QUERY, () -> watchlistRepository.findIdsByKnownAccount(normalised)));
+    }
+
+    private List<WatchlistMatchRow> findAccountRows(String[] accountNumbers, WatchlistSnapshot snapshot) {
+        if (isAccountIndexActive(snapshot)) {
+            return findIndexedAccountRows(accountNumbers, snapshot);
+        }
+        String[] normalised = WatchlistAccountIndex.normaliseAll(accountNumbers);
+        return normalised.length == 0 ? List.of()
+                : loadAccountRows(screeningMetrics.observe(WATCHLIST_FETCH, ACCOUNT_QUERY, () -> watchlistRepository.findIdsByAnyKnownAccount(normalised)));
+    }
+
+    private List<WatchlistMatchRow> findIndexedAccountRows(String[] accountNumbers, WatchlistSnapshot snapshot) {
+        return loadAccountRows(Arrays.stream(accountNumbers)
+                .flatMap(accountNumber -> watchlistAccountIndex.entityIds(snapshot, accountNumber).stream())
+                .distinct()
+                .toList());
+    }
+
+    private List<WatchlistMatchRow> loadAccountRows(List<Long> ids) {
+        return ids.isEmpty() ? List.of() : screeningMetrics.observe(WATCHLIST_FETCH, BY_ID_QUERY, () -> watchlistRepository.findMatchRows(ids));
+    }
+
+    /**
+     * Stored vectors of {@code ids} in the active column, read in one query for the account holders the vector search
+     * did not score. Rows without a vector there are absent.
+     */
+    private Map<Long, float[]> accountVectors(EmbeddingSlot slot, List<Long> ids) {
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+        Map<Long, float[]> vectors = new HashMap<>();
+        for (WatchlistScoringRow row : screeningMetrics.observe(WATCHLIST_FETCH, BY_ID_QUERY, () -> findScoringRows(slot, ids))) {
+            if (row.embedding() != null) {
+                vectors.put(row.id(), row.embedding());
+            }
+        }
+        return vectors;
+    }
+
+    private boolean isAccountIndexActive(WatchlistSnapshot snapshot) {
+        return properties.getScreening().isAccountIndex() && watchlistAccountIndex.isReady(snapshot);
+    }
+
+    private void addAccountMatches(Map<Long, Candidate> candidates, List<WatchlistMatchRow> accountRows,
+                                   float[] inputEmbedding, double inputNorm, String accountNumber, SearchScope scope, EmbeddingSlot slot) {
+        List<Long> unscored = accountRows.stream()
+                .filter(row -> !candidates.containsKey(row.id()) && scope.includes(row) && WatchlistAccountIndex.holds(row.knownAccounts(), accountNumber))
+                .map(WatchlistMatchRow::id)
+                .toList();
+        addAccountMatches(candidates, accountRows, accountVectors(slot, unscored), inputEmbedding, inputNorm, accountNumber, scope);
+    }
+
+    private void addAccountMatches(Map<Long, Candidate> candidates, List<WatchlistMatchRow> accountRows, Map<Long, float[]> accountVectors,
+                                   float[] inputEmbedding, double inputNorm, String accountNumber, SearchScope scope) {
+        for (WatchlistMatchRow row : accountRows) {
+            if (scope.includes(row) && WatchlistAccountIndex.holds(row.knownAccounts(), accountNumber)) {
+                Candidate vectorHit = candidates.get(row.id());
+                candidates.put(row.id(), Candidate.of(row,
+                        vectorHit != null ? vectorHit.distance() : accountMatchDistance(inputEmbedding, inputNorm, accountVectors.get(row.id())), true));
+            }
+        }
+    }
+
+    /**
+     * Distance reported for an account match the vector search did not find. A row saved while the active model's
+     * column was still being filled, before the re-embed job's last pass, has no vector there yet; the account
+     * match still stands, unscored.
+     */
+    private double accountMatchDistance(float[] input, double inputNorm, float[] stored) {
+        if (stored == null || stored.length != input.length) {
+            return UNSCORED_DISTANCE;
+        }
+        return cosineDistance(input, inputNorm, stored, rowNorm(stored));
+    }
+
+    /**
+     * Builds the response from the scored candidates. Account matches are always reported; of the rest, only the
+     * nearest hits under their category's threshold are kept, up to {@link #maxMatches} in total, and DTOs are only
+     * built for those.
+     */
+    private ValidatePaymentResponse toResponse(ValidatePaymentRequest request, Map<Long, Candidate> candidates, WatchlistSnapshot snapshot,
+                                               SearchScope scope) {
+        return toResponse(request, candidates, snapshot, scope, null);
+    }
+
+    /**
+     * @param snapshot   watchlist snapshot the candidates were found in; its version is recorded on the response
+     * @param degradedBy failure policy the payment was screened under when it could not be embedded, else {@code null}
+     */
+    private ValidatePaymentResponse toResponse(ValidatePaymentRequest request, Map<Long, Candidate> candidates,
+                                               WatchlistSnapshot snapshot, SearchScope scope, EmbeddingFailurePolicy degradedBy) {
+        int maxMatches = maxMatches(request);
+        int accountMatches = 0;
+        for (Candidate candidate : candidates.values()) {
+            if (candidate.matchedAccount()) accountMatches++;
+        }
+        TopKMatches nearest = new TopKMatches(Math.max(0, maxMatches - accountMatches));
+        List<Candidate> chosen = new ArrayList<>();
+        for (Candidate candidate : candidates.values()) {
+            if (candidate.matchedAccount()) {
+                chosen.add(candidate);
+            } else if (candidate.distance() < scope.threshold(candidate.riskCategory())) {
+                nearest.offer(candidate.id(), candidate.distance());
+            }
+        }
+        nearest.sort();
+        for (int rank = 0; rank < nearest.size(); rank++) {
+            chosen.add(candidates.get(nearest.id(rank)));
+        }
+        List<RiskMatchResult> matches = new ArrayList<>(chosen.size());
+        for (Candidate candidate : withDetails(chosen)) {
+            matches.add(toRiskMatchResult(candidate));
+        }
+        matches.sort(Comparator.comparingDouble(RiskMatchResult::getDistance));
+        ValidatePaymentResponse response = new ValidatePaymentResponse();
+        response.setPossibleWatchListEntityMatches(matches);
+        response.setStatus(matches.isEmpty() && degradedBy != EmbeddingFailurePolicy.FAIL_CLOSED ? PAYMENT_STATUS_ALLOW : PAYMENT_STATUS_BLOCK);
+        response.setDegraded(degradedBy != null);
+        response.setWatchlistVersion(snapshot.version());
+        response.setProfile(scope.profile());
+        screeningMetrics.recordDecision(response);
+        return response;
+    }
+
+    /**
+     * {@code chosen} with every candidate's displayed columns, loading those not loaded yet in one query. A candidate
+     * whose row has been deleted since it was scored is dropped.
+     */
+    private List<Candidate> withDetails(List<Candidate> chosen) {
+        List<Long> missing = chosen.stream().filter(candidate -> candidate.details() == null).map(Candidate::id).toList();
+        if (missing.isEmpty()) {
+            return chosen;
+        }
+        Map<Long, WatchlistMatchRow> rows = screeningMetrics.observe(WATCHLIST_FETCH, MATCH_QUERY, () -> watchlistRepository.findMatchRows(missing))
+                .stream()
+                .collect(Collectors.toMap(WatchlistMatchRow::id, Function.identity()));
+        List<Candidate> loaded = new ArrayList<>(chosen.size());
+        for (Candidate candidate : chosen) {
+            WatchlistMatchRow row = candidate.details() != null ? candidate.details() : rows.get(candidate.id());
+            if (row != null) {
+                loaded.add(candidate.withDetails(row));
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * {@code entity-sense.screening.max-matches}, lowered by the request's own {@code maxMatches} when it sets one.
+     */
+    private int maxMatches(ValidatePaymentRequest request) {
+        int configured = properties.getScreening().getMaxMatches();
+        return request.getMaxMatches() == null ? configured : Math.min(configured, request.getMaxMatches());
+    }
+
+    private boolean hasAccountNumber(ValidatePaymentRequest request) {
+        return request.getAccountNumber() != null && !request.getAccountNumber().isBlank();
+    }
+
+    private RiskMatchResult toRiskMatchResult(Candidate candidate) {
+        WatchlistMatchRow row = candidate.details();
+        RiskMatchResult result = new RiskMatchResult();
+        result.setId(row.id());
+        result.setName(row.name());
+        result.setRiskCategory(row.riskCategory());
+        result.setDistance(candidate.distance());
+        result.setMatchedAccount(candidate.matchedAccount());
+        result.setAddress(row.address());
+        result.setCountry(row.country());
+        result.setKnownAccounts(row.knownAccounts());
+        return result;
+    }
+
+    private static String embeddingText(String name, String address, String country) {
+        return EmbeddingCache.normalise(String.join(" ‖ ", name, address != null ? address : "", country != null ? country : ""));
+    }
+
+    private float[] generateEmbedding(String model, String name, String address, String country) {
+        String text = embeddingText(name, address, country);
+        float[] cached = embeddingCache.get(model, text);
+        if (cached != null) {
+            return cached;
+        }
+        logger.debug("Generating embedding for text: {}", text);
+        float[] embedding = embeddingClient.embed(model, text);
+        if (embedding != null) {
+            embeddingCache.put(model, text, embedding);
+        }
+        return embedding;
+    }
+
+    /**
+     * Non-blocking variant of {@link #generateEmbedding}: no thread waits on Ollama. Completes with {@code null} when
+     * Ollama returns no embedding.
+     */
+    public CompletableFuture<float[]> generateEmbeddingAsync(String model, String name, String address, String country) {
+        return screeningMetrics.observeAsync(EMBEDDING, () -> requestEmbeddingAsync(model, name, address, country));
+    }
+
+    private CompletableFuture<float[]> requestEmbeddingAsync(String model, String name, String address, String country) {
+        String text = embeddingText(name, address, country);
+        float[] cached = embeddingCache.get(model, text);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        return embeddingClient.embedAsync(model, text).thenApply(embedding -> {
+            if (embedding != null) {
+                embeddingCache.put(model, text, embedding);
+            }
+            return embedding;
+        });
+    }
+
+    /**
+     * Embeddings for watchlist rows being bulk loaded, in request order and from a single {@code /api/embed} call. The
+     * embedding cache is bypassed: it is sized for recurring payees, and a list load would only evict them.
+     */
+    public float[][] generateEntityEmbeddings(String model, List<WatchListEntityRequest> requests) {
+        return embeddingClient.embedBatch(model, requests.stream()
+                .map(r -> embeddingText(r.getName(), r.getAddress(), r.getCountry()))
+                .toList()).toArray(new float[0][]);
+    }
+
+    /**
+     * {@link #generateEntityEmbeddings} for rows already in the watchlist, for re-embedding them with another model.
+     */
+    public float[][] generateRowEmbeddings(String model, List<WatchlistMatchRow> rows) {
+        return embeddingClient.embedBatch(model, rows.stream()
+                .map(r -> embeddingText(r.name(), r.address(), r.country()))
+                .toList()).toArray(new float[0][]);
+    }
+
+    /**
+     * Embeddings for already-normalised texts, served from the cache where possible. All misses go to Ollama in a
+     * single {@code /api/embed} call, with duplicate texts requested once.
+     */
+    private float[][] generateEmbeddings(String model, List<String> texts) {
+        float[][] embeddings = new float[texts.size()][];
+        Map<String, List<Integer>> misses = new LinkedHashMap<>();
+        for (int i = 0; i < texts.size(); i++) {
+            embeddings[i] = embeddingCache.get(model, texts.get(i));
+            if (embeddings[i] == null) {
+                misses.computeIfAbsent(texts.get(i), text -> new ArrayList<>()).add(i);
+            }
+        }
+        if (misses.isEmpty()) {
+            return embeddings;
+        }
+        List<String> inputs = new ArrayList<>(misses.keySet());
+        List<float[]> fetched = embeddingClient.embedBatch(model, inputs);
+        for (int j = 0; j < inputs.size(); j++) {
+            embeddingCache.put(model, inputs.get(j), fetched.get(j));
+            for (int i : misses.get(inputs.get(j))) {
+                embeddings[i] = fetched.get(j);
+            }
+        }
+        logger.debug("Generated {} embeddings in one batch ({} served from cache)", inputs.size(), texts.size() - misses.values().stream().mapToInt(List::size).sum());
+        return embeddings;
+    }
+
+    /**
+     * Cosine distance (1 - cosine similarity) with both norms supplied: the query's is computed once per request, the
+     * stored vector's comes from the snapshot or, for a row read from the database, from {@link #rowNorm}.
+     */
+    private double cosineDistance(float[] input, double inputNorm, float[] stored, double storedNorm) {
+        if (stored == null || stored.length != input.length) {
+            throw new IllegalArgumentException("Invalid vectors");
+        }
+        return distanceKernel.cosineDistance(input, inputNorm, stored, storedNorm);
+    }
 
-        // EntitySense uses cosine Distance (1 - cosine similarity)
-        // Formula: 1 - (A⋅B)/(||A|| × ||B||)
-        return 1 - (dotProduct / (Math.sqrt(normA) * Math.sqrt(normB)));
+    /**
+     * Norm of a vector read from the database. Rows carry none, and the paths scoring them (shortlist, account matches,
+     * hits the index could not supply a norm for) touch a handful of rows each, so it is computed deliberately here,
+     * one pass per row, rather than stored in another column.
+     */
+    private double rowNorm(float[] stored) {
+        return distanceKernel.norm(stored);
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,194 @@
+package com.hbs.entitysense.service;
+
+import com.hbs.entitysense.config.EntitySenseProperties;
+import com.hbs.entitysense.dto.ValidatePaymentRequest;
+import com.hbs.entitysense.dto.ValidatePaymentResponse;
+import com.hbs.entitysense.dto.WatchListEntityRequest;
+import com.hbs.entitysense.embedding.EmbeddingUnavailableException;
+import com.hbs.entitysense.embedding.EmbeddingVersion;
+import com.hbs.entitysense.index.WatchlistSnapshot;
+import com.hbs.entitysense.metrics.ScreeningMetrics;
+import com.hbs.entitysense.model.ExecutionMode;
+import io.micrometer.observation.Observation;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static com.hbs.entitysense.constants.EntitySenseConstant.PAYMENT_STATUS_INVALID;
+
+/**
+ * Non-blocking front of {@link EntitySenseService} for the WebFlux controller. Embeddings are fetched with
+ * {@code HttpClient.sendAsync} through the {@code EmbeddingClient}, so no thread waits on Ollama; JPA reads, writes and scoring run on the bounded
+ * {@code blockingScheduler} instead of Netty's event loop.
+ *
+ * <p>At most {@code entity-sense.reactive.max-in-flight-embeddings} Ollama calls are outstanding at once. Beyond that
+ * requests are rejected with a {@link RejectedExecutionException} rather than queued, so overload shows up as 503s
+ * instead of growing latency.
+ *
+ * <p>With {@code execution-mode: virtual-threads}, single payments and entity creations instead run start to finish
+ * on a virtual thread, blocking on Ollama and JDBC like the plain service does, with {@link BlockingPermits} bounding
+ * connections and Ollama calls. Bursts then wait on those permits rather than being rejected at
+ * {@code max-in-flight-embeddings}.
+ */
+@Service
+public class ReactiveEntitySenseService {
+
+    private final EntitySenseService entitySenseService;
+    private final EntitySenseProperties properties;
+    private final Scheduler blockingScheduler;
+    private final BlockingPermits blockingPermits;
+    private final ScreeningMetrics screeningMetrics;
+    private final Validator validator;
+    private final Semaphore embeddingPermits;
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveEntitySenseService.class);
+
+    public ReactiveEntitySenseService(EntitySenseService entitySenseService, EntitySenseProperties properties,
+                                      @Qualifier("blockingScheduler") Scheduler blockingScheduler, BlockingPermits blockingPermits,
+                                      ScreeningMetrics screeningMetrics, Validator validator) {
+        this.entitySenseService = entitySenseService;
+        this.properties = properties;
+        this.blockingScheduler = blockingScheduler;
+        this.blockingPermits = blockingPermits;
+        this.screeningMetrics = screeningMetrics;
+        this.validator = validator;
+        this.embeddingPermits = new Semaphore(properties.getReactive().getMaxInFlightEmbeddings());
+    }
+
+    public Mono<Void> createWatchListEntity(WatchListEntityRequest request) {
+        if (isVirtualThreads()) {
+            return Mono.<Void>fromRunnable(() -> entitySenseService.createWatchListEntity(request, blockingPermits))
+                    .subscribeOn(blockingScheduler);
+        }
+        return Mono.defer(() -> {
+            // Stored in the column of the model it was embedded with, even if another model becomes active meanwhile
+            EmbeddingVersion version = entitySenseService.activeEmbedding();
+            return embedding(() -> entitySenseService.generateEmbeddingAsync(version.model(), request.getName(), request.getAddress(),
+                            request.getCountry()), "Failed to generate embedding for entity: " + request.getName())
+                    .publishOn(blockingScheduler)
+                    .doOnNext(embedding -> entitySenseService.saveWatchListEntity(request, version, embedding))
+                    .then();
+        });
+    }
+
+    public Mono<ValidatePaymentResponse> validatePayment(ValidatePaymentRequest request) {
+        if (isVirtualThreads()) {
+            return Mono.fromCallable(() -> entitySenseService.validatePayment(request, blockingPermits))
+                    .subscribeOn(blockingScheduler);
+        }
+        // Off the event loop: a verdict cache hit is audited, and the audit appender blocks rather than drop a record
+        return Mono.defer(() -> {
+            // Rejects an unknown profile before any embedding is requested
+            entitySenseService.scope(request);
+            Observation observation = screeningMetrics.start(ScreeningMetrics.SCREENING);
+            WatchlistSnapshot snapshot = entitySenseService.currentSnapshot();
+            ValidatePaymentResponse cached = entitySenseService.cachedVerdict(request, snapshot);
+            if (cached != null) {
+                observation.stop();
+                return Mono.just(cached);
+            }
+            Mono<Optional<Shortlist>> shortlist = entitySenseService.isPrefilterActive(snapshot)
+                    ? Mono.fromCallable(() -> Optional.ofNullable(entitySenseService.shortlist(request, snapshot))).subscribeOn(blockingScheduler)
+                    : Mono.just(Optional.empty());
+            return shortlist
+                    .flatMap(candidates -> candidates.filter(Shortlist::isEmpty).isPresent()
+                            ? Mono.fromCallable(() -> entitySenseService.allowWithoutEmbedding(request, snapshot))
+                            : screen(request, candidates.orElse(null), snapshot))
+                    .doOnError(observation::error)
+                    .doFinally(signal -> observation.stop());
+        }).subscribeOn(blockingScheduler);
+    }
+
+    private Mono<ValidatePaymentResponse> screen(ValidatePaymentRequest request, Shortlist shortlist, WatchlistSnapshot snapshot) {
+        return embedding(() -> entitySenseService.generateEmbeddingAsync(snapshot.embedding().model(), request.getPayeeName(),
+                        request.getPayeeAddress(), request.getPayeeCountry()), "Failed to generate embedding for payee: " + request.getPayeeName())
+                .publishOn(blockingScheduler)
+                .map(embedding -> entitySenseService.screenPayment(request, embedding, shortlist, snapshot))
+                .onErrorResume(EmbeddingUnavailableException.class, e -> Mono.fromCallable(
+                        () -> entitySenseService.screenWithoutEmbedding(request, shortlist, snapshot, e)).subscribeOn(blockingScheduler));
+    }
+
+    public Mono<List<ValidatePaymentResponse>> validatePayments(List<ValidatePaymentRequest> requests) {
+        BlockingPermits permits = isVirtualThreads() ? blockingPermits : BlockingPermits.UNLIMITED;
+        return Mono.fromCallable(() -> entitySenseService.validatePayments(requests, permits))
+                .subscribeOn(blockingScheduler);
+    }
+
+    /**
+     * Screens an NDJSON stream chunk by chunk. Upstream is only requested while fewer than
+     * {@code stream-concurrency} chunks are being screened, and results are emitted in request order. A request failing
+     * validation does not end the stream; it is answered in place with status {@code INVALID} and the reason.
+     */
+    public Flux<ValidatePaymentResponse> validatePaymentsStream(Flux<ValidatePaymentRequest> requests) {
+        EntitySenseProperties.Reactive reactive = properties.getReactive();
+        return requests.buffer(properties.getBatch().getChunkSize())
+                .flatMapSequential(this::validateChunk, reactive.getStreamConcurrency(), 1)
+                .flatMapIterable(Function.identity());
+    }
+
+    private Mono<List<ValidatePaymentResponse>> validateChunk(List<ValidatePaymentRequest> chunk) {
+        ValidatePaymentResponse[] responses = new ValidatePaymentResponse[chunk.size()];
+        List<ValidatePaymentRequest> valid = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            Set<ConstraintViolation<ValidatePaymentRequest>> violations = validator.validate(chunk.get(i));
+            if (violations.isEmpty()) {
+                valid.add(chunk.get(i));
+            } else {
+                responses[i] = invalid(violations);
+            }
+        }
+        if (valid.isEmpty()) {
+            return Mono.just(Arrays.asList(responses));
+        }
+        return validatePayments(valid).map(screened -> {
+            Iterator<ValidatePaymentResponse> next = screened.iterator();
+            for (int i = 0; i < responses.length; i++) {
+                if (responses[i] == null) responses[i] = next.next();
+            }
+            return Arrays.asList(responses);
+        });
+    }
+
+    private static ValidatePaymentResponse invalid(Set<ConstraintViolation<ValidatePaymentRequest>> violations) {
+        ValidatePaymentResponse response = new ValidatePaymentResponse();
+        response.setStatus(PAYMENT_STATUS_INVALID);
+        response.setPossibleWatchListEntityMatches(List.of());
+        response.setError(String.join("; ", violations.stream()
+                .map(violation -> violation.getPropertyPath() + " " + violation.getMessage()).sorted().toList()));
+        return response;
+    }
+
+    private boolean isVirtualThreads() {
+        return properties.getReactive().getExecutionMode() == ExecutionMode.VIRTUAL_THREADS;
+    }
+
+    private Mono<float[]> embedding(Supplier<CompletableFuture<float[]>> call, String failureMessage) {
+        return Mono.defer(() -> {
+            if (!embeddingPermits.tryAcquire()) {
+                logger.warn("Rejecting request, {} embeddings already in flight", properties.getReactive().getMaxInFlightEmbeddings());
+                return Mono.error(new RejectedExecutionException("Too many embedding requests in flight"));
+            }
+            return Mono.fromFuture(call)
+                    .switchIfEmpty(Mono.error(new RuntimeException(failureMessage)))
+                    .doFinally(signal -> embeddingPermits.release());
+        });
+    }
+}
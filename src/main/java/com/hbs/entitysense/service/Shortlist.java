@@ -0,0 +1,16 @@
+package com.hbs.entitysense.service;
+
+import com.hbs.entitysense.dto.WatchlistMatchRow;
+
+import java.util.List;
+
+/**
+ * Output of the name prefilter for one payee: ids of entities with a similar name, best first, and the rows of
+ * the entities already known to hold the payee's account. Account holders are scored whatever their name.
+ */
+record Shortlist(List<Long> ids, List<WatchlistMatchRow> accountRows) {
+
+    boolean isEmpty() {
+        return ids.isEmpty() && accountRows.isEmpty();
+    }
+}
@@ -0,0 +1,82 @@
+package com.hbs.entitysense.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.hbs.entitysense.config.EntitySenseProperties;
+import com.hbs.entitysense.dto.ValidatePaymentRequest;
+import com.hbs.entitysense.dto.ValidatePaymentResponse;
+import com.hbs.entitysense.index.WatchlistAccountIndex;
+import com.hbs.entitysense.index.WatchlistSnapshot;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bounded cache of screening decisions keyed by the normalised payee (name, address, country, account), the
+ * request's {@code maxMatches} and {@code profile}, and the version of the {@link WatchlistSnapshot} the decision was
+ * made against. Every saved entity publishes a new version, so a decision is never served once the watchlist has
+ * changed; entries of older versions simply stop being hit and age out. Size and TTL come from
+ * {@code entity-sense.verdict-cache}; hit, miss and eviction counts are published as {@code cache.*} meters tagged
+ * {@code cache=verdicts}.
+ *
+ * <p>Degraded decisions are never cached. Cached responses are shared between callers and must not be modified.
+ */
+@Component
+public class VerdictCache {
+
+    private static final char KEY_SEPARATOR = '\u0000';
+
+    private final EntitySenseProperties.VerdictCacheProperties config;
+    private final Cache<String, ValidatePaymentResponse> cache;
+
+    @Autowired
+    public VerdictCache(EntitySenseProperties properties, MeterRegistry meterRegistry) {
+        this(properties, meterRegistry, Ticker.systemTicker());
+    }
+
+    VerdictCache(EntitySenseProperties properties, MeterRegistry meterRegistry, Ticker ticker) {
+        this.config = properties.getVerdictCache();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(config.getMaximumSize())
+                .expireAfterWrite(config.getTtl())
+                .ticker(ticker)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "verdicts");
+    }
+
+    /** The decision cached for {@code request} against {@code snapshot}, or {@code null}. */
+    public ValidatePaymentResponse get(ValidatePaymentRequest request, WatchlistSnapshot snapshot) {
+        return config.isEnabled() ? cache.getIfPresent(key(request, snapshot.version())) : null;
+    }
+
+    public void put(ValidatePaymentRequest request, WatchlistSnapshot snapshot, ValidatePaymentResponse response) {
+        if (config.isEnabled() && !response.isDegraded()) {
+            cache.put(key(request, snapshot.version()), response);
+        }
+    }
+
+    public long size() {
+        cache.cleanUp();
+        return cache.estimatedSize();
+    }
+
+    // Text fields keep their case, like the embedding prompt they feed
+    private static String key(ValidatePaymentRequest request, long version) {
+        StringBuilder key = new StringBuilder(128).append(version);
+        append(key, request.getPayeeName() == null ? null : EmbeddingCache.normalise(request.getPayeeName()));
+        append(key, request.getPayeeAddress() == null ? null : EmbeddingCache.normalise(request.getPayeeAddress()));
+        append(key, request.getPayeeCountry() == null ? null : EmbeddingCache.normalise(request.getPayeeCountry()));
+        append(key, request.getAccountNumber() == null ? null : WatchlistAccountIndex.normalise(request.getAccountNumber()));
+        append(key, request.getMaxMatches() == null ? null : request.getMaxMatches().toString());
+        append(key, request.getProfile());
+        return key.toString();
+    }
+
+    private static void append(StringBuilder key, String part) {
+        key.append(KEY_SEPARATOR);
+        if (part != null) key.append(part);
+    }
+}
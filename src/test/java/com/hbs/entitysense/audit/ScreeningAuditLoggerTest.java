@@ -0,0 +1,69 @@
+package com.hbs.entitysense.audit;
+
+import com.hbs.entitysense.config.EntitySenseProperties;
+import com.hbs.entitysense.dto.RiskMatchResult;
+import com.hbs.entitysense.dto.ValidatePaymentRequest;
+import com.hbs.entitysense.dto.ValidatePaymentResponse;
+import com.hbs.entitysense.model.RiskCategory;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ScreeningAuditLoggerTest {
+
+    private static ScreeningAuditLogger auditLogger(String payeeDigestKey) {
+        EntitySenseProperties properties = new EntitySenseProperties();
+        properties.getAudit().setPayeeDigestKey(payeeDigestKey);
+        return new ScreeningAuditLogger(properties);
+    }
+
+    private static ValidatePaymentResponse block(double distance) {
+        RiskMatchResult match = new RiskMatchResult();
+        match.setId(7L);
+        match.setRiskCategory(RiskCategory.SANCTION);
+        match.setDistance(distance);
+        ValidatePaymentResponse response = new ValidatePaymentResponse();
+        response.setStatus("BLOCK");
+        response.setPossibleWatchListEntityMatches(List.of(match));
+        return response;
+    }
+
+    @Test
+    public void testDecisionDigestIsStableAndSensitiveToMatches() {
+        assertEquals(ScreeningAuditLogger.decisionDigest(block(0.12)), ScreeningAuditLogger.decisionDigest(block(0.12)));
+        assertNotEquals(ScreeningAuditLogger.decisionDigest(block(0.12)), ScreeningAuditLogger.decisionDigest(block(0.13)));
+        assertEquals(32, ScreeningAuditLogger.decisionDigest(block(0.12)).length());
+    }
+
+    @Test
+    public void testPayeeDigestDoesNotExposePayeeDetails() {
+        ScreeningAuditLogger auditLogger = auditLogger("audit-key");
+        ValidatePaymentRequest request = new ValidatePaymentRequest("John Doe", "1 Main St", "SG", "ACC-1");
+        String digest = auditLogger.payeeDigest(request);
+
+        assertFalse(digest.contains("John"));
+        assertEquals(digest, auditLogger.payeeDigest(new ValidatePaymentRequest("John Doe", "1 Main St", "SG", "ACC-1")));
+        assertNotEquals(digest, auditLogger.payeeDigest(new ValidatePaymentRequest("John Doe", "1 Main St", "SG", "ACC-2")));
+    }
+
+    @Test
+    public void testPayeeDigestDependsOnTheKey() {
+        ValidatePaymentRequest request = new ValidatePaymentRequest("John Doe", "1 Main St", "SG", "ACC-1");
+
+        // Nodes sharing a key agree; without it a dictionary of payees cannot reproduce the digest
+        assertEquals(auditLogger("audit-key").payeeDigest(request), auditLogger("audit-key").payeeDigest(request));
+        assertNotEquals(auditLogger("audit-key").payeeDigest(request), auditLogger("other-key").payeeDigest(request));
+        assertNotEquals(auditLogger(null).payeeDigest(request), auditLogger(null).payeeDigest(request));
+    }
+
+    @Test
+    public void testRecordAcceptsAllowWithoutMatches() {
+        ValidatePaymentResponse allow = new ValidatePaymentResponse();
+        allow.setStatus("ALLOW");
+        allow.setPossibleWatchListEntityMatches(List.of());
+
+        assertDoesNotThrow(() -> auditLogger("audit-key").record(new ValidatePaymentRequest("A", null, null, null), allow));
+    }
+}
@@ -1,20 +1,29 @@
 package com.hbs.entitysense.controller;
 
 import com.hbs.entitysense.dto.*;
-import com.hbs.entitysense.service.EntitySenseService;
+import com.hbs.entitysense.service.ReactiveEntitySenseService;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.http.ResponseEntity;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
 import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
 public class EntitySenseControllerTest {
 
     @Mock
-    private EntitySenseService entitySenseService;
+    private ReactiveEntitySenseService reactiveEntitySenseService;
 
     @InjectMocks
     private EntitySenseController controller;
@@ -33,9 +42,9 @@ public class EntitySenseControllerTest {
         mockResponse.setStatus("ALLOW");
         mockResponse.setPossibleWatchListEntityMatches(Collections.emptyList());
 
-        when(entitySenseService.validatePayment(any())).thenReturn(mockResponse);
+        when(reactiveEntitySenseService.validatePayment(any())).thenReturn(Mono.just(mockResponse));
 
-        ResponseEntity<ValidatePaymentResponse> response = controller.validatePayment(request);
+        ResponseEntity<ValidatePaymentResponse> response = controller.validatePayment(request).block();
         assertEquals("ALLOW", response.getBody().getStatus());
     }
 
@@ -45,9 +54,37 @@ public class EntitySenseControllerTest {
         request.setName("WatchCorp");
         request.setCountry("SG");
 
-        doNothing().when(entitySenseService).createWatchListEntity(any());
+        when(reactiveEntitySenseService.createWatchListEntity(any())).thenReturn(Mono.empty());
 
-        ResponseEntity<String> response = controller.createWatchListEntity(request);
+        ResponseEntity<String> response = controller.createWatchListEntity(request).block();
         assertEquals("Entity created successfully", response.getBody());
     }
+
+    @Test
+    public void testValidatePaymentsEndpoint() {
+        ValidatePaymentResponse allow = new ValidatePaymentResponse();
+        allow.setStatus("ALLOW");
+        ValidatePaymentResponse block = new ValidatePaymentResponse();
+        block.setStatus("BLOCK");
+        List<ValidatePaymentRequest> requests = List.of(new ValidatePaymentRequest("A", null, null, null),
+                new ValidatePaymentRequest("B", null, null, null));
+
+        when(reactiveEntitySenseService.validatePayments(requests)).thenReturn(Mono.just(List.of(allow, block)));
+
+        ResponseEntity<List<ValidatePaymentResponse>> response = controller.validatePayments(requests).block();
+        assertEquals(List.of("ALLOW", "BLOCK"), response.getBody().stream().map(ValidatePaymentResponse::getStatus).toList());
+    }
+
+    @Test
+    public void testValidatePaymentsValidatesEveryItem() throws Exception {
+        Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+        List<ValidatePaymentRequest> requests = List.of(new ValidatePaymentRequest("A", null, null, null),
+                new ValidatePaymentRequest("", null, null, null));
+
+        Set<ConstraintViolation<EntitySenseController>> violations = validator.forExecutables().validateParameters(controller,
+                EntitySenseController.class.getMethod("validatePayments", List.class), new Object[]{requests});
+
+        assertEquals(1, violations.size());
+        assertEquals("validatePayments.requests[1].payeeName", violations.iterator().next().getPropertyPath().toString());
+    }
 }
@@ -0,0 +1,50 @@
+package com.hbs.entitysense.embedding;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CircuitBreakerTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private final CircuitBreaker breaker = new CircuitBreaker(2, Duration.ofSeconds(30), clock::get);
+
+    @Test
+    public void testOpensAfterConsecutiveFailures() {
+        assertTrue(breaker.tryAcquire());
+        breaker.onFailure();
+        assertTrue(breaker.tryAcquire());
+        breaker.onSuccess();
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        assertFalse(breaker.tryAcquire());
+    }
+
+    @Test
+    public void testHalfOpenLetsOneTrialThrough() {
+        breaker.onFailure();
+        breaker.onFailure();
+        clock.addAndGet(Duration.ofSeconds(30).toNanos());
+
+        assertTrue(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire());
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        assertFalse(breaker.tryAcquire());
+
+        clock.addAndGet(Duration.ofSeconds(30).toNanos());
+        assertTrue(breaker.tryAcquire());
+        breaker.release();
+        assertTrue(breaker.tryAcquire());
+        breaker.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+        assertTrue(breaker.tryAcquire());
+    }
+}
@@ -0,0 +1,141 @@
+package com.hbs.entitysense.embedding;
+
+import com.hbs.entitysense.config.EntitySenseProperties;
+import com.hbs.entitysense.metrics.ScreeningMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import static com.hbs.entitysense.metrics.ScreeningMetrics.OLLAMA_COALESCED;
+import static com.hbs.entitysense.metrics.ScreeningMetrics.OLLAMA_MICRO_BATCH_SIZE;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class CoalescingEmbeddingClientTest {
+
+    @Mock
+    private OllamaEmbeddingClient delegate;
+
+    private static final String MODEL = "nomic-embed-text";
+
+    private final EntitySenseProperties properties = new EntitySenseProperties();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private CoalescingEmbeddingClient client;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        client = new CoalescingEmbeddingClient(delegate, properties, new ScreeningMetrics(meterRegistry, ObservationRegistry.NOOP));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        client.shutdown();
+    }
+
+    @Test
+    public void testIdenticalTextsInFlightShareOneCall() {
+        CompletableFuture<float[]> call = new CompletableFuture<>();
+        when(delegate.embedAsync(MODEL, "Acme")).thenReturn(call, CompletableFuture.completedFuture(new float[]{0f, 1f}));
+
+        CompletableFuture<float[]> first = client.embedAsync(MODEL, "Acme");
+        CompletableFuture<float[]> second = client.embedAsync(MODEL, "Acme");
+        second.cancel(true);
+        call.complete(new float[]{1f, 0f});
+
+        assertArrayEquals(new float[]{1f, 0f}, first.join());
+        assertEquals(1.0, meterRegistry.get(OLLAMA_COALESCED).counter().count());
+        // Once answered, the text is fetched afresh
+        assertArrayEquals(new float[]{0f, 1f}, client.embedAsync(MODEL, "Acme").join());
+        verify(delegate, times(2)).embedAsync(MODEL, "Acme");
+    }
+
+    @Test
+    public void testDistinctTextsAreSentAsOneBatchOnceTheBatchIsFull() {
+        properties.getOllama().setMicroBatchWindow(Duration.ofMinutes(1));
+        properties.getOllama().setMicroBatchSize(3);
+        when(delegate.embedBatchAsync(eq(MODEL), eq(List.of("A", "B", "C")), any())).thenReturn(
+                CompletableFuture.completedFuture(List.of(new float[]{1f}, new float[]{2f}, new float[]{3f})));
+
+        CompletableFuture<float[]> a = client.embedAsync(MODEL, "A");
+        CompletableFuture<float[]> b = client.embedAsync(MODEL, "B");
+        CompletableFuture<float[]> aAgain = client.embedAsync(MODEL, "A");
+        assertFalse(a.isDone());
+        CompletableFuture<float[]> c = client.embedAsync(MODEL, "C");
+
+        assertArrayEquals(new float[]{1f}, a.join());
+        assertArrayEquals(new float[]{1f}, aAgain.join());
+        assertArrayEquals(new float[]{2f}, b.join());
+        assertArrayEquals(new float[]{3f}, c.join());
+        verify(delegate).embedBatchAsync(MODEL, List.of("A", "B", "C"), properties.getOllama().getRequestTimeout());
+        verify(delegate, never()).embedAsync(anyString(), anyString());
+        assertEquals(3.0, meterRegistry.get(OLLAMA_MICRO_BATCH_SIZE).summary().mean());
+    }
+
+    @Test
+    public void testWindowEndSendsWhatArrived() throws Exception {
+        properties.getOllama().setMicroBatchWindow(Duration.ofMillis(20));
+        when(delegate.embedBatchAsync(eq(MODEL), eq(List.of("A", "B")), any())).thenReturn(
+                CompletableFuture.completedFuture(List.of(new float[]{1f}, new float[]{2f})));
+        when(delegate.embedAsync(MODEL, "C")).thenReturn(CompletableFuture.completedFuture(new float[]{3f}));
+
+        CompletableFuture<float[]> a = client.embedAsync(MODEL, "A");
+        CompletableFuture<float[]> b = client.embedAsync(MODEL, "B");
+        assertArrayEquals(new float[]{1f}, a.get(5, TimeUnit.SECONDS));
+        assertArrayEquals(new float[]{2f}, b.get(5, TimeUnit.SECONDS));
+
+        // A lone text goes out as a normal single-text call
+        assertArrayEquals(new float[]{3f}, client.embedAsync(MODEL, "C").get(5, TimeUnit.SECONDS));
+        verify(delegate, never()).embedBatchAsync(eq(MODEL), eq(List.of("C")), any());
+    }
+
+    @Test
+    public void testFailedBatchFailsEveryText() {
+        properties.getOllama().setMicroBatchWindow(Duration.ofMinutes(1));
+        properties.getOllama().setMicroBatchSize(2);
+        EmbeddingUnavailableException unavailable = new EmbeddingUnavailableException("down");
+        when(delegate.embedBatchAsync(anyString(), anyList(), any())).thenReturn(CompletableFuture.failedFuture(unavailable));
+
+        CompletableFuture<float[]> a = client.embedAsync(MODEL, "A");
+        CompletableFuture<float[]> b = client.embedAsync(MODEL, "B");
+
+        assertSame(unavailable, assertThrows(CompletionException.class, a::join).getCause());
+        assertSame(unavailable, assertThrows(CompletionException.class, b::join).getCause());
+    }
+
+    @Test
+    public void testMalformedBatchFailsEveryTextAsUnavailable() {
+        properties.getOllama().setMicroBatchWindow(Duration.ofMinutes(1));
+        properties.getOllama().setMicroBatchSize(2);
+        IllegalStateException broken = new IllegalStateException("Unexpected token");
+        when(delegate.embedBatchAsync(eq(MODEL), eq(List.of("A", "B")), any())).thenReturn(
+                CompletableFuture.completedFuture(List.of(new float[]{1f})));
+        when(delegate.embedBatchAsync(eq(MODEL), eq(List.of("C", "D")), any())).thenReturn(CompletableFuture.failedFuture(broken));
+
+        CompletableFuture<float[]> a = client.embedAsync(MODEL, "A");
+        CompletableFuture<float[]> b = client.embedAsync(MODEL, "B");
+        CompletableFuture<float[]> c = client.embedAsync(MODEL, "C");
+        CompletableFuture<float[]> d = client.embedAsync(MODEL, "D");
+
+        // One embedding for two texts
+        assertInstanceOf(EmbeddingUnavailableException.class, assertThrows(CompletionException.class, a::join).getCause());
+        assertInstanceOf(EmbeddingUnavailableException.class, assertThrows(CompletionException.class, b::join).getCause());
+        Throwable failure = assertThrows(CompletionException.class, c::join).getCause();
+        assertInstanceOf(EmbeddingUnavailableException.class, failure);
+        assertSame(broken, failure.getCause());
+        assertInstanceOf(EmbeddingUnavailableException.class, assertThrows(CompletionException.class, d::join).getCause());
+    }
+}
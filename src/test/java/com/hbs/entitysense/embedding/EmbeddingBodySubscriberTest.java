@@ -0,0 +1,90 @@
+package com.hbs.entitysense.embedding;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import org.junit.jupiter.api.Test;
+
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Flow;
+
+import static com.hbs.entitysense.constants.EntitySenseConstant.EMBEDDING_DIMENSION;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EmbeddingBodySubscriberTest {
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    /** Feeds {@code json} in buffers of {@code chunkSize} bytes, as the HTTP client would deliver it. */
+    private static <T> T feed(HttpResponse.BodySubscriber<T> subscriber, String json, int chunkSize) {
+        subscriber.onSubscribe(new Flow.Subscription() {
+            @Override public void request(long n) { }
+            @Override public void cancel() { }
+        });
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        for (int from = 0; from < bytes.length; from += chunkSize) {
+            subscriber.onNext(List.of(ByteBuffer.wrap(bytes, from, Math.min(chunkSize, bytes.length - from)).slice()));
+        }
+        subscriber.onComplete();
+        return subscriber.getBody().toCompletableFuture().join();
+    }
+
+    @Test
+    public void testReadsEmbeddingAcrossBufferBoundaries() {
+        float[] expected = new float[EMBEDDING_DIMENSION];
+        for (int i = 0; i < expected.length; i++) expected[i] = (i - 384) / 1000.0f;
+        StringBuilder json = new StringBuilder("{\"embedding\":[");
+        for (int i = 0; i < expected.length; i++) json.append(i == 0 ? "" : ",").append(expected[i]);
+        json.append("]}");
+
+        float[] embedding = feed(EmbeddingBodySubscriber.single(jsonFactory), json.toString(), 7);
+
+        assertArrayEquals(expected, embedding);
+    }
+
+    @Test
+    public void testSkipsOtherFieldsAndNestedEmbeddingKeys() {
+        String json = "{\"meta\":{\"embedding\":[9,9]},\"other\":[[1],{\"a\":null}],\"embedding\":[1,-2.5e-1,3]}";
+
+        assertArrayEquals(new float[]{1.0f, -0.25f, 3.0f}, feed(EmbeddingBodySubscriber.single(jsonFactory), json, 5));
+    }
+
+    @Test
+    public void testMissingOrNullEmbeddingIsNull() {
+        assertNull(feed(EmbeddingBodySubscriber.single(jsonFactory), "{\"error\":\"model not found\"}", 64));
+        assertNull(feed(EmbeddingBodySubscriber.single(jsonFactory), "{\"embedding\":null}", 64));
+    }
+
+    @Test
+    public void testReadsBatchEmbeddings() {
+        String json = "{\"model\":\"nomic-embed-text\",\"embeddings\":[[1,0],[0,1,2]],\"total_duration\":1}";
+
+        List<float[]> embeddings = feed(EmbeddingBodySubscriber.batch(jsonFactory), json, 3);
+
+        assertEquals(2, embeddings.size());
+        assertArrayEquals(new float[]{1.0f, 0.0f}, embeddings.get(0));
+        assertArrayEquals(new float[]{0.0f, 1.0f, 2.0f}, embeddings.get(1));
+        assertTrue(feed(EmbeddingBodySubscriber.batch(jsonFactory), "{}", 64).isEmpty());
+    }
+
+    @Test
+    public void testGrowsBeyondTheExpectedDimension() {
+        float[] expected = new float[EMBEDDING_DIMENSION + 5];
+        Arrays.fill(expected, 0.5f);
+        StringBuilder json = new StringBuilder("{\"embedding\":[");
+        for (int i = 0; i < expected.length; i++) json.append(i == 0 ? "" : ",").append("0.5");
+        json.append("]}");
+
+        assertArrayEquals(expected, feed(EmbeddingBodySubscriber.single(jsonFactory), json.toString(), 512));
+    }
+
+    @Test
+    public void testRejectsMalformedBodies() {
+        assertThrows(CompletionException.class, () -> feed(EmbeddingBodySubscriber.single(jsonFactory), "{\"embedding\":[1,\"x\"]}", 64));
+        assertThrows(CompletionException.class, () -> feed(EmbeddingBodySubscriber.single(jsonFactory), "{\"embedding\":[1,2", 64));
+        assertThrows(CompletionException.class, () -> feed(EmbeddingBodySubscriber.batch(jsonFactory), "{\"embeddings\":[1]}", 64));
+    }
+}
@@ -0,0 +1,195 @@
+package com.hbs.entitysense.embedding;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hbs.entitysense.config.EntitySenseProperties;
+import com.hbs.entitysense.metrics.ScreeningMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class OllamaEmbeddingClientTest {
+
+    private static final String ENDPOINT_A = "http://ollama-a:11434";
+    private static final String ENDPOINT_B = "http://ollama-b:11434";
+    private static final String MODEL = "nomic-embed-text";
+
+    @Mock
+    private HttpClient httpClient;
+
+    private final EntitySenseProperties properties = new EntitySenseProperties();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        properties.getOllama().setEndpoints(List.of(ENDPOINT_A, ENDPOINT_B));
+        properties.getOllama().setHedgeDelay(Duration.ZERO);
+    }
+
+    private OllamaEmbeddingClient client() {
+        return new OllamaEmbeddingClient(httpClient, new ObjectMapper(), properties,
+                new ScreeningMetrics(meterRegistry, ObservationRegistry.NOOP));
+    }
+
+    /**
+     * Completes an exchange the way the real client would: the body handler picks a subscriber for the status, which
+     * is then fed {@code json}.
+     */
+    @SuppressWarnings("unchecked")
+    private static CompletableFuture<HttpResponse<Object>> respond(HttpResponse.BodyHandler<Object> handler, int status, String json) {
+        HttpResponse.ResponseInfo info = mock(HttpResponse.ResponseInfo.class);
+        when(info.statusCode()).thenReturn(status);
+        HttpResponse.BodySubscriber<Object> subscriber = handler.apply(info);
+        subscriber.onSubscribe(new Flow.Subscription() {
+            @Override public void request(long n) { }
+            @Override public void cancel() { }
+        });
+        subscriber.onNext(List.of(ByteBuffer.wrap(json.getBytes(StandardCharsets.UTF_8))));
+        subscriber.onComplete();
+        Object body = subscriber.getBody().toCompletableFuture().join();
+        HttpResponse<Object> response = mock(HttpResponse.class);
+        when(response.statusCode()).thenReturn(status);
+        when(response.body()).thenReturn(body);
+        return CompletableFuture.completedFuture(response);
+    }
+
+    private void stub(String endpoint, String json) {
+        stub(endpoint, 200, json);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void stub(String endpoint, int status, String json) {
+        when(httpClient.sendAsync(argThat((HttpRequest r) -> r != null && r.uri().toString().startsWith(endpoint)),
+                any(HttpResponse.BodyHandler.class))).thenAnswer(inv -> respond(inv.getArgument(1), status, json));
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private void stub(String endpoint, CompletableFuture response) {
+        when(httpClient.sendAsync(argThat((HttpRequest r) -> r != null && r.uri().toString().startsWith(endpoint)),
+                any(HttpResponse.BodyHandler.class))).thenReturn(response);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void verifyCalls(String endpoint, int times) {
+        verify(httpClient, times(times)).sendAsync(argThat((HttpRequest r) -> r.uri().toString().startsWith(endpoint)),
+                any(HttpResponse.BodyHandler.class));
+    }
+
+    @Test
+    public void testSpreadsCallsRoundRobin() {
+        stub(ENDPOINT_A, "{\"embedding\":[1.0,0.0]}");
+        stub(ENDPOINT_B, "{\"embedding\":[0.0,1.0]}");
+        OllamaEmbeddingClient client = client();
+
+        for (int i = 0; i < 4; i++) {
+            assertEquals(2, client.embed(MODEL, "Alice").length);
+        }
+        verifyCalls(ENDPOINT_A, 2);
+        verifyCalls(ENDPOINT_B, 2);
+    }
+
+    @Test
+    public void testFailsOverAndOpensCircuit() {
+        properties.getOllama().getCircuitBreaker().setFailureThreshold(1);
+        properties.getOllama().getCircuitBreaker().setOpenDuration(Duration.ofHours(1));
+        stub(ENDPOINT_A, CompletableFuture.failedFuture(new IOException("Connection refused")));
+        stub(ENDPOINT_B, "{\"embedding\":[0.0,1.0]}");
+        OllamaEmbeddingClient client = client();
+
+        for (int i = 0; i < 3; i++) {
+            assertArrayEquals(new float[]{0.0f, 1.0f}, client.embed(MODEL, "Alice"));
+        }
+        // Only the first call reached A; its circuit then kept it out of rotation
+        verifyCalls(ENDPOINT_A, 1);
+        verifyCalls(ENDPOINT_B, 3);
+        assertEquals(1.0, meterRegistry.get("entitysense.ollama.circuit.open").tag("endpoint", ENDPOINT_A).gauge().value());
+    }
+
+    @Test
+    public void testHedgesSlowCallOnOtherEndpoint() throws Exception {
+        properties.getOllama().setHedgeDelay(Duration.ofMillis(20));
+        CompletableFuture<HttpResponse<Object>> slow = new CompletableFuture<>();
+        stub(ENDPOINT_A, slow);
+        stub(ENDPOINT_B, "{\"embedding\":[0.0,1.0]}");
+
+        float[] embedding = client().embedAsync(MODEL, "Alice").get(5, TimeUnit.SECONDS);
+
+        assertArrayEquals(new float[]{0.0f, 1.0f}, embedding);
+        // The loser is cancelled by a completion callback that may still be running when get() returns
+        for (long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5); !slow.isCancelled() && System.nanoTime() < deadline; ) {
+            Thread.onSpinWait();
+        }
+        assertTrue(slow.isCancelled());
+        assertEquals(1.0, meterRegistry.get("entitysense.ollama.hedges").counter().count());
+    }
+
+    @Test
+    public void testFailsFastWhenEveryEndpointIsUnavailable() {
+        properties.getOllama().setEndpoints(List.of(ENDPOINT_A));
+        properties.getOllama().getCircuitBreaker().setFailureThreshold(1);
+        stub(ENDPOINT_A, CompletableFuture.failedFuture(new IOException("Connection refused")));
+        OllamaEmbeddingClient client = client();
+
+        assertThrows(EmbeddingUnavailableException.class, () -> client.embed(MODEL, "Alice"));
+        CompletionException ex = assertThrows(CompletionException.class, () -> client.embedAsync(MODEL, "Alice").join());
+        assertInstanceOf(EmbeddingUnavailableException.class, ex.getCause());
+        verifyCalls(ENDPOINT_A, 1);
+    }
+
+    @Test
+    public void testInFlightLimitRejectsInsteadOfQueueing() {
+        properties.getOllama().setEndpoints(List.of(ENDPOINT_A));
+        properties.getOllama().setMaxInFlightPerEndpoint(1);
+        CompletableFuture<HttpResponse<Object>> pending = new CompletableFuture<>();
+        stub(ENDPOINT_A, pending);
+        OllamaEmbeddingClient client = client();
+
+        CompletableFuture<float[]> first = client.embedAsync(MODEL, "Alice");
+        assertThrows(EmbeddingUnavailableException.class, () -> client.embed(MODEL, "Bob"));
+
+        @SuppressWarnings("unchecked")
+        HttpResponse<Object> response = mock(HttpResponse.class);
+        when(response.body()).thenReturn(new float[]{1.0f});
+        pending.complete(response);
+        assertArrayEquals(new float[]{1.0f}, first.join());
+    }
+
+    @Test
+    public void testServerErrorCountsAsFailure() {
+        properties.getOllama().setEndpoints(List.of(ENDPOINT_A));
+        stub(ENDPOINT_A, 503, "{\"error\":\"server busy\"}");
+
+        assertThrows(EmbeddingUnavailableException.class, () -> client().embedBatch(MODEL, List.of("Alice", "Bob")));
+    }
+
+    @Test
+    public void testParsesBatchResponse() {
+        stub(ENDPOINT_A, "{\"model\":\"nomic-embed-text\",\"embeddings\":[[1.0,0.0],[0.0,1.0]],\"total_duration\":12}");
+
+        List<float[]> embeddings = client().embedBatch(MODEL, List.of("Alice", "Bob"));
+
+        assertArrayEquals(new float[]{1.0f, 0.0f}, embeddings.get(0));
+        assertArrayEquals(new float[]{0.0f, 1.0f}, embeddings.get(1));
+    }
+}
@@ -0,0 +1,105 @@
+package com.hbs.entitysense.index;
+
+import com.hbs.entitysense.model.DistanceKernelType;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DistanceKernelTest {
+
+    private static List<DistanceKernel> kernels() {
+        List<DistanceKernel> kernels = new ArrayList<>();
+        kernels.add(new ScalarDistanceKernel());
+        DistanceKernel simd = DistanceKernels.simdOrNull();
+        if (simd != null) kernels.add(simd);
+        return kernels;
+    }
+
+    private static float[] random(Random random, int size) {
+        float[] arr = new float[size];
+        for (int i = 0; i < size; i++) arr[i] = random.nextFloat() * 2 - 1;
+        return arr;
+    }
+
+    /** Reference implementation, as originally written in EntitySenseService. */
+    private static double reference(float[] a, float[] b) {
+        double dot = 0.0, normA = 0.0, normB = 0.0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            normA += Math.pow(a[i], 2);
+            normB += Math.pow(b[i], 2);
+        }
+        if (normA == 0.0 || normB == 0.0) return 1.0;
+        return 1 - (dot / (Math.sqrt(normA) * Math.sqrt(normB)));
+    }
+
+    @Test
+    public void testKernelsMatchReferenceCosineDistance() {
+        Random random = new Random(42);
+        // 769 exercises the tail loop after the unrolled / vector body
+        for (int size : new int[]{1, 3, 768, 769}) {
+            float[] a = random(random, size);
+            float[] b = random(random, size);
+            for (DistanceKernel kernel : kernels()) {
+                assertEquals(reference(a, b), kernel.cosineDistance(a, b), 1e-5, kernel.name() + " size " + size);
+            }
+        }
+    }
+
+    @Test
+    public void testDotOverOffHeapBlock() {
+        Random random = new Random(7);
+        float[] query = random(random, 768);
+        float[] stored = random(random, 768);
+        FloatBuffer block = ByteBuffer.allocateDirect(2 * 768 * Float.BYTES).order(ByteOrder.nativeOrder()).asFloatBuffer();
+        block.put(768, stored);
+
+        for (DistanceKernel kernel : kernels()) {
+            assertEquals(kernel.dot(query, stored), kernel.dot(query, block, 768, new float[768]), 1e-4, kernel.name());
+        }
+    }
+
+    @Test
+    public void testDotOverInt8Block() {
+        Random random = new Random(9);
+        float[] query = random(random, 769);
+        float[] widened = new float[769];
+        ByteBuffer block = ByteBuffer.allocateDirect(2 * 769);
+        for (int i = 0; i < widened.length; i++) {
+            byte code = (byte) (random.nextInt(255) - 127);
+            block.put(769 + i, code);
+            widened[i] = code;
+        }
+
+        for (DistanceKernel kernel : kernels()) {
+            assertEquals(kernel.dot(query, widened), kernel.dot(query, block, 769, new float[769]), 1e-2, kernel.name());
+        }
+    }
+
+    @Test
+    public void testZeroVectorIsMaximallyDistant() {
+        for (DistanceKernel kernel : kernels()) {
+            assertEquals(1.0, kernel.cosineDistance(new float[4], new float[]{1f, 0f, 0f, 0f}), 0.0);
+        }
+    }
+
+    @Test
+    public void testMismatchedVectorsRejected() {
+        for (DistanceKernel kernel : kernels()) {
+            assertThrows(IllegalArgumentException.class, () -> kernel.cosineDistance(new float[2], new float[3]));
+        }
+    }
+
+    @Test
+    public void testSelectScalarAlwaysHonoured() {
+        assertInstanceOf(ScalarDistanceKernel.class, DistanceKernels.select(DistanceKernelType.SCALAR));
+        assertNotNull(DistanceKernels.select(DistanceKernelType.AUTO));
+    }
+}
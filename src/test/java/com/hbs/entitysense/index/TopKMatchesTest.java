@@ -0,0 +1,72 @@
+package com.hbs.entitysense.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TopKMatchesTest {
+
+    @Test
+    public void testKeepsNearestKInOrder() {
+        Random random = new Random(3);
+        List<VectorMatch> all = new ArrayList<>();
+        TopKMatches top = new TopKMatches(10);
+        for (long id = 0; id < 1000; id++) {
+            double distance = random.nextDouble();
+            all.add(new VectorMatch(id, distance));
+            top.offer(id, distance);
+        }
+        all.sort(Comparator.comparingDouble(VectorMatch::distance));
+
+        assertEquals(all.subList(0, 10), top.toMatches());
+    }
+
+    @Test
+    public void testTiesAreOrderedById() {
+        TopKMatches top = new TopKMatches(2);
+        top.offer(9L, 0.1);
+        top.offer(4L, 0.1);
+        top.offer(7L, 0.1);
+
+        assertEquals(List.of(new VectorMatch(4L, 0.1), new VectorMatch(7L, 0.1)), top.toMatches());
+    }
+
+    @Test
+    public void testFewerOffersThanKAndZeroK() {
+        TopKMatches top = new TopKMatches(5);
+        top.offer(1L, 0.2);
+        top.offer(2L, 0.1);
+        assertEquals(List.of(2L, 1L), top.toMatches().stream().map(VectorMatch::id).toList());
+
+        TopKMatches none = new TopKMatches(0);
+        assertFalse(none.offer(1L, 0.0));
+        assertTrue(none.toMatches().isEmpty());
+    }
+
+    @Test
+    public void testMergeCombinesPartitions() {
+        TopKMatches first = new TopKMatches(2);
+        first.offer(1L, 0.4);
+        first.offer(2L, 0.1);
+        TopKMatches second = new TopKMatches(2);
+        second.offer(3L, 0.2);
+        second.offer(4L, 0.5);
+
+        TopKMatches merged = new TopKMatches(2);
+        merged.merge(first);
+        merged.merge(second);
+
+        assertEquals(List.of(2L, 3L), merged.toMatches().stream().map(VectorMatch::id).toList());
+    }
+
+    @Test
+    public void testOfferAfterSortRejected() {
+        TopKMatches top = new TopKMatches(1).sort();
+        assertThrows(IllegalStateException.class, () -> top.offer(1L, 0.0));
+    }
+}
@@ -0,0 +1,117 @@
+package com.hbs.entitysense.index;
+
+import com.hbs.entitysense.model.RiskCategory;
+import com.hbs.entitysense.model.VectorQuantisation;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VectorIndexFileTest {
+
+    private static final String MODEL = "nomic-embed-text";
+
+    @TempDir
+    Path dir;
+
+    // Every other vector is a sanction, every third has a country, so several partitions hold partial chunks
+    private static VectorPartitions partitions(VectorQuantisation quantisation, int size, int chunkSize) {
+        Random random = new Random(3);
+        VectorPartitions partitions = VectorPartitions.create(768, chunkSize, quantisation);
+        for (int n = 0; n < size; n++) {
+            float[] vector = new float[768];
+            for (int i = 0; i < vector.length; i++) vector[i] = (float) random.nextGaussian();
+            float norm = WatchlistVectorIndex.norm(vector);
+            partitions.append(n + 1L, n % 2 == 0 ? RiskCategory.SANCTION : RiskCategory.MULE, n % 3 == 0 ? "SG" : null,
+                    WatchlistVectorIndex.normalise(vector, norm), norm);
+        }
+        return partitions;
+    }
+
+    private static void assertSameVectors(VectorPartitions expected, VectorPartitions actual) {
+        assertEquals(expected.size(), actual.size());
+        float[] a = new float[768];
+        float[] b = new float[768];
+        for (int partition = 0; partition < VectorPartitions.COUNT; partition++) {
+            VectorSegment e = expected.segment(partition), r = actual.segment(partition);
+            assertEquals(e.size(), r.size());
+            for (int slot = 0; slot < e.size(); slot++) {
+                assertEquals(e.id(slot), r.id(slot));
+                assertEquals(e.countryKey(slot), r.countryKey(slot));
+                assertEquals(e.norm(slot), r.norm(slot));
+                e.copyVector(slot, a);
+                r.copyVector(slot, b);
+                assertArrayEquals(a, b);
+            }
+        }
+    }
+
+    @Test
+    public void testRoundTripRechunksAndAcceptsAppends() throws Exception {
+        Path file = dir.resolve("index.bin");
+        VectorPartitions written = partitions(VectorQuantisation.NONE, 10, 4);
+        VectorIndexFile.write(file, written, 12L, MODEL);
+
+        VectorIndexFile.Restored restored = VectorIndexFile.read(file, 768, 3, VectorQuantisation.NONE, MODEL);
+
+        assertEquals(12L, restored.highWaterId());
+        assertSameVectors(written, restored.partitions());
+        VectorSegment sanctions = restored.partitions().segment(RiskCategory.SANCTION);
+        assertEquals(0, sanctions.slotOf(1L));
+        assertEquals(SearchScope.countryKey("sg"), sanctions.countryKey(0));
+        float[] unit = WatchlistVectorIndex.normalise(new float[768]);
+        unit[0] = 1f;
+        sanctions.append(13L, unit);
+        assertEquals(6, sanctions.size());
+        assertEquals(1f, sanctions.dot(new ScalarDistanceKernel(), unit, 5, new float[unit.length]), 1e-6);
+    }
+
+    @Test
+    public void testInt8RoundTripKeepsScales() throws Exception {
+        Path file = dir.resolve("index.bin");
+        VectorPartitions written = partitions(VectorQuantisation.INT8, 5, 2);
+        VectorIndexFile.write(file, written, 5L, MODEL);
+
+        VectorPartitions restored = VectorIndexFile.read(file, 768, 2, VectorQuantisation.INT8, MODEL).partitions();
+
+        assertFalse(restored.isExact());
+        assertSameVectors(written, restored);
+        assertEquals(written.segment(RiskCategory.SANCTION).maxDotError(2, 1f), restored.segment(RiskCategory.SANCTION).maxDotError(2, 1f));
+    }
+
+    @Test
+    public void testMismatchedFilesAreStale() throws Exception {
+        Path file = dir.resolve("index.bin");
+        VectorIndexFile.write(file, partitions(VectorQuantisation.NONE, 3, 4), 3L, MODEL);
+
+        assertThrows(VectorIndexFile.StaleIndexFileException.class,
+                () -> VectorIndexFile.read(file, 768, 4, VectorQuantisation.NONE, "another-model"));
+        assertThrows(VectorIndexFile.StaleIndexFileException.class,
+                () -> VectorIndexFile.read(file, 768, 4, VectorQuantisation.INT8, MODEL));
+        assertThrows(VectorIndexFile.StaleIndexFileException.class,
+                () -> VectorIndexFile.read(file, 384, 4, VectorQuantisation.NONE, MODEL));
+    }
+
+    @Test
+    public void testCorruptFilesAreStale() throws Exception {
+        Path file = dir.resolve("index.bin");
+        VectorIndexFile.write(file, partitions(VectorQuantisation.NONE, 3, 4), 3L, MODEL);
+        try (RandomAccessFile raw = new RandomAccessFile(file.toFile(), "rw")) {
+            raw.seek(VectorIndexFile.HEADER_BYTES + 100);
+            int original = raw.read();
+            raw.seek(VectorIndexFile.HEADER_BYTES + 100);
+            raw.write(original ^ 0xFF);
+        }
+        assertThrows(VectorIndexFile.StaleIndexFileException.class,
+                () -> VectorIndexFile.read(file, 768, 4, VectorQuantisation.NONE, MODEL));
+
+        Files.write(file, new byte[10]);
+        assertThrows(VectorIndexFile.StaleIndexFileException.class,
+                () -> VectorIndexFile.read(file, 768, 4, VectorQuantisation.NONE, MODEL));
+    }
+}
@@ -0,0 +1,151 @@
+package com.hbs.entitysense.index;
+
+import com.hbs.entitysense.config.EntitySenseProperties;
+import com.hbs.entitysense.dto.WatchlistAccountRow;
+import com.hbs.entitysense.embedding.EmbeddingModels;
+import com.hbs.entitysense.entity.WatchlistEntity;
+import com.hbs.entitysense.metrics.ScreeningMetrics;
+import com.hbs.entitysense.repository.EmbeddingModelRepository;
+import com.hbs.entitysense.repository.WatchlistRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Limit;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class WatchlistAccountIndexTest {
+
+    @Mock
+    private WatchlistRepository watchlistRepository;
+
+    private EntitySenseProperties properties;
+
+    private WatchlistSnapshots snapshots;
+
+    private WatchlistAccountIndex index;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        properties = new EntitySenseProperties();
+        properties.getIndex().setLoadPageSize(2);
+        snapshots = new WatchlistSnapshots(watchlistRepository, new EmbeddingModels(mock(EmbeddingModelRepository.class)), properties, new ScreeningMetrics(new SimpleMeterRegistry(), ObservationRegistry.NOOP));
+        index = new WatchlistAccountIndex(snapshots);
+    }
+
+    private static WatchlistEntity entity(long id, String... knownAccounts) {
+        WatchlistEntity e = new WatchlistEntity();
+        e.setId(id);
+        e.setKnownAccounts(knownAccounts);
+        return e;
+    }
+
+    private void stubPages(WatchlistAccountRow... rows) {
+        when(watchlistRepository.findAccountsAfter(anyLong(), any(Limit.class))).thenAnswer(inv -> {
+            long after = inv.getArgument(0);
+            int max = ((Limit) inv.getArgument(1)).max();
+            return Arrays.stream(rows).filter(r -> r.id() > after).limit(max).toList();
+        });
+    }
+
+    @Test
+    public void testNormaliseIgnoresFormatting() {
+        assertEquals("GB29NWBK6016", WatchlistAccountIndex.normalise(" gb29 nwbk-6016 "));
+        assertTrue(WatchlistAccountIndex.holds(new String[]{"X", "GB29-NWBK-6016"}, "gb29nwbk6016"));
+        assertFalse(WatchlistAccountIndex.holds(new String[]{"GB29NWBK6016"}, "GB29NWBK6017"));
+        assertFalse(WatchlistAccountIndex.holds(null, "GB29NWBK6016"));
+        assertFalse(WatchlistAccountIndex.holds(new String[]{""}, " - "));
+        assertArrayEquals(new String[]{"GB29NWBK6016", "X1"},
+                WatchlistAccountIndex.normaliseAll(new String[]{"gb29 nwbk-6016", "GB29NWBK6016", " - ", "x1"}));
+        assertNull(WatchlistAccountIndex.normaliseAll(null));
+    }
+
+    @Test
+    public void testRebuildIndexesEveryAccount() {
+        stubPages(new WatchlistAccountRow(1L, new String[]{"ACC1", "SHARED"}),
+                new WatchlistAccountRow(2L, new String[]{"ACC2"}),
+                new WatchlistAccountRow(3L, new String[]{"shared", "acc-3"}));
+
+        snapshots.rebuild();
+        assertTrue(index.isReady());
+        assertEquals(5, index.size());
+        assertEquals(List.of(1L), index.entityIds("acc 1"));
+        assertEquals(List.of(1L, 3L), index.entityIds("SHARED").stream().sorted().toList());
+        assertEquals(List.of(3L), index.entityIds("ACC3"));
+        assertTrue(index.entityIds("ACC4").isEmpty());
+        assertTrue(index.entityIds(null).isEmpty());
+    }
+
+    @Test
+    public void testRebuildGrowsTableAndSkipsDuplicates() {
+        properties.getIndex().setLoadPageSize(1_000);
+        WatchlistAccountRow[] rows = new WatchlistAccountRow[5_000];
+        for (int n = 0; n < rows.length; n++) {
+            rows[n] = new WatchlistAccountRow(n + 1L, new String[]{"ACC" + (n + 1), "ACC" + (n + 1)});
+        }
+        stubPages(rows);
+
+        snapshots.rebuild();
+        assertEquals(5_000, index.size());
+        for (long id = 1; id <= 5_000; id += 499) {
+            assertEquals(List.of(id), index.entityIds("ACC" + id));
+        }
+    }
+
+    @Test
+    public void testDeltaAccountsAreFound() {
+        stubPages(new WatchlistAccountRow(1L, new String[]{"SHARED"}));
+        snapshots.rebuild();
+        snapshots.add(entity(2L, "shared", "NEW-1"));
+
+        assertEquals(List.of(1L, 2L), index.entityIds("SHARED").stream().sorted().toList());
+        assertEquals(List.of(2L), index.entityIds("new1"));
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    public void testRebuildKeepsAccountsAddedMeanwhile() {
+        when(watchlistRepository.findAccountsAfter(anyLong(), any(Limit.class))).thenAnswer(inv -> {
+            long after = inv.getArgument(0);
+            if (after == 0L) {
+                snapshots.add(entity(9L, "LATE"));
+                return List.of(new WatchlistAccountRow(1L, new String[]{"EARLY"}));
+            }
+            return List.of();
+        });
+
+        snapshots.rebuild();
+
+        assertEquals(List.of(1L), index.entityIds("EARLY"));
+        assertEquals(List.of(9L), index.entityIds("LATE"));
+    }
+
+    @Test
+    public void testLookupsDuringWritesNeverMissPublishedAccounts() throws Exception {
+        stubPages(new WatchlistAccountRow(1L, new String[]{"STABLE"}));
+        snapshots.rebuild();
+        AtomicBoolean missed = new AtomicBoolean();
+        Thread reader = new Thread(() -> {
+            for (int i = 0; i < 20_000; i++) {
+                if (index.entityIds("STABLE").isEmpty()) missed.set(true);
+            }
+        });
+        reader.start();
+        for (long id = 2; id <= 2_000; id++) {
+            snapshots.add(entity(id, "ACC" + id));
+        }
+        reader.join();
+
+        assertFalse(missed.get());
+    }
+}
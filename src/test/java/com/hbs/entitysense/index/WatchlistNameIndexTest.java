@@ -0,0 +1,174 @@
+package com.hbs.entitysense.index;
+
+import com.hbs.entitysense.config.EntitySenseProperties;
+import com.hbs.entitysense.dto.WatchlistNameRow;
+import com.hbs.entitysense.embedding.EmbeddingModels;
+import com.hbs.entitysense.entity.WatchlistEntity;
+import com.hbs.entitysense.metrics.ScreeningMetrics;
+import com.hbs.entitysense.repository.EmbeddingModelRepository;
+import com.hbs.entitysense.repository.WatchlistRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Limit;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class WatchlistNameIndexTest {
+
+    @Mock
+    private WatchlistRepository watchlistRepository;
+
+    private EntitySenseProperties properties;
+
+    private WatchlistSnapshots snapshots;
+
+    private WatchlistNameIndex index;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        properties = new EntitySenseProperties();
+        properties.getScreening().getPrefilter().setEnabled(true);
+        properties.getIndex().setLoadPageSize(2);
+        snapshots = new WatchlistSnapshots(watchlistRepository, new EmbeddingModels(mock(EmbeddingModelRepository.class)), properties, new ScreeningMetrics(new SimpleMeterRegistry(), ObservationRegistry.NOOP));
+        index = new WatchlistNameIndex(snapshots, properties);
+    }
+
+    private static WatchlistEntity entity(long id, String name, String country) {
+        WatchlistEntity e = new WatchlistEntity();
+        e.setId(id);
+        e.setName(name);
+        e.setCountry(country);
+        return e;
+    }
+
+    private void stubPages(WatchlistNameRow... rows) {
+        when(watchlistRepository.findNamesAfter(anyLong(), any(Limit.class))).thenAnswer(inv -> {
+            long after = inv.getArgument(0);
+            int max = ((Limit) inv.getArgument(1)).max();
+            return Arrays.stream(rows).filter(r -> r.id() > after).limit(max).toList();
+        });
+    }
+
+    @Test
+    public void testKeysFoldCaseAndDiacritics() {
+        assertEquals(WatchlistNameIndex.keys("José  ÁLVAREZ", true), WatchlistNameIndex.keys("jose alvarez", true));
+        assertTrue(WatchlistNameIndex.keys("  ", true).isEmpty());
+        assertTrue(WatchlistNameIndex.keys(null, true).isEmpty());
+    }
+
+    @Test
+    public void testLookupsOnVirtualThreadsAgree() throws Exception {
+        WatchlistNameRow[] rows = new WatchlistNameRow[500];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = new WatchlistNameRow(i + 1L, "Northwind Trading " + (char) ('A' + i % 26) + (i / 26), null);
+        }
+        stubPages(rows);
+        properties.getIndex().setLoadPageSize(100);
+        snapshots.rebuild();
+        List<Long> expected = index.candidates("Northwind Trading C3", null);
+        assertFalse(expected.isEmpty());
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<List<Long>>> lookups = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                lookups.add(executor.submit(() -> index.candidates("Northwind Trading C3", null)));
+            }
+            for (Future<List<Long>> lookup : lookups) {
+                assertEquals(expected, lookup.get());
+            }
+        }
+    }
+
+    @Test
+    public void testCandidatesRankSimilarNamesFirst() {
+        stubPages(new WatchlistNameRow(1L, "Acme Trading LLC", null),
+                new WatchlistNameRow(2L, "John Smith", null),
+                new WatchlistNameRow(3L, "Jon Smyth", null));
+        snapshots.rebuild();
+
+        assertEquals(List.of(2L, 3L), index.candidates("John Smith", null));
+        assertTrue(index.candidates("Zebulon Quartz", null).isEmpty());
+    }
+
+    @Test
+    public void testPhoneticKeysCatchSpellingVariants() {
+        stubPages(new WatchlistNameRow(1L, "Mohammed Qasim", null));
+        snapshots.rebuild();
+        properties.getScreening().getPrefilter().setMinSimilarity(0.45);
+
+        properties.getScreening().getPrefilter().setPhonetic(true);
+        assertEquals(List.of(1L), index.candidates("Muhammad Kasim", null));
+
+        properties.getScreening().getPrefilter().setPhonetic(false);
+        snapshots.rebuild();
+        assertTrue(index.candidates("Muhammad Kasim", null).isEmpty());
+    }
+
+    @Test
+    public void testCountryPartitionKeepsStatelessEntities() {
+        stubPages(new WatchlistNameRow(1L, "John Smith", "SG"),
+                new WatchlistNameRow(2L, "John Smith", "US"),
+                new WatchlistNameRow(3L, "John Smith", null));
+        snapshots.rebuild();
+
+        assertEquals(List.of(1L, 3L), index.candidates("John Smith", "sg").stream().sorted().toList());
+        assertEquals(3, index.candidates("John Smith", null).size());
+
+        properties.getScreening().getPrefilter().setCountryPartition(false);
+        assertEquals(3, index.candidates("John Smith", "SG").size());
+    }
+
+    @Test
+    public void testMaxCandidatesCapsShortlist() {
+        stubPages(new WatchlistNameRow(1L, "John Smith", null),
+                new WatchlistNameRow(2L, "John Smith Jr", null),
+                new WatchlistNameRow(3L, "John Smithers", null));
+        snapshots.rebuild();
+        properties.getScreening().getPrefilter().setMaxCandidates(1);
+
+        assertEquals(List.of(1L), index.candidates("John Smith", null));
+    }
+
+    @Test
+    public void testAddIsIdempotentAndSurvivesRebuild() {
+        stubPages(new WatchlistNameRow(1L, "John Smith", null));
+        snapshots.rebuild();
+        snapshots.add(entity(5L, "Jane Doe", "GB"));
+        snapshots.add(entity(5L, "Jane Doe", "GB"));
+        assertEquals(2, index.size());
+        assertEquals(List.of(5L), index.candidates("Jane Doe", "gb"));
+        assertTrue(index.candidates("Jane Doe", "US").isEmpty());
+
+        snapshots.rebuild();
+        assertEquals(List.of(5L), index.candidates("Jane Doe", "GB"));
+    }
+
+    @Test
+    public void testDisabledIndexIgnoresEvents() {
+        properties.getScreening().getPrefilter().setEnabled(false);
+        when(watchlistRepository.findNamesAfter(anyLong(), any(Limit.class))).thenReturn(Collections.emptyList());
+
+        properties.getSnapshot().setPollInterval(Duration.ZERO);
+
+        snapshots.buildOnStartup();
+
+        assertFalse(index.isReady());
+        verify(watchlistRepository, never()).findNamesAfter(anyLong(), any(Limit.class));
+    }
+}
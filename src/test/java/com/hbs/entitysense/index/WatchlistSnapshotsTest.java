@@ -0,0 +1,298 @@
+package com.hbs.entitysense.index;
+
+import com.hbs.entitysense.config.EntitySenseProperties;
+import com.hbs.entitysense.dto.EmbeddingModelRow;
+import com.hbs.entitysense.dto.WatchlistIndexRow;
+import com.hbs.entitysense.embedding.EmbeddingModels;
+import com.hbs.entitysense.embedding.EmbeddingVersion;
+import com.hbs.entitysense.entity.WatchlistEntity;
+import com.hbs.entitysense.event.EmbeddingModelActivatedEvent;
+import com.hbs.entitysense.event.WatchlistImportCompletedEvent;
+import com.hbs.entitysense.metrics.ScreeningMetrics;
+import com.hbs.entitysense.model.EmbeddingModelStatus;
+import com.hbs.entitysense.model.EmbeddingSlot;
+import com.hbs.entitysense.model.RiskCategory;
+import com.hbs.entitysense.model.SearchMode;
+import com.hbs.entitysense.repository.EmbeddingModelRepository;
+import com.hbs.entitysense.repository.WatchlistRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.stubbing.Answer;
+import org.springframework.data.domain.Limit;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static com.hbs.entitysense.metrics.ScreeningMetrics.WATCHLIST_SNAPSHOT_DELTA;
+import static com.hbs.entitysense.metrics.ScreeningMetrics.WATCHLIST_SNAPSHOT_VERSION;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class WatchlistSnapshotsTest {
+
+    @Mock
+    private WatchlistRepository watchlistRepository;
+
+    @Mock
+    private EmbeddingModelRepository embeddingModelRepository;
+
+    private EntitySenseProperties properties;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private WatchlistSnapshots snapshots;
+
+    // Rows "in the database", in id order
+    private final List<WatchlistEntity> table = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        properties = new EntitySenseProperties();
+        properties.getScreening().setSearchMode(SearchMode.IN_MEMORY);
+        properties.getScreening().setAccountIndex(false);
+        properties.getIndex().setLoadPageSize(2);
+        when(watchlistRepository.findByIdGreaterThanOrderByIdAsc(anyLong(), any(Limit.class))).thenAnswer(inv -> {
+            long after = inv.getArgument(0);
+            int limit = ((Limit) inv.getArgument(1)).max();
+            return table.stream().filter(e -> e.getId() > after).limit(limit).toList();
+        });
+        when(watchlistRepository.findIdsAfter(anyLong(), any(Limit.class))).thenAnswer(inv -> {
+            long after = inv.getArgument(0);
+            int limit = ((Limit) inv.getArgument(1)).max();
+            return table.stream().map(WatchlistEntity::getId).filter(id -> id > after).limit(limit).toList();
+        });
+        for (EmbeddingSlot slot : EmbeddingSlot.values()) {
+            Answer<List<WatchlistIndexRow>> rows = inv -> {
+                Collection<Long> ids = inv.getArgument(0);
+                return table.stream().filter(e -> ids.contains(e.getId())).map(e -> new WatchlistIndexRow(e.getId(), e.getName(), e.getCountry(),
+                        e.getRiskCategory(), e.getKnownAccounts(), e.getEmbedding(slot))).toList();
+            };
+            when(slot == EmbeddingSlot.SECONDARY ? watchlistRepository.findSecondaryIndexRows(anyCollection())
+                    : watchlistRepository.findIndexRows(anyCollection())).thenAnswer(rows);
+        }
+        meterRegistry = new SimpleMeterRegistry();
+        snapshots = new WatchlistSnapshots(watchlistRepository, new EmbeddingModels(embeddingModelRepository), properties, new ScreeningMetrics(meterRegistry, ObservationRegistry.NOOP));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        snapshots.shutdown();
+    }
+
+    private static WatchlistEntity entity(long id) {
+        WatchlistEntity e = new WatchlistEntity();
+        e.setId(id);
+        e.setName("E" + id);
+        float[] embedding = new float[768];
+        embedding[(int) (id % 768)] = 1.0f;
+        e.setEmbedding(embedding);
+        return e;
+    }
+
+    @Test
+    public void testEveryPublishBumpsTheVersion() {
+        table.addAll(List.of(entity(1), entity(2), entity(3)));
+        assertEquals(0L, snapshots.current().version());
+
+        WatchlistSnapshot built = snapshots.rebuild();
+        assertEquals(1L, built.version());
+        assertEquals(3L, built.highWaterId());
+        assertSame(built, snapshots.current());
+
+        assertTrue(snapshots.add(entity(4)));
+        assertFalse(snapshots.add(entity(4)));
+        assertFalse(snapshots.add(entity(2)));
+        assertEquals(2L, snapshots.current().version());
+        assertEquals(1, snapshots.current().deltaSize());
+        assertEquals(4L, snapshots.current().lastId());
+
+        assertEquals(2.0, meterRegistry.get(WATCHLIST_SNAPSHOT_VERSION).gauge().value());
+        assertEquals(1.0, meterRegistry.get(WATCHLIST_SNAPSHOT_DELTA).gauge().value());
+    }
+
+    @Test
+    public void testPublishedSnapshotsNeverChange() {
+        table.add(entity(1));
+        WatchlistSnapshot before = snapshots.rebuild();
+        snapshots.add(entity(2));
+        table.add(entity(2));
+        snapshots.rebuild();
+
+        assertEquals(1L, before.version());
+        assertEquals(1L, before.highWaterId());
+        assertEquals(0, before.deltaSize());
+        assertFalse(before.contains(2L));
+        assertTrue(snapshots.current().contains(2L));
+    }
+
+    @Test
+    public void testRebuildFoldsTheDeltaIntoTheBase() {
+        table.add(entity(1));
+        snapshots.rebuild();
+        table.add(entity(2));
+        snapshots.add(entity(2));
+        snapshots.add(entity(3));
+
+        WatchlistSnapshot rebuilt = snapshots.rebuild();
+
+        assertEquals(2L, rebuilt.highWaterId());
+        // Entity 3 never reached the table, so the reload did not see it and it stays in the delta
+        assertEquals(1, rebuilt.deltaSize());
+        assertTrue(rebuilt.contains(3L));
+    }
+
+    @Test
+    public void testRefreshPicksUpRowsSavedElsewhere() {
+        table.add(entity(1));
+        snapshots.rebuild();
+        table.addAll(List.of(entity(2), entity(3), entity(4)));
+
+        assertEquals(3, snapshots.refresh());
+        assertEquals(0, snapshots.refresh());
+        assertEquals(4L, snapshots.current().lastId());
+        assertEquals(3, snapshots.current().deltaSize());
+    }
+
+    @Test
+    public void testRowsCommittedOutOfIdOrderArePickedUp() {
+        // Identity ids are taken before commit: 3 is visible while 2 is still in flight
+        table.addAll(List.of(entity(1), entity(3)));
+        snapshots.rebuild();
+        assertFalse(snapshots.current().contains(2L));
+
+        table.add(1, entity(2));
+        table.add(entity(5));
+        assertEquals(2, snapshots.refresh());
+        assertTrue(snapshots.current().contains(2L));
+        assertTrue(snapshots.current().contains(5L));
+
+        // Same again above the base: 5 already sits in the delta when 4 commits
+        table.add(3, entity(4));
+        assertEquals(1, snapshots.refresh());
+        assertTrue(snapshots.current().contains(4L));
+        assertEquals(0, snapshots.refresh());
+
+        WatchlistSnapshot rebuilt = snapshots.rebuild();
+        assertEquals(5L, rebuilt.highWaterId());
+        assertEquals(0, rebuilt.deltaSize());
+        assertEquals(5, rebuilt.vectors().size());
+    }
+
+    @Test
+    public void testIdsBelowTheRescanWindowCountAsSettled() {
+        properties.getSnapshot().setRescanWindow(1);
+        table.addAll(List.of(entity(1), entity(3), entity(4)));
+        snapshots.rebuild();
+
+        table.add(1, entity(2));
+        assertEquals(0, snapshots.refresh());
+        assertEquals(3L, snapshots.current().settledUpTo());
+        // Left to the periodic rebuild
+        assertEquals(4, snapshots.rebuild().vectors().size());
+    }
+
+    @Test
+    public void testOversizedDeltaIsRebuiltInTheBackground() throws Exception {
+        properties.getSnapshot().setMaxDelta(3);
+        snapshots.rebuild();
+        List<WatchlistEntity> saved = new ArrayList<>();
+        for (long id = 1; id <= 10; id++) saved.add(entity(id));
+        table.addAll(saved);
+
+        snapshots.refresh();
+        for (int i = 0; i < 100 && snapshots.current().highWaterId() < 10L; i++) {
+            Thread.sleep(20);
+            snapshots.refresh();
+        }
+
+        assertEquals(10L, snapshots.current().highWaterId());
+        assertTrue(snapshots.current().deltaSize() <= 3);
+    }
+
+    @Test
+    public void testImportCompletedRebuilds() {
+        table.add(entity(1));
+        snapshots.onImportCompleted(new WatchlistImportCompletedEvent("watchlist.csv", 1));
+
+        assertEquals(1L, snapshots.current().highWaterId());
+        snapshots.onImportCompleted(new WatchlistImportCompletedEvent("watchlist.csv", 0));
+        assertEquals(1L, snapshots.current().version());
+    }
+
+    @Test
+    public void testActivatedModelRebuildsFromItsColumn() {
+        table.addAll(List.of(entity(1), entity(2)));
+        snapshots.rebuild();
+        for (WatchlistEntity e : table) {
+            float[] embedding = new float[768];
+            embedding[700] = 1.0f;
+            e.setEmbedding(EmbeddingSlot.SECONDARY, embedding);
+        }
+        EmbeddingVersion upgraded = new EmbeddingVersion(EmbeddingSlot.SECONDARY, "mxbai-embed-large");
+        when(embeddingModelRepository.findAll()).thenReturn(List.of(
+                new EmbeddingModelRow(EmbeddingSlot.PRIMARY, EmbeddingVersion.DEFAULT.model(), EmbeddingModelStatus.RETIRED),
+                new EmbeddingModelRow(EmbeddingSlot.SECONDARY, upgraded.model(), EmbeddingModelStatus.ACTIVE)));
+
+        snapshots.onEmbeddingModelActivated(new EmbeddingModelActivatedEvent(upgraded, EmbeddingVersion.DEFAULT));
+
+        WatchlistSnapshot switched = snapshots.current();
+        assertEquals(upgraded, switched.embedding());
+        assertEquals(2L, switched.version());
+        VectorSegment segment = switched.vectors().segment((RiskCategory) null);
+        assertEquals(2, segment.size());
+        float[] vector = new float[768];
+        segment.copyVector(0, vector);
+        assertEquals(1.0f, vector[700], 1e-6f);
+    }
+
+    @Test
+    public void testStartupMapsTheIndexFileAndReplaysNewerRowsOnly(@TempDir Path dir) {
+        properties.getIndex().setPersistenceFile(dir.resolve("index.bin").toString());
+        properties.getSnapshot().setPollInterval(Duration.ZERO);
+        table.addAll(List.of(entity(1), entity(2), entity(3)));
+        snapshots.rebuild();
+
+        table.add(entity(4));
+        when(watchlistRepository.countWithEmbeddingUpTo(3L)).thenReturn(3L);
+        WatchlistSnapshots restarted = new WatchlistSnapshots(watchlistRepository, new EmbeddingModels(embeddingModelRepository), properties,
+                new ScreeningMetrics(new SimpleMeterRegistry(), ObservationRegistry.NOOP));
+        clearInvocations(watchlistRepository);
+        restarted.buildOnStartup();
+
+        verify(watchlistRepository, never()).findByIdGreaterThanOrderByIdAsc(eq(0L), any(Limit.class));
+        verify(watchlistRepository).findByIdGreaterThanOrderByIdAsc(eq(3L), any(Limit.class));
+        assertEquals(4L, restarted.current().highWaterId());
+        assertEquals(4, restarted.current().vectors().size());
+        assertEquals(4L, restarted.current().vectors().segment((RiskCategory) null).id(3));
+    }
+
+    @Test
+    public void testStaleIndexFileIsReloadedFromTheTable(@TempDir Path dir) {
+        properties.getIndex().setPersistenceFile(dir.resolve("index.bin").toString());
+        properties.getSnapshot().setPollInterval(Duration.ZERO);
+        table.addAll(List.of(entity(1), entity(2)));
+        snapshots.rebuild();
+
+        // Table reloaded since the file was written: row 2 is gone
+        table.remove(1);
+        when(watchlistRepository.countWithEmbeddingUpTo(2L)).thenReturn(1L);
+        clearInvocations(watchlistRepository);
+        snapshots.buildOnStartup();
+
+        verify(watchlistRepository).findByIdGreaterThanOrderByIdAsc(eq(0L), any(Limit.class));
+        assertEquals(1, snapshots.current().vectors().size());
+        assertEquals(1L, snapshots.current().highWaterId());
+    }
+}
@@ -0,0 +1,300 @@
+package com.hbs.entitysense.index;
+
+import com.hbs.entitysense.config.EntitySenseProperties;
+import com.hbs.entitysense.dto.IndexConsistencyReport;
+import com.hbs.entitysense.embedding.EmbeddingModels;
+import com.hbs.entitysense.entity.WatchlistEntity;
+import com.hbs.entitysense.event.WatchlistEntityCreatedEvent;
+import com.hbs.entitysense.metrics.ScreeningMetrics;
+import com.hbs.entitysense.model.RiskCategory;
+import com.hbs.entitysense.model.SearchMode;
+import com.hbs.entitysense.model.VectorQuantisation;
+import com.hbs.entitysense.repository.EmbeddingModelRepository;
+import com.hbs.entitysense.repository.WatchlistRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Limit;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class WatchlistVectorIndexTest {
+
+    @Mock
+    private WatchlistRepository watchlistRepository;
+
+    private EntitySenseProperties properties;
+
+    private WatchlistSnapshots snapshots;
+
+    private WatchlistVectorIndex index;
+
+    private final ForkJoinPool scoringPool = new ForkJoinPool(4);
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        properties = new EntitySenseProperties();
+        properties.getScreening().setSearchMode(SearchMode.IN_MEMORY);
+        // Tiny chunks so every test crosses chunk boundaries
+        properties.getIndex().setChunkSize(2);
+        properties.getIndex().setLoadPageSize(2);
+        snapshots = new WatchlistSnapshots(watchlistRepository, new EmbeddingModels(mock(EmbeddingModelRepository.class)), properties, new ScreeningMetrics(new SimpleMeterRegistry(), ObservationRegistry.NOOP));
+        index = new WatchlistVectorIndex(snapshots, watchlistRepository, properties, new ScalarDistanceKernel(), scoringPool);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        scoringPool.shutdown();
+    }
+
+    private static WatchlistEntity entity(long id, int hotDimension) {
+        WatchlistEntity e = new WatchlistEntity();
+        e.setId(id);
+        e.setName("E" + id);
+        float[] arr = new float[768];
+        arr[hotDimension] = 3.0f;
+        e.setEmbedding(arr);
+        return e;
+    }
+
+    private static float[] axis(int dimension) {
+        float[] arr = new float[768];
+        arr[dimension] = 1.0f;
+        return arr;
+    }
+
+    private void stubPages(WatchlistEntity... entities) {
+        when(watchlistRepository.findByIdGreaterThanOrderByIdAsc(anyLong(), any(Limit.class))).thenAnswer(inv -> {
+            long after = inv.getArgument(0);
+            int limit = ((Limit) inv.getArgument(1)).max();
+            return Arrays.stream(entities).filter(e -> e.getId() > after).limit(limit).toList();
+        });
+    }
+
+    @Test
+    public void testRebuildLoadsEveryPageAndSearchFindsNearest() {
+        stubPages(entity(1, 0), entity(2, 1), entity(3, 2), entity(4, 0));
+
+        snapshots.rebuild();
+        assertTrue(index.isReady());
+        assertEquals(4, index.size());
+
+        List<VectorMatch> hits = index.search(axis(0), 0.3, 10);
+        assertEquals(List.of(1L, 4L), hits.stream().map(VectorMatch::id).toList());
+        assertEquals(0.0, hits.get(0).distance(), 1e-6);
+    }
+
+    @Test
+    public void testSearchHonoursLimitAndThreshold() {
+        stubPages(entity(1, 0), entity(2, 0), entity(3, 0));
+        snapshots.rebuild();
+
+        assertEquals(2, index.search(axis(0), 0.3, 2).size());
+        assertTrue(index.search(axis(5), 0.3, 10).isEmpty());
+    }
+
+    @Test
+    public void testSearchBatchScoresEveryQueryInOnePass() {
+        stubPages(entity(1, 0), entity(2, 1), entity(3, 2));
+        snapshots.rebuild();
+
+        List<List<VectorMatch>> hits = index.searchBatch(new float[][]{axis(2), axis(9), axis(0)}, 0.3, 10);
+        assertEquals(3, hits.size());
+        assertEquals(3L, hits.get(0).get(0).id());
+        assertTrue(hits.get(1).isEmpty());
+        assertEquals(1L, hits.get(2).get(0).id());
+    }
+
+    @Test
+    public void testInt8IndexNeverMissesAnExactHit() {
+        properties.getIndex().setQuantisation(VectorQuantisation.INT8);
+        properties.getIndex().setChunkSize(64);
+        Random random = new Random(11);
+        float[] centre = new float[768];
+        for (int i = 0; i < centre.length; i++) centre[i] = (float) random.nextGaussian();
+        // Spread of noise levels puts exact distances on both sides of the threshold
+        WatchlistEntity[] entities = new WatchlistEntity[300];
+        for (int n = 0; n < entities.length; n++) {
+            float[] embedding = new float[768];
+            double noise = 0.2 + n * 0.004;
+            for (int i = 0; i < embedding.length; i++) embedding[i] = centre[i] + (float) (noise * random.nextGaussian());
+            entities[n] = entity(n + 1, 0);
+            entities[n].setEmbedding(embedding);
+        }
+        stubPages(entities);
+        snapshots.rebuild();
+
+        ScalarDistanceKernel kernel = new ScalarDistanceKernel();
+        Set<Long> returned = index.search(centre, 0.3, 1000).stream().map(VectorMatch::id).collect(Collectors.toSet());
+        int exactHits = 0;
+        for (WatchlistEntity e : entities) {
+            if (kernel.cosineDistance(centre, e.getEmbedding()) < 0.3) {
+                exactHits++;
+                assertTrue(returned.contains(e.getId()), "missed entity " + e.getId());
+            }
+        }
+        assertTrue(index.isQuantised());
+        assertTrue(exactHits > 0 && exactHits < entities.length);
+        assertTrue(returned.size() < entities.length);
+    }
+
+    @Test
+    public void testInt8SegmentIsAQuarterOfTheSize() {
+        VectorSegment floats = VectorSegment.create(768, 16, VectorQuantisation.NONE);
+        VectorSegment codes = VectorSegment.create(768, 16, VectorQuantisation.INT8);
+        float[] unit = WatchlistVectorIndex.normalise(axis(3));
+        floats.append(1L, unit);
+        codes.append(1L, unit);
+
+        assertEquals(floats.offHeapBytes(), 4 * codes.offHeapBytes());
+        assertEquals(1.0, codes.dot(new ScalarDistanceKernel(), unit, 0, new float[unit.length]), 1e-6);
+    }
+
+    @Test
+    public void testParallelScanMatchesSerialScan() {
+        properties.getIndex().setChunkSize(16);
+        Random random = new Random(5);
+        WatchlistEntity[] entities = new WatchlistEntity[500];
+        for (int n = 0; n < entities.length; n++) {
+            entities[n] = entity(n + 1, 0);
+            float[] embedding = entities[n].getEmbedding();
+            for (int i = 0; i < embedding.length; i++) embedding[i] = (float) random.nextGaussian();
+        }
+        stubPages(entities);
+        snapshots.rebuild();
+        float[][] queries = {entities[42].getEmbedding(), entities[420].getEmbedding()};
+
+        properties.getIndex().setParallelMinSize(Integer.MAX_VALUE);
+        List<List<VectorMatch>> serial = index.searchBatch(queries, 1.0, 25);
+        properties.getIndex().setParallelMinSize(1);
+        List<List<VectorMatch>> parallel = index.searchBatch(queries, 1.0, 25);
+
+        assertEquals(25, serial.get(0).size());
+        assertEquals(43L, serial.get(0).get(0).id());
+        assertEquals(421L, serial.get(1).get(0).id());
+        assertEquals(serial, parallel);
+    }
+
+    @Test
+    public void testCreatedEventAddsEntityOnce() {
+        stubPages();
+        snapshots.rebuild();
+
+        WatchlistEntity created = entity(9, 7);
+        snapshots.onEntityCreated(new WatchlistEntityCreatedEvent(created));
+        snapshots.onEntityCreated(new WatchlistEntityCreatedEvent(created));
+
+        assertEquals(1, index.size());
+        assertEquals(9L, index.search(axis(7), 0.3, 10).get(0).id());
+    }
+
+    @Test
+    public void testCreatedEventIgnoredInDatabaseMode() {
+        properties.getScreening().setSearchMode(SearchMode.DATABASE);
+        snapshots.onEntityCreated(new WatchlistEntityCreatedEvent(entity(9, 7)));
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    public void testEntitiesWithoutEmbeddingAreSkipped() {
+        WatchlistEntity noEmbedding = entity(2, 0);
+        noEmbedding.setEmbedding(null);
+        stubPages(entity(1, 0), noEmbedding);
+
+        snapshots.rebuild();
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    public void testVerifyReportsDriftBetweenIndexAndDatabase() {
+        stubPages(entity(1, 0), entity(2, 1));
+        snapshots.rebuild();
+        when(watchlistRepository.findIdsWithEmbedding()).thenReturn(List.of(2L, 3L));
+
+        IndexConsistencyReport report = index.verify();
+        assertFalse(report.consistent());
+        assertEquals(List.of(3L), report.sampleMissingIds());
+        assertEquals(List.of(1L), report.sampleUnknownIds());
+    }
+
+    @Test
+    public void testVerifyConsistent() {
+        stubPages(entity(1, 0));
+        snapshots.rebuild();
+        when(watchlistRepository.findIdsWithEmbedding()).thenReturn(List.of(1L));
+
+        assertTrue(index.verify().consistent());
+    }
+
+    @Test
+    public void testDeltaEntitiesAreSearchedAndVerified() {
+        stubPages(entity(1, 0));
+        snapshots.rebuild();
+        snapshots.add(entity(2, 0));
+        when(watchlistRepository.findIdsWithEmbedding()).thenReturn(List.of(1L, 2L));
+
+        assertEquals(2, index.size());
+        assertEquals(List.of(1L, 2L), index.search(axis(0), 0.3, 10).stream().map(VectorMatch::id).sorted().toList());
+        assertTrue(index.verify().consistent());
+    }
+
+    @Test
+    public void testSearchReadsTheSnapshotItIsGiven() {
+        stubPages(entity(1, 0));
+        WatchlistSnapshot before = snapshots.rebuild();
+        snapshots.add(entity(2, 0));
+
+        assertEquals(1, index.searchBatch(before, new float[][]{axis(0)}, 0.3, 10).get(0).size());
+        assertEquals(2, index.search(axis(0), 0.3, 10).size());
+    }
+
+    @Test
+    public void testScopedSearchOnlyScansItsCategoriesAndCountries() {
+        WatchlistEntity sanctionSg = entity(1, 0), sanctionGb = entity(2, 0), mule = entity(3, 0), pep = entity(4, 0);
+        sanctionSg.setRiskCategory(RiskCategory.SANCTION);
+        sanctionSg.setCountry("sg");
+        sanctionGb.setRiskCategory(RiskCategory.SANCTION);
+        sanctionGb.setCountry("GB");
+        mule.setRiskCategory(RiskCategory.MULE);
+        pep.setRiskCategory(RiskCategory.PEP);
+        // Slightly off axis 0: distance ~0.1
+        pep.getEmbedding()[1] = 1.5f;
+        stubPages(sanctionSg, sanctionGb, mule, pep);
+        snapshots.rebuild();
+        WatchlistEntity delta = entity(5, 0);
+        delta.setRiskCategory(RiskCategory.PEP);
+        delta.setCountry("SG");
+        snapshots.add(delta);
+
+        SearchScope domestic = new SearchScope("domestic", Set.of(RiskCategory.SANCTION, RiskCategory.MULE), Map.of(), Set.of("SG"), 0.3);
+        SearchScope strictPep = new SearchScope("pep", Set.of(RiskCategory.PEP), Map.of(RiskCategory.PEP, 0.05), Set.of(), 0.3);
+        List<List<VectorMatch>> hits = index.searchBatch(snapshots.current(), new float[][]{axis(0), axis(0)},
+                new SearchScope[]{domestic, strictPep}, 10);
+
+        assertEquals(List.of(1L, 3L), hits.get(0).stream().map(VectorMatch::id).sorted().toList());
+        assertEquals(List.of(5L), hits.get(1).stream().map(VectorMatch::id).toList());
+        assertEquals(5, index.search(axis(0), 0.3, 10).size());
+    }
+
+    @Test
+    public void testSearchBeforeBuildReturnsNothing() {
+        assertFalse(index.isReady());
+        assertEquals(Collections.emptyList(), index.search(axis(0), 0.3, 10));
+    }
+}
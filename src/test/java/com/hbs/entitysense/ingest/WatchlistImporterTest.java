@@ -0,0 +1,121 @@
+package com.hbs.entitysense.ingest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hbs.entitysense.config.EntitySenseProperties;
+import com.hbs.entitysense.dto.WatchListEntityRequest;
+import com.hbs.entitysense.dto.WatchlistImportResult;
+import com.hbs.entitysense.embedding.EmbeddingVersion;
+import com.hbs.entitysense.event.WatchlistImportCompletedEvent;
+import com.hbs.entitysense.model.EmbeddingSlot;
+import com.hbs.entitysense.model.RiskCategory;
+import com.hbs.entitysense.repository.WatchlistBatchRepository;
+import com.hbs.entitysense.service.EntitySenseService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class WatchlistImporterTest {
+
+    @Mock
+    private EntitySenseService entitySenseService;
+
+    @Mock
+    private WatchlistBatchRepository watchlistBatchRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private final EntitySenseProperties properties = new EntitySenseProperties();
+
+    private WatchlistImporter watchlistImporter;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        properties.getIngest().setBatchSize(2);
+        properties.getIngest().setConcurrency(2);
+        watchlistImporter = new WatchlistImporter(entitySenseService, watchlistBatchRepository, properties, new ObjectMapper(), eventPublisher);
+        when(entitySenseService.activeEmbedding()).thenReturn(EmbeddingVersion.DEFAULT);
+        when(entitySenseService.generateEntityEmbeddings(anyString(), anyList())).thenAnswer(inv -> {
+            List<WatchListEntityRequest> batch = inv.getArgument(1);
+            return new float[batch.size()][768];
+        });
+    }
+
+    private Path sanctionsFile() throws Exception {
+        return Files.writeString(tempDir.resolve("list.csv"), """
+                name,country,risk_category
+                A,SG,MULE
+                B,IN,
+                ,XX,
+                D,US,PEP
+                E,GB,
+                """);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testImportWritesBatchesInFileOrderWithCheckpoints() throws Exception {
+        Path file = sanctionsFile();
+
+        WatchlistImportResult result = watchlistImporter.importFile(file);
+
+        assertEquals(5, result.rowsRead());
+        assertEquals(4, result.rowsImported());
+        assertEquals(1, result.rowsSkipped());
+
+        ArgumentCaptor<List<WatchListEntityRequest>> batches = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<Long> checkpoints = ArgumentCaptor.forClass(Long.class);
+        verify(watchlistBatchRepository, times(3)).insertBatch(eq(WatchlistImporter.sourceKey(file)), checkpoints.capture(), batches.capture(), eq(EmbeddingSlot.PRIMARY), any());
+        assertEquals(List.of(2L, 4L, 5L), checkpoints.getAllValues());
+        assertEquals(List.of("A", "B", "D", "E"), batches.getAllValues().stream().flatMap(List::stream).map(WatchListEntityRequest::getName).toList());
+        assertEquals(RiskCategory.SANCTION, batches.getAllValues().get(0).get(1).getRiskCategory());
+        verify(eventPublisher).publishEvent(new WatchlistImportCompletedEvent(WatchlistImporter.sourceKey(file), 4));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testImportResumesAfterCheckpoint() throws Exception {
+        Path file = sanctionsFile();
+        when(watchlistBatchRepository.findImportedRows(WatchlistImporter.sourceKey(file))).thenReturn(4L);
+
+        WatchlistImportResult result = watchlistImporter.importFile(file);
+
+        assertEquals(4, result.resumedFrom());
+        assertEquals(1, result.rowsImported());
+        ArgumentCaptor<List<WatchListEntityRequest>> batch = ArgumentCaptor.forClass(List.class);
+        verify(watchlistBatchRepository).insertBatch(anyString(), eq(5L), batch.capture(), any(), any());
+        assertEquals("E", batch.getValue().get(0).getName());
+    }
+
+    @Test
+    public void testEmbeddingFailureStopsBeforeLaterBatchesAreWritten() throws Exception {
+        Path file = sanctionsFile();
+        when(entitySenseService.generateEntityEmbeddings(anyString(), argThat(batch -> batch != null && batch.get(0).getName().equals("D"))))
+                .thenThrow(new RuntimeException("Failed to generate embeddings"));
+
+        RuntimeException ex = assertThrows(RuntimeException.class, () -> watchlistImporter.importFile(file));
+
+        assertTrue(ex.getMessage().contains("failed after 2 rows"));
+        InOrder inOrder = inOrder(watchlistBatchRepository);
+        inOrder.verify(watchlistBatchRepository).insertBatch(anyString(), eq(2L), anyList(), any(), any());
+        inOrder.verifyNoMoreInteractions();
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+}
@@ -0,0 +1,74 @@
+package com.hbs.entitysense.ingest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hbs.entitysense.dto.WatchListEntityRequest;
+import com.hbs.entitysense.model.RiskCategory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WatchlistRecordReaderTest {
+
+    @TempDir
+    Path tempDir;
+
+    private List<WatchListEntityRequest> readAll(String fileName, String content) throws IOException {
+        Path file = Files.writeString(tempDir.resolve(fileName), content);
+        List<WatchListEntityRequest> records = new ArrayList<>();
+        try (WatchlistRecordReader reader = WatchlistRecordReader.open(file, new ObjectMapper())) {
+            reader.forEachRemaining(records::add);
+        }
+        return records;
+    }
+
+    @Test
+    public void testCsvHandlesQuotingAccountsAndColumnOrder() throws IOException {
+        List<WatchListEntityRequest> records = readAll("list.csv", """
+                risk_category,name,address,known_accounts,programme\r
+                mule,"Doe, John","1 ""Main"" St
+                Floor 2",ACC1; ACC2,SDN\r
+                
+                ,Acme Ltd,,,
+                """);
+
+        assertEquals(2, records.size());
+        WatchListEntityRequest first = records.get(0);
+        assertEquals("Doe, John", first.getName());
+        assertEquals("1 \"Main\" St\nFloor 2", first.getAddress());
+        assertArrayEquals(new String[]{"ACC1", "ACC2"}, first.getKnownAccounts());
+        assertEquals(RiskCategory.MULE, first.getRiskCategory());
+        assertNull(first.getCountry());
+
+        WatchListEntityRequest second = records.get(1);
+        assertEquals("Acme Ltd", second.getName());
+        assertNull(second.getAddress());
+        assertNull(second.getKnownAccounts());
+        assertNull(second.getRiskCategory());
+    }
+
+    @Test
+    public void testCsvWithoutNameColumnIsRejected() {
+        assertThrows(IOException.class, () -> readAll("list.csv", "address,country\nX,Y\n"));
+    }
+
+    @Test
+    public void testJsonArrayAndNdjsonIgnoreUnknownFields() throws IOException {
+        List<WatchListEntityRequest> array = readAll("list.json",
+                "[{\"name\":\"A\",\"country\":\"SG\",\"listedOn\":\"2020-01-01\"},{\"name\":\"B\",\"riskCategory\":\"PEP\"}]");
+        List<WatchListEntityRequest> ndjson = readAll("list.ndjson",
+                "{\"name\":\"A\",\"country\":\"SG\"}\n{\"name\":\"B\",\"riskCategory\":\"PEP\"}\n");
+
+        for (List<WatchListEntityRequest> records : List.of(array, ndjson)) {
+            assertEquals(List.of("A", "B"), records.stream().map(WatchListEntityRequest::getName).toList());
+            assertEquals("SG", records.get(0).getCountry());
+            assertEquals(RiskCategory.PEP, records.get(1).getRiskCategory());
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.hbs.entitysense.ingest;
+
+import com.hbs.entitysense.config.EntitySenseProperties;
+import com.hbs.entitysense.dto.EmbeddingModelRow;
+import com.hbs.entitysense.dto.WatchlistMatchRow;
+import com.hbs.entitysense.embedding.EmbeddingModels;
+import com.hbs.entitysense.embedding.EmbeddingVersion;
+import com.hbs.entitysense.event.EmbeddingModelActivatedEvent;
+import com.hbs.entitysense.event.WatchlistImportCompletedEvent;
+import com.hbs.entitysense.model.EmbeddingModelStatus;
+import com.hbs.entitysense.model.EmbeddingSlot;
+import com.hbs.entitysense.repository.EmbeddingModelRepository;
+import com.hbs.entitysense.repository.WatchlistBatchRepository;
+import com.hbs.entitysense.repository.WatchlistRepository;
+import com.hbs.entitysense.service.EntitySenseService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class WatchlistReembedJobTest {
+
+    private static final String MODEL = "mxbai-embed-large";
+    private static final EmbeddingVersion TARGET = new EmbeddingVersion(EmbeddingSlot.SECONDARY, MODEL);
+
+    @Mock
+    private EntitySenseService entitySenseService;
+
+    @Mock
+    private WatchlistRepository watchlistRepository;
+
+    @Mock
+    private WatchlistBatchRepository watchlistBatchRepository;
+
+    @Mock
+    private EmbeddingModelRepository embeddingModelRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private final EntitySenseProperties properties = new EntitySenseProperties();
+
+    private WatchlistReembedJob job;
+
+    // Rows "in the database", in id order
+    private final List<WatchlistMatchRow> table = new CopyOnWriteArrayList<>();
+
+    // Ids of the rows with a vector in embedding_secondary
+    private final Set<Long> embedded = ConcurrentHashMap.newKeySet();
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        properties.getReembed().setBatchSize(2);
+        properties.getSnapshot().setPollInterval(Duration.ZERO);
+        job = new WatchlistReembedJob(entitySenseService, watchlistRepository, watchlistBatchRepository, embeddingModelRepository,
+                new EmbeddingModels(embeddingModelRepository), properties, eventPublisher);
+        when(watchlistRepository.findMatchRowsAfter(anyLong(), any(Limit.class))).thenAnswer(inv -> {
+            long after = inv.getArgument(0);
+            int limit = ((Limit) inv.getArgument(1)).max();
+            return table.stream().filter(row -> row.id() > after).limit(limit).toList();
+        });
+        when(watchlistRepository.findMatchRowsWithoutSecondaryEmbeddingAfter(anyLong(), any(Limit.class))).thenAnswer(inv -> {
+            long after = inv.getArgument(0);
+            int limit = ((Limit) inv.getArgument(1)).max();
+            return table.stream().filter(row -> row.id() > after && !embedded.contains(row.id()))
+                    .sorted(Comparator.comparing(WatchlistMatchRow::id)).limit(limit).toList();
+        });
+        doAnswer(inv -> {
+            List<Long> ids = inv.getArgument(2);
+            embedded.addAll(ids);
+            return null;
+        }).when(watchlistBatchRepository).updateEmbeddings(anyString(), anyLong(), anyList(), eq(EmbeddingSlot.SECONDARY), any());
+        when(entitySenseService.generateRowEmbeddings(eq(MODEL), anyList())).thenAnswer(inv -> {
+            List<WatchlistMatchRow> rows = inv.getArgument(1);
+            return new float[rows.size()][768];
+        });
+    }
+
+    private static WatchlistMatchRow row(long id) {
+        return new WatchlistMatchRow(id, "E" + id, null, "SG", null, null);
+    }
+
+    @Test
+    public void testSwitchesOnceEveryRowIsReembedded() {
+        table.addAll(List.of(row(1), row(2), row(3)));
+        when(embeddingModelRepository.activate(TARGET, EmbeddingVersion.DEFAULT, 3L)).thenReturn(true);
+
+        assertEquals(TARGET, job.run(MODEL));
+
+        String source = WatchlistReembedJob.sourceKey(TARGET);
+        verify(embeddingModelRepository).startBuilding(TARGET, source);
+        verify(watchlistBatchRepository).updateEmbeddings(eq(source), eq(2L), eq(List.of(1L, 2L)), eq(EmbeddingSlot.SECONDARY), any());
+        verify(watchlistBatchRepository).updateEmbeddings(eq(source), eq(3L), eq(List.of(3L)), eq(EmbeddingSlot.SECONDARY), any());
+        verify(eventPublisher).publishEvent(new EmbeddingModelActivatedEvent(TARGET, EmbeddingVersion.DEFAULT));
+        verify(embeddingModelRepository).finishSwitching(TARGET);
+        verify(eventPublisher, never()).publishEvent(any(WatchlistImportCompletedEvent.class));
+    }
+
+    @Test
+    public void testResumesFromCheckpointAndCatchesUpWithRowsSavedMeanwhile() {
+        table.addAll(List.of(row(1), row(2), row(3), row(4)));
+        String source = WatchlistReembedJob.sourceKey(TARGET);
+        when(embeddingModelRepository.startBuilding(TARGET, source)).thenReturn(true);
+        when(watchlistBatchRepository.findImportedRows(source)).thenReturn(2L);
+        embedded.addAll(List.of(1L, 2L));
+        when(embeddingModelRepository.activate(eq(TARGET), eq(EmbeddingVersion.DEFAULT), anyLong())).thenAnswer(inv -> {
+            // Another node saves a row before the switch, and one more before it has seen the switch
+            table.add(row(table.size() + 1));
+            return inv.getArgument(2, Long.class) == 5L;
+        });
+
+        job.run(MODEL);
+
+        verify(watchlistRepository, never()).findMatchRowsAfter(eq(0L), any(Limit.class));
+        verify(watchlistBatchRepository).updateEmbeddings(eq(source), eq(4L), eq(List.of(3L, 4L)), eq(EmbeddingSlot.SECONDARY), any());
+        verify(watchlistBatchRepository).updateEmbeddings(eq(source), eq(5L), eq(List.of(5L)), eq(EmbeddingSlot.SECONDARY), any());
+        verify(watchlistBatchRepository).updateEmbeddings(eq(source), eq(6L), eq(List.of(6L)), eq(EmbeddingSlot.SECONDARY), any());
+        verify(embeddingModelRepository, times(2)).activate(any(), any(), anyLong());
+        verify(eventPublisher).publishEvent(new WatchlistImportCompletedEvent(source, 1));
+        verify(embeddingModelRepository).finishSwitching(TARGET);
+    }
+
+    @Test
+    public void testRestartAfterSwitchFinishesCatchUp() {
+        // Stopped after the switch, before re-embedding rows 3 and 5, which an old node committed late
+        table.addAll(List.of(row(1), row(2), row(4), row(3), row(5)));
+        embedded.addAll(List.of(1L, 2L, 4L));
+        when(embeddingModelRepository.findAll()).thenReturn(List.of(
+                new EmbeddingModelRow(EmbeddingSlot.PRIMARY, EmbeddingVersion.DEFAULT.model(), EmbeddingModelStatus.RETIRED),
+                new EmbeddingModelRow(EmbeddingSlot.SECONDARY, MODEL, EmbeddingModelStatus.SWITCHING)));
+
+        assertEquals(TARGET, job.run(MODEL));
+
+        String source = WatchlistReembedJob.sourceKey(TARGET);
+        verify(watchlistBatchRepository).updateEmbeddings(eq(source), eq(5L), eq(List.of(3L, 5L)), eq(EmbeddingSlot.SECONDARY), any());
+        verify(watchlistBatchRepository, times(1)).updateEmbeddings(anyString(), anyLong(), anyList(), any(), any());
+        verify(embeddingModelRepository).finishSwitching(TARGET);
+        verify(embeddingModelRepository, never()).startBuilding(any(), anyString());
+        verify(embeddingModelRepository, never()).activate(any(), any(), anyLong());
+        verify(eventPublisher).publishEvent(new WatchlistImportCompletedEvent(source, 2));
+    }
+
+    @Test
+    public void testDoesNothingOnceSwitchIsFinished() {
+        when(embeddingModelRepository.findAll()).thenReturn(List.of(
+                new EmbeddingModelRow(EmbeddingSlot.SECONDARY, MODEL, EmbeddingModelStatus.ACTIVE)));
+
+        assertEquals(TARGET, job.run(MODEL));
+
+        verify(watchlistRepository, never()).findMatchRowsWithoutSecondaryEmbeddingAfter(anyLong(), any(Limit.class));
+        verify(embeddingModelRepository, never()).finishSwitching(any());
+    }
+
+    @Test
+    public void testRejectsModelWithOtherDimension() {
+        table.add(row(1));
+        when(entitySenseService.generateRowEmbeddings(eq(MODEL), anyList())).thenReturn(new float[][]{new float[1024]});
+
+        RuntimeException ex = assertThrows(RuntimeException.class, () -> job.run(MODEL));
+
+        assertTrue(ex.getMessage().contains("1024-dimension"));
+        verify(watchlistBatchRepository, never()).updateEmbeddings(anyString(), anyLong(), anyList(), any(), any());
+        verify(embeddingModelRepository, never()).activate(any(), any(), anyLong());
+    }
+}
@@ -0,0 +1,80 @@
+package com.hbs.entitysense.metrics;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.hbs.entitysense.dto.RiskMatchResult;
+import com.hbs.entitysense.dto.ValidatePaymentResponse;
+import com.hbs.entitysense.model.RiskCategory;
+import io.micrometer.common.KeyValues;
+import io.micrometer.core.instrument.observation.DefaultMeterObservationHandler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.http.HttpTimeoutException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ScreeningMetricsTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private ScreeningMetrics screeningMetrics;
+
+    @BeforeEach
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        ObservationRegistry observationRegistry = ObservationRegistry.create();
+        observationRegistry.observationConfig().observationHandler(new DefaultMeterObservationHandler(meterRegistry));
+        screeningMetrics = new ScreeningMetrics(meterRegistry, observationRegistry);
+    }
+
+    @Test
+    public void testObserveRecordsTimerWithTags() {
+        String result = screeningMetrics.observe(ScreeningMetrics.WATCHLIST_FETCH, KeyValues.of("query", "nearest"), () -> "rows");
+
+        assertEquals("rows", result);
+        assertEquals(1, meterRegistry.get(ScreeningMetrics.WATCHLIST_FETCH).tag("query", "nearest").timer().count());
+    }
+
+    @Test
+    public void testObserveAsyncStopsWhenFutureCompletes() {
+        CompletableFuture<String> pending = new CompletableFuture<>();
+        CompletableFuture<String> observed = screeningMetrics.observeAsync(ScreeningMetrics.EMBEDDING, () -> pending);
+        assertTrue(meterRegistry.find(ScreeningMetrics.EMBEDDING).timers().isEmpty());
+
+        pending.completeExceptionally(new HttpTimeoutException("timed out"));
+
+        assertTrue(observed.isCompletedExceptionally());
+        assertEquals(1, meterRegistry.get(ScreeningMetrics.EMBEDDING).tag("error", "HttpTimeoutException").timer().count());
+    }
+
+    @Test
+    public void testRecordDecisionCountsStatusAndMatchCategories() {
+        RiskMatchResult sanction = new RiskMatchResult();
+        sanction.setRiskCategory(RiskCategory.SANCTION);
+        RiskMatchResult mule = new RiskMatchResult();
+        mule.setRiskCategory(RiskCategory.MULE);
+        ValidatePaymentResponse response = new ValidatePaymentResponse();
+        response.setStatus("BLOCK");
+        response.setPossibleWatchListEntityMatches(List.of(sanction, mule, sanction));
+
+        screeningMetrics.recordDecision(response);
+
+        assertEquals(1.0, meterRegistry.get(ScreeningMetrics.DECISIONS).tag("status", "BLOCK").counter().count());
+        assertEquals(2.0, meterRegistry.get(ScreeningMetrics.MATCHES).tag("risk.category", "SANCTION").counter().count());
+        assertEquals(1.0, meterRegistry.get(ScreeningMetrics.MATCHES).tag("risk.category", "MULE").counter().count());
+    }
+
+    @Test
+    public void testErrorTypeUnwrapsCauses() {
+        assertEquals("timeout", ScreeningMetrics.errorType(new CompletionException(new HttpTimeoutException("slow"))));
+        assertEquals("io", ScreeningMetrics.errorType(new RuntimeException("Failed", new IOException("reset"))));
+        assertEquals("invalid_response", ScreeningMetrics.errorType(new JsonParseException(null, "bad json")));
+        assertEquals("interrupted", ScreeningMetrics.errorType(new InterruptedException()));
+        assertEquals("invalid_response", ScreeningMetrics.errorType(new IllegalStateException("odd")));
+    }
+}
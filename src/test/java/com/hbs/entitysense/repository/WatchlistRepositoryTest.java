@@ -0,0 +1,26 @@
+package com.hbs.entitysense.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WatchlistRepositoryTest {
+
+    private static String query(String method) throws Exception {
+        return WatchlistRepository.class.getMethod(method, String.class, double.class, String[].class, String[].class, int.class)
+                .getAnnotation(Query.class).value();
+    }
+
+    @Test
+    public void testScopedSearchesKeepUncategorisedEntities() throws Exception {
+        // SearchScope.includes(null) is true and the in-memory index keeps an uncategorised partition
+        for (String method : List.of("findNearestWithinDistanceScoped", "findNearestSecondaryWithinDistanceScoped")) {
+            String sql = query(method);
+            assertTrue(sql.contains("AND (w.risk_category IS NULL OR w.risk_category = ANY(cast(:categories AS text[]))) "), method);
+            assertFalse(sql.contains("AND w.risk_category = ANY"), method);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.hbs.entitysense.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BlockingPermitsTest {
+
+    @Test
+    public void testCallsBeyondThePermitsWaitThenAreRejected() throws Exception {
+        BlockingPermits permits = new BlockingPermits(1, 0, Duration.ofMillis(50));
+        CountDownLatch holding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> permits.database(() -> {
+                holding.countDown();
+                await(release);
+                return "first";
+            }), executor);
+            assertTrue(holding.await(5, TimeUnit.SECONDS));
+
+            RejectedExecutionException rejected = assertThrows(RejectedExecutionException.class, () -> permits.database(() -> "second"));
+            assertEquals("Timed out waiting for a database connection", rejected.getMessage());
+            // Ollama permits are separate, and 0 means unlimited
+            assertEquals("embedding", permits.ollama(() -> "embedding"));
+
+            release.countDown();
+            assertEquals("first", first.get(5, TimeUnit.SECONDS));
+            assertEquals("third", permits.database(() -> "third"));
+        }
+    }
+
+    @Test
+    public void testPermitIsReleasedWhenTheCallFails() {
+        BlockingPermits permits = new BlockingPermits(1, 1, Duration.ZERO);
+
+        assertThrows(IllegalStateException.class, () -> permits.ollama(() -> {
+            throw new IllegalStateException("down");
+        }));
+        assertEquals("next", permits.ollama(() -> "next"));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.hbs.entitysense.service;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.hbs.entitysense.config.EntitySenseProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EmbeddingCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final Ticker ticker = nanos::get;
+
+    private EntitySenseProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    public void setUp() {
+        properties = new EntitySenseProperties();
+        properties.getEmbeddingCache().setTtl(Duration.ofMinutes(10));
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    public void testNormaliseCollapsesWhitespaceAndKeepsCase() {
+        assertEquals("Acme Ltd ‖ 1 Main St ‖ SG", EmbeddingCache.normalise("  Acme   Ltd ‖ 1 Main\tSt ‖ SG "));
+        // NFKC folds compatibility characters such as full-width letters
+        assertEquals("ACME", EmbeddingCache.normalise("ＡＣＭＥ"));
+    }
+
+    @Test
+    public void testHitMissAndModelIsolation() {
+        EmbeddingCache cache = new EmbeddingCache(properties, meterRegistry, ticker);
+        float[] embedding = {1f, 2f};
+        cache.put("model-a", "text", embedding);
+
+        assertSame(embedding, cache.get("model-a", "text"));
+        assertNull(cache.get("model-b", "text"));
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "embeddings").tag("result", "hit").functionCounter().count());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "embeddings").tag("result", "miss").functionCounter().count());
+    }
+
+    @Test
+    public void testEntriesExpireAfterTtl() {
+        EmbeddingCache cache = new EmbeddingCache(properties, meterRegistry, ticker);
+        cache.put("m", "text", new float[]{1f});
+
+        nanos.addAndGet(Duration.ofMinutes(9).toNanos());
+        assertNotNull(cache.get("m", "text"));
+        nanos.addAndGet(Duration.ofMinutes(2).toNanos());
+        assertNull(cache.get("m", "text"));
+    }
+
+    @Test
+    public void testSizeBoundEvicts() {
+        properties.getEmbeddingCache().setMaximumSize(2);
+        EmbeddingCache cache = new EmbeddingCache(properties, meterRegistry, ticker);
+        for (int i = 0; i < 10; i++) cache.put("m", "text" + i, new float[]{i});
+
+        assertTrue(cache.size() <= 2);
+    }
+
+    @Test
+    public void testDisabledCacheNeverHits() {
+        properties.getEmbeddingCache().setEnabled(false);
+        EmbeddingCache cache = new EmbeddingCache(properties, meterRegistry, ticker);
+        cache.put("m", "text", new float[]{1f});
+        assertNull(cache.get("m", "text"));
+    }
+
+    @Test
+    public void testPersistenceRoundTrip() {
+        properties.getEmbeddingCache().setPersistenceFile(tempDir.resolve("embeddings.bin").toString());
+        EmbeddingCache cache = new EmbeddingCache(properties, meterRegistry, ticker);
+        cache.put("m", "Acme ‖ 1 Main St ‖ SG", new float[]{0.25f, -1.5f});
+        cache.save();
+
+        EmbeddingCache restored = new EmbeddingCache(properties, new SimpleMeterRegistry(), ticker);
+        restored.load();
+        assertArrayEquals(new float[]{0.25f, -1.5f}, restored.get("m", "Acme ‖ 1 Main St ‖ SG"));
+    }
+
+    @Test
+    public void testExpiredEntriesAreNotRestored() {
+        properties.getEmbeddingCache().setPersistenceFile(tempDir.resolve("embeddings.bin").toString());
+        EmbeddingCache cache = new EmbeddingCache(properties, meterRegistry, ticker);
+        cache.put("m", "old", new float[]{1f});
+        nanos.addAndGet(Duration.ofMinutes(8).toNanos());
+        cache.put("m", "new", new float[]{2f});
+        cache.save();
+
+        properties.getEmbeddingCache().setTtl(Duration.ofMinutes(5));
+        EmbeddingCache restored = new EmbeddingCache(properties, new SimpleMeterRegistry(), ticker);
+        restored.load();
+        assertNull(restored.get("m", "old"));
+        assertNotNull(restored.get("m", "new"));
+    }
+}
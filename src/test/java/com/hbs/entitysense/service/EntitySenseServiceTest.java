@@ -1,26 +1,63 @@
 package com.hbs.entitysense.service;
 
+import com.hbs.entitysense.audit.ScreeningAuditLogger;
+import com.hbs.entitysense.config.EntitySenseProperties;
 import com.hbs.entitysense.dto.WatchListEntityRequest;
-import com.hbs.entitysense.dto.OllamaEmbeddingResponse;
+import com.hbs.entitysense.dto.RiskMatchResult;
 import com.hbs.entitysense.dto.ValidatePaymentRequest;
 import com.hbs.entitysense.dto.ValidatePaymentResponse;
+import com.hbs.entitysense.dto.WatchlistDistanceRow;
+import com.hbs.entitysense.dto.WatchlistMatchRow;
+import com.hbs.entitysense.dto.WatchlistScoringRow;
+import com.hbs.entitysense.embedding.EmbeddingModels;
+import com.hbs.entitysense.embedding.EmbeddingUnavailableException;
+import com.hbs.entitysense.embedding.EmbeddingVersion;
+import com.hbs.entitysense.embedding.OllamaEmbeddingClient;
 import com.hbs.entitysense.entity.WatchlistEntity;
+import com.hbs.entitysense.event.WatchlistEntityCreatedEvent;
+import com.hbs.entitysense.index.DistanceKernel;
+import com.hbs.entitysense.index.ScalarDistanceKernel;
+import com.hbs.entitysense.index.SearchScope;
+import com.hbs.entitysense.index.VectorMatch;
+import com.hbs.entitysense.index.WatchlistAccountIndex;
+import com.hbs.entitysense.index.WatchlistNameIndex;
+import com.hbs.entitysense.index.WatchlistSnapshot;
+import com.hbs.entitysense.index.WatchlistSnapshots;
+import com.hbs.entitysense.index.WatchlistVectorIndex;
+import com.hbs.entitysense.metrics.ScreeningMetrics;
+import com.hbs.entitysense.model.EmbeddingFailurePolicy;
+import com.hbs.entitysense.model.EmbeddingSlot;
 import com.hbs.entitysense.model.RiskCategory;
+import com.hbs.entitysense.model.SearchMode;
 import com.hbs.entitysense.repository.WatchlistRepository;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import java.net.ConnectException;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -37,72 +74,133 @@ public class EntitySenseServiceTest {
     @Mock
     private ObjectMapper objectMapper;
 
+    @Mock
+    private WatchlistVectorIndex watchlistVectorIndex;
+
+    @Mock
+    private WatchlistNameIndex watchlistNameIndex;
+
+    @Mock
+    private WatchlistAccountIndex watchlistAccountIndex;
+
+    @Mock
+    private WatchlistSnapshots watchlistSnapshots;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Spy
+    private EntitySenseProperties properties = new EntitySenseProperties();
+
+    @Spy
+    private DistanceKernel distanceKernel = new ScalarDistanceKernel();
+
+    @Mock
+    private EmbeddingCache embeddingCache;
+
+    @Mock
+    private EmbeddingModels embeddingModels;
+
+    @Mock
+    private ScreeningAuditLogger screeningAuditLogger;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private ScreeningMetrics screeningMetrics = new ScreeningMetrics(meterRegistry, ObservationRegistry.NOOP);
+
+    @Spy
+    private VerdictCache verdictCache = new VerdictCache(properties, meterRegistry);
+
     @InjectMocks
     private EntitySenseService entitySenseService;
 
+    // Rows the projection queries answer from, by id
+    private final Map<Long, WatchlistEntity> table = new HashMap<>();
+
+    private record DistanceRow(Long getId, RiskCategory getRiskCategory, double getDistance) implements WatchlistDistanceRow {
+    }
+
     @BeforeEach
     public void setUp() {
         MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(entitySenseService, "embeddingClient",
+                new OllamaEmbeddingClient(httpClient, objectMapper, properties, screeningMetrics));
+        when(watchlistSnapshots.current()).thenReturn(WatchlistSnapshot.EMPTY);
+        when(embeddingModels.active()).thenReturn(EmbeddingVersion.DEFAULT);
+        when(watchlistRepository.findScoringRows(any())).thenAnswer(inv -> rows(inv.getArgument(0)).stream()
+                .map(e -> new WatchlistScoringRow(e.getId(), e.getRiskCategory(), e.getCountry(), e.getEmbedding())).toList());
+        when(watchlistRepository.findMatchRows(any())).thenAnswer(inv -> rows(inv.getArgument(0)).stream()
+                .map(e -> new WatchlistMatchRow(e.getId(), e.getName(), e.getAddress(), e.getCountry(), e.getKnownAccounts(), e.getRiskCategory())).toList());
     }
 
-    /**
-     * Stub a successful Ollama response with a list of float values.
-     */
-    private void stubOllama(int size, float value) throws Exception {
-        // Prepare DTO
-        OllamaEmbeddingResponse dto = new OllamaEmbeddingResponse();
-        List<Float> list = new ArrayList<>();
-        for (int i = 0; i < size; i++) {
-            list.add(value);
-        }
-        dto.setEmbedding(list);
+    private List<WatchlistEntity> rows(Collection<Long> ids) {
+        return ids.stream().map(table::get).filter(Objects::nonNull).toList();
+    }
 
-        // Prepare JSON strings
-        String requestJson = "{\"model\":\"dummy\",\"prompt\":\"text\"}";
-        String responseJson = "{\"embedding\":[]}";
+    private void stubTable(WatchlistEntity... entities) {
+        stubTable(List.of(entities));
+    }
 
-        // Stub ObjectMapper for request and response
-        when(objectMapper.writeValueAsString(any())).thenReturn(requestJson);
-        when(objectMapper.readValue(eq(responseJson), eq(OllamaEmbeddingResponse.class))).thenReturn(dto);
+    private void stubTable(List<WatchlistEntity> entities) {
+        entities.forEach(e -> table.put(e.getId(), e));
+    }
 
-        // Mock HTTP response
-        @SuppressWarnings("unchecked")
-        HttpResponse<String> httpResponse = mock(HttpResponse.class);
-        when(httpResponse.body()).thenReturn(responseJson);
+    /** Ids the account queries answer with; the follow-up projection queries then find {@code entities}. */
+    private List<Long> holders(WatchlistEntity... entities) {
+        stubTable(entities);
+        return Arrays.stream(entities).map(WatchlistEntity::getId).toList();
+    }
 
-        // Stub HttpClient.send
-        when(httpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
-                .thenReturn(httpResponse);
+    /** A pgvector hit on {@code e}, which the follow-up projection queries then find. */
+    private WatchlistDistanceRow nearest(WatchlistEntity e, double distance) {
+        stubTable(e);
+        return new DistanceRow(e.getId(), e.getRiskCategory(), distance);
     }
 
     /**
-     * Stub an Ollama response with a null embedding list.
+     * Stub a successful Ollama response whose embedding is {@code size} copies of {@code value}. The mocked client
+     * never runs the body handler, so the response carries the parsed body directly.
      */
-    private void stubOllamaNull() throws Exception {
-        // Prepare JSON strings
-        String requestJson = "{\"model\":\"dummy\",\"prompt\":\"text\"}";
-        String responseJson = "{\"embedding\":null}";
+    private void stubOllama(int size, float value) throws Exception {
+        float[] embedding = new float[size];
+        Arrays.fill(embedding, value);
+        stubOllamaBody(embedding);
+    }
 
-        // Stub ObjectMapper for request
-        when(objectMapper.writeValueAsString(any())).thenReturn(requestJson);
-        // Stub ObjectMapper for null response
-        when(objectMapper.readValue(eq(responseJson), eq(OllamaEmbeddingResponse.class)))
-                .thenReturn(new OllamaEmbeddingResponse());
+    /**
+     * Stub an Ollama response without an embedding.
+     */
+    private void stubOllamaNull() throws Exception {
+        stubOllamaBody(null);
+    }
 
-        // Mock HTTP response with null body
-        @SuppressWarnings("unchecked")
-        HttpResponse<String> httpResponse = mock(HttpResponse.class);
-        when(httpResponse.body()).thenReturn(responseJson);
+    /**
+     * Stub the Ollama batch embed endpoint, one vector of {@code size} copies of each value.
+     */
+    private void stubOllamaBatch(int size, float... values) throws Exception {
+        List<float[]> embeddings = new ArrayList<>();
+        for (float value : values) {
+            float[] embedding = new float[size];
+            Arrays.fill(embedding, value);
+            embeddings.add(embedding);
+        }
+        stubOllamaBody(embeddings);
+    }
 
-        // Stub HttpClient.send
-        when(httpClient.send(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
-                .thenReturn(httpResponse);
+    @SuppressWarnings("unchecked")
+    private void stubOllamaBody(Object body) throws Exception {
+        when(objectMapper.writeValueAsBytes(any())).thenReturn("{}".getBytes());
+        HttpResponse<Object> httpResponse = mock(HttpResponse.class);
+        when(httpResponse.body()).thenReturn(body);
+        when(httpClient.sendAsync(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
+                .thenReturn(CompletableFuture.completedFuture(httpResponse));
     }
 
     @Test
     public void testValidatePaymentReturnsAllowWhenNoMatch() throws Exception {
         stubOllama(768, 0.0f);
-        when(watchlistRepository.findAll()).thenReturn(Collections.emptyList());
+        when(watchlistRepository.findNearestWithinDistance(anyString(), anyDouble(), anyInt())).thenReturn(Collections.emptyList());
 
         ValidatePaymentRequest req = new ValidatePaymentRequest();
         req.setPayeeName("X");
@@ -131,7 +229,7 @@ public class EntitySenseServiceTest {
         for (int i = 0; i < 768; i++) arr[i] = 1.0f;
         e.setEmbedding(arr);
 
-        when(watchlistRepository.findAll()).thenReturn(List.of(e));
+        when(watchlistRepository.findNearestWithinDistance(anyString(), anyDouble(), anyInt())).thenReturn(List.of(nearest(e, 0.0)));
 
         ValidatePaymentRequest req = new ValidatePaymentRequest();
         req.setPayeeName("A");
@@ -142,6 +240,9 @@ public class EntitySenseServiceTest {
         ValidatePaymentResponse resp = entitySenseService.validatePayment(req);
         assertEquals("BLOCK", resp.getStatus());
         assertEquals(1, resp.getPossibleWatchListEntityMatches().size());
+        assertEquals(1.0, meterRegistry.counter(ScreeningMetrics.DECISIONS, "status", "BLOCK").count());
+        assertEquals(1.0, meterRegistry.counter(ScreeningMetrics.MATCHES, "risk.category", "SANCTION").count());
+        verify(screeningAuditLogger).record(req, resp);
     }
 
     @Test
@@ -163,6 +264,7 @@ public class EntitySenseServiceTest {
         assertEquals("B", saved.getName());
         assertNotNull(saved.getEmbedding());
         assertEquals(768, saved.getEmbedding().length);
+        verify(eventPublisher).publishEvent(new WatchlistEntityCreatedEvent(saved));
     }
 
     @Test
@@ -184,9 +286,9 @@ public class EntitySenseServiceTest {
     @Test
     public void testCosineDistanceIdentical() throws Exception {
         java.lang.reflect.Method m = EntitySenseService.class.getDeclaredMethod(
-                "cosineDistance", float[].class, float[].class);
+                "cosineDistance", float[].class, double.class, float[].class, double.class);
         m.setAccessible(true);
-        double d = (double) m.invoke(entitySenseService, new float[]{1f,0f}, new float[]{1f,0f});
+        double d = (double) m.invoke(entitySenseService, new float[]{1f,0f}, 1.0, new float[]{1f,0f}, 1.0);
         assertEquals(0.0, d, 1e-6);
     }
 
@@ -206,7 +308,7 @@ public class EntitySenseServiceTest {
         for (int i = 0; i < 768; i++) arr[i] = 0.1f; // Different from input to create distance
         e.setEmbedding(arr);
 
-        when(watchlistRepository.findAll()).thenReturn(List.of(e));
+        when(watchlistRepository.findIdsByKnownAccount("ACC123")).thenReturn(holders(e));
 
         ValidatePaymentRequest req = new ValidatePaymentRequest();
         req.setPayeeName("DifferentName");
@@ -220,6 +322,538 @@ public class EntitySenseServiceTest {
         assertTrue(resp.getPossibleWatchListEntityMatches().get(0).isMatchedAccount());
     }
 
+    @Test
+    public void testAccountMatchWithoutVectorInActiveSlotIsReportedUnscored() throws Exception {
+        stubOllama(768, 0.5f);
+        // Saved before the switch to the secondary model, not re-embedded yet
+        WatchlistEntity e = new WatchlistEntity();
+        e.setId(1L);
+        e.setName("TestEntity");
+        e.setKnownAccounts(new String[]{"ACC123"});
+        e.setRiskCategory(RiskCategory.MULE);
+        e.setEmbedding(new float[768]);
+        WatchlistSnapshot snapshot = mock(WatchlistSnapshot.class);
+        when(snapshot.embedding()).thenReturn(new EmbeddingVersion(EmbeddingSlot.SECONDARY, "mxbai-embed-large"));
+        when(watchlistSnapshots.current()).thenReturn(snapshot);
+        when(watchlistRepository.findIdsByKnownAccount("ACC123")).thenReturn(holders(e));
+
+        ValidatePaymentResponse resp = entitySenseService.validatePayment(new ValidatePaymentRequest("DifferentName", null, null, "ACC123"));
+
+        assertEquals("BLOCK", resp.getStatus());
+        assertEquals(1, resp.getPossibleWatchListEntityMatches().size());
+        assertTrue(resp.getPossibleWatchListEntityMatches().get(0).isMatchedAccount());
+        verify(watchlistRepository).findNearestSecondaryWithinDistance(anyString(), anyDouble(), anyInt());
+    }
+
+    @Test
+    public void testValidatePaymentResolvesAccountFromIndex() throws Exception {
+        stubOllama(768, 0.5f);
+        WatchlistEntity e = new WatchlistEntity();
+        e.setId(1L);
+        e.setName("TestEntity");
+        e.setKnownAccounts(new String[]{"GB29 NWBK 6016"});
+        e.setRiskCategory(RiskCategory.MULE);
+        float[] arr = new float[768];
+        arr[0] = 1f;
+        e.setEmbedding(arr);
+
+        when(watchlistAccountIndex.isReady(any())).thenReturn(true);
+        when(watchlistAccountIndex.entityIds(any(), eq("gb29-nwbk-6016"))).thenReturn(List.of(1L));
+        stubTable(e);
+
+        ValidatePaymentRequest req = new ValidatePaymentRequest("DifferentName", null, null, "gb29-nwbk-6016");
+        ValidatePaymentResponse resp = entitySenseService.validatePayment(req);
+
+        assertEquals("BLOCK", resp.getStatus());
+        assertTrue(resp.getPossibleWatchListEntityMatches().get(0).isMatchedAccount());
+        assertEquals(1 - 1 / Math.sqrt(768), resp.getPossibleWatchListEntityMatches().get(0).getDistance(), 1e-6);
+        verify(watchlistRepository, never()).findIdsByKnownAccount(any());
+        // Holders come back as slim rows; only the active vector of the one to score is read
+        verify(watchlistRepository).findMatchRows(List.of(1L));
+        verify(watchlistRepository).findScoringRows(List.of(1L));
+        verify(watchlistRepository, never()).findAllById(any());
+    }
+
+    @Test
+    public void testFormattedAccountMatchesWithAndWithoutAccountIndex() throws Exception {
+        stubOllama(768, 0.5f);
+        when(watchlistRepository.save(any())).thenAnswer(inv -> {
+            WatchlistEntity entity = inv.getArgument(0);
+            entity.setId(1L);
+            return entity;
+        });
+        WatchListEntityRequest create = new WatchListEntityRequest();
+        create.setName("Mule Ltd");
+        create.setRiskCategory(RiskCategory.MULE);
+        create.setKnownAccounts(new String[]{"GB123456", "gb12 3456"});
+        entitySenseService.createWatchListEntity(create);
+        ArgumentCaptor<WatchlistEntity> captor = ArgumentCaptor.forClass(WatchlistEntity.class);
+        verify(watchlistRepository).save(captor.capture());
+        WatchlistEntity saved = captor.getValue();
+        assertArrayEquals(new String[]{"GB123456"}, saved.getKnownAccountsNormalised());
+        // Answer like the SQL does: containment in known_accounts_normalised
+        stubTable(saved);
+        when(watchlistRepository.findIdsByKnownAccount(anyString())).thenAnswer(inv ->
+                Arrays.asList(saved.getKnownAccountsNormalised()).contains(inv.<String>getArgument(0)) ? List.of(1L) : List.of());
+        when(watchlistAccountIndex.entityIds(any(), anyString())).thenAnswer(inv ->
+                WatchlistAccountIndex.holds(saved.getKnownAccounts(), inv.getArgument(1)) ? List.of(1L) : List.of());
+        ValidatePaymentRequest req = new ValidatePaymentRequest("Someone Else", null, null, "GB12-3456");
+
+        properties.getScreening().setAccountIndex(false);
+        ValidatePaymentResponse fromDatabase = entitySenseService.validatePayment(req);
+        properties.getScreening().setAccountIndex(true);
+        when(watchlistAccountIndex.isReady(any())).thenReturn(true);
+        ValidatePaymentResponse fromIndex = entitySenseService.validatePayment(req);
+
+        for (ValidatePaymentResponse resp : List.of(fromDatabase, fromIndex)) {
+            assertEquals("BLOCK", resp.getStatus());
+            assertTrue(resp.getPossibleWatchListEntityMatches().get(0).isMatchedAccount());
+        }
+        verify(watchlistRepository).findIdsByKnownAccount("GB123456");
+    }
+
+    @Test
+    public void testAccountIndexMissSkipsAccountQuery() throws Exception {
+        stubOllama(768, 0.5f);
+        when(watchlistAccountIndex.isReady(any())).thenReturn(true);
+        when(watchlistAccountIndex.entityIds(any(), any())).thenReturn(List.of());
+
+        ValidatePaymentResponse resp = entitySenseService.validatePayment(new ValidatePaymentRequest("Nobody", null, null, "ACC404"));
+
+        assertEquals("ALLOW", resp.getStatus());
+        verify(watchlistRepository, never()).findIdsByKnownAccount(any());
+        verify(watchlistRepository, never()).findAllById(any());
+    }
+
+    @Test
+    public void testDatabaseSearchLoadsDetailsOfReportedMatchesOnly() throws Exception {
+        stubOllama(768, 1.0f);
+        List<WatchlistDistanceRow> hits = new ArrayList<>();
+        for (long id = 1; id <= 3; id++) {
+            WatchlistEntity e = new WatchlistEntity();
+            e.setId(id);
+            e.setName("E" + id);
+            e.setRiskCategory(RiskCategory.SANCTION);
+            hits.add(nearest(e, 0.05 * id));
+        }
+        when(watchlistRepository.findNearestWithinDistance(anyString(), anyDouble(), anyInt())).thenReturn(hits);
+
+        ValidatePaymentResponse resp = entitySenseService.validatePayment(new ValidatePaymentRequest("E", null, null, null, 2));
+
+        assertEquals(List.of("E1", "E2"), resp.getPossibleWatchListEntityMatches().stream().map(RiskMatchResult::getName).toList());
+        assertEquals(0.05, resp.getPossibleWatchListEntityMatches().get(0).getDistance(), 1e-9);
+        verify(watchlistRepository).findMatchRows(List.of(1L, 2L));
+        verify(watchlistRepository, never()).findScoringRows(any());
+        verify(watchlistRepository, never()).findAllById(any());
+    }
+
+    @Test
+    public void testValidatePaymentDeduplicatesVectorAndAccountMatches() throws Exception {
+        stubOllama(768, 1.0f);
+        WatchlistEntity e = new WatchlistEntity();
+        e.setId(7L);
+        e.setName("Both");
+        e.setKnownAccounts(new String[]{"ACC777"});
+        e.setRiskCategory(RiskCategory.SANCTION);
+
+        float[] arr = new float[768];
+        for (int i = 0; i < 768; i++) arr[i] = 1.0f;
+        e.setEmbedding(arr);
+
+        when(watchlistRepository.findNearestWithinDistance(anyString(), anyDouble(), anyInt())).thenReturn(List.of(nearest(e, 0.0)));
+        when(watchlistRepository.findIdsByKnownAccount("ACC777")).thenReturn(holders(e));
+
+        ValidatePaymentRequest req = new ValidatePaymentRequest();
+        req.setPayeeName("Both");
+        req.setAccountNumber("ACC777");
+
+        ValidatePaymentResponse resp = entitySenseService.validatePayment(req);
+        assertEquals("BLOCK", resp.getStatus());
+        assertEquals(1, resp.getPossibleWatchListEntityMatches().size());
+        assertTrue(resp.getPossibleWatchListEntityMatches().get(0).isMatchedAccount());
+        verify(watchlistRepository, never()).findAll();
+    }
+
+    @Test
+    public void testValidatePaymentUsesInMemoryIndexWhenReady() throws Exception {
+        stubOllama(768, 1.0f);
+        properties.getScreening().setSearchMode(SearchMode.IN_MEMORY);
+        WatchlistEntity e = new WatchlistEntity();
+        e.setId(3L);
+        e.setName("Indexed");
+        e.setRiskCategory(RiskCategory.PEP);
+
+        when(watchlistVectorIndex.isReady(any())).thenReturn(true);
+        when(watchlistVectorIndex.searchBatch(any(), any(), any(SearchScope[].class), anyInt())).thenReturn(List.of(List.of(new VectorMatch(3L, 0.05))));
+        stubTable(e);
+
+        ValidatePaymentRequest req = new ValidatePaymentRequest();
+        req.setPayeeName("Indexed");
+
+        ValidatePaymentResponse resp = entitySenseService.validatePayment(req);
+        assertEquals("BLOCK", resp.getStatus());
+        assertEquals(0.05, resp.getPossibleWatchListEntityMatches().get(0).getDistance(), 1e-9);
+        verify(watchlistRepository, never()).findNearestWithinDistance(anyString(), anyDouble(), anyInt());
+    }
+
+    @Test
+    public void testMaxMatchesKeepsNearestAndAlwaysReportsAccountMatch() throws Exception {
+        stubOllama(768, 1.0f);
+        properties.getScreening().setSearchMode(SearchMode.IN_MEMORY);
+        List<WatchlistEntity> entities = new ArrayList<>();
+        List<VectorMatch> hits = new ArrayList<>();
+        for (long id = 1; id <= 5; id++) {
+            WatchlistEntity e = new WatchlistEntity();
+            e.setId(id);
+            e.setName("E" + id);
+            entities.add(e);
+            hits.add(new VectorMatch(id, 0.05 * id));
+        }
+        WatchlistEntity holder = new WatchlistEntity();
+        holder.setId(9L);
+        holder.setName("Holder");
+        holder.setKnownAccounts(new String[]{"ACC9"});
+        holder.setEmbedding(new float[768]);
+
+        when(watchlistVectorIndex.isReady(any())).thenReturn(true);
+        when(watchlistVectorIndex.searchBatch(any(), any(), any(SearchScope[].class), anyInt())).thenReturn(List.of(hits));
+        stubTable(entities);
+        when(watchlistRepository.findIdsByKnownAccount("ACC9")).thenReturn(holders(holder));
+
+        ValidatePaymentRequest req = new ValidatePaymentRequest("E", null, null, "ACC9", 3);
+        ValidatePaymentResponse resp = entitySenseService.validatePayment(req);
+        assertEquals(List.of(1L, 2L, 9L), resp.getPossibleWatchListEntityMatches().stream().map(RiskMatchResult::getId).toList());
+
+        properties.getScreening().setMaxMatches(1);
+        req.setMaxMatches(null);
+        resp = entitySenseService.validatePayment(req);
+        assertEquals(List.of(9L), resp.getPossibleWatchListEntityMatches().stream().map(RiskMatchResult::getId).toList());
+        assertEquals("BLOCK", resp.getStatus());
+    }
+
+    @Test
+    public void testQuantisedIndexHitsAreRescoredAtFullPrecision() throws Exception {
+        stubOllama(768, 1.0f);
+        properties.getScreening().setSearchMode(SearchMode.IN_MEMORY);
+        WatchlistEntity near = new WatchlistEntity();
+        near.setId(3L);
+        near.setName("Near");
+        float[] nearEmbedding = new float[768];
+        Arrays.fill(nearEmbedding, 1.0f);
+        near.setEmbedding(nearEmbedding);
+        WatchlistEntity outside = new WatchlistEntity();
+        outside.setId(4L);
+        outside.setName("Outside");
+        float[] outsideEmbedding = new float[768];
+        Arrays.fill(outsideEmbedding, 0, 256, 1.0f);
+        outside.setEmbedding(outsideEmbedding);
+
+        when(watchlistVectorIndex.isReady(any())).thenReturn(true);
+        when(watchlistVectorIndex.isQuantised(any())).thenReturn(true);
+        when(watchlistVectorIndex.searchBatch(any(), any(), any(SearchScope[].class), anyInt()))
+                .thenReturn(List.of(List.of(new VectorMatch(3L, 0.01, Math.sqrt(768)), new VectorMatch(4L, 0.29, 16.0))));
+        stubTable(near, outside);
+
+        ValidatePaymentResponse resp = entitySenseService.validatePayment(new ValidatePaymentRequest("Near", null, null, null));
+
+        assertEquals(List.of(3L), resp.getPossibleWatchListEntityMatches().stream().map(RiskMatchResult::getId).toList());
+        assertEquals(0.0, resp.getPossibleWatchListEntityMatches().get(0).getDistance(), 1e-6);
+        // Re-scored with the norms the snapshot kept, not recomputed from the rows
+        verify(distanceKernel, never()).norm(same(nearEmbedding));
+        verify(distanceKernel, never()).norm(same(outsideEmbedding));
+    }
+
+    @Test
+    public void testPrefilterAllowsWithoutCallingOllamaWhenNothingIsSimilar() throws Exception {
+        properties.getScreening().getPrefilter().setEnabled(true);
+        when(watchlistNameIndex.isReady(any())).thenReturn(true);
+        when(watchlistNameIndex.candidates(any(), eq("Nobody"), eq("SG"))).thenReturn(List.of());
+        when(watchlistRepository.findIdsByKnownAccount("ACC9")).thenReturn(List.of());
+
+        ValidatePaymentResponse resp = entitySenseService.validatePayment(new ValidatePaymentRequest("Nobody", null, "SG", "ACC9"));
+
+        assertEquals("ALLOW", resp.getStatus());
+        verify(httpClient, never()).sendAsync(any(), any());
+        verify(watchlistRepository, never()).findNearestWithinDistance(anyString(), anyDouble(), anyInt());
+        assertEquals(1.0, meterRegistry.counter(ScreeningMetrics.EMBEDDINGS_SKIPPED).count());
+    }
+
+    @Test
+    public void testDecisionReadsOneSnapshotAndRecordsItsVersion() {
+        properties.getScreening().getPrefilter().setEnabled(true);
+        WatchlistSnapshot snapshot = mock(WatchlistSnapshot.class);
+        when(snapshot.version()).thenReturn(7L);
+        when(watchlistSnapshots.current()).thenReturn(snapshot, WatchlistSnapshot.EMPTY);
+        when(watchlistNameIndex.isReady(same(snapshot))).thenReturn(true);
+        when(watchlistNameIndex.candidates(same(snapshot), eq("Nobody"), isNull())).thenReturn(List.of());
+
+        ValidatePaymentResponse resp = entitySenseService.validatePayment(new ValidatePaymentRequest("Nobody", null, null, null));
+
+        assertEquals("ALLOW", resp.getStatus());
+        assertEquals(7L, resp.getWatchlistVersion());
+        verify(watchlistSnapshots, times(1)).current();
+    }
+
+    @Test
+    public void testProfileScreensOnlyItsCategoriesAtTheirThresholds() throws Exception {
+        stubOllama(768, 1.0f);
+        EntitySenseProperties.Profile domestic = new EntitySenseProperties.Profile();
+        domestic.setCategories(Set.of(RiskCategory.SANCTION, RiskCategory.MULE));
+        domestic.setThresholds(Map.of(RiskCategory.MULE, 0.05));
+        domestic.setCountries(Set.of("sg"));
+        properties.getScreening().getProfiles().put("domestic", domestic);
+        // Distance ~0.087 from the all-ones payee: a sanction match, but outside the stricter mule threshold
+        float[] embedding = new float[768];
+        Arrays.fill(embedding, 0, 640, 1.0f);
+        WatchlistEntity sanction = new WatchlistEntity();
+        sanction.setId(1L);
+        sanction.setName("Sanctioned");
+        sanction.setRiskCategory(RiskCategory.SANCTION);
+        sanction.setEmbedding(embedding);
+        WatchlistEntity mule = new WatchlistEntity();
+        mule.setId(2L);
+        mule.setName("Mule");
+        mule.setRiskCategory(RiskCategory.MULE);
+        mule.setEmbedding(embedding);
+        double distance = 1 - Math.sqrt(640.0 / 768);
+        when(watchlistRepository.findNearestWithinDistanceScoped(anyString(), anyDouble(), any(), any(), anyInt()))
+                .thenReturn(List.of(nearest(sanction, distance), nearest(mule, distance)));
+
+        ValidatePaymentRequest req = new ValidatePaymentRequest("Sanctioned", null, "SG", null);
+        req.setProfile("domestic");
+        ValidatePaymentResponse resp = entitySenseService.validatePayment(req);
+
+        assertEquals(List.of(1L), resp.getPossibleWatchListEntityMatches().stream().map(RiskMatchResult::getId).toList());
+        assertEquals("domestic", resp.getProfile());
+        ArgumentCaptor<String[]> categories = ArgumentCaptor.forClass(String[].class);
+        verify(watchlistRepository).findNearestWithinDistanceScoped(anyString(), eq(0.3), categories.capture(),
+                eq(new String[]{"SG"}), anyInt());
+        assertEquals(Set.of("SANCTION", "MULE"), Set.of(categories.getValue()));
+        verify(watchlistRepository, never()).findNearestWithinDistance(anyString(), anyDouble(), anyInt());
+    }
+
+    @Test
+    public void testProfileInDatabaseModeReportsUncategorisedEntities() throws Exception {
+        stubOllama(768, 1.0f);
+        EntitySenseProperties.Profile sanctions = new EntitySenseProperties.Profile();
+        sanctions.setCategories(Set.of(RiskCategory.SANCTION));
+        properties.getScreening().getProfiles().put("sanctions", sanctions);
+        WatchlistEntity uncategorised = new WatchlistEntity();
+        uncategorised.setId(1L);
+        uncategorised.setName("Uncategorised");
+        uncategorised.setEmbedding(new float[768]);
+        WatchlistEntity mule = new WatchlistEntity();
+        mule.setId(2L);
+        mule.setName("Mule");
+        mule.setRiskCategory(RiskCategory.MULE);
+        mule.setEmbedding(new float[768]);
+        List<WatchlistDistanceRow> rows = List.of(nearest(uncategorised, 0.1), nearest(mule, 0.1));
+        // Same category filter as the scoped query: rows without a category always qualify
+        when(watchlistRepository.findNearestWithinDistanceScoped(anyString(), anyDouble(), any(), any(), anyInt())).thenAnswer(inv -> {
+            Set<String> categories = Set.of(inv.getArgument(2, String[].class));
+            return rows.stream().filter(row -> row.getRiskCategory() == null || categories.contains(row.getRiskCategory().name())).toList();
+        });
+
+        ValidatePaymentRequest req = new ValidatePaymentRequest("Uncategorised", null, null, null);
+        req.setProfile("sanctions");
+        ValidatePaymentResponse resp = entitySenseService.validatePayment(req);
+
+        assertEquals(List.of(1L), resp.getPossibleWatchListEntityMatches().stream().map(RiskMatchResult::getId).toList());
+    }
+
+    @Test
+    public void testUnknownProfileIsRejectedBeforeEmbedding() {
+        ValidatePaymentRequest req = new ValidatePaymentRequest("Anyone", null, null, null);
+        req.setProfile("missing");
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> entitySenseService.validatePayment(req));
+        assertEquals("Unknown screening profile: missing", e.getMessage());
+        verifyNoInteractions(httpClient, watchlistRepository);
+    }
+
+    @Test
+    public void testRepeatPaymentIsServedFromVerdictCacheUntilTheWatchlistChanges() throws Exception {
+        stubOllama(768, 1.0f);
+        properties.getVerdictCache().setEnabled(true);
+        WatchlistSnapshot v1 = mock(WatchlistSnapshot.class);
+        when(v1.version()).thenReturn(1L);
+        when(v1.embedding()).thenReturn(EmbeddingVersion.DEFAULT);
+        WatchlistSnapshot v2 = mock(WatchlistSnapshot.class);
+        when(v2.version()).thenReturn(2L);
+        when(v2.embedding()).thenReturn(EmbeddingVersion.DEFAULT);
+        when(watchlistSnapshots.current()).thenReturn(v1, v1, v2);
+        when(watchlistRepository.findNearestWithinDistance(anyString(), anyDouble(), anyInt())).thenReturn(Collections.emptyList());
+
+        ValidatePaymentResponse first = entitySenseService.validatePayment(new ValidatePaymentRequest("Payroll  Ltd", null, "SG", "acc-1"));
+        ValidatePaymentResponse repeat = entitySenseService.validatePayment(new ValidatePaymentRequest("Payroll Ltd", null, "SG", "ACC1"));
+        ValidatePaymentResponse afterChange = entitySenseService.validatePayment(new ValidatePaymentRequest("Payroll Ltd", null, "SG", "ACC1"));
+
+        assertSame(first, repeat);
+        assertNotSame(first, afterChange);
+        assertEquals(2L, afterChange.getWatchlistVersion());
+        verify(watchlistRepository, times(2)).findNearestWithinDistance(anyString(), anyDouble(), anyInt());
+        verify(screeningAuditLogger, times(3)).record(any(), any());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "verdicts").tag("result", "hit").functionCounter().count());
+    }
+
+    @Test
+    public void testPrefilterScoresOnlyShortlistAndAccountHolders() throws Exception {
+        stubOllama(768, 1.0f);
+        properties.getScreening().getPrefilter().setEnabled(true);
+        float[] close = new float[768];
+        Arrays.fill(close, 1.0f);
+        float[] far = new float[768];
+        far[0] = 1.0f;
+
+        WatchlistEntity named = new WatchlistEntity();
+        named.setId(1L);
+        named.setName("Jon Doe");
+        named.setEmbedding(close);
+        WatchlistEntity accountHolder = new WatchlistEntity();
+        accountHolder.setId(2L);
+        accountHolder.setName("Unrelated Ltd");
+        accountHolder.setKnownAccounts(new String[]{"ACC1"});
+        accountHolder.setEmbedding(far);
+
+        when(watchlistNameIndex.isReady(any())).thenReturn(true);
+        when(watchlistNameIndex.candidates(any(), eq("John Doe"), isNull())).thenReturn(List.of(1L));
+        stubTable(named);
+        when(watchlistRepository.findIdsByKnownAccount("ACC1")).thenReturn(holders(accountHolder));
+
+        ValidatePaymentResponse resp = entitySenseService.validatePayment(new ValidatePaymentRequest("John Doe", null, null, "ACC1"));
+
+        assertEquals("BLOCK", resp.getStatus());
+        assertEquals(List.of(1L, 2L), resp.getPossibleWatchListEntityMatches().stream().map(RiskMatchResult::getId).toList());
+        assertTrue(resp.getPossibleWatchListEntityMatches().get(1).isMatchedAccount());
+        verify(watchlistRepository, never()).findNearestWithinDistance(anyString(), anyDouble(), anyInt());
+    }
+
+    @Test
+    public void testValidatePaymentServesEmbeddingFromCache() throws Exception {
+        float[] cached = new float[768];
+        cached[0] = 1.0f;
+        when(embeddingCache.get(anyString(), eq("Cached ‖ Addr ‖ SG"))).thenReturn(cached);
+
+        ValidatePaymentRequest req = new ValidatePaymentRequest();
+        req.setPayeeName("  Cached ");
+        req.setPayeeAddress("Addr");
+        req.setPayeeCountry("SG");
+
+        assertEquals("ALLOW", entitySenseService.validatePayment(req).getStatus());
+        verify(httpClient, never()).sendAsync(any(HttpRequest.class), any(HttpResponse.BodyHandler.class));
+    }
+
+    @Test
+    public void testGeneratedEmbeddingIsCached() throws Exception {
+        stubOllama(768, 0.5f);
+
+        ValidatePaymentRequest req = new ValidatePaymentRequest();
+        req.setPayeeName("Fresh");
+
+        entitySenseService.validatePayment(req);
+        verify(embeddingCache).put(anyString(), eq("Fresh ‖ ‖"), argThat(arr -> arr.length == 768));
+    }
+
+    @Test
+    public void testValidatePaymentsEmbedsOnceAndScoresInRequestOrder() throws Exception {
+        // Two distinct payee texts plus a duplicate: only the distinct ones go to Ollama, in one call
+        stubOllamaBatch(768, 1.0f, -1.0f);
+        WatchlistEntity e = new WatchlistEntity();
+        e.setId(1L);
+        e.setName("Match");
+        e.setKnownAccounts(new String[]{"ACC9"});
+        e.setRiskCategory(RiskCategory.MULE);
+        float[] arr = new float[768];
+        for (int i = 0; i < 768; i++) arr[i] = 1.0f;
+        e.setEmbedding(arr);
+
+        when(watchlistRepository.findNearestWithinDistance(anyString(), anyDouble(), anyInt())).thenAnswer(inv ->
+                ((String) inv.getArgument(0)).startsWith("[1.0") ? List.of(nearest(e, 0.0)) : List.of());
+        when(watchlistRepository.findIdsByAnyKnownAccount(any())).thenReturn(holders(e));
+
+        List<ValidatePaymentResponse> responses = entitySenseService.validatePayments(List.of(
+                new ValidatePaymentRequest("Match", null, null, null),
+                new ValidatePaymentRequest("Other", null, null, null),
+                new ValidatePaymentRequest("Other", null, null, "ACC9"),
+                new ValidatePaymentRequest("Match", null, null, null)));
+
+        assertEquals(List.of("BLOCK", "ALLOW", "BLOCK", "BLOCK"), responses.stream().map(ValidatePaymentResponse::getStatus).toList());
+        assertTrue(responses.get(2).getPossibleWatchListEntityMatches().get(0).isMatchedAccount());
+        verify(httpClient, times(1)).sendAsync(any(HttpRequest.class), any(HttpResponse.BodyHandler.class));
+        verify(watchlistRepository, times(1)).findIdsByAnyKnownAccount(new String[]{"ACC9"});
+    }
+
+    private void stubOllamaDown() throws Exception {
+        when(objectMapper.writeValueAsBytes(any())).thenReturn("{}".getBytes());
+        when(httpClient.sendAsync(any(HttpRequest.class), any(HttpResponse.BodyHandler.class)))
+                .thenReturn(CompletableFuture.failedFuture(new ConnectException("Connection refused")));
+    }
+
+    @Test
+    public void testFailOpenScreensByAccountOnlyWhenOllamaIsDown() throws Exception {
+        properties.getOllama().setFailurePolicy(EmbeddingFailurePolicy.FAIL_OPEN);
+        stubOllamaDown();
+        WatchlistEntity holder = new WatchlistEntity();
+        holder.setId(1L);
+        holder.setName("Holder");
+        holder.setKnownAccounts(new String[]{"ACC123"});
+        when(watchlistRepository.findIdsByKnownAccount("ACC123")).thenReturn(holders(holder));
+
+        ValidatePaymentResponse blocked = entitySenseService.validatePayment(new ValidatePaymentRequest("Alice", null, "SG", "ACC123"));
+        assertEquals("BLOCK", blocked.getStatus());
+        assertTrue(blocked.isDegraded());
+        assertTrue(blocked.getPossibleWatchListEntityMatches().get(0).isMatchedAccount());
+
+        ValidatePaymentResponse allowed = entitySenseService.validatePayment(new ValidatePaymentRequest("Bob", null, "SG", null));
+        assertEquals("ALLOW", allowed.getStatus());
+        assertTrue(allowed.isDegraded());
+        assertEquals(2.0, meterRegistry.get("entitysense.screening.degraded").tag("policy", "fail_open").counter().count());
+    }
+
+    @Test
+    public void testFailClosedBlocksWhenOllamaIsDown() throws Exception {
+        properties.getOllama().setFailurePolicy(EmbeddingFailurePolicy.FAIL_CLOSED);
+        stubOllamaDown();
+
+        List<ValidatePaymentResponse> responses = entitySenseService.validatePayments(List.of(
+                new ValidatePaymentRequest("Alice", null, "SG", null), new ValidatePaymentRequest("Bob", null, "SG", null)));
+
+        assertEquals(List.of("BLOCK", "BLOCK"), responses.stream().map(ValidatePaymentResponse::getStatus).toList());
+        assertTrue(responses.stream().allMatch(ValidatePaymentResponse::isDegraded));
+        assertTrue(responses.get(0).getPossibleWatchListEntityMatches().isEmpty());
+    }
+
+    @Test
+    public void testErrorPolicyFailsWhenOllamaIsDown() throws Exception {
+        stubOllamaDown();
+        assertThrows(EmbeddingUnavailableException.class,
+                () -> entitySenseService.validatePayment(new ValidatePaymentRequest("Alice", null, "SG", null)));
+    }
+
+    @Test
+    public void testValidatePaymentsHoldsPermitsPerChunk() throws Exception {
+        properties.getBatch().setChunkSize(1);
+        stubOllamaBatch(768, 1.0f);
+        when(watchlistRepository.findNearestWithinDistance(anyString(), anyDouble(), anyInt())).thenReturn(List.of());
+        BlockingPermits permits = spy(new BlockingPermits(1, 1, Duration.ofSeconds(1)));
+
+        List<ValidatePaymentResponse> responses = entitySenseService.validatePayments(List.of(
+                new ValidatePaymentRequest("A", null, null, null),
+                new ValidatePaymentRequest("B", null, null, null)), permits);
+
+        assertEquals(List.of("ALLOW", "ALLOW"), responses.stream().map(ValidatePaymentResponse::getStatus).toList());
+        verify(permits, times(2)).ollama(any());
+        verify(permits, times(2)).database(any());
+    }
+
+    @Test
+    public void testValidatePaymentsRejectsOversizedBatch() {
+        properties.getBatch().setMaxItems(1);
+        List<ValidatePaymentRequest> requests = List.of(new ValidatePaymentRequest("A", null, null, null),
+                new ValidatePaymentRequest("B", null, null, null));
+        assertThrows(RuntimeException.class, () -> entitySenseService.validatePayments(requests));
+    }
+
     @Test
     public void testCreateWatchListEntityWithNullFields() throws Exception {
         stubOllama(768, 0.1f);
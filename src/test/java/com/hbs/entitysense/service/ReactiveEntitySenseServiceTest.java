@@ -0,0 +1,240 @@
+package com.hbs.entitysense.service;
+
+import com.hbs.entitysense.config.EntitySenseProperties;
+import com.hbs.entitysense.dto.ValidatePaymentRequest;
+import com.hbs.entitysense.dto.ValidatePaymentResponse;
+import com.hbs.entitysense.dto.WatchListEntityRequest;
+import com.hbs.entitysense.embedding.EmbeddingUnavailableException;
+import com.hbs.entitysense.embedding.EmbeddingVersion;
+import com.hbs.entitysense.index.WatchlistSnapshot;
+import com.hbs.entitysense.metrics.ScreeningMetrics;
+import com.hbs.entitysense.model.ExecutionMode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class ReactiveEntitySenseServiceTest {
+
+    @Mock
+    private EntitySenseService entitySenseService;
+
+    private final Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+    private final EntitySenseProperties properties = new EntitySenseProperties();
+
+    private ReactiveEntitySenseService reactiveEntitySenseService;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        properties.getReactive().setMaxInFlightEmbeddings(1);
+        when(entitySenseService.currentSnapshot()).thenReturn(WatchlistSnapshot.EMPTY);
+        when(entitySenseService.activeEmbedding()).thenReturn(EmbeddingVersion.DEFAULT);
+        reactiveEntitySenseService = new ReactiveEntitySenseService(entitySenseService, properties, Schedulers.immediate(),
+                BlockingPermits.UNLIMITED, new ScreeningMetrics(new SimpleMeterRegistry(), ObservationRegistry.NOOP), validator);
+    }
+
+    @Test
+    public void testValidatePaymentScreensAsyncEmbedding() {
+        ValidatePaymentRequest request = new ValidatePaymentRequest("Alice", null, "SG", null);
+        float[] embedding = {1.0f, 0.0f};
+        ValidatePaymentResponse allow = new ValidatePaymentResponse();
+        allow.setStatus("ALLOW");
+        when(entitySenseService.generateEmbeddingAsync(EmbeddingVersion.DEFAULT.model(), "Alice", null, "SG")).thenReturn(CompletableFuture.completedFuture(embedding));
+        when(entitySenseService.screenPayment(request, embedding, null, WatchlistSnapshot.EMPTY)).thenReturn(allow);
+
+        assertEquals("ALLOW", reactiveEntitySenseService.validatePayment(request).block().getStatus());
+    }
+
+    @Test
+    public void testValidatePaymentSkipsEmbeddingWhenShortlistIsEmpty() {
+        ValidatePaymentRequest request = new ValidatePaymentRequest("Nobody", null, "SG", null);
+        ValidatePaymentResponse allow = new ValidatePaymentResponse();
+        allow.setStatus("ALLOW");
+        when(entitySenseService.isPrefilterActive(any())).thenReturn(true);
+        when(entitySenseService.shortlist(eq(request), any())).thenReturn(new Shortlist(List.of(), List.of()));
+        when(entitySenseService.allowWithoutEmbedding(eq(request), any())).thenReturn(allow);
+
+        assertEquals("ALLOW", reactiveEntitySenseService.validatePayment(request).block().getStatus());
+        verify(entitySenseService, never()).generateEmbeddingAsync(any(), any(), any(), any());
+    }
+
+    @Test
+    public void testCreateWatchListEntityFailsWhenEmbeddingMissing() {
+        WatchListEntityRequest request = new WatchListEntityRequest();
+        request.setName("WatchCorp");
+        when(entitySenseService.generateEmbeddingAsync(any(), any(), any(), any())).thenReturn(CompletableFuture.completedFuture(null));
+
+        RuntimeException ex = assertThrows(RuntimeException.class, () -> reactiveEntitySenseService.createWatchListEntity(request).block());
+        assertEquals("Failed to generate embedding for entity: WatchCorp", ex.getMessage());
+        verify(entitySenseService, never()).saveWatchListEntity(any(), any(), any());
+    }
+
+    @Test
+    public void testRejectsWhenEmbeddingLimitReached() {
+        CompletableFuture<float[]> pending = new CompletableFuture<>();
+        when(entitySenseService.generateEmbeddingAsync(any(), any(), any(), any())).thenReturn(pending);
+        when(entitySenseService.screenPayment(any(), any(), any(), any())).thenReturn(new ValidatePaymentResponse());
+        ValidatePaymentRequest request = new ValidatePaymentRequest("Alice", null, "SG", null);
+
+        reactiveEntitySenseService.validatePayment(request).subscribe();
+
+        assertThrows(RejectedExecutionException.class, () -> reactiveEntitySenseService.validatePayment(request).block());
+
+        // Completing the outstanding call frees its permit
+        pending.complete(new float[]{1.0f});
+        when(entitySenseService.generateEmbeddingAsync(any(), any(), any(), any())).thenReturn(CompletableFuture.completedFuture(new float[]{1.0f}));
+        assertNotNull(reactiveEntitySenseService.validatePayment(request).block());
+    }
+
+    @Test
+    public void testUnavailableEmbeddingFallsBackToFailurePolicy() {
+        ValidatePaymentRequest request = new ValidatePaymentRequest("Alice", null, "SG", "ACC1");
+        EmbeddingUnavailableException unavailable = new EmbeddingUnavailableException("No Ollama endpoint available");
+        ValidatePaymentResponse degraded = new ValidatePaymentResponse();
+        degraded.setStatus("BLOCK");
+        degraded.setDegraded(true);
+        when(entitySenseService.generateEmbeddingAsync(any(), any(), any(), any())).thenReturn(CompletableFuture.failedFuture(unavailable));
+        when(entitySenseService.screenWithoutEmbedding(request, null, WatchlistSnapshot.EMPTY, unavailable)).thenReturn(degraded);
+
+        assertTrue(reactiveEntitySenseService.validatePayment(request).block().isDegraded());
+        verify(entitySenseService, never()).screenPayment(any(), any(), any(), any());
+    }
+
+    @Test
+    public void testVirtualThreadModeScreensOnAVirtualThreadWithPermits() {
+        properties.getReactive().setExecutionMode(ExecutionMode.VIRTUAL_THREADS);
+        BlockingPermits permits = new BlockingPermits(2, 4, Duration.ofSeconds(1));
+        Scheduler virtualThreads = Schedulers.fromExecutorService(Executors.newVirtualThreadPerTaskExecutor());
+        reactiveEntitySenseService = new ReactiveEntitySenseService(entitySenseService, properties, virtualThreads, permits,
+                new ScreeningMetrics(new SimpleMeterRegistry(), ObservationRegistry.NOOP), validator);
+        ValidatePaymentRequest request = new ValidatePaymentRequest("Alice", null, "SG", null);
+        AtomicBoolean virtual = new AtomicBoolean();
+        when(entitySenseService.validatePayment(request, permits)).thenAnswer(inv -> {
+            virtual.set(Thread.currentThread().isVirtual());
+            ValidatePaymentResponse allow = new ValidatePaymentResponse();
+            allow.setStatus("ALLOW");
+            return allow;
+        });
+
+        try {
+            assertEquals("ALLOW", reactiveEntitySenseService.validatePayment(request).block().getStatus());
+        } finally {
+            virtualThreads.dispose();
+        }
+        assertTrue(virtual.get());
+        verify(entitySenseService, never()).generateEmbeddingAsync(any(), any(), any(), any());
+    }
+
+    @Test
+    public void testVirtualThreadModeScreensBatchesAndStreamsWithPermits() {
+        properties.getReactive().setExecutionMode(ExecutionMode.VIRTUAL_THREADS);
+        BlockingPermits permits = new BlockingPermits(2, 4, Duration.ofSeconds(1));
+        Scheduler virtualThreads = Schedulers.fromExecutorService(Executors.newVirtualThreadPerTaskExecutor());
+        reactiveEntitySenseService = new ReactiveEntitySenseService(entitySenseService, properties, virtualThreads, permits,
+                new ScreeningMetrics(new SimpleMeterRegistry(), ObservationRegistry.NOOP), validator);
+        ValidatePaymentRequest request = new ValidatePaymentRequest("Alice", null, "SG", null);
+        ValidatePaymentResponse allow = new ValidatePaymentResponse();
+        allow.setStatus("ALLOW");
+        when(entitySenseService.validatePayments(List.of(request), permits)).thenReturn(List.of(allow));
+
+        try {
+            assertEquals(List.of(allow), reactiveEntitySenseService.validatePayments(List.of(request)).block());
+            assertEquals(List.of(allow), reactiveEntitySenseService.validatePaymentsStream(Flux.just(request)).collectList().block());
+        } finally {
+            virtualThreads.dispose();
+        }
+        verify(entitySenseService, times(2)).validatePayments(List.of(request), permits);
+        verify(entitySenseService, never()).validatePayments(anyList());
+    }
+
+    @Test
+    public void testValidatePaymentsStreamChunksAndKeepsOrder() {
+        properties.getBatch().setChunkSize(2);
+        when(entitySenseService.validatePayments(anyList(), eq(BlockingPermits.UNLIMITED))).thenAnswer(inv -> {
+            List<ValidatePaymentRequest> chunk = inv.getArgument(0);
+            return chunk.stream().map(r -> {
+                ValidatePaymentResponse resp = new ValidatePaymentResponse();
+                resp.setStatus(r.getPayeeName());
+                return resp;
+            }).toList();
+        });
+
+        List<String> statuses = reactiveEntitySenseService.validatePaymentsStream(Flux.just(
+                        new ValidatePaymentRequest("1", null, null, null),
+                        new ValidatePaymentRequest("2", null, null, null),
+                        new ValidatePaymentRequest("3", null, null, null)))
+                .map(ValidatePaymentResponse::getStatus)
+                .collectList()
+                .block();
+
+        assertEquals(List.of("1", "2", "3"), statuses);
+        verify(entitySenseService, times(2)).validatePayments(anyList(), eq(BlockingPermits.UNLIMITED));
+    }
+
+    @Test
+    public void testValidatePaymentsStreamAnswersInvalidRequestsInPlace() {
+        properties.getBatch().setChunkSize(3);
+        when(entitySenseService.validatePayments(anyList(), eq(BlockingPermits.UNLIMITED))).thenAnswer(inv -> {
+            List<ValidatePaymentRequest> chunk = inv.getArgument(0);
+            return chunk.stream().map(r -> {
+                ValidatePaymentResponse resp = new ValidatePaymentResponse();
+                resp.setStatus(r.getPayeeName());
+                return resp;
+            }).toList();
+        });
+
+        List<ValidatePaymentResponse> responses = reactiveEntitySenseService.validatePaymentsStream(Flux.just(
+                        new ValidatePaymentRequest("1", null, null, null),
+                        new ValidatePaymentRequest(" ", null, null, null),
+                        new ValidatePaymentRequest("3", null, null, null, 0)))
+                .collectList()
+                .block();
+
+        assertEquals(List.of("1", "INVALID", "INVALID"), responses.stream().map(ValidatePaymentResponse::getStatus).toList());
+        assertEquals("payeeName must not be blank", responses.get(1).getError());
+        assertTrue(responses.get(2).getError().startsWith("maxMatches"));
+        verify(entitySenseService).validatePayments(List.of(new ValidatePaymentRequest("1", null, null, null)), BlockingPermits.UNLIMITED);
+    }
+
+    @Test
+    public void testCachedVerdictIsAuditedOffTheCallingThread() {
+        Scheduler blocking = Schedulers.newSingle("blocking-test");
+        reactiveEntitySenseService = new ReactiveEntitySenseService(entitySenseService, properties, blocking, BlockingPermits.UNLIMITED,
+                new ScreeningMetrics(new SimpleMeterRegistry(), ObservationRegistry.NOOP), validator);
+        ValidatePaymentRequest request = new ValidatePaymentRequest("Alice", null, "SG", null);
+        AtomicReference<String> thread = new AtomicReference<>();
+        when(entitySenseService.cachedVerdict(eq(request), any())).thenAnswer(inv -> {
+            thread.set(Thread.currentThread().getName());
+            return new ValidatePaymentResponse();
+        });
+
+        try {
+            assertNotNull(reactiveEntitySenseService.validatePayment(request).block());
+        } finally {
+            blocking.dispose();
+        }
+        assertTrue(thread.get().startsWith("blocking-test"));
+        verify(entitySenseService, never()).generateEmbeddingAsync(any(), any(), any(), any());
+    }
+}
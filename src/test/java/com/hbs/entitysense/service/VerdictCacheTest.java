@@ -0,0 +1,84 @@
+package com.hbs.entitysense.service;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.hbs.entitysense.config.EntitySenseProperties;
+import com.hbs.entitysense.dto.ValidatePaymentRequest;
+import com.hbs.entitysense.dto.ValidatePaymentResponse;
+import com.hbs.entitysense.index.WatchlistSnapshot;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class VerdictCacheTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final Ticker ticker = nanos::get;
+
+    private EntitySenseProperties properties;
+    private VerdictCache cache;
+
+    @BeforeEach
+    public void setUp() {
+        properties = new EntitySenseProperties();
+        properties.getVerdictCache().setEnabled(true);
+        properties.getVerdictCache().setTtl(Duration.ofMinutes(5));
+        cache = new VerdictCache(properties, new SimpleMeterRegistry(), ticker);
+    }
+
+    private static WatchlistSnapshot version(long version) {
+        WatchlistSnapshot snapshot = mock(WatchlistSnapshot.class);
+        when(snapshot.version()).thenReturn(version);
+        return snapshot;
+    }
+
+    private static ValidatePaymentResponse response(boolean degraded) {
+        ValidatePaymentResponse response = new ValidatePaymentResponse();
+        response.setStatus("ALLOW");
+        response.setPossibleWatchListEntityMatches(List.of());
+        response.setDegraded(degraded);
+        return response;
+    }
+
+    @Test
+    public void testDecisionsAreKeyedByPayeeRequestOptionsAndWatchlistVersion() {
+        ValidatePaymentResponse allow = response(false);
+        cache.put(new ValidatePaymentRequest("Acme  Ltd", "1 Main St", "SG", "gb29 nwbk-6016"), version(3), allow);
+
+        assertSame(allow, cache.get(new ValidatePaymentRequest("Acme Ltd", "1 Main St", "SG", "GB29NWBK6016"), version(3)));
+        assertNull(cache.get(new ValidatePaymentRequest("Acme Ltd", "1 Main St", "SG", "GB29NWBK6016"), version(4)));
+        assertNull(cache.get(new ValidatePaymentRequest("ACME LTD", "1 Main St", "SG", "GB29NWBK6016"), version(3)));
+        assertNull(cache.get(new ValidatePaymentRequest("Acme Ltd", "1 Main St", "SG", "GB29NWBK6016", 1), version(3)));
+        ValidatePaymentRequest scoped = new ValidatePaymentRequest("Acme Ltd", "1 Main St", "SG", "GB29NWBK6016");
+        scoped.setProfile("domestic");
+        assertNull(cache.get(scoped, version(3)));
+    }
+
+    @Test
+    public void testDegradedDecisionsAreNotCached() {
+        ValidatePaymentRequest request = new ValidatePaymentRequest("Acme", null, null, null);
+        cache.put(request, version(1), response(true));
+
+        assertNull(cache.get(request, version(1)));
+    }
+
+    @Test
+    public void testEntriesExpireAfterTtlAndCacheCanBeDisabled() {
+        ValidatePaymentRequest request = new ValidatePaymentRequest("Acme", null, null, null);
+        cache.put(request, version(1), response(false));
+
+        nanos.addAndGet(Duration.ofMinutes(4).toNanos());
+        assertNotNull(cache.get(request, version(1)));
+        properties.getVerdictCache().setEnabled(false);
+        assertNull(cache.get(request, version(1)));
+        properties.getVerdictCache().setEnabled(true);
+        nanos.addAndGet(Duration.ofMinutes(2).toNanos());
+        assertNull(cache.get(request, version(1)));
+    }
+}